@@ -0,0 +1,99 @@
+package benchmarks;
+
+import hospital.Hospital;
+import hospital.io.JsonHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON import and export of the events of synthetic hospitals.
+ * The import runs on a hospital with the map and people but no events, rebuilt before every call.
+ * The sizes go from 50 to 50,000 rooms with the same events at the two largest, so the cost of the map
+ * size alone shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventIOBenchmark {
+    /**
+     * The size of the hospital
+     */
+    @Param({"SMALL", "MEDIUM", "LARGE", "REGIONAL"})
+    public SyntheticHospital.Size size;
+
+    /**
+     * The hospital whose events are exported
+     */
+    private Hospital populated;
+    /**
+     * The hospital the events are imported into
+     */
+    private Hospital empty;
+    /**
+     * The events of the populated hospital, as imported
+     */
+    private File eventsFile;
+    /**
+     * The file the events are exported to
+     */
+    private File exportFile;
+
+    /**
+     * Generates the hospital and writes its events file
+     *
+     * @throws IOException if the files cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        populated = SyntheticHospital.populated(size).hospital;
+        eventsFile = File.createTempFile("events", ".json");
+        exportFile = File.createTempFile("export", ".json");
+        JsonHandler.exportEvents(populated, eventsFile.getPath());
+    }
+
+    /**
+     * Rebuilds the hospital the events are imported into
+     */
+    @Setup(Level.Invocation)
+    public void resetImportTarget() {
+        empty = SyntheticHospital.empty(size).hospital;
+    }
+
+    /**
+     * Deletes the files
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventsFile.delete();
+        exportFile.delete();
+    }
+
+    @Benchmark
+    public Hospital importEvents() {
+        JsonHandler.importEvents(empty, eventsFile.getPath());
+        return empty;
+    }
+
+    @Benchmark
+    public boolean exportEvents() {
+        return JsonHandler.exportEvents(populated, exportFile.getPath());
+    }
+}
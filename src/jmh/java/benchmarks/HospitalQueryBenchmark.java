@@ -0,0 +1,119 @@
+package benchmarks;
+
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups and queries of {@link Hospital} on populated synthetic hospitals.
+ * Every call picks a random room or person, so the results do not depend on one lucky id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HospitalQueryBenchmark {
+    /**
+     * The size of the hospital
+     */
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public SyntheticHospital.Size size;
+
+    /**
+     * The hospital under test
+     */
+    private SyntheticHospital synthetic;
+    /**
+     * The start of the contact window, a quarter into the generated history
+     */
+    private LocalDateTime windowStart;
+    /**
+     * The end of the contact window, half into the generated history
+     */
+    private LocalDateTime windowEnd;
+
+    /**
+     * Generates the hospital and silences the console output of the queries
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        synthetic = SyntheticHospital.populated(size);
+        long seconds = java.time.Duration.between(SyntheticHospital.START, synthetic.end).getSeconds();
+        windowStart = SyntheticHospital.START.plusSeconds(seconds / 4);
+        windowEnd = SyntheticHospital.START.plusSeconds(seconds / 2);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        // build the lazy indexes before measuring
+        synthetic.hospital.hadContactWithIndividual(synthetic.personIds[0], windowStart, windowEnd);
+        synthetic.hospital.findClosestExit(synthetic.roomIds[0]);
+    }
+
+    /**
+     * Pick a random room id
+     *
+     * @return the room id
+     */
+    private int randomRoom() {
+        return synthetic.roomIds[ThreadLocalRandom.current().nextInt(synthetic.roomIds.length)];
+    }
+
+    /**
+     * Pick a random person id
+     *
+     * @return the person id
+     */
+    private int randomPerson() {
+        return synthetic.personIds[ThreadLocalRandom.current().nextInt(synthetic.personIds.length)];
+    }
+
+    @Benchmark
+    public Room getRoomById() {
+        return synthetic.hospital.getRoomById(randomRoom());
+    }
+
+    @Benchmark
+    public Person getPersonById() {
+        return synthetic.hospital.getPersonById(randomPerson());
+    }
+
+    @Benchmark
+    public UnorderedListADT<Person> hadContactWithIndividual() {
+        return synthetic.hospital.hadContactWithIndividual(randomPerson(), windowStart, windowEnd);
+    }
+
+    @Benchmark
+    public UnorderedListADT<Person> hadContactWithRoom() {
+        return synthetic.hospital.hadContactWithRoom(randomRoom(), windowStart, windowEnd);
+    }
+
+    @Benchmark
+    public void findClosestExit() {
+        synthetic.hospital.findClosestExit(randomRoom());
+    }
+
+    @Benchmark
+    public UnorderedListADT<Room> getAccessibleRooms() {
+        Hospital hospital = synthetic.hospital;
+        return hospital.getAccessibleRooms(randomRoom(), hospital.getPersonById(randomPerson()));
+    }
+}
@@ -0,0 +1,193 @@
+package benchmarks;
+
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * The SyntheticHospital class generates reproducible hospitals of a given size for the benchmarks.
+ * <p>
+ * Rooms form a corridor with extra random doors, one room in twenty is an exit, and every person walks
+ * from room to room along the doors, a few minutes per move.
+ */
+public final class SyntheticHospital {
+    /**
+     * The time of the first generated event
+     */
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    /**
+     * The seed of every generated hospital, so that runs are comparable
+     */
+    private static final long SEED = 42;
+    /**
+     * The number of extra doors for every room
+     */
+    private static final int EXTRA_DOORS = 2;
+
+    /**
+     * The sizes of the generated hospitals
+     */
+    public enum Size {
+        /**
+         * A ward
+         */
+        SMALL(50, 200, 5_000),
+        /**
+         * A hospital
+         */
+        MEDIUM(500, 2_000, 50_000),
+        /**
+         * A hospital campus
+         */
+        LARGE(5_000, 20_000, 500_000),
+        /**
+         * The hospitals of a region on one map
+         */
+        REGIONAL(50_000, 20_000, 500_000);
+
+        /**
+         * The number of rooms
+         */
+        final int rooms;
+        /**
+         * The number of people
+         */
+        final int people;
+        /**
+         * The number of events
+         */
+        final int events;
+
+        /**
+         * Constructor of the enum Size
+         *
+         * @param rooms  the number of rooms
+         * @param people the number of people
+         * @param events the number of events
+         */
+        Size(int rooms, int people, int events) {
+            this.rooms = rooms;
+            this.people = people;
+            this.events = events;
+        }
+    }
+
+    /**
+     * The generated hospital
+     */
+    final Hospital hospital;
+    /**
+     * The id of every room
+     */
+    final int[] roomIds;
+    /**
+     * The id of every person
+     */
+    final int[] personIds;
+    /**
+     * The time of the last generated event
+     */
+    final LocalDateTime end;
+
+    /**
+     * Constructor of the class SyntheticHospital
+     *
+     * @param hospital  the generated hospital
+     * @param roomIds   the id of every room
+     * @param personIds the id of every person
+     * @param end       the time of the last generated event
+     */
+    private SyntheticHospital(Hospital hospital, int[] roomIds, int[] personIds, LocalDateTime end) {
+        this.hospital = hospital;
+        this.roomIds = roomIds;
+        this.personIds = personIds;
+        this.end = end;
+    }
+
+    /**
+     * Generates a hospital with its map and people, every person in the first room, and no events
+     *
+     * @param size the size of the hospital
+     * @return the hospital
+     */
+    static SyntheticHospital empty(Size size) {
+        Random random = new Random(SEED);
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        int[] roomIds = new int[size.rooms];
+        TypeOfRoom[] types = TypeOfRoom.values();
+        for (int i = 0; i < size.rooms; i++) {
+            roomIds[i] = i + 1;
+            UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
+            for (TypeOfFunction function : TypeOfFunction.values()) {
+                access.addToRear(function);
+            }
+            TypeOfRoom type = i % 20 == 0 ? TypeOfRoom.EXIT : types[random.nextInt(types.length - 1)];
+            builder.addRoom(new Room(roomIds[i], access, 0, false, 20, type, "Room " + roomIds[i]));
+        }
+        for (int i = 1; i < size.rooms; i++) {
+            connect(builder, roomIds[i - 1], roomIds[i], 1 + random.nextInt(10));
+            for (int d = 0; d < EXTRA_DOORS; d++) {
+                connect(builder, roomIds[random.nextInt(i)], roomIds[i], 1 + random.nextInt(30));
+            }
+        }
+
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        int[] personIds = new int[size.people];
+        TypeOfFunction[] functions = TypeOfFunction.values();
+        for (int i = 0; i < size.people; i++) {
+            personIds[i] = 100000000 + i;
+            hospital.addPerson(new Person(personIds[i], "Person " + i, 18 + random.nextInt(70),
+                    functions[random.nextInt(functions.length)]));
+        }
+        return new SyntheticHospital(hospital, roomIds, personIds, START);
+    }
+
+    /**
+     * Generates a hospital with its map, people and events
+     *
+     * @param size the size of the hospital
+     * @return the hospital
+     */
+    static SyntheticHospital populated(Size size) {
+        SyntheticHospital empty = empty(size);
+        Hospital hospital = empty.hospital;
+        CompactGraph map = hospital.getHospitalMap();
+        Random random = new Random(SEED + 1);
+        int[] location = new int[size.people];
+        LocalDateTime time = START;
+        for (int e = 0; e < size.events; e++) {
+            int p = random.nextInt(size.people);
+            int from = location[p];
+            int door = map.firstEdge(from) + random.nextInt(map.degree(from));
+            int to = map.target(door);
+            time = time.plusSeconds(1 + random.nextInt(30));
+            hospital.addEvent(new Event(hospital.getPersonById(empty.personIds[p]), map.getRoom(from),
+                    map.getRoom(to), time));
+            location[p] = to;
+        }
+        return new SyntheticHospital(hospital, empty.roomIds, empty.personIds, time);
+    }
+
+    /**
+     * Add a door between two rooms
+     *
+     * @param builder the graph builder
+     * @param roomId1 the id of the first room
+     * @param roomId2 the id of the second room
+     * @param weight  the distance between the rooms
+     */
+    private static void connect(CompactGraph.Builder builder, int roomId1, int roomId2, double weight) {
+        builder.addEdge(roomId1, roomId2, weight);
+        builder.addEdge(roomId2, roomId1, weight);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the JMH benchmarks of the hospital, run with {@code gradle jmh}.
+ */
+package benchmarks;
@@ -1,34 +1,118 @@
 package client;
 
 import hospital.Hospital;
+import hospital.events.EventLog;
+import hospital.events.EventStore;
 import hospital.exceptions.ImportException;
+import hospital.generator.WorkloadGenerator;
+import hospital.io.HospitalSnapshot;
+import hospital.io.ImportPipeline;
 import hospital.menu.Menu;
+import hospital.server.IngestionServer;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import static hospital.io.HospitalSnapshot.SNAPSHOT_FILE;
 import static hospital.io.JsonHandler.*;
 
 /**
  * This class is used to run the hospital application
  */
 public abstract class DemoHospital {
+    /**
+     * The directory of the data files when none is given
+     */
+    private static final String DEFAULT_DATA_DIRECTORY = "src/main/resources";
+    /**
+     * The name of the write-ahead log of the events registered since the last export
+     */
+    private static final String EVENT_LOG_FILE = "events.wal";
+
     /**
      * The main method of the application
      *
-     * @param args The arguments of the application
+     * @param args The arguments of the application, optionally the directory of the data files, followed by
+     *             {@code --serve [port]} to receive the events from the door readers instead of showing the menu
      */
     public static void main(String[] args) {
+        String dataDirectory = args.length > 0 ? args[0] : DEFAULT_DATA_DIRECTORY;
+        boolean serve = args.length > 1 && args[1].equals("--serve");
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : IngestionServer.DEFAULT_PORT;
 
-        Hospital hospital = new Hospital();
-        try {
-            hospital.setHospitalMap((importMap("src/main/resources/map.json")));
-            importEvents(hospital, "src/main/resources/events.json");
+        Path snapshotFile = Path.of(dataDirectory, SNAPSHOT_FILE);
+        Path storeFile = Path.of(dataDirectory, WorkloadGenerator.EVENT_STORE_FILE);
+        // the history written with a snapshot by the workload generator is kept in an event store
+        try (EventLog eventLog = EventLog.open(Path.of(dataDirectory, EVENT_LOG_FILE));
+             EventStore eventStore = Files.exists(storeFile) ? EventStore.open(storeFile) : null) {
+            Hospital hospital;
+            long replayFrom;
+            if (Files.exists(snapshotFile)) {
+                HospitalSnapshot snapshot = HospitalSnapshot.read(snapshotFile);
+                hospital = snapshot.getHospital();
+                replayFrom = snapshot.getSequence();
+            } else {
+                hospital = new ImportPipeline().load(Path.of(dataDirectory, MAP_FILE).toString(),
+                        Path.of(dataDirectory, ROOMS_FILE).toString(),
+                        Path.of(dataDirectory, PEOPLE_FILE).toString(),
+                        Path.of(dataDirectory, EVENTS_FILE).toString());
+                replayFrom = eventLog.checkpointSequence();
+            }
 
-            Menu.mainMenu(hospital);
+            int replayed = hospital.replayEvents(eventLog, replayFrom);
+            if (replayed > 0) {
+                System.out.println("Recovered " + replayed + " events registered after the last save");
+            }
+            // attached after the replay, the store already holds the events logged while it was attached
+            if (eventStore != null) {
+                hospital.setEventStore(eventStore);
+            }
+            hospital.setEventLog(eventLog);
+
+            if (serve) {
+                serve(hospital, port);
+            } else {
+                Menu.mainMenu(hospital, dataDirectory);
+            }
+            HospitalSnapshot.checkpoint(hospital, snapshotFile);
         } catch (IOException e) {
             throw new RuntimeException(e);
         } catch (ImportException e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Receive the events from the door readers until the application is stopped
+     *
+     * @param hospital the hospital
+     * @param port     the port to listen on
+     * @throws IOException if the server cannot be started
+     */
+    private static void serve(Hospital hospital, int port) throws IOException {
+        hospital.getOccupancyMonitor().addListener(alert -> System.out.println(alert));
+        IngestionServer server = new IngestionServer(hospital, port);
+        server.start();
+        System.out.println("Receiving events on port " + server.getPort());
+
+        // on Ctrl+C, stop receiving and let the main thread save the hospital before exiting
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                main.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+        System.out.println(server.getAcceptedCount() + " events registered, " + server.getRejectedCount()
+                + " refused");
+    }
 }
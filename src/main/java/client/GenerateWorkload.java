@@ -0,0 +1,56 @@
+package client;
+
+import hospital.generator.WorkloadGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This class is used to generate the data files of a synthetic hospital
+ */
+public abstract class GenerateWorkload {
+    /**
+     * The usage of the application
+     */
+    private static final String USAGE =
+            "Usage: GenerateWorkload <directory> <rooms> <people> <events> [days] [json|binary] [seed]";
+
+    /**
+     * The main method of the generator
+     *
+     * @param args The arguments of the generator: the output directory, the number of rooms, people and events,
+     *             and optionally the number of days, the output format and the seed
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        Path directory = Path.of(args[0]);
+        WorkloadGenerator generator = new WorkloadGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Long.parseLong(args[3]));
+        if (args.length > 4) {
+            generator.setDays(Integer.parseInt(args[4]));
+        }
+        String format = args.length > 5 ? args[5] : "json";
+        if (args.length > 6) {
+            generator.setSeed(Long.parseLong(args[6]));
+        }
+
+        long start = System.nanoTime();
+        try {
+            switch (format) {
+                case "json" -> generator.writeJson(directory);
+                case "binary" -> generator.writeBinary(directory);
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(1);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        System.out.printf("Generated %s in %s in %.1f s%n", args[3] + " events", directory,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
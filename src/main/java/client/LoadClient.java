@@ -0,0 +1,126 @@
+package client;
+
+import hospital.generator.WorkloadGenerator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to load test the ingestion server, acting as many door readers at once.
+ * <p>
+ * The movements are the events of a {@link WorkloadGenerator}, so the server must be running on the data
+ * generated with the same number of rooms and people and the same seed, for example with no events:
+ * {@code GenerateWorkload <directory> <rooms> <people> 0}. The movements of a person always go through the
+ * same connection, in order, and every connection sends without waiting for the answers.
+ */
+public abstract class LoadClient {
+    /**
+     * The usage of the application
+     */
+    private static final String USAGE =
+            "Usage: LoadClient <host> <port> <connections> <rooms> <people> <events> [days] [seed]";
+
+    /**
+     * The main method of the load client
+     *
+     * @param args The arguments of the client: the address of the server, the number of connections,
+     *             the number of rooms, people and events, and optionally the number of days and the seed
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 6) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        WorkloadGenerator generator = new WorkloadGenerator(Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                Long.parseLong(args[5]));
+        if (args.length > 6) {
+            generator.setDays(Integer.parseInt(args[6]));
+        }
+        if (args.length > 7) {
+            generator.setSeed(Long.parseLong(args[7]));
+        }
+
+        // the lines of every connection, prepared before the clock starts
+        List<StringBuilder> lines = new ArrayList<>(connections);
+        int[] counts = new int[connections];
+        for (int c = 0; c < connections; c++) {
+            lines.add(new StringBuilder());
+        }
+        generator.forEachEvent((personId, fromRoomId, toRoomId, time) -> {
+            int connection = Math.floorMod(personId * 0x9e3779b9, connections);
+            lines.get(connection).append(personId).append(',').append(fromRoomId).append(',').append(toRoomId)
+                    .append(',').append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+                            LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC))).append('\n');
+            counts[connection]++;
+        });
+
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            Socket socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            String payload = lines.get(c).toString();
+            int expected = counts[c];
+            Thread.ofVirtual().start(() -> {
+                try {
+                    BufferedWriter out = new BufferedWriter(
+                            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), 1 << 16);
+                    out.write(payload);
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            readers.add(Thread.ofVirtual().start(() -> {
+                try (socket; BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+                    for (int i = 0; i < expected; i++) {
+                        String answer = in.readLine();
+                        if (answer == null) {
+                            firstError.compareAndSet(null, "connection closed by the server");
+                            return;
+                        }
+                        if (answer.equals("OK")) {
+                            accepted.increment();
+                        } else {
+                            rejected.increment();
+                            firstError.compareAndSet(null, answer);
+                        }
+                    }
+                } catch (IOException e) {
+                    firstError.compareAndSet(null, e.getMessage());
+                }
+            }));
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = accepted.sum() + rejected.sum();
+        System.out.printf("%d movements over %d connections in %.2f s: %.0f movements/s, %d accepted, %d refused%n",
+                total, connections, seconds, total / seconds, accepted.sum(), rejected.sum());
+        if (firstError.get() != null) {
+            System.out.println("First error: " + firstError.get());
+        }
+    }
+}
@@ -3,16 +3,45 @@ package hospital;
 import collections.graphs.Network;
 import collections.lists.UnorderedLinkedList;
 import collections.lists.UnorderedListADT;
+import hospital.collections.IntIntMap;
+import hospital.collections.IntObjectMap;
+import hospital.collections.IntSet;
+import hospital.concurrent.RoomLocks;
 import hospital.enums.TypeOfFunction;
-import hospital.enums.TypeOfRoom;
+import hospital.events.Contact;
+import hospital.events.ContactGraph;
+import hospital.events.EventColumns;
+import hospital.events.EventLog;
+import hospital.events.EventStore;
+import hospital.events.EventTimeline;
+import hospital.events.StayIndex;
+import hospital.graph.AccessIndex;
+import hospital.graph.CompactGraph;
+import hospital.graph.EvacuationField;
+import hospital.graph.RouteCache;
+import hospital.graph.RouteTable;
 import hospital.menu.Tools;
+import hospital.occupancy.OccupancyAlert;
+import hospital.occupancy.OccupancyMonitor;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 /**
  * Represents a hospital.
@@ -23,28 +52,775 @@ import java.util.Iterator;
  * The hospital print a visual representation of the map using a graphical interface.
  * The hospital detect all people who had contact with a room within a specified date range.
  * The hospital detect all people who had contact with a person within a specified date range.
+ * <p>
+ * Events can be applied from many threads at once while queries run. Applying an event locks only the
+ * stripes of its two rooms, see {@link RoomLocks}, and the person that moved. Queries copy the state of a
+ * room while holding its stripe for reading and do the rest of their work without any lock, so they only
+ * wait for, and hold up, events of that same stripe. The lookups by id are guarded by their own lock,
+ * which only the methods that add rooms and people take for writing.
+ * The locks are always taken in the same order: rooms, then the event store, then the lookups by id,
+ * then the person. Every event is stored once in the {@link EventColumns} of the hospital, whose monitor is
+ * only held while events are added to it, and rooms and people keep the offsets of their events.
+ * The {@link ContactGraph}, if one is kept, reads the new events from the columns under its own monitor, once
+ * the rooms are unlocked.
  */
 public class Hospital {
     /**
-     * The hospital map.
+     * The number of logged events replayed at once.
      */
-    private Network<Room> hospitalMap;
+    private static final int REPLAY_BATCH_SIZE = 4096;
+    /**
+     * The number of routes cached by default.
+     */
+    private static final int ROUTE_CACHE_CAPACITY = 4096;
+    /**
+     * The hospital map, kept as a compact adjacency list graph.
+     */
+    private volatile CompactGraph hospitalMap;
+    /**
+     * The nearest exit of every room, computed lazily for the current map.
+     */
+    private volatile EvacuationField evacuationField;
+    /**
+     * The rooms every function may enter, computed lazily for the current map.
+     */
+    private volatile AccessIndex accessIndex;
+    /**
+     * The shortest routes between every pair of rooms, kept up to date lazily, null if routes are searched.
+     */
+    private volatile RouteTable routeTable;
+    /**
+     * The pool the rows of the route table are computed on, null if the route table is disabled.
+     */
+    private volatile ForkJoinPool routePool;
+    /**
+     * Guards the updates of the route table, so that a map change is only applied to it once.
+     */
+    private final Object routeTableLock = new Object();
+    /**
+     * The most recently used routes, null if routes are not cached.
+     */
+    private volatile RouteCache routeCache;
+    /**
+     * The number of changes of the map and of the access to its rooms, used to tell when cached routes are stale.
+     */
+    private final AtomicLong mapVersion;
+    /**
+     * The rooms of the hospital map indexed by room id.
+     */
+    private final IntObjectMap<Room> roomsById;
+    /**
+     * The people known to the hospital indexed by person id.
+     */
+    private final IntObjectMap<Person> peopleById;
+    /**
+     * Guards the lookups of rooms and people by id.
+     */
+    private final ReentrantReadWriteLock directoryLock;
+    /**
+     * Guards the state of the rooms against concurrent events.
+     */
+    private final RoomLocks roomLocks;
+    /**
+     * The number of events applied to the hospital, used to tell when derived indexes are stale.
+     */
+    private final LongAdder eventsVersion;
+    /**
+     * Publishes the alerts of the rooms whose occupation crosses a threshold.
+     */
+    private final OccupancyMonitor occupancyMonitor;
+    /**
+     * The events applied to the hospital, referenced by offset from the room timelines and person activities.
+     */
+    private final EventColumns eventColumns;
+    /**
+     * The stays of every person and room, built lazily from the activity of every person.
+     */
+    private StayIndex stayIndex;
+    /**
+     * The events version the stay index was built for.
+     */
+    private long stayIndexVersion = -1;
+    /**
+     * The event store the stay index was built from, null if it was built from the activity of the people.
+     */
+    private EventStore stayIndexStore;
+    /**
+     * The number of events of the event store the stay index was built from.
+     */
+    private long stayIndexStoreSize;
+    /**
+     * The contacts between people, kept up to date as events are applied, null if they are not kept.
+     */
+    private volatile ContactGraph contactGraph;
+    /**
+     * The persistent history of events, null if events are only kept in memory.
+     */
+    private volatile EventStore eventStore;
+    /**
+     * The write-ahead log of the events accepted live, null if they are not logged.
+     */
+    private volatile EventLog eventLog;
 
     /**
      * Default constructor that initializes the hospital with an empty map, rooms, people, and events.
      * It also initializes the list of edges.
      */
     public Hospital() {
-        this.hospitalMap = new Network<>();
+        this.hospitalMap = CompactGraph.empty();
+        this.roomsById = new IntObjectMap<>();
+        this.peopleById = new IntObjectMap<>();
+        this.directoryLock = new ReentrantReadWriteLock();
+        this.roomLocks = new RoomLocks();
+        this.eventsVersion = new LongAdder();
+        this.occupancyMonitor = new OccupancyMonitor();
+        this.eventColumns = new EventColumns();
+        this.routeCache = new RouteCache(ROUTE_CACHE_CAPACITY);
+        this.mapVersion = new AtomicLong();
     }
 
     /**
-     * Sets the hospital map.
+     * Sets the hospital map from a network.
+     * The network is converted once into a compact adjacency list graph, rooms keep their network indexes.
      *
      * @param hospitalMap The hospital map to set.
      */
     public void setHospitalMap(Network<Room> hospitalMap) {
-        this.hospitalMap = hospitalMap;
+        setHospitalMap(CompactGraph.fromNetwork(hospitalMap));
+    }
+
+    /**
+     * Sets the hospital map.
+     * The room and person indexes are rebuilt from the rooms of the new map and the people inside them.
+     *
+     * @param hospitalMap The hospital map to set.
+     */
+    public void setHospitalMap(CompactGraph hospitalMap) {
+        directoryLock.writeLock().lock();
+        try {
+            this.hospitalMap = hospitalMap;
+            mapVersion.incrementAndGet();
+            this.roomsById.clear();
+            this.peopleById.clear();
+            for (int i = 0; i < hospitalMap.size(); i++) {
+                Room room = hospitalMap.getRoom(i);
+                roomsById.put(room.getId(), room);
+                Iterator<Person> personIterator = room.getPeopleInRoom().iterator();
+                while (personIterator.hasNext()) {
+                    Person person = personIterator.next();
+                    peopleById.put(person.getId(), person);
+                }
+            }
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the hospital map.
+     *
+     * @return The hospital map.
+     */
+    public CompactGraph getHospitalMap() {
+        return hospitalMap;
+    }
+
+    /**
+     * Adds a room to the hospital map.
+     *
+     * @param room The room to add.
+     */
+    public void addVertex(Room room) {
+        directoryLock.writeLock().lock();
+        try {
+            hospitalMap = hospitalMap.toBuilder().addRoom(room).build();
+            mapVersion.incrementAndGet();
+            roomsById.put(room.getId(), room);
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new person to the hospital, placing them in the entrance room (the first room of the map).
+     *
+     * @param person The person to add.
+     */
+    public void addPerson(Person person) {
+        Room entrance = hospitalMap.getRoom(0);
+        List<OccupancyAlert> alerts = new ArrayList<>();
+        while (true) {
+            // a person already known by this id leaves the room they are in, so they are only counted once
+            Person known = getPersonById(person.getId());
+            Person previous = known == null ? person : known;
+            Room location = previous.getLocation();
+            int locationId = location == null ? entrance.getId() : location.getId();
+            roomLocks.lock(entrance.getId(), locationId);
+            try {
+                if (previous.getLocation() != location || getPersonById(person.getId()) != known) {
+                    // moved or replaced while the rooms were being locked
+                    continue;
+                }
+                if (location != null && (location != entrance || previous != person)) {
+                    int before = location.getCurrentOccupation();
+                    location.removePerson(previous);
+                    occupancyMonitor.occupationChanged(location, before, location.getCurrentOccupation(), alerts);
+                }
+                int before = entrance.getCurrentOccupation();
+                entrance.addPerson(person);
+                occupancyMonitor.occupationChanged(entrance, before, entrance.getCurrentOccupation(), alerts);
+                directoryLock.writeLock().lock();
+                try {
+                    peopleById.put(person.getId(), person);
+                } finally {
+                    directoryLock.writeLock().unlock();
+                }
+                break;
+            } finally {
+                roomLocks.unlock(entrance.getId(), locationId);
+            }
+        }
+        occupancyMonitor.publish(alerts);
+    }
+
+    /**
+     * Applies an event to the hospital.
+     * The event is added to the activity of the person and to the destination room,
+     * and the person is moved out of the room they are in, normally the room they came from.
+     * If an event store is attached, the event is also appended to it.
+     * Only the rooms of the event and the room the person is in are locked, so events between other rooms
+     * are applied at the same time.
+     *
+     * @param event The event to apply.
+     */
+    public void addEvent(Event event) {
+        Event[] single = {event};
+        List<OccupancyAlert> alerts = new ArrayList<>();
+        int[] locked = lockRooms(single);
+        try {
+            applyEvent(event, alerts);
+        } finally {
+            roomLocks.unlockStripes(locked);
+        }
+        occupancyMonitor.publish(alerts);
+        advanceContactGraph();
+    }
+
+    /**
+     * Apply an event, with the stripes of its rooms locked
+     *
+     * @param event  the event
+     * @param alerts the occupation alerts to publish once the rooms are unlocked, the new ones are added
+     */
+    private void applyEvent(Event event, List<OccupancyAlert> alerts) {
+        Person person = event.getPerson();
+        Room fromRoom = person.getLocation();
+        Room toRoom = event.getTo();
+
+        EventStore store = eventStore;
+        if (store != null) {
+            synchronized (store) {
+                try {
+                    store.append(event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error writing the event to the event store", e);
+                }
+            }
+        }
+        int offset = eventColumns.add(event);
+        person.addActivity(eventColumns, offset);
+        int toBefore = toRoom.getCurrentOccupation();
+        toRoom.addEvent(eventColumns, offset);
+        occupancyMonitor.occupationChanged(toRoom, toBefore, toRoom.getCurrentOccupation(), alerts);
+
+        //remove person from the room he/she was in
+        if (fromRoom != null && fromRoom != toRoom) {
+            int fromBefore = fromRoom.getCurrentOccupation();
+            fromRoom.removePerson(person);
+            occupancyMonitor.occupationChanged(fromRoom, fromBefore, fromRoom.getCurrentOccupation(), alerts);
+        }
+        eventsVersion.increment();
+    }
+
+    /**
+     * Applies a batch of events to the hospital, with the same result as applying them one by one in time order.
+     * Events with the same time keep their order in the batch.
+     * <p>
+     * The batch is sorted by time and then grouped: the events of every person are added to their activity
+     * at once, the events of every room are appended to its timeline at once, and every person is moved
+     * out of the room they were in and into the room they end up in only once, however many moves they
+     * made in the batch. The occupation alerts are still published for every move, in time order.
+     * The rooms of the whole batch are locked together.
+     * <p>
+     * Only the events of one batch are put in time order. Batches are applied in the order they are given, so
+     * when the events of a person are spread over several batches out of time order, the room they end up in
+     * follows the order of the batches, and depends on how the events were split into batches.
+     *
+     * @param batch The events to apply, the array is not modified.
+     */
+    public void applyEvents(Event[] batch) {
+        if (batch.length == 0) {
+            return;
+        }
+        List<OccupancyAlert> alerts = new ArrayList<>();
+        int[] locked = lockRooms(batch);
+        try {
+            applyBatch(batch, alerts);
+        } finally {
+            roomLocks.unlockStripes(locked);
+        }
+        occupancyMonitor.publish(alerts);
+        advanceContactGraph();
+    }
+
+    /**
+     * Records a batch of events accepted live: every event is appended to the event log, if one is attached,
+     * and the batch is applied as by {@link #applyEvents(Event[])}, and the method returns once the events
+     * are durable. The whole batch costs a single wait for the log.
+     * <p>
+     * The events are appended and applied with their rooms locked, so a snapshot taken with every room locked
+     * holds exactly the events logged up to the last sequence number of the log. The wait for the log starts
+     * once the rooms are unlocked, so batches that share a room are committed together instead of one after
+     * the other.
+     *
+     * @param batch The events to record, the array is not modified.
+     * @throws IOException If the events cannot be appended to the event log, in which case none is applied, or
+     *                     cannot be made durable, in which case they are applied but must not be acknowledged.
+     */
+    public void recordEvents(Event[] batch) throws IOException {
+        if (batch.length == 0) {
+            return;
+        }
+        EventLog log = eventLog;
+        long sequence = 0;
+        List<OccupancyAlert> alerts = new ArrayList<>();
+        int[] locked = lockRooms(batch);
+        try {
+            if (log != null) {
+                for (Event event : batch) {
+                    sequence = log.append(event.getPerson().getId(), event.getFrom().getId(),
+                            event.getTo().getId(), EventTimeline.epochSecond(event.getTime()));
+                }
+            }
+            applyBatch(batch, alerts);
+        } finally {
+            roomLocks.unlockStripes(locked);
+        }
+        occupancyMonitor.publish(alerts);
+        advanceContactGraph();
+        if (log != null) {
+            log.sync(sequence);
+        }
+    }
+
+    /**
+     * Apply the events added to the columns to the contact graph, if one is kept.
+     * Called once the rooms are unlocked, so that matching late events never holds up other batches.
+     */
+    private void advanceContactGraph() {
+        ContactGraph graph = contactGraph;
+        if (graph != null) {
+            graph.advance(eventColumns, eventColumns.size());
+        }
+    }
+
+    /**
+     * Lock the rooms of a batch of events and the rooms their people are in.
+     * A person may move while the rooms are being locked, so the rooms are locked again until they still
+     * cover the location of every person once locked.
+     *
+     * @param batch the events
+     * @return the locked stripes
+     */
+    private int[] lockRooms(Event[] batch) {
+        int[] roomIds = roomIds(batch);
+        while (true) {
+            int[] locked = roomLocks.lockRooms(roomIds);
+            roomIds = roomIds(batch);
+            if (roomLocks.covers(locked, roomIds)) {
+                return locked;
+            }
+            roomLocks.unlockStripes(locked);
+        }
+    }
+
+    /**
+     * Get the ids of the rooms of a batch of events
+     *
+     * @param batch the events
+     * @return the origin and destination room ids and the id of the room every person is in, with repetitions
+     */
+    private static int[] roomIds(Event[] batch) {
+        int[] ids = new int[batch.length * 3];
+        for (int i = 0; i < batch.length; i++) {
+            Room location = batch[i].getPerson().getLocation();
+            ids[3 * i] = batch[i].getFrom().getId();
+            ids[3 * i + 1] = batch[i].getTo().getId();
+            ids[3 * i + 2] = location == null ? ids[3 * i] : location.getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Apply a batch of events, with the stripes of all their rooms locked
+     *
+     * @param batch  the events
+     * @param alerts the occupation alerts to publish once the rooms are unlocked, the new ones are added
+     */
+    private void applyBatch(Event[] batch, List<OccupancyAlert> alerts) {
+        Event[] byTime = sortByTime(batch);
+
+        EventStore store = eventStore;
+        if (store != null) {
+            synchronized (store) {
+                try {
+                    for (Event event : byTime) {
+                        store.append(event);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error writing the event to the event store", e);
+                }
+            }
+        }
+
+        // the event at position i of the sorted batch is stored at the first offset plus i
+        int first = eventColumns.addAll(byTime);
+
+        // every person is only moved once below, so the occupation of every room is replayed move by move
+        // first, for the alerts to see the thresholds crossed and recovered inside the batch
+        Room[] changedRooms = new Room[byTime.length * 2];
+        int[] occupations = new int[byTime.length * 4];
+        int changes = replayOccupation(byTime, changedRooms, occupations);
+
+        // the groups are found by sorting the id of every event followed by its position, so every group
+        // stays in time order
+        long[] keys = new long[byTime.length];
+        int[] grouped = new int[byTime.length];
+        for (int i = 0; i < byTime.length; i++) {
+            keys[i] = (long) byTime[i].getPerson().getId() << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int start = 0, end; start < keys.length; start = end) {
+            Person person = byTime[(int) keys[start]].getPerson();
+            end = start;
+            while (end < keys.length && byTime[(int) keys[end]].getPerson() == person) {
+                grouped[end] = first + (int) keys[end];
+                end++;
+            }
+            person.addActivity(eventColumns, grouped, start, end);
+            movePerson(person, byTime[(int) keys[end - 1]].getTo());
+        }
+
+        for (int i = 0; i < byTime.length; i++) {
+            keys[i] = (long) byTime[i].getTo().getId() << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int start = 0, end; start < keys.length; start = end) {
+            Room room = byTime[(int) keys[start]].getTo();
+            end = start;
+            while (end < keys.length && byTime[(int) keys[end]].getTo() == room) {
+                grouped[end] = first + (int) keys[end];
+                end++;
+            }
+            room.addEvents(eventColumns, grouped, start, end);
+        }
+        for (int i = 0; i < changes; i++) {
+            occupancyMonitor.occupationChanged(changedRooms[i], occupations[2 * i], occupations[2 * i + 1], alerts);
+        }
+        eventsVersion.add(batch.length);
+    }
+
+    /**
+     * Sort a batch of events by time, to the second as the timelines, keeping the order of equal times
+     *
+     * @param batch the events
+     * @return the batch itself if it is already in order, or a sorted copy
+     */
+    private static Event[] sortByTime(Event[] batch) {
+        long[] times = new long[batch.length];
+        boolean inOrder = true;
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < batch.length; i++) {
+            times[i] = EventTimeline.epochSecond(batch[i].getTime());
+            inOrder &= i == 0 || times[i - 1] <= times[i];
+            first = Math.min(first, times[i]);
+            last = Math.max(last, times[i]);
+        }
+        if (inOrder) {
+            return batch;
+        }
+
+        Event[] sorted = new Event[batch.length];
+        if (last - first >= Integer.MAX_VALUE) {
+            System.arraycopy(batch, 0, sorted, 0, batch.length);
+            Arrays.sort(sorted, Comparator.comparing(event -> EventTimeline.epochSecond(event.getTime())));
+            return sorted;
+        }
+        // the time followed by the position, sorted as plain numbers
+        long[] keys = new long[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            keys[i] = (times[i] - first) << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = batch[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Replay the moves of a batch on the occupation of the rooms, as if they were applied one by one,
+     * without changing the rooms
+     *
+     * @param byTime       the events of the batch in time order
+     * @param changedRooms receives the room of every change of occupation, in time order
+     * @param occupations  receives the occupation before and after every change, two entries per change
+     * @return the number of changes
+     */
+    private static int replayOccupation(Event[] byTime, Room[] changedRooms, int[] occupations) {
+        IntObjectMap<Room> locations = new IntObjectMap<>();
+        IntIntMap counts = new IntIntMap();
+        int changes = 0;
+        for (Event event : byTime) {
+            Person person = event.getPerson();
+            Room location = locations.containsKey(person.getId())
+                    ? locations.get(person.getId()) : person.getLocation();
+            Room destination = event.getTo();
+            if (location == destination) {
+                continue;
+            }
+            locations.put(person.getId(), destination);
+            int before = counts.getOrDefault(destination.getId(), destination.getCurrentOccupation());
+            counts.put(destination.getId(), before + 1);
+            changedRooms[changes] = destination;
+            occupations[2 * changes] = before;
+            occupations[2 * changes + 1] = before + 1;
+            changes++;
+            if (location != null) {
+                before = counts.getOrDefault(location.getId(), location.getCurrentOccupation());
+                counts.put(location.getId(), before - 1);
+                changedRooms[changes] = location;
+                occupations[2 * changes] = before;
+                occupations[2 * changes + 1] = before - 1;
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Move a person to the room they end up in after a batch, the alerts of the batch are published apart
+     *
+     * @param person      the person
+     * @param destination the destination of the last move of the person
+     */
+    private void movePerson(Person person, Room destination) {
+        Room location = person.getLocation();
+        if (location == destination) {
+            return;
+        }
+        destination.addPerson(person);
+        if (location != null) {
+            location.removePerson(person);
+        }
+    }
+
+    /**
+     * Records an event accepted live: the event is appended to the event log, if one is attached, and applied,
+     * and the method returns once it is durable.
+     * The rooms of the event stay locked from the append to the log until the event is applied, so a snapshot
+     * taken with every room locked contains every event logged before it, and are unlocked before the wait
+     * for the log, as in {@link #recordEvents(Event[])}.
+     *
+     * @param event The event to record.
+     * @throws IOException If the event cannot be appended to the event log, in which case it is not applied, or
+     *                     cannot be made durable, in which case it is applied but must not be acknowledged.
+     */
+    public void recordEvent(Event event) throws IOException {
+        Event[] single = {event};
+        EventLog log = eventLog;
+        long sequence = 0;
+        List<OccupancyAlert> alerts = new ArrayList<>();
+        int[] locked = lockRooms(single);
+        try {
+            if (log != null) {
+                sequence = log.append(event.getPerson().getId(), event.getFrom().getId(), event.getTo().getId(),
+                        EventTimeline.epochSecond(event.getTime()));
+            }
+            applyEvent(event, alerts);
+        } finally {
+            roomLocks.unlockStripes(locked);
+        }
+        occupancyMonitor.publish(alerts);
+        advanceContactGraph();
+        if (log != null) {
+            log.sync(sequence);
+        }
+    }
+
+    /**
+     * Applies the events of the event log written after its checkpoint, in the order they were logged.
+     * Events that refer to unknown people or rooms are skipped.
+     *
+     * @param eventLog The event log to replay.
+     * @return The number of events applied.
+     * @throws IOException If the event log cannot be read.
+     */
+    public int replayEvents(EventLog eventLog) throws IOException {
+        return replayEvents(eventLog, eventLog.checkpointSequence());
+    }
+
+    /**
+     * Applies the events of the event log written after a sequence number, in the order they were logged.
+     * Events that refer to unknown people or rooms are skipped.
+     *
+     * @param eventLog      The event log to replay.
+     * @param afterSequence The sequence number of the last event already applied, as recorded by a snapshot.
+     * @return The number of events applied.
+     * @throws IOException If the event log cannot be read.
+     */
+    public int replayEvents(EventLog eventLog, long afterSequence) throws IOException {
+        int[] applied = new int[1];
+        Event[] batch = new Event[REPLAY_BATCH_SIZE];
+        int[] size = new int[1];
+        eventLog.replay(afterSequence, (personId, fromRoomId, toRoomId, time) -> {
+            Person person = getPersonById(personId);
+            Room fromRoom = getRoomById(fromRoomId);
+            Room toRoom = getRoomById(toRoomId);
+            if (person == null || fromRoom == null || toRoom == null) {
+                System.out.println("Skipping logged event of person " + personId + " to room " + toRoomId);
+                return;
+            }
+            batch[size[0]++] = new Event(person, fromRoom, toRoom, LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC));
+            applied[0]++;
+            if (size[0] == batch.length) {
+                applyEvents(batch);
+                size[0] = 0;
+            }
+        });
+        applyEvents(Arrays.copyOf(batch, size[0]));
+        return applied[0];
+    }
+
+    /**
+     * Attaches the write-ahead log used by {@link #recordEvent(Event)}.
+     *
+     * @param eventLog The event log, or null to stop logging.
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Gets the attached write-ahead log.
+     *
+     * @return The event log, or null if events are not logged.
+     */
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Attaches a persistent event store.
+     * Events applied from now on are appended to the store, and the contact and activity queries
+     * are answered from the store, so they also cover the history recorded before the hospital was loaded.
+     *
+     * @param eventStore The event store, or null to keep events only in memory.
+     */
+    public void setEventStore(EventStore eventStore) {
+        this.eventStore = eventStore;
+        eventsVersion.increment();
+    }
+
+    /**
+     * Gets the columns that hold the events applied to the hospital.
+     *
+     * @return The event columns.
+     */
+    public EventColumns getEventColumns() {
+        return eventColumns;
+    }
+
+    /**
+     * Gets the locks of the rooms, to stop events from being applied while the whole hospital is read.
+     *
+     * @return The room locks.
+     */
+    public RoomLocks getRoomLocks() {
+        return roomLocks;
+    }
+
+    /**
+     * Gets the monitor that publishes an alert when the occupation of a room crosses a threshold.
+     * Listeners added to it are notified of the changes made by every event applied from then on.
+     *
+     * @return The occupancy monitor.
+     */
+    public OccupancyMonitor getOccupancyMonitor() {
+        return occupancyMonitor;
+    }
+
+    /**
+     * Gets the current occupation of every room, without locking anything, for displays that poll often.
+     * Every value is read from a counter kept up to date as events are applied.
+     *
+     * @return The occupation of every room, in the order of the rooms of the map.
+     */
+    public int[] getOccupancy() {
+        CompactGraph map = hospitalMap;
+        int[] occupancy = new int[map.size()];
+        for (int i = 0; i < occupancy.length; i++) {
+            occupancy[i] = map.getRoom(i).getCurrentOccupation();
+        }
+        return occupancy;
+    }
+
+    /**
+     * Gets the attached event store.
+     *
+     * @return The event store, or null if events are only kept in memory.
+     */
+    public EventStore getEventStore() {
+        return eventStore;
+    }
+
+    /**
+     * Gets the activity of a person.
+     * With an event store attached, the events of the person are read from the store,
+     * events that refer to rooms not in the map are skipped.
+     *
+     * @param personId The ID of the person.
+     * @return The events of the person, empty if the person is unknown.
+     */
+    public UnorderedListADT<Event> getActivity(int personId) {
+        Person person = getPersonById(personId);
+        if (person == null) {
+            return new UnorderedLinkedList<>();
+        }
+        UnorderedListADT<Event> activity = new UnorderedLinkedList<>();
+        EventStore store = eventStore;
+        if (store == null) {
+            for (Event event : person.copyActivity()) {
+                activity.addToRear(event);
+            }
+            return activity;
+        }
+        try {
+            synchronized (store) {
+                store.forEachOf(personId, (storedPersonId, fromRoomId, toRoomId, time) -> {
+                    Room fromRoom = getRoomById(fromRoomId);
+                    Room toRoom = getRoomById(toRoomId);
+                    if (fromRoom != null && toRoom != null) {
+                        activity.addToRear(new Event(person, fromRoom, toRoom,
+                                LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC)));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading the event store", e);
+        }
+        return activity;
     }
 
     /**
@@ -54,36 +830,98 @@ public class Hospital {
      * @return The room if found, null otherwise.
      */
     public Room getRoomById(int roomId) {
-        Iterator<Room> roomIterator = hospitalMap.iteratorBFS(0);
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            if (room.getId() == roomId) {
-                return room;
-            }
+        directoryLock.readLock().lock();
+        try {
+            return roomsById.get(roomId);
+        } finally {
+            directoryLock.readLock().unlock();
         }
-        return null;
     }
 
     /**
-     * Searches for a person by their ID across all rooms in the hospital map.
+     * Searches for a person by their ID among the people known to the hospital.
      *
      * @param personId The ID of the person to search for.
      * @return The person if found, null otherwise.
      */
     public Person getPersonById(int personId) {
-        Iterator<Room> roomIterator = hospitalMap.iteratorBFS(0); // Assuming BFS traversal
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            UnorderedListADT<Person> peopleInRoom = room.getPeopleInRoom();
-            Iterator<Person> personIterator = peopleInRoom.iterator();
-            while (personIterator.hasNext()) {
-                Person person = personIterator.next();
-                if (person.getId() == personId) {
-                    return person;
+        directoryLock.readLock().lock();
+        try {
+            return peopleById.get(personId);
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the room a person is in now, kept up to date as events are applied.
+     *
+     * @param personId The ID of the person.
+     * @return The room the person is in, null if the person is unknown or not in any room.
+     */
+    public Room getLocation(int personId) {
+        Person person = getPersonById(personId);
+        return person == null ? null : person.getLocation();
+    }
+
+    /**
+     * Gets the people in a room now.
+     *
+     * @param roomId The ID of the room.
+     * @return A copy of the people in the room, empty if the room is unknown.
+     */
+    public UnorderedListADT<Person> getPeopleInRoom(int roomId) {
+        Room room = getRoomById(roomId);
+        return room == null ? new UnorderedLinkedList<>() : readRoom(room, Room::getPeopleInRoom);
+    }
+
+    /**
+     * Counts the people of a function in a group of rooms now, such as the rooms of a floor, since the map
+     * does not record floors. Every room keeps its own count for every function, so this costs one read
+     * per room.
+     *
+     * @param function The function.
+     * @param roomIds  The IDs of the rooms, unknown rooms are ignored.
+     * @return The number of people of the function in the rooms.
+     */
+    public int countPeople(TypeOfFunction function, int... roomIds) {
+        int count = 0;
+        for (int roomId : roomIds) {
+            Room room = getRoomById(roomId);
+            if (room != null) {
+                count += room.getOccupation(function);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read the state of a room with its stripe locked for reading.
+     * A timeline with events added out of order is sorted first, with the stripe locked for writing,
+     * since sorting modifies it.
+     *
+     * @param room   the room
+     * @param reader reads the room, it should only copy what it needs
+     * @param <T>    the type of what is read
+     * @return what was read
+     */
+    private <T> T readRoom(Room room, Function<Room, T> reader) {
+        StampedLock lock = roomLocks.lockFor(room.getId());
+        long stamp = lock.readLock();
+        try {
+            if (!room.getEvents().isSorted()) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
                 }
+                stamp = writeStamp;
+                room.getEvents().sort();
             }
+            return reader.apply(room);
+        } finally {
+            lock.unlock(stamp);
         }
-        return null;
     }
 
     /**
@@ -114,15 +952,11 @@ public class Hospital {
 
         // add edges and respective weights
         for (int i = 0; i < hospitalMap.size(); i++) {
-            Room room1 = hospitalMap.getVertex(i);
-            for (int j = 0; j < hospitalMap.size(); j++) {
-                Room room2 = hospitalMap.getVertex(j);
-                if (hospitalMap.edgeExists(room1, room2) && graph.getEdge(i + "_" + j) == null) {
-                    double weight = hospitalMap.getWeight(room1, room2);
-                    String edgeId = i + "_" + j;
-                    graph.addEdge(edgeId, Integer.toString(i), Integer.toString(j), true);
-                    graph.getEdge(edgeId).addAttribute("ui.label", String.format("%.2f", weight));
-                }
+            for (int edge = hospitalMap.firstEdge(i); edge < hospitalMap.endEdge(i); edge++) {
+                int j = hospitalMap.target(edge);
+                String edgeId = i + "_" + j;
+                graph.addEdge(edgeId, Integer.toString(i), Integer.toString(j), true);
+                graph.getEdge(edgeId).addAttribute("ui.label", String.format("%.2f", hospitalMap.weight(edge)));
             }
         }
 
@@ -136,9 +970,120 @@ public class Hospital {
      * @param room   The room the person is trying to enter.
      * @return True if the person has permission to enter the room, false otherwise.
      */
-    private boolean hasPermission(Person person, Room room) {
-        TypeOfFunction function = person.getFunction();
-        return room.getAccess().contains(function);
+    public boolean hasPermission(Person person, Room room) {
+        return room.hasAccess(person.getFunction());
+    }
+
+    /**
+     * Grants a function access to a room, keeping the access index of the hospital up to date.
+     *
+     * @param roomId   The ID of the room.
+     * @param function The function.
+     * @return True if the access was granted, false if the room is unknown or the function already had access.
+     */
+    public boolean grantAccess(int roomId, TypeOfFunction function) {
+        return changeAccess(roomId, function, true);
+    }
+
+    /**
+     * Revokes the access of a function to a room, keeping the access index of the hospital up to date.
+     *
+     * @param roomId   The ID of the room.
+     * @param function The function.
+     * @return True if the access was revoked, false if the room is unknown or the function had no access.
+     */
+    public boolean revokeAccess(int roomId, TypeOfFunction function) {
+        return changeAccess(roomId, function, false);
+    }
+
+    /**
+     * Change the access of a function to a room and to the access index, atomically with respect to other changes
+     *
+     * @param roomId   the ID of the room
+     * @param function the function
+     * @param allowed  true to grant the access, false to revoke it
+     * @return true if the access changed
+     */
+    private boolean changeAccess(int roomId, TypeOfFunction function, boolean allowed) {
+        directoryLock.writeLock().lock();
+        try {
+            Room room = roomsById.get(roomId);
+            if (room == null || !(allowed ? room.addAccess(function) : room.removeAccess(function))) {
+                return false;
+            }
+            AccessIndex index = accessIndex;
+            if (index != null && index.getGraph() == hospitalMap) {
+                accessIndex = index.withAccess(function, hospitalMap.indexOf(roomId), allowed);
+            }
+            mapVersion.incrementAndGet();
+            return true;
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the rooms every function may enter, computing them if the map changed since they were last computed.
+     *
+     * @return The access index of the current map.
+     */
+    public AccessIndex getAccessIndex() {
+        AccessIndex index = accessIndex;
+        if (index != null && index.getGraph() == hospitalMap) {
+            return index;
+        }
+        // computed with the lookups locked, so that no access changes while the rooms are read
+        directoryLock.writeLock().lock();
+        try {
+            index = accessIndex;
+            if (index == null || index.getGraph() != hospitalMap) {
+                index = AccessIndex.compute(hospitalMap);
+                accessIndex = index;
+            }
+            return index;
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets every room a function may enter, read from the access index.
+     *
+     * @param function The function.
+     * @return The rooms the function may enter, in map order.
+     */
+    public UnorderedListADT<Room> getRoomsAccessibleTo(TypeOfFunction function) {
+        UnorderedListADT<Room> rooms = new UnorderedLinkedList<>();
+        AccessIndex index = getAccessIndex();
+        long[] allowed = index.rooms(function);
+        for (int word = 0; word < allowed.length; word++) {
+            for (long bits = allowed[word]; bits != 0; bits &= bits - 1) {
+                rooms.addToRear(index.getGraph().getRoom(word << 6 | Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Checks if a door of the map leads from a room to another.
+     *
+     * @param fromRoomId The ID of the room to leave.
+     * @param toRoomId   The ID of the room to enter.
+     * @return True if the rooms are connected, false otherwise or if a room is not in the map.
+     */
+    public boolean hasDoor(int fromRoomId, int toRoomId) {
+        CompactGraph map = hospitalMap;
+        int from = map.indexOf(fromRoomId);
+        int to = map.indexOf(toRoomId);
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        for (int edge = map.firstEdge(from); edge < map.endEdge(from); edge++) {
+            if (map.target(edge) == to) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -158,7 +1103,11 @@ public class Hospital {
         }
         Person person = getPersonById(id);
 
-        Room from = person.getActivity().last().to();
+        Room from = person.getLocation();
+        if (from == null) {
+            System.out.println(person.getName() + " is not in any room\nExiting event creation\n");
+            return null;
+        }
 
         System.out.println(person.getName() + " is currently in " + from.getName() + " with ID " + from.getId());
         System.out.println(getAccessibleRooms(from.getId(), person));
@@ -191,95 +1140,116 @@ public class Hospital {
      * @param startRoom The room from which to find the closest exit.
      */
     public void findClosestExit(int startRoom) {
-        UnorderedListADT<Room> exits = getExits();
+        printClosestExit(startRoom, getEvacuationField());
+    }
 
-        Iterator<Room> exitIterator = exits.iterator();
-        while (exitIterator.hasNext()) {
-            int exitRoom = exitIterator.next().getId();
-            double weight = hospitalMap.shortestPathWeight(getRoomById(startRoom), getRoomById(exitRoom));
+    /**
+     * Find the closest exit given a room user chose, only going through rooms a function may enter.
+     *
+     * @param startRoom The room from which to find the closest exit.
+     * @param function  The function of the person leaving.
+     */
+    public void findClosestExit(int startRoom, TypeOfFunction function) {
+        printClosestExit(startRoom, getAccessIndex().evacuationFieldFor(function));
+    }
 
-            Iterator<Room> path = findShortestPath(startRoom, exitRoom);
-            System.out.println("\n---------------------------------------------------------");
-            System.out.println("\nPath from room " + startRoom + " to exit " + exitRoom);
-            System.out.println("Weight: " + weight);
-            System.out.println("\nMove to");
-            while (path.hasNext()) {
-                Room room2 = path.next();
-                System.out.println(room2.getName());
-            }
-            System.out.println("\n----------------------------------------------------------");
+    /**
+     * Print the route from a room to its closest exit.
+     *
+     * @param startRoom The room from which to find the closest exit.
+     * @param field     The evacuation field to read the route from.
+     */
+    private void printClosestExit(int startRoom, EvacuationField field) {
+        CompactGraph map = field.getGraph();
+        int start = map.indexOf(startRoom);
+        if (start < 0 || field.nearestExit(start) < 0) {
+            System.out.println("No exit can be reached from room " + startRoom);
+            return;
+        }
+        Iterator<Room> path = route(map, field.routeToExit(start)).iterator();
+        System.out.println("\n---------------------------------------------------------");
+        System.out.println("\nPath from room " + startRoom + " to exit " + map.getRoom(field.nearestExit(start)).getId());
+        System.out.println("Weight: " + field.distance(start));
+        System.out.println("\nMove to");
+        while (path.hasNext()) {
+            Room room2 = path.next();
+            System.out.println(room2.getName());
         }
+        System.out.println("\n----------------------------------------------------------");
     }
 
     /**
-     * Get all exits in the hospital.
+     * Get the route from a room to its closest exit.
+     * The route is read from the evacuation field of the map, which is only recomputed after the map changes.
      *
-     * @return A list of all exits in the hospital.
+     * @param startRoom The ID of the room from which to leave.
+     * @return The rooms of the route, both ends included, empty if no exit can be reached.
      */
-    private UnorderedListADT<Room> getExits() {
-
-        UnorderedListADT<Room> exits = new UnorderedLinkedList<>();
-        UnorderedListADT<Edge> edges = getEdges();
-        Iterator<Edge> edgeIterator = edges.iterator();
+    public UnorderedListADT<Room> getEvacuationRoute(int startRoom) {
+        return evacuationRoute(startRoom, getEvacuationField());
+    }
 
-        while (edgeIterator.hasNext()) {
-            Edge edge = edgeIterator.next();
-            Room room1 = edge.getRoom1();
-            Room room2 = edge.getRoom2();
+    /**
+     * Get the route from a room to its closest exit, only going through rooms a function may enter.
+     * The route is read from the evacuation field of the function, which is only recomputed after the map
+     * or the access of the function changes.
+     *
+     * @param startRoom The ID of the room from which to leave.
+     * @param function  The function of the person leaving.
+     * @return The rooms of the route, both ends included, empty if no exit can be reached.
+     */
+    public UnorderedListADT<Room> getEvacuationRoute(int startRoom, TypeOfFunction function) {
+        return evacuationRoute(startRoom, getAccessIndex().evacuationFieldFor(function));
+    }
 
-            if (room1.getType().equals(TypeOfRoom.EXIT)) {
-                if (exits.isEmpty()) {
-                    exits.addToRear(room1);
-                } else if (room1.getType().equals(TypeOfRoom.EXIT) && !(exits.contains(room1))) {
-                    exits.addToRear(room1);
-                }
-            }
-            if (room2.getType().equals(TypeOfRoom.EXIT)) {
-                if (exits.isEmpty()) {
-                    exits.addToRear(room2);
-                } else if (room2.getType().equals(TypeOfRoom.EXIT) && !(exits.contains(room2))) {
-                    exits.addToFront(room2);
-                }
-            }
+    /**
+     * Get the route from a room to its closest exit in an evacuation field.
+     *
+     * @param startRoom The ID of the room from which to leave.
+     * @param field     The evacuation field.
+     * @return The rooms of the route, both ends included, empty if no exit can be reached.
+     */
+    private static UnorderedListADT<Room> evacuationRoute(int startRoom, EvacuationField field) {
+        int start = field.getGraph().indexOf(startRoom);
+        if (start < 0) {
+            return new UnorderedLinkedList<>();
         }
-        return exits;
+        return route(field.getGraph(), field.routeToExit(start));
     }
 
     /**
-     * Get all edges of the hospital network.
+     * Get the rooms of a route of room indexes.
      *
-     * @return A list of all edges in the hospital network.
+     * @param map     The map the indexes belong to.
+     * @param indexes The room indexes.
+     * @return The rooms, in route order.
      */
-    private UnorderedListADT<Edge> getEdges() {
-
-        UnorderedListADT<Edge> edges = new UnorderedLinkedList<>();
-
-        Room room1;
-        Room room2;
-        int weight;
-
-        int size = hospitalMap.size();
-        for (int i = 0; i < size; i++) {
-            room1 = hospitalMap.getVertex(i);
-            for (int j = 0; j < size; j++) {
-                if (i == j) {
-                    continue;
-                }
-                room2 = hospitalMap.getVertex(j);
-                if (hospitalMap.edgeExists(room1, room2)) {
-                    weight = (int) hospitalMap.getWeight(room1, room2);
-                    edges.addToRear(new Edge(room1, room2, weight));
-                }
-            }
+    private static UnorderedListADT<Room> route(CompactGraph map, int[] indexes) {
+        UnorderedListADT<Room> route = new UnorderedLinkedList<>();
+        for (int index : indexes) {
+            route.addToRear(map.getRoom(index));
         }
-        if (edges.isEmpty()) {
-            System.out.println("No edges found");
+        return route;
+    }
+
+    /**
+     * Get the evacuation field of the current map, computing it if the map changed since it was last computed.
+     *
+     * @return The evacuation field.
+     */
+    private EvacuationField getEvacuationField() {
+        EvacuationField field = evacuationField;
+        CompactGraph map = hospitalMap;
+        if (field == null || field.getGraph() != map) {
+            field = EvacuationField.compute(map);
+            evacuationField = field;
         }
-        return edges;
+        return field;
     }
 
     /**
      * Detects contacts of a person within a specified date range across all rooms.
+     * A contact is anyone whose stay in a room overlapped a stay of the person in that room.
      *
      * @param personId The ID of the person to check contacts for.
      * @param from     The start of the date range.
@@ -288,23 +1258,9 @@ public class Hospital {
      */
     public UnorderedListADT<Person> hadContactWithIndividual(int personId, LocalDateTime from, LocalDateTime to) {
         UnorderedListADT<Person> contacts = new UnorderedLinkedList<>();
-        Iterator<Room> roomIterator = hospitalMap.iteratorBFS(0);
-
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            UnorderedListADT<Person> peopleInRoom = room.hadContactWithIndividual(personId, from, to);
-            Iterator<Person> personIterator = peopleInRoom.iterator();
-            int count = 0;
-            while (personIterator.hasNext()) {
-                Person person = personIterator.next();
-                if (count == 0) {
-                    contacts.addToRear(person);
-                } else if (!contacts.contains(person))
-                    contacts.addToRear(person);
-                count++;
-            }
-            System.out.println(count);
-
+        Iterator<Contact> contactIterator = traceContacts(personId, from, to).iterator();
+        while (contactIterator.hasNext()) {
+            contacts.addToRear(contactIterator.next().person());
         }
 
         if (contacts.isEmpty()) {
@@ -313,8 +1269,101 @@ public class Hospital {
         return contacts;
     }
 
+    /**
+     * Traces the contacts of a person within a specified date range, with how long they were together.
+     * The stays of every person are indexed once and reused until new events are applied.
+     * With an event store attached, the stays are built from the whole stored history once, then updated
+     * with the people the new events belong to.
+     *
+     * @param personId The ID of the person to check contacts for.
+     * @param from     The start of the date range.
+     * @param to       The end of the date range.
+     * @return The contacts of the person, the longest time together first.
+     */
+    public UnorderedListADT<Contact> traceContacts(int personId, LocalDateTime from, LocalDateTime to) {
+        ContactGraph graph = contactGraph;
+        if (graph != null && eventStore == null) {
+            return graph.contactsOf(personId, EventTimeline.epochSecond(from), EventTimeline.epochSecond(to));
+        }
+        return getStayIndex().contactsOf(personId, EventTimeline.epochSecond(from), EventTimeline.epochSecond(to));
+    }
+
+    /**
+     * Keeps a contact graph up to date from now on, built first from the events already applied, in time order.
+     * Without an event store, contacts are then read from the graph instead of the stay index, which is
+     * no longer rebuilt after every change.
+     *
+     * @param bucketSeconds The duration of the time buckets of the graph, in seconds.
+     * @return The contact graph.
+     */
+    public ContactGraph enableContactGraph(long bucketSeconds) {
+        ContactGraph graph = new ContactGraph(bucketSeconds);
+        // published first, the events applied meanwhile are picked up by whichever thread gets to them first
+        contactGraph = graph;
+        graph.advance(eventColumns, eventColumns.size());
+        return graph;
+    }
+
+    /**
+     * Stops keeping the contact graph, contacts are read from the stay index again.
+     */
+    public void disableContactGraph() {
+        contactGraph = null;
+    }
+
+    /**
+     * Gets the contact graph.
+     *
+     * @return The contact graph, or null if it is not kept.
+     */
+    public ContactGraph getContactGraph() {
+        return contactGraph;
+    }
+
+    /**
+     * Get the stay index of the current events, rebuilding it, or updating it with the events appended to the
+     * event store, if events were applied since it was last built.
+     *
+     * @return The stay index.
+     */
+    private synchronized StayIndex getStayIndex() {
+        // read before building, so events applied during the build make the index stale
+        long version = eventsVersion.sum();
+        if (stayIndex == null || stayIndexVersion != version) {
+            EventStore store = eventStore;
+            if (store == null) {
+                directoryLock.readLock().lock();
+                try {
+                    stayIndex = StayIndex.build(peopleById);
+                } finally {
+                    directoryLock.readLock().unlock();
+                }
+                stayIndexStore = null;
+            } else {
+                try {
+                    synchronized (store) {
+                        // only the events appended since the last build are read, unless the store changed
+                        if (stayIndex != null && stayIndexStore == store && stayIndexStoreSize <= store.size()) {
+                            stayIndex = stayIndex.update(store, stayIndexStoreSize, this::getPersonById,
+                                    this::getRoomById);
+                        } else {
+                            stayIndex = StayIndex.build(store, this::getPersonById, this::getRoomById);
+                        }
+                        stayIndexStore = store;
+                        stayIndexStoreSize = store.size();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading the event store", e);
+                }
+            }
+            stayIndexVersion = version;
+        }
+        return stayIndex;
+    }
+
     /**
      * Detects all people who had contact with a room within a specified date range.
+     * With an event store attached, the events are read from the store in the order they were recorded.
      *
      * @param roomId The ID of the room to check contacts for.
      * @param from   The start of the date range.
@@ -322,8 +1371,40 @@ public class Hospital {
      * @return A list of people who were in the room within the specified time frame.
      */
     public UnorderedListADT<Person> hadContactWithRoom(int roomId, LocalDateTime from, LocalDateTime to) {
-        Room room = getRoomById(roomId);
-        UnorderedListADT<Person> contacts = room.hadContactWithRoom(from, to);
+        UnorderedListADT<Person> contacts = new UnorderedLinkedList<>();
+        EventStore store = eventStore;
+        if (store == null) {
+            Room room = getRoomById(roomId);
+            long start = EventTimeline.epochSecond(from);
+            long end = EventTimeline.epochSecond(to);
+            Person[] visitors = room == null ? new Person[0] : readRoom(room, r -> {
+                EventTimeline timeline = r.getEvents();
+                int first = timeline.firstAfter(start);
+                Person[] people = new Person[Math.max(0, timeline.firstAtOrAfter(end) - first)];
+                for (int i = 0; i < people.length; i++) {
+                    people[i] = timeline.personAt(first + i);
+                }
+                return people;
+            });
+            for (Person person : visitors) {
+                contacts.addToRear(person);
+            }
+        } else {
+            try {
+                // the window is exclusive, as in the room timeline
+                synchronized (store) {
+                    store.scan(EventTimeline.epochSecond(from) + 1, EventTimeline.epochSecond(to) - 1,
+                            (personId, fromRoomId, toRoomId, time) -> {
+                                Person person = getPersonById(personId);
+                                if (toRoomId == roomId && person != null) {
+                                    contacts.addToRear(person);
+                                }
+                            });
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading the event store", e);
+            }
+        }
         if (contacts.isEmpty()) {
             System.out.println("No contacts found");
         }
@@ -337,11 +1418,8 @@ public class Hospital {
      */
     public UnorderedListADT<Room> getAllRooms() {
         UnorderedListADT<Room> allRooms = new UnorderedLinkedList<>();
-        Iterator<Room> roomIterator = hospitalMap.iteratorDFS(0);
-
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            allRooms.addToRear(room);
+        for (int i = 0; i < hospitalMap.size(); i++) {
+            allRooms.addToRear(hospitalMap.getRoom(i));
         }
 
         return allRooms;
@@ -354,21 +1432,18 @@ public class Hospital {
      */
     public UnorderedListADT<Person> getAllPeople() {
         UnorderedListADT<Person> allPeople = new UnorderedLinkedList<>();
+        IntSet seen = new IntSet();
         UnorderedListADT<Room> allRooms = getAllRooms();
 
         Iterator<Room> roomIterator = allRooms.iterator();
         while (roomIterator.hasNext()) {
             Room room = roomIterator.next();
-            UnorderedListADT<Person> peopleInRoom = room.getPeopleInRoom();
+            UnorderedListADT<Person> peopleInRoom = readRoom(room, Room::getPeopleInRoom);
             Iterator<Person> personIterator = peopleInRoom.iterator();
-            int count = 0;
             while (personIterator.hasNext()) {
                 Person person = personIterator.next();
-                if (count == 0) {
+                if (seen.add(person.getId()))
                     allPeople.addToRear(person);
-                } else if (!allPeople.contains(person))
-                    allPeople.addToRear(person);
-                count++;
             }
         }
 
@@ -379,6 +1454,7 @@ public class Hospital {
      * Get all events in the hospital.
      * This method iterates over all rooms in the hospital and retrieves the events that occurred in each room.
      * It then adds the events to a list of all events in the hospital.
+     * Every room is copied at once, so its events are consistent even while events are being applied.
      *
      * @return A list of all events in the hospital.
      */
@@ -389,10 +1465,15 @@ public class Hospital {
         Iterator<Room> roomIterator = allRooms.iterator();
         while (roomIterator.hasNext()) {
             Room room = roomIterator.next();
-            UnorderedListADT<Event> eventsInRoom = room.getEvents();
-            Iterator<Event> eventIterator = eventsInRoom.iterator();
-            while (eventIterator.hasNext()) {
-                Event event = eventIterator.next();
+            Event[] eventsInRoom = readRoom(room, r -> {
+                EventTimeline timeline = r.getEvents();
+                Event[] copy = new Event[timeline.size()];
+                for (int i = 0; i < copy.length; i++) {
+                    copy[i] = timeline.get(i);
+                }
+                return copy;
+            });
+            for (Event event : eventsInRoom) {
                 allEvents.addToRear(event);
             }
         }
@@ -400,21 +1481,200 @@ public class Hospital {
     }
 
     /**
-     * Finds the shortest path from a start vertex to an end vertex, avoiding occupied locations.
-     * This method utilizes the network's shortest path algorithm, considering the locations to avoid.
+     * Finds the shortest path from a start room to an end room.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @return An iterator over the rooms in the shortest path, empty if the end room cannot be reached.
+     */
+    public Iterator<Room> findShortestPath(int startVertex, int endVertex) {
+        return rooms(route(startVertex, endVertex, null)).iterator();
+    }
+
+    /**
+     * Finds the shortest path from a start room to an end room that only enters rooms a function may enter.
+     * The start room itself may be one the function cannot enter, the person is already there.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @param function    The function of the person moving.
+     * @return An iterator over the rooms in the shortest path, empty if the end room cannot be reached.
+     */
+    public Iterator<Room> findShortestPath(int startVertex, int endVertex, TypeOfFunction function) {
+        return rooms(route(startVertex, endVertex, function)).iterator();
+    }
+
+    /**
+     * Finds the shortest path a person may take from a start room to an end room.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @param person      The person moving.
+     * @return An iterator over the rooms in the shortest path, empty if the end room cannot be reached.
+     */
+    public Iterator<Room> findShortestPath(int startVertex, int endVertex, Person person) {
+        return findShortestPath(startVertex, endVertex, person.getFunction());
+    }
+
+    /**
+     * Computes the weight of the shortest path from a start room to an end room.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @return The weight of the shortest path, infinity if the end room cannot be reached.
+     */
+    public double shortestPathWeight(int startVertex, int endVertex) {
+        return route(startVertex, endVertex, null).weight();
+    }
+
+    /**
+     * Computes the weight of the shortest path from a start room to an end room that only enters rooms a
+     * function may enter.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @param function    The function of the person moving.
+     * @return The weight of the shortest path, infinity if the end room cannot be reached.
+     */
+    public double shortestPathWeight(int startVertex, int endVertex, TypeOfFunction function) {
+        return route(startVertex, endVertex, function).weight();
+    }
+
+    /**
+     * Gets the shortest route from a start room to an end room, from the route cache if it holds it.
      *
-     * @param startVertex The starting vertex in the network (bot's location).
-     * @param endVertex   The end vertex for the path (enemy's flag location).
-     * @return An iterator over the sequence of vertices in the shortest path.
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @param function    The function of the person moving, or null for a route through any room.
+     * @return The route.
      */
-    private Iterator<Room> findShortestPath(int startVertex, int endVertex) {
-        Room from = getRoomById(startVertex);
-        Room to = getRoomById(endVertex);
-        return hospitalMap.findShortestPath(from, to);
+    private RouteCache.Route route(int startVertex, int endVertex, TypeOfFunction function) {
+        RouteCache cache = routeCache;
+        // read before the map, so that a route found on a newer map is at worst stored as stale
+        long version = mapVersion.get();
+        if (cache != null) {
+            RouteCache.Route cached = cache.get(version, startVertex, endVertex, function);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        RouteCache.Route route = searchRoute(startVertex, endVertex, function);
+        if (cache != null) {
+            cache.put(version, startVertex, endVertex, function, route);
+        }
+        return route;
+    }
+
+    /**
+     * Finds the shortest route from a start room to an end room, in the route table if it is enabled and
+     * there is no function, or by searching the map otherwise.
+     *
+     * @param startVertex The ID of the starting room.
+     * @param endVertex   The ID of the end room.
+     * @param function    The function of the person moving, or null for a route through any room.
+     * @return The route.
+     */
+    private RouteCache.Route searchRoute(int startVertex, int endVertex, TypeOfFunction function) {
+        RouteTable table = function == null ? getRouteTable() : null;
+        CompactGraph map = table != null ? table.getGraph()
+                : function != null ? getAccessIndex().graphFor(function) : hospitalMap;
+        int start = map.indexOf(startVertex);
+        int end = map.indexOf(endVertex);
+        if (start < 0 || end < 0) {
+            return new RouteCache.Route(List.of(), Double.POSITIVE_INFINITY);
+        }
+        int[] path = table != null ? table.findShortestPath(start, end) : map.findShortestPath(start, end);
+        Room[] rooms = new Room[path.length];
+        for (int i = 0; i < path.length; i++) {
+            rooms[i] = map.getRoom(path[i]);
+        }
+        double weight = table != null ? table.distance(start, end)
+                : path.length == 0 ? Double.POSITIVE_INFINITY : map.pathWeight(path);
+        return new RouteCache.Route(List.of(rooms), weight);
+    }
+
+    /**
+     * Get the rooms of a route as a list.
+     *
+     * @param route The route.
+     * @return A new list of the rooms, in route order.
+     */
+    private static UnorderedListADT<Room> rooms(RouteCache.Route route) {
+        UnorderedListADT<Room> rooms = new UnorderedLinkedList<>();
+        for (Room room : route.rooms()) {
+            rooms.addToRear(room);
+        }
+        return rooms;
+    }
+
+    /**
+     * Gets the route cache, to read its statistics.
+     *
+     * @return The route cache, or null if routes are not cached.
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Replaces the route cache, dropping every cached route.
+     *
+     * @param capacity The largest number of routes to cache, 0 to stop caching routes.
+     */
+    public void setRouteCacheCapacity(int capacity) {
+        routeCache = capacity == 0 ? null : new RouteCache(capacity);
+    }
+
+    /**
+     * Precomputes the shortest routes between every pair of rooms, so that finding a route without a function
+     * reads the table instead of searching the map. Weights read from the table are rounded to floats.
+     * The table is computed now and, after the map changes, only the rows the change affects are searched again.
+     * It is meant for maps of up to a few thousand rooms, it takes about six bytes per pair of rooms.
+     *
+     * @param pool The pool the rows of the table are computed on.
+     */
+    public void enableRouteTable(ForkJoinPool pool) {
+        synchronized (routeTableLock) {
+            routePool = pool;
+            routeTable = RouteTable.compute(hospitalMap, pool);
+        }
+    }
+
+    /**
+     * Stops using the route table, routes are searched on the map again.
+     */
+    public void disableRouteTable() {
+        synchronized (routeTableLock) {
+            routePool = null;
+            routeTable = null;
+        }
+    }
+
+    /**
+     * Gets the route table of the current map, updating it if the map changed since it was last updated.
+     *
+     * @return The route table, or null if it is disabled.
+     */
+    public RouteTable getRouteTable() {
+        RouteTable table = routeTable;
+        CompactGraph map = hospitalMap;
+        if (table == null || table.getGraph() == map) {
+            return table;
+        }
+        synchronized (routeTableLock) {
+            table = routeTable;
+            map = hospitalMap;
+            if (table != null && table.getGraph() != map) {
+                table = table.update(map, routePool);
+                routeTable = table;
+            }
+            return table;
+        }
     }
 
     /**
      * Get all rooms that are accessible from the current room.
+     * Only the edges leaving the current room are visited.
      *
      * @param person        The person trying to access the rooms.
      * @param currentRoomId The ID of the current room.
@@ -422,23 +1682,14 @@ public class Hospital {
      */
     public UnorderedListADT<Room> getAccessibleRooms(int currentRoomId, Person person) {
         UnorderedListADT<Room> accessibleRooms = new UnorderedLinkedList<>();
-        UnorderedListADT<Edge> edges = getEdges();
-        Iterator<Edge> edgeIterator = edges.iterator();
-        while (edgeIterator.hasNext()) {
-            Edge edge = edgeIterator.next();
-            if (edge.getRoom1() == getRoomById(currentRoomId) && hasPermission(person, edge.getRoom2())) {
-                if (accessibleRooms.isEmpty()) {
-                    accessibleRooms.addToRear(edge.getRoom2());
-                } else if (!accessibleRooms.contains(edge.getRoom2())) {
-                    accessibleRooms.addToRear(edge.getRoom2());
-                }
-            }
-            if (edge.getRoom2() == getRoomById(currentRoomId) && hasPermission(person, edge.getRoom1())) {
-                if (accessibleRooms.isEmpty()) {
-                    accessibleRooms.addToRear(edge.getRoom1());
-                } else if (!accessibleRooms.contains(edge.getRoom1())) {
-                    accessibleRooms.addToRear(edge.getRoom1());
-                }
+        int current = hospitalMap.indexOf(currentRoomId);
+        if (current < 0) {
+            return accessibleRooms;
+        }
+        for (int edge = hospitalMap.firstEdge(current); edge < hospitalMap.endEdge(current); edge++) {
+            Room room = hospitalMap.getRoom(hospitalMap.target(edge));
+            if (hasPermission(person, room)) {
+                accessibleRooms.addToRear(room);
             }
         }
         return accessibleRooms;
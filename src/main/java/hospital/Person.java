@@ -2,13 +2,17 @@ package hospital;
 
 import collections.lists.UnorderedLinkedList;
 import collections.lists.UnorderedListADT;
+import hospital.collections.IntList;
 import hospital.enums.TypeOfFunction;
+import hospital.events.EventColumns;
 
 /**
  * The Person class represents a person in the hospital.
  * It contains the person's id, name, age, function and location.
  * The location is represented by a Room object.
  * The function is represented by a TypeOfFunction enum.
+ * The activity is kept as the offsets of the events of the person in an {@link EventColumns},
+ * and its events are only created when the activity is read.
  */
 public class Person {
     /**
@@ -28,9 +32,17 @@ public class Person {
      */
     private final TypeOfFunction function;
     /**
-     * The person activity in the hospital
+     * The person activity in the hospital, as offsets in the event columns
      */
-    private UnorderedListADT activity;
+    private final IntList activity;
+    /**
+     * The columns that hold the events of the activity, null until the first event is added
+     */
+    private EventColumns columns;
+    /**
+     * The room the person is in, null if the person is not in any room
+     */
+    private volatile Room location;
 
     /**
      * Constructor of the class
@@ -45,7 +57,7 @@ public class Person {
         this.name = name;
         this.age = age;
         this.function = function;
-        this.activity = new UnorderedLinkedList();
+        this.activity = new IntList(4);
     }
 
     /**
@@ -66,13 +78,111 @@ public class Person {
         return name;
     }
 
+    /**
+     * Get the room the person is in
+     *
+     * @return the room, null if the person is not in any room
+     */
+    public Room getLocation() {
+        return location;
+    }
+
+    /**
+     * Set the room the person is in, only the room itself does it as people enter and leave it
+     *
+     * @param location the room, null if the person is not in any room
+     */
+    void setLocation(Room location) {
+        this.location = location;
+    }
+
     /**
      * Get the person activity
      *
-     * @return the person activity
+     * @return a copy of the person activity, with the events in the order they were added
+     */
+    public synchronized UnorderedListADT<Event> getActivity() {
+        UnorderedListADT<Event> events = new UnorderedLinkedList<>();
+        for (int i = 0; i < activity.size(); i++) {
+            events.addToRear(columns.get(activity.get(i)));
+        }
+        return events;
+    }
+
+    /**
+     * Add an event to the person activity.
+     * Events can be added from any thread, each add is atomic with respect to {@link #copyActivity()}.
+     * A person with no activity yet keeps their events in columns of their own.
+     *
+     * @param event the event
+     */
+    public synchronized void addActivity(Event event) {
+        if (columns == null) {
+            columns = new EventColumns();
+        }
+        activity.add(columns.add(event));
+    }
+
+    /**
+     * Add an event already stored in columns to the person activity.
+     * The activity uses the columns of the first event added to it, an event of other columns is copied.
+     *
+     * @param source the columns that hold the event
+     * @param offset the offset of the event
+     */
+    public synchronized void addActivity(EventColumns source, int offset) {
+        if (columns == null) {
+            columns = source;
+        }
+        activity.add(columns.adopt(source, offset));
+    }
+
+    /**
+     * Add a run of events already stored in columns to the person activity at once, in order
+     *
+     * @param source  the columns that hold the events
+     * @param offsets the offsets of the events
+     * @param from    the position of the first offset to add
+     * @param to      the position after the last offset to add
+     */
+    public synchronized void addActivity(EventColumns source, int[] offsets, int from, int to) {
+        if (columns == null) {
+            columns = source;
+        }
+        for (int i = from; i < to; i++) {
+            activity.add(columns.adopt(source, offsets[i]));
+        }
+    }
+
+    /**
+     * Get a copy of the person activity, consistent even while events are being added
+     *
+     * @return the events of the person in the order they were added
+     */
+    public synchronized Event[] copyActivity() {
+        Event[] events = new Event[activity.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = columns.get(activity.get(i));
+        }
+        return events;
+    }
+
+    /**
+     * Get a copy of the offsets of the person activity, without creating any event
+     *
+     * @return the offsets of the events of the person in {@link #getEventColumns()}, in the order they were added
+     */
+    public synchronized int[] copyActivityOffsets() {
+        return activity.toArray();
+    }
+
+    /**
+     * Get the columns that hold the events of the person activity
+     *
+     * @return the columns, null if the person has no activity
      */
-    public UnorderedListADT<Event> getActivity() {
-        return activity;
+    public synchronized EventColumns getEventColumns() {
+        return columns;
     }
 
     /**
@@ -2,24 +2,33 @@ package hospital;
 
 import collections.lists.UnorderedLinkedList;
 import collections.lists.UnorderedListADT;
+import hospital.collections.IntObjectMap;
 import hospital.enums.TypeOfFunction;
 import hospital.enums.TypeOfRoom;
+import hospital.events.EventColumns;
+import hospital.events.EventTimeline;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-
-import static hospital.menu.ReadInfo.manageAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * The Room class represents a room in the hospital.
  * It contains the room's id, name, type, capacity, current occupation, occupied status and access.
- * The access is a list of functions that have access to the room.
+ * The access is a list of functions that have access to the room, each listed once, mirrored in a mask
+ * with one bit per function so that checking access is a single test.
  * The room can be occupied or not.
  * The room can be accessed by different functions.
  * The room can be revoked access to a function.
  * The room can be printed.
  * The room can be incremented or decremented in occupation.
+ * <p>
+ * The occupation starts from the value the room is created with, which counts the people that are in the
+ * room without being known individually, and follows every person that enters or leaves the room. It is
+ * kept in an atomic counter, so it can be read at any time without locking the room, and the room becomes
+ * occupied as soon as the occupation reaches the capacity and stops being occupied when it drops below it.
+ * The number of people of every function in the room is counted the same way, and every person in the
+ * room has the room as their location.
  */
 public class Room {
     /**
@@ -41,23 +50,31 @@ public class Room {
     /**
      * The room current occupation
      */
-    private int currentOccupation;
+    private final AtomicInteger currentOccupation;
     /**
      * The room occupied status
      **/
-    private boolean occupied;
+    private volatile boolean occupied;
     /**
      * The list of people who have access to the room
      */
     private UnorderedListADT<TypeOfFunction> access;
     /**
-     * The list of events that take place in the room
+     * The functions that have access to the room, one bit per function ordinal
+     */
+    private volatile int accessMask;
+    /**
+     * The events that take place in the room, ordered by time
      */
-    private UnorderedListADT<Event> events;
+    private EventTimeline events;
     /**
-     * The people in the room
+     * The people in the room, by their id
      */
-    private UnorderedListADT<Person> peopleInRoom;
+    private final IntObjectMap<Person> peopleInRoom;
+    /**
+     * The number of people in the room for every function, indexed by the ordinal of the function
+     */
+    private final AtomicIntegerArray functionCounts;
 
     /**
      * Constructor of the class Room
@@ -73,14 +90,16 @@ public class Room {
     public Room(int id, UnorderedListADT<TypeOfFunction> access, int currentOccupation,
                 boolean occupied, int capacity, TypeOfRoom type, String name) {
         this.id = id;
-        this.access = access;
-        this.currentOccupation = currentOccupation;
+        this.access = access == null ? new UnorderedLinkedList<>() : access;
+        this.accessMask = removeRepeatedAccess(this.access);
+        this.currentOccupation = new AtomicInteger(currentOccupation);
         this.occupied = occupied;
         this.capacity = capacity;
         this.type = type;
         this.name = name;
-        this.events = new UnorderedLinkedList<>();
-        this.peopleInRoom = new UnorderedLinkedList<>();
+        this.events = new EventTimeline();
+        this.peopleInRoom = new IntObjectMap<>();
+        this.functionCounts = new AtomicIntegerArray(TypeOfFunction.values().length);
     }
 
     /**
@@ -91,10 +110,12 @@ public class Room {
         this.name = "";
         this.type = null;
         this.capacity = 0;
-        this.currentOccupation = 0;
+        this.currentOccupation = new AtomicInteger();
         this.occupied = false;
         this.access = new UnorderedLinkedList<>();
-        this.peopleInRoom = new UnorderedLinkedList<>();
+        this.events = new EventTimeline();
+        this.peopleInRoom = new IntObjectMap<>();
+        this.functionCounts = new AtomicIntegerArray(TypeOfFunction.values().length);
     }
 
     /**
@@ -136,10 +157,33 @@ public class Room {
     /**
      * Get the people in the room
      *
-     * @return the people in the room
+     * @return a copy of the people in the room, in no particular order
      */
     public UnorderedListADT<Person> getPeopleInRoom() {
-        return peopleInRoom;
+        UnorderedListADT<Person> people = new UnorderedLinkedList<>();
+        for (Person person : peopleInRoom) {
+            people.addToRear(person);
+        }
+        return people;
+    }
+
+    /**
+     * Get the number of people in the room, not counting the occupation the room was created with
+     *
+     * @return the number of people in the room
+     */
+    public int getPeopleCount() {
+        return peopleInRoom.size();
+    }
+
+    /**
+     * Check if a person is in the room
+     *
+     * @param personId the id of the person
+     * @return true if the person is in the room, false otherwise
+     */
+    public boolean hasPerson(int personId) {
+        return peopleInRoom.containsKey(personId);
     }
 
     /**
@@ -157,21 +201,44 @@ public class Room {
      * @return the room current occupation
      */
     public int getCurrentOccupation() {
-        return currentOccupation;
+        return currentOccupation.get();
+    }
+
+    /**
+     * Get the number of people of a function in the room
+     *
+     * @param function the function
+     * @return the number of people of the function in the room
+     */
+    public int getOccupation(TypeOfFunction function) {
+        return functionCounts.get(function.ordinal());
     }
 
     /**
      * Increment the room occupation
      */
     public void increaseOccupation() {
-        this.currentOccupation++;
+        changeOccupation(1);
     }
 
     /**
      * Decrement the room occupation
      */
     public void decreaseOccupation() {
-        this.currentOccupation--;
+        changeOccupation(-1);
+    }
+
+    /**
+     * Change the room occupation and update the occupied status to match
+     *
+     * @param change the number of people that entered, negative if people left
+     */
+    private void changeOccupation(int change) {
+        int occupation = currentOccupation.addAndGet(change);
+        // whichever change is the last to write the status has also read the latest occupation
+        do {
+            occupied = capacity > 0 && occupation >= capacity;
+        } while (occupation != (occupation = currentOccupation.get()));
     }
 
     /**
@@ -193,47 +260,155 @@ public class Room {
     }
 
     /**
-     * List of the events that take place in the room
+     * The events that take place in the room, ordered by time
      *
-     * @return the event list
+     * @return the event timeline
      */
-    public UnorderedListADT<Event> getEvents() {
+    public EventTimeline getEvents() {
         return events;
     }
 
     /**
-     * Add an event to the room
+     * Add an event to the room, the person of the event is added to the people in the room if not already there.
+     * The person is not removed from the room they were in, which is left to the caller.
      *
      * @param event the event to add
      *
      * @return true if the event was added, false otherwise
      */
     public boolean addEvent(Event event) {
-    this.events.addToRear(event);
-    this.peopleInRoom.addToRear(event.getPerson());
-    return true;
+        this.events.add(event);
+        Person person = event.getPerson();
+        if (person.getLocation() != this) {
+            addPerson(person);
+        }
+        return true;
     }
 
     /**
-     * Add a type of function to access the room
+     * Add an event already stored in columns to the room, as {@link #addEvent(Event)} does
+     *
+     * @param columns the columns that hold the event
+     * @param offset  the offset of the event
+     */
+    public void addEvent(EventColumns columns, int offset) {
+        this.events.add(columns, offset);
+        Person person = columns.person(offset);
+        if (person.getLocation() != this) {
+            addPerson(person);
+        }
+    }
+
+    /**
+     * Add a run of events already stored in columns to the timeline of the room.
+     * Unlike {@link #addEvent(Event)}, the people in the room are left to the caller, which knows where
+     * every person ends up after the whole run.
+     *
+     * @param columns the columns that hold the events
+     * @param offsets the offsets of the events, ordered by time
+     * @param from    the position of the first offset to add
+     * @param to      the position after the last offset to add
+     */
+    public void addEvents(EventColumns columns, int[] offsets, int from, int to) {
+        this.events.addAll(columns, offsets, from, to);
+    }
+
+    /**
+     * Add a type of function to access the room, a function that already has access is not added again.
+     * Once the room is in a hospital, access is changed through {@link Hospital#grantAccess(int, TypeOfFunction)}
+     * so that the access index of the hospital follows.
      *
      * @param function the type of function
+     * @return true if the function was added, false if it already had access
      */
-    public void addAccess(TypeOfFunction function) {
+    public synchronized boolean addAccess(TypeOfFunction function) {
+        if (hasAccess(function)) {
+            return false;
+        }
         this.access.addToRear(function);
+        this.accessMask |= bit(function);
+        return true;
+    }
+
+    /**
+     * Check if a function has access to the room, with a single test of the access mask
+     *
+     * @param function the type of function
+     * @return true if the function has access, false otherwise or if the function is null
+     */
+    public boolean hasAccess(TypeOfFunction function) {
+        return function != null && (accessMask & bit(function)) != 0;
+    }
+
+    /**
+     * Get the functions that have access to the room as a mask
+     *
+     * @return the access mask, bit i is set if the function of ordinal i has access
+     */
+    public int getAccessMask() {
+        return accessMask;
+    }
+
+    /**
+     * Get the bit of a function in an access mask
+     *
+     * @param function the type of function
+     * @return the mask with only the bit of the function set
+     */
+    public static int bit(TypeOfFunction function) {
+        return 1 << function.ordinal();
+    }
+
+    /**
+     * Remove the functions listed more than once from an access list, keeping the first of each
+     *
+     * @param access the access list
+     * @return the access mask of the list
+     */
+    private static int removeRepeatedAccess(UnorderedListADT<TypeOfFunction> access) {
+        int mask = 0;
+        boolean repeated = false;
+        for (TypeOfFunction function : access) {
+            repeated |= (mask & bit(function)) != 0;
+            mask |= bit(function);
+        }
+        if (repeated) {
+            int kept = 0;
+            UnorderedListADT<TypeOfFunction> functions = new UnorderedLinkedList<>();
+            while (!access.isEmpty()) {
+                TypeOfFunction function = access.removeFirst();
+                if ((kept & bit(function)) == 0) {
+                    kept |= bit(function);
+                    functions.addToRear(function);
+                }
+            }
+            for (TypeOfFunction function : functions) {
+                access.addToRear(function);
+            }
+        }
+        return mask;
     }
 
     /**
-     * Add a person to the room
+     * Add a person to the room, nothing changes if a person with the same id is already in the room.
+     * The room becomes the location of the person.
      *
      * @param person the person to add
      */
     public void addPerson(Person person) {
-        this.peopleInRoom.addToRear(person);
+        if (this.peopleInRoom.containsKey(person.getId())) {
+            return;
+        }
+        this.peopleInRoom.put(person.getId(), person);
+        person.setLocation(this);
+        if (person.getFunction() != null) {
+            functionCounts.incrementAndGet(person.getFunction().ordinal());
+        }
+        increaseOccupation();
     }
 
     /**
-     * Remove a person from the room
+     * Remove a person from the room, nothing changes if the person is not in the room
      *
      * @param person the person to remove
      */
@@ -242,16 +417,33 @@ public class Room {
             System.out.println("No personnel currently in " + getName());
             return;
         }
-        this.peopleInRoom.remove(person);
+        if (this.peopleInRoom.remove(person.getId()) == null) {
+            return;
+        }
+        if (person.getLocation() == this) {
+            person.setLocation(null);
+        }
+        if (person.getFunction() != null) {
+            functionCounts.decrementAndGet(person.getFunction().ordinal());
+        }
+        decreaseOccupation();
     }
 
     /**
-     * Remove a type of function from the room access
+     * Remove a type of function from the room access.
+     * Once the room is in a hospital, access is changed through {@link Hospital#revokeAccess(int, TypeOfFunction)}
+     * so that the access index of the hospital follows.
      *
      * @param function the type of function
+     * @return true if the function was removed, false if it had no access
      */
-    public void removeAccess(TypeOfFunction function) {
+    public synchronized boolean removeAccess(TypeOfFunction function) {
+        if (!hasAccess(function)) {
+            return false;
+        }
         this.access.remove(function);
+        this.accessMask &= ~bit(function);
+        return true;
     }
 
     /**
@@ -263,27 +455,6 @@ public class Room {
         return access;
     }
 
-    /**
-     * Revoke a function access to the room
-     *
-     * @throws IOException if an I/O error occurs
-     */
-    public void revokeAccess() throws IOException {
-        System.out.println("Choose a function to revoke access to this room");
-
-        UnorderedListADT<TypeOfFunction> roomAccess = getAccess();
-        if (roomAccess == null || roomAccess.isEmpty()) {
-            System.out.println("No personnel currently have access to " + getName());
-            return;
-        }
-        System.out.println(roomAccess);
-        TypeOfFunction function = manageAccess();
-
-        removeAccess(function);
-        System.out.println("Access revoked from: " + function);
-
-    }
-
     /**
      * Detects contacts of a person within a specified date range.
      *
@@ -295,11 +466,11 @@ public class Room {
     public UnorderedListADT<Person> hadContactWithIndividual(int id, LocalDateTime from, LocalDateTime to) {
 
         UnorderedListADT<Person> contacts = new UnorderedLinkedList<>();
-        Iterator<Event> eventsIterator = this.events.iterator();
-        while (eventsIterator.hasNext()) {
-            Event event = eventsIterator.next();
-            if (event.getPerson().getId() != id && event.getTime().isAfter(from) && event.getTime().isBefore(to))
-                contacts.addToRear(event.getPerson());
+        int end = events.firstAtOrAfter(EventTimeline.epochSecond(to));
+        for (int i = events.firstAfter(EventTimeline.epochSecond(from)); i < end; i++) {
+            Person person = events.personAt(i);
+            if (person.getId() != id)
+                contacts.addToRear(person);
         }
         if (contacts.isEmpty()) {
             System.out.println("No contacts found");
@@ -316,12 +487,9 @@ public class Room {
      */
     public UnorderedListADT<Person> hadContactWithRoom(LocalDateTime from, LocalDateTime to) {
         UnorderedListADT<Person> contacts = new UnorderedLinkedList<>();
-        Iterator<Event> eventsIterator = this.events.iterator();
-        while (eventsIterator.hasNext()) {
-            Event event = eventsIterator.next();
-            if (event.getTime().isAfter(from) && event.getTime().isBefore(to)) {
-                contacts.addToRear(event.getPerson());
-            }
+        int end = events.firstAtOrAfter(EventTimeline.epochSecond(to));
+        for (int i = events.firstAfter(EventTimeline.epochSecond(from)); i < end; i++) {
+            contacts.addToRear(events.personAt(i));
         }
         if (contacts.isEmpty()) {
             System.out.println("No contacts found");
@@ -342,7 +510,7 @@ public class Room {
                 "\nName :\t" + name +
                 "\nType :\t" + type +
                 "\nCapacity: \t" + capacity +
-                "\nCurrent Occupation :\t" + currentOccupation +
+                "\nCurrent Occupation :\t" + currentOccupation.get() +
                 "\nIs full ? :\t" + occupied +
                 "\nAccess :\t" + getAccess() +
                 "\n----------------------------------------------\n";
@@ -0,0 +1,178 @@
+package hospital.collections;
+
+/**
+ * The IntIntMap class is a hash map from primitive ints to primitive ints.
+ * It uses open addressing with linear probing, neither keys nor values are boxed.
+ */
+public class IntIntMap {
+    /**
+     * The default number of slots
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * The keys of the map
+     */
+    private int[] keys;
+    /**
+     * The values of the map
+     */
+    private int[] values;
+    /**
+     * Marks the slots that hold an entry
+     */
+    private boolean[] used;
+    /**
+     * The number of entries in the map
+     */
+    private int size;
+    /**
+     * The number of entries that triggers a resize
+     */
+    private int threshold;
+
+    /**
+     * Constructor of the class IntIntMap
+     */
+    public IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the class IntIntMap
+     *
+     * @param expectedSize the number of entries the map should hold without resizing
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get the value mapped to a key
+     *
+     * @param key          the key
+     * @param defaultValue the value to return if the key is not in the map
+     * @return the value, or the default value if the key is not in the map
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Check if a key is in the map
+     *
+     * @param key the key
+     * @return true if the key is in the map, false otherwise
+     */
+    public boolean containsKey(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Map a key to a value, replacing the previous value if there was one
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Get the number of entries in the map
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the map is empty
+     *
+     * @return true if the map has no entries, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Rehash every entry into a table with a new number of slots
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Spread the bits of a key, sequential ids would otherwise cluster in neighbouring slots
+     *
+     * @param key the key
+     * @return the mixed hash
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,124 @@
+package hospital.collections;
+
+import java.util.Arrays;
+
+/**
+ * The IntList class is a growable array of primitive ints, in the order they were added.
+ */
+public class IntList {
+    /**
+     * The default number of elements held without growing
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * The elements of the list, only the first size are used
+     */
+    private int[] elements;
+    /**
+     * The number of elements in the list
+     */
+    private int size;
+
+    /**
+     * Constructor of the class IntList
+     */
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the class IntList
+     *
+     * @param capacity the number of elements the list should hold without growing
+     */
+    public IntList(int capacity) {
+        this.elements = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Add an element after the ones already added
+     *
+     * @param element the element
+     */
+    public void add(int element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+    }
+
+    /**
+     * Get an element
+     *
+     * @param index the position of the element
+     * @return the element
+     * @throws IndexOutOfBoundsException if the position is not in the list
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Replace an element
+     *
+     * @param index   the position of the element
+     * @param element the new element
+     * @throws IndexOutOfBoundsException if the position is not in the list
+     */
+    public void set(int index, int element) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        elements[index] = element;
+    }
+
+    /**
+     * Remove the last element added
+     *
+     * @return the element
+     * @throws IndexOutOfBoundsException if the list is empty
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("The list is empty");
+        }
+        return elements[--size];
+    }
+
+    /**
+     * Get the number of elements in the list
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the list is empty
+     *
+     * @return true if the list has no elements, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every element, keeping the array
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copy the elements of the list
+     *
+     * @return the elements in the order they were added
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,220 @@
+package hospital.collections;
+
+import java.util.Arrays;
+
+/**
+ * The IntSet class is a hash set of primitive ints.
+ * It uses open addressing with linear probing, so values are never boxed.
+ */
+public class IntSet {
+    /**
+     * The default number of slots
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * The values of the set
+     */
+    private int[] keys;
+    /**
+     * Marks the slots that hold a value
+     */
+    private boolean[] used;
+    /**
+     * The number of values in the set
+     */
+    private int size;
+    /**
+     * The number of values that triggers a resize
+     */
+    private int threshold;
+
+    /**
+     * Constructor of the class IntSet
+     */
+    public IntSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the class IntSet
+     *
+     * @param expectedSize the number of values the set should hold without resizing
+     */
+    public IntSet(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Check if a value is in the set
+     *
+     * @param value the value
+     * @return true if the value is in the set, false otherwise
+     */
+    public boolean contains(int value) {
+        int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+        while (used[slot]) {
+            if (keys[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Add a value to the set
+     *
+     * @param value the value
+     * @return true if the value was added, false if it was already in the set
+     */
+    public boolean add(int value) {
+        int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+        while (used[slot]) {
+            if (keys[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        used[slot] = true;
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value from the set
+     *
+     * @param value the value
+     * @return true if the value was removed, false if it was not in the set
+     */
+    public boolean remove(int value) {
+        int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+        while (used[slot]) {
+            if (keys[slot] == value) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of values in the set
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the set is empty
+     *
+     * @return true if the set has no values, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all values from the set, keeping its slots
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Copy the values of the set
+     *
+     * @return the values, in no particular order
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                values[count++] = keys[slot];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Close the gap left by a removed value, so that linear probing still finds every value
+     *
+     * @param gap the slot that was emptied
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot]) {
+                break;
+            }
+            int home = hash(keys[slot]) & mask;
+            // move the value back if its home slot is not between the gap and its current slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                gap = slot;
+            }
+        }
+        used[gap] = false;
+    }
+
+    /**
+     * Rehash every value into a table with a new number of slots
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Spread the bits of a value, sequential ids would otherwise cluster in neighbouring slots
+     *
+     * @param value the value
+     * @return the mixed hash
+     */
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,270 @@
+package hospital.collections;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The LongObjectMap class is a hash map keyed by primitive longs.
+ * It uses open addressing with linear probing, so keys are never boxed and
+ * every lookup touches a single contiguous array.
+ * Null values are not allowed, an empty slot is represented by a null value.
+ * <p>
+ * It is the {@link IntObjectMap} with long keys, for keys such as time buckets that do not fit an int. The two
+ * are kept apart because generics cannot abstract over a primitive key without boxing it, and widening the
+ * keys of the maps by id to longs would double their key arrays for nothing.
+ *
+ * @param <T> the type of the values
+ */
+public class LongObjectMap<T> implements Iterable<T> {
+    /**
+     * The default number of slots
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * The keys of the map
+     */
+    private long[] keys;
+    /**
+     * The values of the map, null marks a free slot
+     */
+    private Object[] values;
+    /**
+     * The number of entries in the map
+     */
+    private int size;
+    /**
+     * The number of entries that triggers a resize
+     */
+    private int threshold;
+
+    /**
+     * Constructor of the class LongObjectMap
+     */
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the class LongObjectMap
+     *
+     * @param expectedSize the number of entries the map should hold without resizing
+     */
+    public LongObjectMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get the value mapped to a key
+     *
+     * @param key the key
+     * @return the value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (T) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Check if a key is in the map
+     *
+     * @param key the key
+     * @return true if the key is in the map, false otherwise
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing the previous value if there was one
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @return the previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public T put(long key, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not allowed");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                T previous = (T) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Remove a key from the map
+     *
+     * @param key the key
+     * @return the value that was mapped to the key, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                T previous = (T) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of entries in the map
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the map is empty
+     *
+     * @return true if the map has no entries, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries from the map
+     */
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Iterate over the values of the map, in no particular order
+     *
+     * @return an iterator over the values
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < values.length && values[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < values.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T value = (T) values[slot];
+                slot = advance(slot + 1);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Close the gap left by a removed entry, so that linear probing still finds every key
+     *
+     * @param gap the slot that was emptied
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = hash(keys[slot]) & mask;
+            // move the entry back if its home slot is not between the gap and its current slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * Rehash every entry into a table with a new number of slots
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Spread the bits of a key, sequential keys would otherwise cluster in neighbouring slots, and fold the
+     * high half of the key into the slot bits
+     *
+     * @param key the key
+     * @return the mixed hash
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
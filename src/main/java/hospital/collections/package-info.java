@@ -0,0 +1,4 @@
+/**
+ * This package contains collections specialized for the primitive ids used by the hospital.
+ */
+package hospital.collections;
@@ -0,0 +1,193 @@
+package hospital.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The RoomLocks class guards the rooms of a hospital with a fixed number of striped locks.
+ * <p>
+ * Every room id maps to one stripe, so a few locks protect any number of rooms and two events only wait
+ * for each other when they touch rooms of the same stripe. A move locks the stripes of both of its rooms,
+ * always the lower stripe first, so two moves in opposite directions between the same rooms can never
+ * deadlock. Readers take a stripe for reading only while they copy the state of a room, or read it
+ * optimistically without taking it at all.
+ */
+public class RoomLocks {
+    /**
+     * The number of stripes for every available core when none is given
+     */
+    private static final int STRIPES_PER_CORE = 8;
+
+    /**
+     * The locks, one per stripe
+     */
+    private final StampedLock[] stripes;
+    /**
+     * The mask that maps a hash to a stripe
+     */
+    private final int mask;
+
+    /**
+     * Constructor of the class RoomLocks, with a number of stripes suited to the available cores
+     */
+    public RoomLocks() {
+        this(STRIPES_PER_CORE * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of the class RoomLocks
+     *
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    public RoomLocks(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("At least one stripe is needed");
+        }
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count <<= 1;
+        }
+        this.stripes = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new StampedLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Get the number of stripes
+     *
+     * @return the number of stripes
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Get the lock of the stripe of a room
+     *
+     * @param roomId the room id
+     * @return the lock
+     */
+    public StampedLock lockFor(int roomId) {
+        return stripes[stripe(roomId)];
+    }
+
+    /**
+     * Lock two rooms for writing, the lower stripe first
+     *
+     * @param roomId1 the id of the first room
+     * @param roomId2 the id of the second room, may be the first room
+     */
+    public void lock(int roomId1, int roomId2) {
+        int first = stripe(roomId1);
+        int second = stripe(roomId2);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        stripes[first].writeLock();
+        if (second != first) {
+            stripes[second].writeLock();
+        }
+    }
+
+    /**
+     * Unlock two rooms locked by {@link #lock(int, int)}
+     *
+     * @param roomId1 the id of the first room
+     * @param roomId2 the id of the second room
+     */
+    public void unlock(int roomId1, int roomId2) {
+        int first = stripe(roomId1);
+        int second = stripe(roomId2);
+        stripes[first].tryUnlockWrite();
+        if (second != first) {
+            stripes[second].tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Lock any number of rooms for writing, in stripe order, taking every stripe once
+     *
+     * @param roomIds the ids of the rooms, with or without repetitions
+     * @return the locked stripes in increasing order, to give to {@link #unlockStripes(int[])}
+     */
+    public int[] lockRooms(int[] roomIds) {
+        boolean[] needed = new boolean[stripes.length];
+        int count = 0;
+        for (int roomId : roomIds) {
+            int stripe = stripe(roomId);
+            if (!needed[stripe]) {
+                needed[stripe] = true;
+                count++;
+            }
+        }
+        int[] locked = new int[count];
+        count = 0;
+        for (int stripe = 0; stripe < needed.length; stripe++) {
+            if (needed[stripe]) {
+                stripes[stripe].writeLock();
+                locked[count++] = stripe;
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * Check if stripes locked by {@link #lockRooms(int[])} cover rooms
+     *
+     * @param locked  the locked stripes
+     * @param roomIds the ids of the rooms
+     * @return true if the stripe of every room is locked
+     */
+    public boolean covers(int[] locked, int[] roomIds) {
+        for (int roomId : roomIds) {
+            if (Arrays.binarySearch(locked, stripe(roomId)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unlock the stripes locked by {@link #lockRooms(int[])}
+     *
+     * @param locked the locked stripes
+     */
+    public void unlockStripes(int[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            stripes[locked[i]].tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Lock every room for writing, in stripe order, so that no event is applied until {@link #unlockAll()}
+     */
+    public void lockAll() {
+        for (StampedLock stripe : stripes) {
+            stripe.writeLock();
+        }
+    }
+
+    /**
+     * Unlock every room locked by {@link #lockAll()}
+     */
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Get the stripe of a room
+     *
+     * @param roomId the room id
+     * @return the stripe
+     */
+    private int stripe(int roomId) {
+        int hash = roomId * 0x9e3779b9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the locks that let events be applied to the hospital from many threads.
+ */
+package hospital.concurrent;
@@ -0,0 +1,24 @@
+package hospital.events;
+
+import hospital.Person;
+
+/**
+ * This class represents a person who shared a room with another person.
+ *
+ * @param person         the person who was in contact
+ * @param overlapSeconds the total time, in seconds, both people were in the same room
+ * @param firstContact   the epoch second the first shared stay started
+ * @param lastContact    the epoch second the last shared stay ended
+ */
+public record Contact(Person person, long overlapSeconds, long firstContact, long lastContact) {
+
+    @Override
+    public String toString() {
+        return "\n---------------------------------------------" +
+                "\nContact ID :\t" + person.getId() +
+                "\nName : \t" + person.getName() +
+                "\nFunction :\t" + person.getFunction() +
+                "\nTime together :\t" + overlapSeconds / 60 + " min" +
+                "\n----------------------------------------------\n";
+    }
+}
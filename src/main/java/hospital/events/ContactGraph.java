@@ -0,0 +1,836 @@
+package hospital.events;
+
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Person;
+import hospital.Room;
+import hospital.collections.IntList;
+import hospital.collections.IntObjectMap;
+import hospital.collections.LongList;
+import hospital.collections.LongObjectMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The ContactGraph class keeps the contacts between people up to date as events are applied, so that contact
+ * questions do not rescan the events.
+ * <p>
+ * The graph follows the room every person is in and since when. When a person leaves a room, their stay is
+ * matched against the stays of the people still there, and the overlap is added to the edge between the two
+ * people, which holds their total overlap and the first and last time they were together. Every overlap is
+ * also stored in the adjacency of both people, split into time buckets, so the contacts of a person within a
+ * window are read from the buckets of the window in time proportional to the overlaps they hold. Stays that
+ * have not ended are matched when a query reads them, as lasting until the end of its window, as the
+ * {@link StayIndex} does.
+ * <p>
+ * The events are matched in time order. The columns hold them in the order they were added, which is not
+ * the order of their times after a snapshot is read or when batches are ingested concurrently, so every new
+ * range of the columns is sorted by time first. Every move of the last reorder window is journaled with what
+ * it changed; an event older than moves already applied undoes the moves after it, newest first, and applies
+ * them again with the late event in time order, so a late event only costs the moves it overtakes. Only an
+ * event older than the reorder window makes the graph match every event again, the next time it is read.
+ * The graph is guarded by its own monitor, which is never held while another lock is taken.
+ */
+public class ContactGraph {
+    /**
+     * The reorder window of a graph built without one, in seconds
+     */
+    public static final long DEFAULT_REORDER_SECONDS = 3600;
+
+    /**
+     * The duration of a time bucket in seconds
+     */
+    private final long bucketSeconds;
+    /**
+     * How far behind the newest move an event may arrive and still be put in order, in seconds
+     */
+    private final long reorderSeconds;
+    /**
+     * The node of every person by person id
+     */
+    private final IntObjectMap<Node> nodes;
+    /**
+     * The people in every room by room id, by person id
+     */
+    private final IntObjectMap<IntObjectMap<Node>> occupants;
+    /**
+     * The moves of the reorder window with what they changed, the oldest first
+     */
+    private final ArrayDeque<Step> journal;
+    /**
+     * The columns the events are read from, null until the graph is first advanced
+     */
+    private EventColumns columns;
+    /**
+     * The offset of the first event of the columns not yet applied to the graph
+     */
+    private int nextOffset;
+    /**
+     * The time of the newest move applied to the graph
+     */
+    private long latest = Long.MIN_VALUE;
+    /**
+     * The time of the newest move dropped from the journal, the moves up to it cannot be undone, an event at
+     * the same time is still applied after it since its offset is greater
+     */
+    private long forgottenTime = Long.MIN_VALUE;
+    /**
+     * Whether an event older than the reorder window was advanced past, so every event must be matched again
+     */
+    private boolean late;
+    /**
+     * The number of edges between people
+     */
+    private int edgeCount;
+
+    /**
+     * Constructor of the class ContactGraph, with the default reorder window
+     *
+     * @param bucketSeconds the duration of a time bucket in seconds
+     */
+    public ContactGraph(long bucketSeconds) {
+        this(bucketSeconds, DEFAULT_REORDER_SECONDS);
+    }
+
+    /**
+     * Constructor of the class ContactGraph
+     *
+     * @param bucketSeconds  the duration of a time bucket in seconds
+     * @param reorderSeconds how far behind the newest move an event may arrive and still be put in order
+     */
+    public ContactGraph(long bucketSeconds, long reorderSeconds) {
+        if (bucketSeconds < 1) {
+            throw new IllegalArgumentException("A time bucket must last at least one second");
+        }
+        if (reorderSeconds < 0) {
+            throw new IllegalArgumentException("The reorder window cannot be negative");
+        }
+        this.bucketSeconds = bucketSeconds;
+        this.reorderSeconds = reorderSeconds;
+        this.nodes = new IntObjectMap<>();
+        this.occupants = new IntObjectMap<>();
+        this.journal = new ArrayDeque<>();
+    }
+
+    /**
+     * Apply the events of columns the graph has not seen yet, in time order.
+     * The moves applied after the oldest new event are undone and applied again after it. If that event is
+     * older than the reorder window, the events are only matched again when the graph is next read.
+     *
+     * @param columns the columns that hold the events, always the same columns
+     * @param end     the offset after the last event to apply
+     */
+    public synchronized void advance(EventColumns columns, int end) {
+        this.columns = columns;
+        if (nextOffset >= end) {
+            return;
+        }
+        int start = nextOffset;
+        nextOffset = end;
+        if (late) {
+            return;
+        }
+        IntList offsets = new IntList(end - start);
+        long oldest = Long.MAX_VALUE;
+        for (int offset = start; offset < end; offset++) {
+            offsets.add(offset);
+            oldest = Math.min(oldest, columns.epochSecond(offset));
+        }
+        if (oldest < latest) {
+            // the new offsets are after every applied one, so only a strictly newer move is overtaken
+            if (oldest < forgottenTime) {
+                late = true;
+                journal.clear();
+                return;
+            }
+            while (!journal.isEmpty() && journal.peekLast().time > oldest) {
+                Step step = journal.pollLast();
+                undo(step);
+                offsets.add(step.offset);
+            }
+        }
+        for (int offset : byTime(columns, offsets.toArray())) {
+            apply(columns, offset);
+        }
+        forget();
+    }
+
+    /**
+     * Match every event applied so far again in time order, if an event arrived after the reorder window
+     */
+    private void catchUp() {
+        if (!late) {
+            return;
+        }
+        nodes.clear();
+        occupants.clear();
+        journal.clear();
+        edgeCount = 0;
+        latest = Long.MIN_VALUE;
+        forgottenTime = Long.MIN_VALUE;
+        late = false;
+        int[] offsets = new int[nextOffset];
+        for (int offset = 0; offset < nextOffset; offset++) {
+            offsets[offset] = offset;
+        }
+        for (int offset : byTime(columns, offsets)) {
+            apply(columns, offset);
+        }
+        forget();
+    }
+
+    /**
+     * Drop the moves older than the reorder window from the journal
+     */
+    private void forget() {
+        while (!journal.isEmpty() && journal.peekFirst().time < latest - reorderSeconds) {
+            Step step = journal.pollFirst();
+            forgottenTime = step.time;
+        }
+    }
+
+    /**
+     * Sort offsets of the columns by time, keeping the offset order of equal times
+     *
+     * @param columns the columns
+     * @param offsets the offsets, sorted in place
+     * @return the offsets sorted by time
+     */
+    private static int[] byTime(EventColumns columns, int[] offsets) {
+        Arrays.sort(offsets);
+        long[] times = new long[offsets.length];
+        boolean inOrder = true;
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < offsets.length; i++) {
+            times[i] = columns.epochSecond(offsets[i]);
+            inOrder &= i == 0 || times[i - 1] <= times[i];
+            first = Math.min(first, times[i]);
+            last = Math.max(last, times[i]);
+        }
+        if (inOrder) {
+            return offsets;
+        }
+        if (last - first >= Integer.MAX_VALUE) {
+            Integer[] order = new Integer[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+            int[] sorted = new int[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                sorted[i] = offsets[order[i]];
+            }
+            return sorted;
+        }
+        // the time followed by the position, sorted as plain numbers
+        long[] keys = new long[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            keys[i] = (times[i] - first) << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[offsets.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = offsets[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Apply the event at an offset of the columns and journal it
+     *
+     * @param columns the columns
+     * @param offset  the offset of the event
+     */
+    private void apply(EventColumns columns, int offset) {
+        journal.addLast(move(columns.person(offset), columns.to(offset), columns.epochSecond(offset), offset));
+    }
+
+    /**
+     * Apply a move of a person, ending the stay of the person in the room they were in.
+     * The moves are applied in time order, a move older than the stay it ends adds no overlap.
+     *
+     * @param person the person that moved
+     * @param to     the room the person went to
+     * @param time   the time of the move as an epoch second
+     * @param offset the offset of the move in the columns
+     * @return what the move changed
+     */
+    private Step move(Person person, Room to, long time, int offset) {
+        Node node = nodes.get(person.getId());
+        boolean created = node == null;
+        if (created) {
+            node = new Node(person);
+            nodes.put(person.getId(), node);
+        }
+        Step step = new Step(offset, time, node, created, node.roomId, node.enter, latest, to.getId());
+        if (node.roomId >= 0) {
+            IntObjectMap<Node> room = occupants.get(node.roomId);
+            room.remove(person.getId());
+            for (Node other : room) {
+                long start = Math.max(node.enter, other.enter);
+                if (time > start) {
+                    step.contacts.add(addContact(node, other, start, time));
+                }
+            }
+        }
+        node.roomId = to.getId();
+        node.enter = time;
+        latest = Math.max(latest, time);
+        IntObjectMap<Node> room = occupants.get(node.roomId);
+        if (room == null) {
+            room = new IntObjectMap<>();
+            occupants.put(node.roomId, room);
+        }
+        room.put(person.getId(), node);
+        return step;
+    }
+
+    /**
+     * Undo the last move applied
+     *
+     * @param step what the move changed
+     */
+    private void undo(Step step) {
+        Node node = step.node;
+        for (int i = step.contacts.size() - 1; i >= 0; i--) {
+            Touch touch = step.contacts.get(i);
+            for (long bucket = touch.lastBucket; bucket >= touch.firstBucket; bucket--) {
+                touch.node.buckets.get(bucket).removeLast();
+                touch.other.buckets.get(bucket).removeLast();
+            }
+            Edge edge = touch.edge;
+            edge.overlap = touch.overlap;
+            edge.first = touch.first;
+            edge.last = touch.last;
+            if (touch.created) {
+                touch.node.edges.remove(touch.other.person.getId());
+                touch.other.edges.remove(touch.node.person.getId());
+                edgeCount--;
+            }
+        }
+        occupants.get(step.roomId).remove(node.person.getId());
+        node.roomId = step.previousRoomId;
+        node.enter = step.previousEnter;
+        if (node.roomId >= 0) {
+            occupants.get(node.roomId).put(node.person.getId(), node);
+        }
+        if (step.created) {
+            nodes.remove(node.person.getId());
+        }
+        latest = step.previousLatest;
+    }
+
+    /**
+     * Add an overlap of two people to their edge and to the buckets of both
+     *
+     * @param node  one person
+     * @param other the other person
+     * @param start the start of the overlap
+     * @param stop  the end of the overlap
+     * @return what the overlap changed
+     */
+    private Touch addContact(Node node, Node other, long start, long stop) {
+        Edge edge = node.edges.get(other.person.getId());
+        boolean created = edge == null;
+        if (created) {
+            edge = new Edge(node.person, other.person);
+            node.edges.put(other.person.getId(), edge);
+            other.edges.put(node.person.getId(), edge);
+            edgeCount++;
+        }
+        Touch touch = new Touch(node, other, edge, created, Math.floorDiv(start, bucketSeconds),
+                Math.floorDiv(stop - 1, bucketSeconds));
+        edge.add(start, stop);
+        for (long bucket = touch.firstBucket; bucket <= touch.lastBucket; bucket++) {
+            long pieceStart = Math.max(start, bucket * bucketSeconds);
+            long pieceStop = Math.min(stop, (bucket + 1) * bucketSeconds);
+            node.bucket(bucket).add(other.person.getId(), pieceStart, pieceStop);
+            other.bucket(bucket).add(node.person.getId(), pieceStart, pieceStop);
+        }
+        return touch;
+    }
+
+    /**
+     * Finds everyone who was in the same room as a person within a time window.
+     * Only the part of every stay inside the window counts towards the overlap, as in
+     * {@link StayIndex#contactsOf(int, long, long)}.
+     *
+     * @param personId the id of the index person
+     * @param from     the start of the window as an epoch second
+     * @param to       the end of the window as an epoch second
+     * @return the contacts, the longest overlap first
+     */
+    public synchronized UnorderedListADT<Contact> contactsOf(int personId, long from, long to) {
+        catchUp();
+        UnorderedListADT<Contact> contacts = new UnorderedLinkedList<>();
+        Node node = nodes.get(personId);
+        if (node == null || from >= to) {
+            return contacts;
+        }
+        IntObjectMap<Accumulator> found = new IntObjectMap<>();
+        long first = Math.floorDiv(from, bucketSeconds);
+        long last = Math.floorDiv(to - 1, bucketSeconds);
+        if (last - first < node.buckets.size()) {
+            for (long bucket = first; bucket <= last; bucket++) {
+                Pieces pieces = node.buckets.get(bucket);
+                if (pieces != null) {
+                    pieces.clip(from, to, nodes, found);
+                }
+            }
+        } else {
+            // a window wider than the buckets of the person, visit the buckets instead
+            for (Pieces pieces : node.buckets) {
+                if (pieces.bucket >= first && pieces.bucket <= last) {
+                    pieces.clip(from, to, nodes, found);
+                }
+            }
+        }
+        if (node.roomId >= 0) {
+            // the stays that have not ended last until the end of the window
+            for (Node other : occupants.get(node.roomId)) {
+                long start = Math.max(from, Math.max(node.enter, other.enter));
+                if (other != node && to > start) {
+                    Accumulator.of(found, other.person).add(start, to);
+                }
+            }
+        }
+
+        Accumulator[] sorted = new Accumulator[found.size()];
+        int count = 0;
+        for (Accumulator accumulator : found) {
+            sorted[count++] = accumulator;
+        }
+        Arrays.sort(sorted, Comparator.comparingLong((Accumulator a) -> a.overlap).reversed());
+        for (Accumulator accumulator : sorted) {
+            contacts.addToRear(new Contact(accumulator.person, accumulator.overlap, accumulator.first,
+                    accumulator.last));
+        }
+        return contacts;
+    }
+
+    /**
+     * Get the edges of a person, the stays that have not ended are not counted yet
+     *
+     * @param personId the id of the person
+     * @return a contact for every person the person was with, with their total overlap and the first and last
+     * time they were together
+     */
+    public synchronized UnorderedListADT<Contact> edgesOf(int personId) {
+        catchUp();
+        UnorderedListADT<Contact> contacts = new UnorderedLinkedList<>();
+        Node node = nodes.get(personId);
+        if (node == null) {
+            return contacts;
+        }
+        for (Edge edge : node.edges) {
+            contacts.addToRear(new Contact(edge.other(node.person), edge.overlap, edge.first, edge.last));
+        }
+        return contacts;
+    }
+
+    /**
+     * Get the total overlap of two people, the stays that have not ended are not counted yet
+     *
+     * @param personId1 the id of a person
+     * @param personId2 the id of the other person
+     * @return the overlap in seconds, 0 if they were never together
+     */
+    public synchronized long overlap(int personId1, int personId2) {
+        catchUp();
+        Node node = nodes.get(personId1);
+        Edge edge = node == null ? null : node.edges.get(personId2);
+        return edge == null ? 0 : edge.overlap;
+    }
+
+    /**
+     * Get the number of edges between people
+     *
+     * @return the number of edges
+     */
+    public synchronized int edgeCount() {
+        catchUp();
+        return edgeCount;
+    }
+
+    /**
+     * Get the duration of a time bucket
+     *
+     * @return the duration in seconds
+     */
+    public long getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    /**
+     * A person of the graph, with the room they are in, their edges and their overlaps by bucket
+     */
+    private static final class Node {
+        /**
+         * The person
+         */
+        private final Person person;
+        /**
+         * The edges of the person by the id of the other person
+         */
+        private final IntObjectMap<Edge> edges = new IntObjectMap<>();
+        /**
+         * The overlaps of the person by bucket
+         */
+        private final LongObjectMap<Pieces> buckets = new LongObjectMap<>();
+        /**
+         * The id of the room the person is in, -1 before their first event
+         */
+        private int roomId = -1;
+        /**
+         * The time the person entered the room they are in
+         */
+        private long enter;
+
+        /**
+         * Constructor of the class Node
+         *
+         * @param person the person
+         */
+        Node(Person person) {
+            this.person = person;
+        }
+
+        /**
+         * Get the overlaps of a bucket, creating them if needed
+         *
+         * @param bucket the bucket
+         * @return the overlaps
+         */
+        Pieces bucket(long bucket) {
+            Pieces pieces = buckets.get(bucket);
+            if (pieces == null) {
+                pieces = new Pieces(bucket);
+                buckets.put(bucket, pieces);
+            }
+            return pieces;
+        }
+    }
+
+    /**
+     * The total overlap of two people
+     */
+    private static final class Edge {
+        /**
+         * One person of the edge
+         */
+        private final Person person1;
+        /**
+         * The other person of the edge
+         */
+        private final Person person2;
+        /**
+         * The total overlap in seconds
+         */
+        private long overlap;
+        /**
+         * The start of the earliest overlap
+         */
+        private long first = Long.MAX_VALUE;
+        /**
+         * The end of the latest overlap
+         */
+        private long last = Long.MIN_VALUE;
+
+        /**
+         * Constructor of the class Edge
+         *
+         * @param person1 one person of the edge
+         * @param person2 the other person of the edge
+         */
+        Edge(Person person1, Person person2) {
+            this.person1 = person1;
+            this.person2 = person2;
+        }
+
+        /**
+         * Get the person at the other end of the edge
+         *
+         * @param person a person of the edge
+         * @return the other person
+         */
+        Person other(Person person) {
+            return person == person1 ? person2 : person1;
+        }
+
+        /**
+         * Add an overlap
+         *
+         * @param start the start of the overlap
+         * @param stop  the end of the overlap
+         */
+        void add(long start, long stop) {
+            overlap += stop - start;
+            first = Math.min(first, start);
+            last = Math.max(last, stop);
+        }
+    }
+
+    /**
+     * The overlaps of a person within one time bucket
+     */
+    private static final class Pieces {
+        /**
+         * The bucket
+         */
+        private final long bucket;
+        /**
+         * The id of the other person of every overlap
+         */
+        private final IntList others = new IntList();
+        /**
+         * The start of every overlap
+         */
+        private final LongList starts = new LongList();
+        /**
+         * The end of every overlap
+         */
+        private final LongList stops = new LongList();
+
+        /**
+         * Constructor of the class Pieces
+         *
+         * @param bucket the bucket
+         */
+        Pieces(long bucket) {
+            this.bucket = bucket;
+        }
+
+        /**
+         * Add an overlap
+         *
+         * @param other the id of the other person
+         * @param start the start of the overlap
+         * @param stop  the end of the overlap
+         */
+        void add(int other, long start, long stop) {
+            others.add(other);
+            starts.add(start);
+            stops.add(stop);
+        }
+
+        /**
+         * Remove the last overlap added
+         */
+        void removeLast() {
+            others.removeLast();
+            starts.removeLast();
+            stops.removeLast();
+        }
+
+        /**
+         * Add the part of every overlap inside a window to the contacts
+         *
+         * @param from  the start of the window
+         * @param to    the end of the window
+         * @param nodes the nodes of the graph by person id
+         * @param found the contacts found so far by person id
+         */
+        void clip(long from, long to, IntObjectMap<Node> nodes, IntObjectMap<Accumulator> found) {
+            for (int i = 0; i < others.size(); i++) {
+                long start = Math.max(from, starts.get(i));
+                long stop = Math.min(to, stops.get(i));
+                if (stop > start) {
+                    Accumulator.of(found, nodes.get(others.get(i)).person).add(start, stop);
+                }
+            }
+        }
+    }
+
+    /**
+     * A move applied to the graph, with what it changed so that it can be undone
+     */
+    private static final class Step {
+        /**
+         * The offset of the move in the columns
+         */
+        private final int offset;
+        /**
+         * The time of the move
+         */
+        private final long time;
+        /**
+         * The person that moved
+         */
+        private final Node node;
+        /**
+         * Whether the node of the person was created by the move
+         */
+        private final boolean created;
+        /**
+         * The room the person was in, -1 if none
+         */
+        private final int previousRoomId;
+        /**
+         * The time the person entered the room they were in
+         */
+        private final long previousEnter;
+        /**
+         * The time of the newest move before this one
+         */
+        private final long previousLatest;
+        /**
+         * The room the person went to
+         */
+        private final int roomId;
+        /**
+         * The overlaps the move added, in the order they were added
+         */
+        private final ArrayList<Touch> contacts = new ArrayList<>();
+
+        /**
+         * Constructor of the class Step
+         *
+         * @param offset         the offset of the move in the columns
+         * @param time           the time of the move
+         * @param node           the person that moved
+         * @param created        whether the node of the person was created by the move
+         * @param previousRoomId the room the person was in, -1 if none
+         * @param previousEnter  the time the person entered the room they were in
+         * @param previousLatest the time of the newest move before this one
+         * @param roomId         the room the person went to
+         */
+        Step(int offset, long time, Node node, boolean created, int previousRoomId, long previousEnter,
+             long previousLatest, int roomId) {
+            this.offset = offset;
+            this.time = time;
+            this.node = node;
+            this.created = created;
+            this.previousRoomId = previousRoomId;
+            this.previousEnter = previousEnter;
+            this.previousLatest = previousLatest;
+            this.roomId = roomId;
+        }
+    }
+
+    /**
+     * An overlap added by a move, with the edge as it was before
+     */
+    private static final class Touch {
+        /**
+         * The person that moved
+         */
+        private final Node node;
+        /**
+         * The other person
+         */
+        private final Node other;
+        /**
+         * The edge of the two people
+         */
+        private final Edge edge;
+        /**
+         * Whether the edge was created by the overlap
+         */
+        private final boolean created;
+        /**
+         * The first bucket of the overlap
+         */
+        private final long firstBucket;
+        /**
+         * The last bucket of the overlap
+         */
+        private final long lastBucket;
+        /**
+         * The total overlap of the edge before
+         */
+        private final long overlap;
+        /**
+         * The start of the earliest overlap of the edge before
+         */
+        private final long first;
+        /**
+         * The end of the latest overlap of the edge before
+         */
+        private final long last;
+
+        /**
+         * Constructor of the class Touch, to be called before the overlap is added to the edge
+         *
+         * @param node        the person that moved
+         * @param other       the other person
+         * @param edge        the edge of the two people
+         * @param created     whether the edge was created by the overlap
+         * @param firstBucket the first bucket of the overlap
+         * @param lastBucket  the last bucket of the overlap
+         */
+        Touch(Node node, Node other, Edge edge, boolean created, long firstBucket, long lastBucket) {
+            this.node = node;
+            this.other = other;
+            this.edge = edge;
+            this.created = created;
+            this.firstBucket = firstBucket;
+            this.lastBucket = lastBucket;
+            this.overlap = edge.overlap;
+            this.first = edge.first;
+            this.last = edge.last;
+        }
+    }
+
+    /**
+     * The overlap found so far with one contact
+     */
+    private static final class Accumulator {
+        /**
+         * The contact
+         */
+        private final Person person;
+        /**
+         * The total overlap in seconds
+         */
+        private long overlap;
+        /**
+         * The start of the earliest overlap
+         */
+        private long first = Long.MAX_VALUE;
+        /**
+         * The end of the latest overlap
+         */
+        private long last = Long.MIN_VALUE;
+
+        /**
+         * Constructor of the class Accumulator
+         *
+         * @param person the contact
+         */
+        Accumulator(Person person) {
+            this.person = person;
+        }
+
+        /**
+         * Get the accumulator of a contact, creating it if needed
+         *
+         * @param found  the contacts found so far by person id
+         * @param person the contact
+         * @return the accumulator
+         */
+        static Accumulator of(IntObjectMap<Accumulator> found, Person person) {
+            Accumulator accumulator = found.get(person.getId());
+            if (accumulator == null) {
+                accumulator = new Accumulator(person);
+                found.put(person.getId(), accumulator);
+            }
+            return accumulator;
+        }
+
+        /**
+         * Add an overlap
+         *
+         * @param start the start of the overlap
+         * @param stop  the end of the overlap
+         */
+        void add(long start, long stop) {
+            overlap += stop - start;
+            first = Math.min(first, start);
+            last = Math.max(last, stop);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package hospital.events;
+
+import hospital.Event;
+import hospital.Person;
+import hospital.Room;
+import hospital.collections.IntIntMap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * The EventColumns class keeps events in memory as parallel primitive arrays, one array per field.
+ * <p>
+ * Every event is stored once, at an offset that never changes, as the index of its person, the indexes of its
+ * rooms and its time. The people and rooms are registered the first time they appear, so an event costs
+ * 24 bytes whatever the objects it refers to. The arrays grow by whole chunks that are never copied, so
+ * adding events never moves the ones already stored; only the first chunk starts small and is copied as it
+ * grows. The timeline of a room and the activity of a person are lists of offsets into the same columns,
+ * and an {@link Event} is only created when one is read.
+ * <p>
+ * Events are added under the monitor of the columns. An event can be read from any thread that learned its
+ * offset from a structure it was added to after the event was stored, such as a room timeline read under the
+ * lock of the room.
+ */
+public class EventColumns {
+    /**
+     * The number of bits of an offset that select the position inside a chunk
+     */
+    private static final int CHUNK_BITS = 14;
+    /**
+     * The number of events of a chunk
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * The mask of the position inside a chunk
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * The number of events of the first chunk when it is created, so that small columns stay small
+     */
+    private static final int FIRST_CHUNK_SIZE = 8;
+
+    /**
+     * The chunks of events, only the chunks up to the size are allocated
+     */
+    private volatile Chunk[] chunks;
+    /**
+     * The number of events
+     */
+    private int size;
+    /**
+     * The index of every registered person by person id
+     */
+    private final IntIntMap personIndexes;
+    /**
+     * The registered people by index
+     */
+    private volatile Person[] people;
+    /**
+     * The number of registered people
+     */
+    private int personCount;
+    /**
+     * The index of every registered room by room id
+     */
+    private final IntIntMap roomIndexes;
+    /**
+     * The registered rooms by index
+     */
+    private volatile Room[] rooms;
+    /**
+     * The number of registered rooms
+     */
+    private int roomCount;
+
+    /**
+     * Constructor of the class EventColumns
+     */
+    public EventColumns() {
+        this.chunks = new Chunk[4];
+        this.personIndexes = new IntIntMap();
+        this.people = new Person[64];
+        this.roomIndexes = new IntIntMap();
+        this.rooms = new Room[16];
+    }
+
+    /**
+     * Add an event
+     *
+     * @param event the event
+     * @return the offset of the event
+     */
+    public synchronized int add(Event event) {
+        return store(event.getPerson(), event.getFrom(), event.getTo(), event.getTime());
+    }
+
+    /**
+     * Add an event given by its fields
+     *
+     * @param person the person that moved
+     * @param from   the room the person came from
+     * @param to     the room the person went to
+     * @param time   the time of the event
+     * @return the offset of the event
+     */
+    public synchronized int add(Person person, Room from, Room to, LocalDateTime time) {
+        return store(person, from, to, time);
+    }
+
+    /**
+     * Add a batch of events at consecutive offsets
+     *
+     * @param events the events
+     * @return the offset of the first event, the event at position i of the batch is at this offset plus i
+     */
+    public synchronized int addAll(Event[] events) {
+        int first = size;
+        for (Event event : events) {
+            store(event.getPerson(), event.getFrom(), event.getTo(), event.getTime());
+        }
+        return first;
+    }
+
+    /**
+     * Get the offset of an event of other columns in these columns, adding a copy of the event if needed
+     *
+     * @param source the columns that hold the event
+     * @param offset the offset of the event in the source
+     * @return the offset of the event in these columns
+     */
+    public int adopt(EventColumns source, int offset) {
+        return source == this ? offset : add(source.get(offset));
+    }
+
+    /**
+     * Get the number of events
+     *
+     * @return the number of events
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Create the event stored at an offset
+     *
+     * @param offset the offset of the event
+     * @return a new event with the fields stored at the offset
+     */
+    public Event get(int offset) {
+        Chunk chunk = chunk(offset);
+        int i = offset & CHUNK_MASK;
+        Room[] rooms = this.rooms;
+        return new Event(people[chunk.personIndexes[i]], rooms[chunk.fromIndexes[i]], rooms[chunk.toIndexes[i]],
+                LocalDateTime.ofEpochSecond(chunk.seconds[i], chunk.nanos[i], ZoneOffset.UTC));
+    }
+
+    /**
+     * Get the person of the event stored at an offset
+     *
+     * @param offset the offset of the event
+     * @return the person
+     */
+    public Person person(int offset) {
+        return people[chunk(offset).personIndexes[offset & CHUNK_MASK]];
+    }
+
+    /**
+     * Get the origin room of the event stored at an offset
+     *
+     * @param offset the offset of the event
+     * @return the room the person came from
+     */
+    public Room from(int offset) {
+        return rooms[chunk(offset).fromIndexes[offset & CHUNK_MASK]];
+    }
+
+    /**
+     * Get the destination room of the event stored at an offset
+     *
+     * @param offset the offset of the event
+     * @return the room the person went to
+     */
+    public Room to(int offset) {
+        return rooms[chunk(offset).toIndexes[offset & CHUNK_MASK]];
+    }
+
+    /**
+     * Get the time of the event stored at an offset, to the second
+     *
+     * @param offset the offset of the event
+     * @return the epoch second of the event, with the time read as UTC
+     */
+    public long epochSecond(int offset) {
+        return chunk(offset).seconds[offset & CHUNK_MASK];
+    }
+
+    /**
+     * Get the nanoseconds of the time of the event stored at an offset
+     *
+     * @param offset the offset of the event
+     * @return the nanoseconds of the second of the event
+     */
+    public int nano(int offset) {
+        return chunk(offset).nanos[offset & CHUNK_MASK];
+    }
+
+    /**
+     * Get the chunk that holds an offset
+     *
+     * @param offset the offset
+     * @return the chunk
+     */
+    private Chunk chunk(int offset) {
+        Chunk[] chunks = this.chunks;
+        int index = offset >>> CHUNK_BITS;
+        if (offset < 0 || index >= chunks.length || chunks[index] == null) {
+            throw new IndexOutOfBoundsException(offset);
+        }
+        return chunks[index];
+    }
+
+    /**
+     * Store an event after the ones already stored, with the monitor held
+     *
+     * @param person the person that moved
+     * @param from   the room the person came from
+     * @param to     the room the person went to
+     * @param time   the time of the event
+     * @return the offset of the event
+     */
+    private int store(Person person, Room from, Room to, LocalDateTime time) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many events");
+        }
+        int index = size >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        int i = size & CHUNK_MASK;
+        if (current[index] == null) {
+            current[index] = new Chunk(index == 0 ? FIRST_CHUNK_SIZE : CHUNK_SIZE);
+            chunks = current;
+        } else if (i == current[index].seconds.length) {
+            // only the first chunk can be full before the chunk ends, it is grown as a copy so readers
+            // holding the previous copy still read the same events
+            current[index] = current[index].grow(Math.min(CHUNK_SIZE, i * 2));
+            chunks = current;
+        }
+        Chunk chunk = current[index];
+        chunk.personIndexes[i] = personIndex(person);
+        chunk.fromIndexes[i] = roomIndex(from);
+        chunk.toIndexes[i] = roomIndex(to);
+        chunk.seconds[i] = EventTimeline.epochSecond(time);
+        chunk.nanos[i] = time.getNano();
+        return size++;
+    }
+
+    /**
+     * Get the index of a person, registering the person if needed
+     *
+     * @param person the person
+     * @return the index of the person
+     */
+    private int personIndex(Person person) {
+        int index = personIndexes.getOrDefault(person.getId(), -1);
+        if (index < 0) {
+            index = personCount++;
+            Person[] current = people;
+            if (index == current.length) {
+                current = Arrays.copyOf(current, index * 2);
+            }
+            current[index] = person;
+            people = current;
+            personIndexes.put(person.getId(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the index of a room, registering the room if needed
+     *
+     * @param room the room
+     * @return the index of the room
+     */
+    private int roomIndex(Room room) {
+        int index = roomIndexes.getOrDefault(room.getId(), -1);
+        if (index < 0) {
+            index = roomCount++;
+            Room[] current = rooms;
+            if (index == current.length) {
+                current = Arrays.copyOf(current, index * 2);
+            }
+            current[index] = room;
+            rooms = current;
+            roomIndexes.put(room.getId(), index);
+        }
+        return index;
+    }
+
+    /**
+     * A fixed number of consecutive events, one array per field
+     */
+    private static final class Chunk {
+        /**
+         * The index of the person of every event
+         */
+        private final int[] personIndexes;
+        /**
+         * The index of the origin room of every event
+         */
+        private final int[] fromIndexes;
+        /**
+         * The index of the destination room of every event
+         */
+        private final int[] toIndexes;
+        /**
+         * The epoch second of every event
+         */
+        private final long[] seconds;
+        /**
+         * The nanoseconds of the time of every event
+         */
+        private final int[] nanos;
+
+        /**
+         * Constructor of the class Chunk
+         *
+         * @param capacity the number of events of the chunk
+         */
+        Chunk(int capacity) {
+            this(new int[capacity], new int[capacity], new int[capacity], new long[capacity], new int[capacity]);
+        }
+
+        /**
+         * Constructor of the class Chunk
+         *
+         * @param personIndexes the index of the person of every event
+         * @param fromIndexes   the index of the origin room of every event
+         * @param toIndexes     the index of the destination room of every event
+         * @param seconds       the epoch second of every event
+         * @param nanos         the nanoseconds of the time of every event
+         */
+        private Chunk(int[] personIndexes, int[] fromIndexes, int[] toIndexes, long[] seconds, int[] nanos) {
+            this.personIndexes = personIndexes;
+            this.fromIndexes = fromIndexes;
+            this.toIndexes = toIndexes;
+            this.seconds = seconds;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Copy the chunk into larger arrays
+         *
+         * @param capacity the new number of events of the chunk
+         * @return the copy
+         */
+        Chunk grow(int capacity) {
+            return new Chunk(Arrays.copyOf(personIndexes, capacity), Arrays.copyOf(fromIndexes, capacity),
+                    Arrays.copyOf(toIndexes, capacity), Arrays.copyOf(seconds, capacity), Arrays.copyOf(nanos, capacity));
+        }
+    }
+}
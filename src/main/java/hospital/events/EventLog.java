@@ -0,0 +1,517 @@
+package hospital.events;
+
+import hospital.Event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * The EventLog class is an append-only write-ahead log of the events accepted by the hospital.
+ * <p>
+ * Every record holds a sequence number, the person id, the origin and destination room ids and the time
+ * as an epoch second, followed by a CRC32C checksum of the record. A record is durable once {@link #sync(long)}
+ * returns for its sequence number. Syncs are committed in groups: while one thread writes and forces the
+ * log, records appended by other threads are buffered, and the next sync writes all of them with a single
+ * force. A burst of concurrent events therefore costs a few forces instead of one per event. The waiting threads
+ * park on a {@link ReentrantLock} condition rather than a monitor, so virtual threads waiting for a sync do
+ * not pin their carrier threads.
+ * <p>
+ * The header of the log holds a checkpoint, the last sequence number already saved elsewhere.
+ * {@link #checkpoint()} discards the records up to it, and {@link #replay(EventStore.Visitor)} only visits
+ * the records after it. A record torn by a crash fails its checksum and is cut off, with everything after it,
+ * when the log is opened.
+ */
+public class EventLog implements Closeable {
+    /**
+     * The value that identifies an event log file, "HEVL"
+     */
+    private static final int MAGIC = 0x4845564c;
+    /**
+     * The version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The size of the file header in bytes
+     */
+    private static final int HEADER_BYTES = 16;
+    /**
+     * The position of the checkpoint in the file header
+     */
+    private static final int CHECKPOINT_OFFSET = 8;
+    /**
+     * The size of a record in bytes
+     */
+    private static final int RECORD_BYTES = 32;
+    /**
+     * The size of a record without its checksum in bytes
+     */
+    private static final int CHECKSUMMED_BYTES = RECORD_BYTES - Integer.BYTES;
+
+    /**
+     * The channel of the log file
+     */
+    private final FileChannel channel;
+    /**
+     * Guards the buffers, the sequence numbers and the sync state
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signalled when a sync finishes
+     */
+    private final Condition synced = lock.newCondition();
+    /**
+     * The records appended but not yet handed to a sync
+     */
+    private ByteBuffer pending = newBuffer(64);
+    /**
+     * The buffer of the sync in progress, swapped with the pending buffer
+     */
+    private ByteBuffer writing = newBuffer(64);
+    /**
+     * The position where the next records are written
+     */
+    private long end;
+    /**
+     * The last sequence number saved elsewhere
+     */
+    private long checkpoint;
+    /**
+     * The last sequence number given to a record
+     */
+    private long lastSequence;
+    /**
+     * The last sequence number written and forced to the storage device
+     */
+    private long durableSequence;
+    /**
+     * Whether a thread is writing to the file
+     */
+    private boolean syncing;
+    /**
+     * The error of a failed write, after which the log refuses further writes
+     */
+    private IOException failure;
+
+    /**
+     * Constructor of the class EventLog
+     *
+     * @param channel      the channel of the log file
+     * @param end          the position after the last valid record
+     * @param checkpoint   the last sequence number saved elsewhere
+     * @param lastSequence the sequence number of the last valid record
+     */
+    private EventLog(FileChannel channel, long end, long checkpoint, long lastSequence) {
+        this.channel = channel;
+        this.end = end;
+        this.checkpoint = checkpoint;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+    }
+
+    /**
+     * Opens an event log, creating an empty one if the file does not exist.
+     * Records after the last one with a valid checksum are discarded.
+     *
+     * @param file the log file
+     * @return the event log
+     * @throws IOException if the file cannot be opened or is not an event log
+     */
+    public static EventLog open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = newBuffer(HEADER_BYTES);
+            if (channel.size() < HEADER_BYTES) {
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(0).flip();
+                writeFully(channel, header, 0);
+                channel.truncate(HEADER_BYTES);
+                channel.force(true);
+                return new EventLog(channel, HEADER_BYTES, 0, 0);
+            }
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not an event log: " + file);
+            }
+            long checkpoint = header.getLong(CHECKPOINT_OFFSET);
+
+            long[] last = {checkpoint};
+            long end = scan(channel, (sequence, record) -> last[0] = sequence);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            return new EventLog(channel, end, checkpoint, last[0]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the last sequence number given to a record
+     *
+     * @return the last sequence number, the checkpoint if no record was appended after it
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the last sequence number saved elsewhere
+     *
+     * @return the checkpoint
+     */
+    public long checkpointSequence() {
+        lock.lock();
+        try {
+            return checkpoint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append an event and wait until it is durable
+     *
+     * @param event the event
+     * @return the sequence number of the event
+     * @throws IOException if the log cannot be written
+     */
+    public long write(Event event) throws IOException {
+        long sequence = append(event.getPerson().getId(), event.getFrom().getId(), event.getTo().getId(),
+                EventTimeline.epochSecond(event.getTime()));
+        sync(sequence);
+        return sequence;
+    }
+
+    /**
+     * Append an event to the log buffer.
+     * The event is not durable until {@link #sync(long)} returns for its sequence number.
+     *
+     * @param personId   the id of the person that moved
+     * @param fromRoomId the id of the room the person came from
+     * @param toRoomId   the id of the room the person went to
+     * @param time       the time of the event as an epoch second
+     * @return the sequence number of the event
+     * @throws IOException if an earlier write failed
+     */
+    public long append(int personId, int fromRoomId, int toRoomId, long time) throws IOException {
+        lock.lock();
+        try {
+            ensureWritable();
+            if (pending.remaining() < RECORD_BYTES) {
+                pending = grow(pending);
+            }
+            long sequence = ++lastSequence;
+            int start = pending.position();
+            pending.putLong(sequence).putInt(personId).putInt(fromRoomId).putInt(toRoomId).putLong(time);
+            pending.putInt(checksum(pending, start));
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until a record is durable.
+     * If no other thread is writing, the calling thread writes every buffered record and forces the file,
+     * otherwise it waits for that write and joins the next one if its record was not part of it.
+     *
+     * @param sequence the sequence number of the record
+     * @throws IOException if the log cannot be written
+     */
+    public void sync(long sequence) throws IOException {
+        ByteBuffer batch;
+        long batchSequence;
+        long position;
+        lock.lock();
+        try {
+            while (durableSequence < sequence && syncing) {
+                awaitSync();
+            }
+            if (durableSequence >= sequence) {
+                return;
+            }
+            ensureWritable();
+            syncing = true;
+            batch = pending;
+            pending = writing;
+            writing = batch;
+            batchSequence = lastSequence;
+            position = end;
+        } finally {
+            lock.unlock();
+        }
+
+        IOException error = null;
+        try {
+            batch.flip();
+            int length = batch.remaining();
+            writeFully(channel, batch, position);
+            channel.force(false);
+            position += length;
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+            try {
+                batch.clear();
+                syncing = false;
+                if (error == null) {
+                    end = position;
+                    durableSequence = batchSequence;
+                } else {
+                    failure = error;
+                }
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Mark every record appended so far as saved elsewhere and discard them
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void checkpoint() throws IOException {
+        checkpoint(lastSequence());
+    }
+
+    /**
+     * Mark the records up to a sequence number as saved elsewhere.
+     * The file is emptied if no later record was written, otherwise the later records are kept
+     * and the earlier ones are skipped by {@link #replay(EventStore.Visitor)}.
+     * The new checkpoint is forced before the file is emptied, so the sequence numbers continue after it
+     * once the log is opened again, even if the emptied file is all a crash leaves.
+     *
+     * @param sequence the last sequence number saved elsewhere
+     * @throws IOException if the log cannot be written
+     */
+    public void checkpoint(long sequence) throws IOException {
+        sync(sequence);
+        lock.lock();
+        try {
+            while (syncing) {
+                awaitSync();
+            }
+            ensureWritable();
+            if (sequence <= checkpoint) {
+                return;
+            }
+            ByteBuffer header = newBuffer(Long.BYTES);
+            header.putLong(sequence).flip();
+            writeFully(channel, header, CHECKPOINT_OFFSET);
+            channel.force(true);
+            // records appended but not synced are still buffered and keep their sequence numbers
+            if (sequence == durableSequence) {
+                channel.truncate(HEADER_BYTES);
+                channel.force(true);
+                end = HEADER_BYTES;
+            }
+            checkpoint = sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Visit the durable records after the checkpoint in sequence order
+     *
+     * @param visitor the visitor
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(EventStore.Visitor visitor) throws IOException {
+        replay(checkpointSequence(), visitor);
+    }
+
+    /**
+     * Visit the durable records after a sequence number in sequence order
+     *
+     * @param afterSequence the last sequence number not to visit
+     * @param visitor       the visitor
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(long afterSequence, EventStore.Visitor visitor) throws IOException {
+        scan(channel, (sequence, record) -> {
+            if (sequence > afterSequence) {
+                visitor.visit(record.getInt(8), record.getInt(12), record.getInt(16), record.getLong(20));
+            }
+        });
+    }
+
+    /**
+     * Write the buffered records and close the log file
+     *
+     * @throws IOException if the records cannot be written or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (failure == null) {
+                sync(lastSequence());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Receives every valid record of a log file
+     */
+    @FunctionalInterface
+    private interface RecordVisitor {
+        /**
+         * Visit a record
+         *
+         * @param sequence the sequence number of the record
+         * @param record   the record, read with absolute gets
+         */
+        void visit(long sequence, ByteBuffer record);
+    }
+
+    /**
+     * Read the records of a log file until the end or the first invalid record
+     *
+     * @param channel the channel of the log file
+     * @param visitor the visitor of every valid record
+     * @return the position after the last valid record
+     * @throws IOException if the file cannot be read
+     */
+    private static long scan(FileChannel channel, RecordVisitor visitor) throws IOException {
+        ByteBuffer chunk = newBuffer(RECORD_BYTES * 2048);
+        long position = HEADER_BYTES;
+        long previous = Long.MIN_VALUE;
+        ByteBuffer record = newBuffer(RECORD_BYTES);
+        while (true) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read < RECORD_BYTES) {
+                return position;
+            }
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_BYTES) {
+                record.clear();
+                chunk.get(record.array(), 0, RECORD_BYTES);
+                long sequence = record.getLong(0);
+                if (record.getInt(CHECKSUMMED_BYTES) != checksum(record, 0) || sequence <= previous) {
+                    return position;
+                }
+                visitor.visit(sequence, record);
+                previous = sequence;
+                position += RECORD_BYTES;
+            }
+        }
+    }
+
+    /**
+     * Compute the checksum of a record
+     *
+     * @param buffer the buffer holding the record
+     * @param start  the position of the record in the buffer
+     * @return the checksum
+     */
+    private static int checksum(ByteBuffer buffer, int start) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, CHECKSUMMED_BYTES);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Wait for the sync in progress to finish, the lock must be held
+     *
+     * @throws IOException if the thread is interrupted
+     */
+    private void awaitSync() throws IOException {
+        try {
+            synced.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the event log");
+        }
+    }
+
+    /**
+     * Check that no earlier write failed
+     *
+     * @throws IOException if an earlier write failed
+     */
+    private void ensureWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("The event log failed an earlier write", failure);
+        }
+    }
+
+    /**
+     * Create a buffer in the byte order of the file
+     *
+     * @param capacity the capacity in bytes
+     * @return the buffer
+     */
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Double the capacity of a buffer, keeping its content
+     *
+     * @param buffer the buffer being filled
+     * @return the bigger buffer
+     */
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer bigger = newBuffer(buffer.capacity() * 2);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    /**
+     * Write a whole buffer at a position of a file
+     *
+     * @param channel  the file
+     * @param buffer   the buffer
+     * @param position the position
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Fill a buffer from a position of a file
+     *
+     * @param channel  the file
+     * @param buffer   the buffer
+     * @param position the position
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the event log");
+            }
+            position += read;
+        }
+    }
+}
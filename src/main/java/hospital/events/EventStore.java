@@ -0,0 +1,450 @@
+package hospital.events;
+
+import hospital.Event;
+import hospital.collections.IntObjectMap;
+import hospital.collections.LongList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The EventStore class keeps the history of events in a binary file with fixed width columns,
+ * read and written through memory mapped I/O.
+ * <p>
+ * Every event is stored as four values: the person id, the id of the room the person came from,
+ * the id of the room the person went to, all as ints, and the time as a long epoch second.
+ * The file starts with a header holding the number of events, followed by blocks of {@value #BLOCK_ROWS}
+ * events. Every block stores each column contiguously, together with the smallest and largest time of
+ * the block, so a time window scan skips the blocks that cannot match without reading them.
+ * Opening a store only reads the header, blocks are mapped the first time they are read or written.
+ * <p>
+ * The events of one person are found through an index of their positions, kept in memory and built by
+ * reading the person column once, the first time the events of a person are asked for. It then costs a
+ * long for every event, and is kept up to date as events are appended.
+ * <p>
+ * The store is not thread safe.
+ */
+public class EventStore implements Closeable {
+    /**
+     * The number of events in every block
+     */
+    public static final int BLOCK_ROWS = 1 << 16;
+    /**
+     * The value that identifies an event store file, "HEVS"
+     */
+    private static final int MAGIC = 0x48455653;
+    /**
+     * The version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The size of the file header in bytes
+     */
+    private static final int FILE_HEADER_BYTES = 64;
+    /**
+     * The position of the number of events in the file header
+     */
+    private static final int SIZE_OFFSET = 8;
+    /**
+     * The size of the block header in bytes, the smallest and largest time of the block
+     */
+    private static final int BLOCK_HEADER_BYTES = 16;
+    /**
+     * The position of the person column in a block
+     */
+    private static final int PERSON_OFFSET = BLOCK_HEADER_BYTES;
+    /**
+     * The position of the origin room column in a block
+     */
+    private static final int FROM_OFFSET = PERSON_OFFSET + BLOCK_ROWS * Integer.BYTES;
+    /**
+     * The position of the destination room column in a block
+     */
+    private static final int TO_OFFSET = FROM_OFFSET + BLOCK_ROWS * Integer.BYTES;
+    /**
+     * The position of the time column in a block
+     */
+    private static final int TIME_OFFSET = TO_OFFSET + BLOCK_ROWS * Integer.BYTES;
+    /**
+     * The size of a block in bytes
+     */
+    private static final int BLOCK_BYTES = TIME_OFFSET + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * The channel of the store file
+     */
+    private final FileChannel channel;
+    /**
+     * The mapped file header
+     */
+    private final MappedByteBuffer header;
+    /**
+     * The mapped blocks, null until first used
+     */
+    private MappedByteBuffer[] blocks;
+    /**
+     * The number of events
+     */
+    private long size;
+    /**
+     * Whether the store was closed
+     */
+    private boolean closed;
+    /**
+     * The position of every event of every person by person id, in the order they were appended,
+     * null until the events of a person are first asked for
+     */
+    private IntObjectMap<LongList> positionsByPerson;
+
+    /**
+     * Receives the columns of an event during a scan, without creating an {@link Event}
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Visit an event
+         *
+         * @param personId   the id of the person that moved
+         * @param fromRoomId the id of the room the person came from
+         * @param toRoomId   the id of the room the person went to
+         * @param time       the time of the event as an epoch second
+         */
+        void visit(int personId, int fromRoomId, int toRoomId, long time);
+    }
+
+    /**
+     * Constructor of the class EventStore
+     *
+     * @param channel the channel of the store file
+     * @param header  the mapped file header
+     * @param size    the number of events in the file
+     */
+    private EventStore(FileChannel channel, MappedByteBuffer header, long size) {
+        this.channel = channel;
+        this.header = header;
+        this.size = size;
+        this.blocks = new MappedByteBuffer[Math.max(4, blockCount(size))];
+    }
+
+    /**
+     * Opens an event store, creating an empty one if the file does not exist
+     *
+     * @param file the store file
+     * @return the event store
+     * @throws IOException if the file cannot be opened or is not an event store
+     */
+    public static EventStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, FORMAT_VERSION);
+                header.putLong(SIZE_OFFSET, 0);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not an event store: " + file);
+            }
+            long size = header.getLong(SIZE_OFFSET);
+            // a block is mapped whole, so the file always ends at a block boundary
+            if (size < 0 || channel.size() < blockPosition(blockCount(size))) {
+                throw new IOException("Truncated event store: " + file);
+            }
+            return new EventStore(channel, header, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of events
+     *
+     * @return the number of events
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Append an event to the store
+     *
+     * @param event the event
+     * @throws IOException if the store cannot grow
+     */
+    public void append(Event event) throws IOException {
+        append(event.getPerson().getId(), event.getFrom().getId(), event.getTo().getId(),
+                EventTimeline.epochSecond(event.getTime()));
+    }
+
+    /**
+     * Append an event to the store
+     *
+     * @param personId   the id of the person that moved
+     * @param fromRoomId the id of the room the person came from
+     * @param toRoomId   the id of the room the person went to
+     * @param time       the time of the event as an epoch second
+     * @throws IOException if the store cannot grow
+     */
+    public void append(int personId, int fromRoomId, int toRoomId, long time) throws IOException {
+        int row = (int) (size % BLOCK_ROWS);
+        MappedByteBuffer block = block((int) (size / BLOCK_ROWS));
+        block.putInt(PERSON_OFFSET + row * Integer.BYTES, personId);
+        block.putInt(FROM_OFFSET + row * Integer.BYTES, fromRoomId);
+        block.putInt(TO_OFFSET + row * Integer.BYTES, toRoomId);
+        block.putLong(TIME_OFFSET + row * Long.BYTES, time);
+        if (row == 0) {
+            block.putLong(0, time);
+            block.putLong(Long.BYTES, time);
+        } else if (time < block.getLong(0)) {
+            block.putLong(0, time);
+        } else if (time > block.getLong(Long.BYTES)) {
+            block.putLong(Long.BYTES, time);
+        }
+        if (positionsByPerson != null) {
+            positionsOf(positionsByPerson, personId).add(size);
+        }
+        size++;
+        header.putLong(SIZE_OFFSET, size);
+    }
+
+    /**
+     * Get the person id of an event
+     *
+     * @param index the position of the event
+     * @return the person id
+     * @throws IOException if the block cannot be mapped
+     */
+    public int personId(long index) throws IOException {
+        return block(checkIndex(index)).getInt(PERSON_OFFSET + (int) (index % BLOCK_ROWS) * Integer.BYTES);
+    }
+
+    /**
+     * Get the id of the room an event came from
+     *
+     * @param index the position of the event
+     * @return the room id
+     * @throws IOException if the block cannot be mapped
+     */
+    public int fromRoomId(long index) throws IOException {
+        return block(checkIndex(index)).getInt(FROM_OFFSET + (int) (index % BLOCK_ROWS) * Integer.BYTES);
+    }
+
+    /**
+     * Get the id of the room an event went to
+     *
+     * @param index the position of the event
+     * @return the room id
+     * @throws IOException if the block cannot be mapped
+     */
+    public int toRoomId(long index) throws IOException {
+        return block(checkIndex(index)).getInt(TO_OFFSET + (int) (index % BLOCK_ROWS) * Integer.BYTES);
+    }
+
+    /**
+     * Get the time of an event
+     *
+     * @param index the position of the event
+     * @return the epoch second of the event
+     * @throws IOException if the block cannot be mapped
+     */
+    public long time(long index) throws IOException {
+        return block(checkIndex(index)).getLong(TIME_OFFSET + (int) (index % BLOCK_ROWS) * Long.BYTES);
+    }
+
+    /**
+     * Visit every event in the order they were appended
+     *
+     * @param visitor the visitor
+     * @throws IOException if a block cannot be mapped
+     */
+    public void forEach(Visitor visitor) throws IOException {
+        scan(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Visit every event inside a time window in the order they were appended.
+     * Blocks whose times are all outside the window are skipped.
+     *
+     * @param from    the start of the window as an epoch second, inclusive
+     * @param to      the end of the window as an epoch second, inclusive
+     * @param visitor the visitor
+     * @throws IOException if a block cannot be mapped
+     */
+    public void scan(long from, long to, Visitor visitor) throws IOException {
+        int count = blockCount(size);
+        for (int b = 0; b < count; b++) {
+            MappedByteBuffer block = block(b);
+            if (block.getLong(Long.BYTES) < from || block.getLong(0) > to) {
+                continue;
+            }
+            int rows = b == count - 1 ? (int) (size - (long) b * BLOCK_ROWS) : BLOCK_ROWS;
+            for (int row = 0; row < rows; row++) {
+                long time = block.getLong(TIME_OFFSET + row * Long.BYTES);
+                if (time >= from && time <= to) {
+                    visitor.visit(block.getInt(PERSON_OFFSET + row * Integer.BYTES),
+                            block.getInt(FROM_OFFSET + row * Integer.BYTES),
+                            block.getInt(TO_OFFSET + row * Integer.BYTES), time);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit every event of a person in the order they were appended.
+     * Only the blocks holding events of the person are read, through the index of the positions of every
+     * person, built by the first call.
+     *
+     * @param personId the id of the person
+     * @param visitor  the visitor
+     * @throws IOException if a block cannot be mapped
+     */
+    public void forEachOf(int personId, Visitor visitor) throws IOException {
+        if (positionsByPerson == null) {
+            IntObjectMap<LongList> index = new IntObjectMap<>();
+            int count = blockCount(size);
+            for (int b = 0; b < count; b++) {
+                MappedByteBuffer block = block(b);
+                int rows = b == count - 1 ? (int) (size - (long) b * BLOCK_ROWS) : BLOCK_ROWS;
+                for (int row = 0; row < rows; row++) {
+                    positionsOf(index, block.getInt(PERSON_OFFSET + row * Integer.BYTES))
+                            .add((long) b * BLOCK_ROWS + row);
+                }
+            }
+            positionsByPerson = index;
+        }
+        LongList positions = positionsByPerson.get(personId);
+        if (positions == null) {
+            return;
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            long index = positions.get(i);
+            MappedByteBuffer block = block((int) (index / BLOCK_ROWS));
+            int row = (int) (index % BLOCK_ROWS);
+            visitor.visit(personId, block.getInt(FROM_OFFSET + row * Integer.BYTES),
+                    block.getInt(TO_OFFSET + row * Integer.BYTES), block.getLong(TIME_OFFSET + row * Long.BYTES));
+        }
+    }
+
+    /**
+     * Write the changes to the storage device
+     *
+     * @throws IOException if the changes cannot be written
+     */
+    public void force() throws IOException {
+        ensureOpen();
+        for (MappedByteBuffer block : blocks) {
+            if (block != null) {
+                block.force();
+            }
+        }
+        header.force();
+    }
+
+    /**
+     * Write the changes to the storage device and close the store file
+     *
+     * @throws IOException if the changes cannot be written or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            force();
+        } finally {
+            closed = true;
+            Arrays.fill(blocks, null);
+            channel.close();
+        }
+    }
+
+    /**
+     * Get a block, mapping it if it was not used yet.
+     * Mapping a block past the end of the file grows the file.
+     *
+     * @param index the block index
+     * @return the mapped block
+     * @throws IOException if the block cannot be mapped
+     */
+    private MappedByteBuffer block(int index) throws IOException {
+        ensureOpen();
+        if (index >= blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(index + 1, blocks.length * 2));
+        }
+        MappedByteBuffer block = blocks[index];
+        if (block == null) {
+            block = channel.map(FileChannel.MapMode.READ_WRITE, blockPosition(index), BLOCK_BYTES);
+            block.order(ByteOrder.LITTLE_ENDIAN);
+            blocks[index] = block;
+        }
+        return block;
+    }
+
+    /**
+     * Check that a position holds an event
+     *
+     * @param index the position
+     * @return the block of the position
+     */
+    private int checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Event " + index + " of " + size);
+        }
+        return (int) (index / BLOCK_ROWS);
+    }
+
+    /**
+     * Check that the store was not closed
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The event store is closed");
+        }
+    }
+
+    /**
+     * Get the positions of the events of a person, adding an empty list if the person has none yet
+     *
+     * @param index    the positions of every person
+     * @param personId the id of the person
+     * @return the positions of the events of the person
+     */
+    private static LongList positionsOf(IntObjectMap<LongList> index, int personId) {
+        LongList positions = index.get(personId);
+        if (positions == null) {
+            positions = new LongList();
+            index.put(personId, positions);
+        }
+        return positions;
+    }
+
+    /**
+     * Get the number of blocks needed for a number of events
+     *
+     * @param size the number of events
+     * @return the number of blocks
+     */
+    private static int blockCount(long size) {
+        return (int) ((size + BLOCK_ROWS - 1) / BLOCK_ROWS);
+    }
+
+    /**
+     * Get the position of a block in the file
+     *
+     * @param index the block index
+     * @return the position in bytes
+     */
+    private static long blockPosition(int index) {
+        return FILE_HEADER_BYTES + (long) index * BLOCK_BYTES;
+    }
+}
@@ -0,0 +1,371 @@
+package hospital.events;
+
+import hospital.Event;
+import hospital.Person;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The EventTimeline class keeps events ordered by time in parallel arrays, with the time of every event
+ * stored as a primitive epoch second next to the offset of the event in its {@link EventColumns}.
+ * Events are only created when they are read.
+ * Events that arrive in order are appended in O(1). Events that arrive out of order are buffered at the
+ * end of the arrays and merged into the sorted part in one pass the next time the timeline is read,
+ * so a file of k unordered events costs O(n + k log k) instead of one shift per event.
+ * Time window queries binary search the window bounds and only visit the events inside the window.
+ */
+public class EventTimeline implements Iterable<Event> {
+    /**
+     * The default number of events the arrays can hold
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+    /**
+     * The epoch second of every event
+     */
+    private long[] times;
+    /**
+     * The offset of every event in the columns
+     */
+    private int[] offsets;
+    /**
+     * The columns that hold the events, null until the first event is added
+     */
+    private EventColumns columns;
+    /**
+     * The number of events
+     */
+    private int size;
+    /**
+     * The number of events at the start of the arrays that are sorted by time
+     */
+    private int sorted;
+
+    /**
+     * Constructor of the class EventTimeline
+     */
+    public EventTimeline() {
+        this.times = new long[DEFAULT_CAPACITY];
+        this.offsets = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Convert a time to the epoch second used to order events
+     *
+     * @param time the time
+     * @return the epoch second, with the time read as UTC
+     */
+    public static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Add an event to the timeline.
+     * A timeline that has no events yet keeps its events in columns of its own.
+     *
+     * @param event the event to add
+     */
+    public void add(Event event) {
+        if (columns == null) {
+            columns = new EventColumns();
+        }
+        ensureCapacity(size + 1);
+        append(columns.add(event));
+    }
+
+    /**
+     * Add an event already stored in columns.
+     * The timeline uses the columns of the first event added to it, an event of other columns is copied.
+     *
+     * @param source the columns that hold the event
+     * @param offset the offset of the event
+     */
+    public void add(EventColumns source, int offset) {
+        if (columns == null) {
+            columns = source;
+        }
+        ensureCapacity(size + 1);
+        append(columns.adopt(source, offset));
+    }
+
+    /**
+     * Add a run of events already stored in columns, growing the arrays at most once.
+     * Events already in time order and not earlier than the timeline are appended without any sorting.
+     *
+     * @param source the columns that hold the events
+     * @param batch  the offsets of the events
+     * @param from   the position of the first offset to add
+     * @param to     the position after the last offset to add
+     */
+    public void addAll(EventColumns source, int[] batch, int from, int to) {
+        if (columns == null) {
+            columns = source;
+        }
+        ensureCapacity(size + to - from);
+        for (int i = from; i < to; i++) {
+            append(columns.adopt(source, batch[i]));
+        }
+    }
+
+    /**
+     * Get the columns that hold the events of the timeline
+     *
+     * @return the columns, null if no event was ever added
+     */
+    public EventColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * Append the offset of an event, the arrays must have room for it
+     *
+     * @param offset the offset of the event in the columns of the timeline
+     */
+    private void append(int offset) {
+        long time = columns.epochSecond(offset);
+        times[size] = time;
+        offsets[size] = offset;
+        if (sorted == size && (size == 0 || times[size - 1] <= time)) {
+            sorted++;
+        }
+        size++;
+    }
+
+    /**
+     * Grow the arrays to hold a number of events
+     *
+     * @param needed the number of events
+     */
+    private void ensureCapacity(int needed) {
+        if (needed > times.length) {
+            int capacity = Math.max(needed, times.length * 2);
+            times = Arrays.copyOf(times, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+    }
+
+    /**
+     * Get the number of events
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the timeline is empty
+     *
+     * @return true if there are no events, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if the events are in time order, so that reading them does not modify the timeline
+     *
+     * @return true if no event was added out of order since the timeline was last sorted
+     */
+    public boolean isSorted() {
+        return sorted == size;
+    }
+
+    /**
+     * Sort the events added out of order.
+     * Reads sort the timeline when needed, so this is only needed to let several threads read it at once.
+     */
+    public void sort() {
+        ensureSorted();
+    }
+
+    /**
+     * Get an event by position, events are ordered by time and events with the same time keep their insertion order
+     *
+     * @param index the position of the event
+     * @return a new event with the fields of the stored event
+     */
+    public Event get(int index) {
+        return columns.get(offsetAt(index));
+    }
+
+    /**
+     * Get the person of an event by position, without creating the event
+     *
+     * @param index the position of the event
+     * @return the person of the event
+     */
+    public Person personAt(int index) {
+        return columns.person(offsetAt(index));
+    }
+
+    /**
+     * Get the offset of an event by position in the columns of the timeline
+     *
+     * @param index the position of the event
+     * @return the offset of the event
+     */
+    public int offsetAt(int index) {
+        ensureSorted();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return offsets[index];
+    }
+
+    /**
+     * Get the epoch second of an event by position
+     *
+     * @param index the position of the event
+     * @return the epoch second of the event
+     */
+    public long timeAt(int index) {
+        ensureSorted();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return times[index];
+    }
+
+    /**
+     * Find the position of the first event strictly after a time
+     *
+     * @param epochSecond the time as an epoch second
+     * @return the position of the first later event, or the size if there is none
+     */
+    public int firstAfter(long epochSecond) {
+        ensureSorted();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find the position of the first event at or after a time
+     *
+     * @param epochSecond the time as an epoch second
+     * @return the position of the first event that is not earlier, or the size if there is none
+     */
+    public int firstAtOrAfter(long epochSecond) {
+        ensureSorted();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Iterate over the events in time order
+     *
+     * @return an iterator over the events
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        ensureSorted();
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return columns.get(offsets[next++]);
+            }
+        };
+    }
+
+    /**
+     * Merge the events that arrived out of order into the sorted part of the arrays
+     */
+    private void ensureSorted() {
+        if (sorted == size) {
+            return;
+        }
+        int pending = size - sorted;
+        long[] pendingTimes = Arrays.copyOfRange(times, sorted, size);
+        int[] pendingOffsets = Arrays.copyOfRange(offsets, sorted, size);
+        mergeSort(pendingTimes, pendingOffsets, 0, pending, new long[pending], new int[pending]);
+
+        // merge from the back, on equal times the pending event goes last since it was added later
+        int i = sorted - 1;
+        int j = pending - 1;
+        for (int write = size - 1; j >= 0; write--) {
+            if (i >= 0 && times[i] > pendingTimes[j]) {
+                times[write] = times[i];
+                offsets[write] = offsets[i--];
+            } else {
+                times[write] = pendingTimes[j];
+                offsets[write] = pendingOffsets[j--];
+            }
+        }
+        sorted = size;
+    }
+
+    /**
+     * Stable merge sort of a range of events by time
+     *
+     * @param times        the times to sort
+     * @param offsets      the offsets of the events, moved along with their times
+     * @param from         the first position of the range
+     * @param to           the position after the range
+     * @param timeBuffer   scratch space for the times
+     * @param offsetBuffer scratch space for the offsets
+     */
+    private static void mergeSort(long[] times, int[] offsets, int from, int to, long[] timeBuffer, int[] offsetBuffer) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(times, offsets, from, middle, timeBuffer, offsetBuffer);
+        mergeSort(times, offsets, middle, to, timeBuffer, offsetBuffer);
+        if (times[middle - 1] <= times[middle]) {
+            return;
+        }
+        System.arraycopy(times, from, timeBuffer, from, to - from);
+        System.arraycopy(offsets, from, offsetBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int write = from; write < to; write++) {
+            if (right >= to || (left < middle && timeBuffer[left] <= timeBuffer[right])) {
+                times[write] = timeBuffer[left];
+                offsets[write] = offsetBuffer[left++];
+            } else {
+                times[write] = timeBuffer[right];
+                offsets[write] = offsetBuffer[right++];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(" ");
+        for (Event event : this) {
+            builder.append(event).append(' ');
+        }
+        return builder.toString();
+    }
+}
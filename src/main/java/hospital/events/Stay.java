@@ -0,0 +1,25 @@
+package hospital.events;
+
+import hospital.Person;
+import hospital.Room;
+
+/**
+ * This class represents a continuous stay of a person in a room.
+ * A stay starts with the event that moves the person into the room and ends with the next event of that person.
+ *
+ * @param person the person
+ * @param room   the room
+ * @param enter  the epoch second the person entered the room
+ * @param exit   the epoch second the person left the room, {@link Long#MAX_VALUE} if they are still there
+ */
+public record Stay(Person person, Room room, long enter, long exit) {
+
+    /**
+     * Check if the person is still in the room
+     *
+     * @return true if the stay has not ended, false otherwise
+     */
+    public boolean isOpen() {
+        return exit == Long.MAX_VALUE;
+    }
+}
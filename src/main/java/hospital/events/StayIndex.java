@@ -0,0 +1,696 @@
+package hospital.events;
+
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Person;
+import hospital.Room;
+import hospital.collections.IntObjectMap;
+import hospital.collections.IntSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The StayIndex class turns the activity of every person, or the events of an {@link EventStore}, into stays
+ * and indexes them by person and by room,
+ * so that co-presence can be answered without rescanning the raw events.
+ * <p>
+ * The stays of every person are disjoint and sorted by time. The stays of every room are sorted by entry time,
+ * together with the longest finished stay of the room, which bounds how far back a binary search has to start
+ * to find every stay overlapping a time. Stays that have not ended are kept apart, since they have no bound.
+ * A contact query joins the stays of the index person with the stays of every room they visited in a single
+ * sweep, so it costs time proportional to the stays it matches.
+ * <p>
+ * An index built from an event store can be updated with the events appended since: only the people with new
+ * events are read again, and only the rooms whose stays changed are sorted again.
+ */
+public class StayIndex {
+    /**
+     * The stays of every person by person id, sorted by time
+     */
+    private final IntObjectMap<Stay[]> staysByPerson;
+    /**
+     * The stays of every room by room id
+     */
+    private final IntObjectMap<RoomStays> staysByRoom;
+
+    /**
+     * Constructor of the class StayIndex
+     *
+     * @param staysByPerson the stays of every person
+     * @param staysByRoom   the stays of every room
+     */
+    private StayIndex(IntObjectMap<Stay[]> staysByPerson, IntObjectMap<RoomStays> staysByRoom) {
+        this.staysByPerson = staysByPerson;
+        this.staysByRoom = staysByRoom;
+    }
+
+    /**
+     * Builds the stay index from the activity of a set of people, reading the event columns without creating events.
+     * The time before the first event of a person is unknown, so it does not produce a stay.
+     *
+     * @param people the people
+     * @return the stay index
+     */
+    public static StayIndex build(Iterable<Person> people) {
+        IntObjectMap<Stay[]> staysByPerson = new IntObjectMap<>();
+        IntObjectMap<List<Stay>> roomLists = new IntObjectMap<>();
+
+        for (Person person : people) {
+            // the offsets are copied first, so the columns are known if there are any
+            int[] activity = person.copyActivityOffsets();
+            EventColumns columns = person.getEventColumns();
+            Moves moves = new Moves(person);
+            for (int offset : activity) {
+                moves.add(columns.epochSecond(offset), columns.to(offset));
+            }
+            moves.sort();
+            addStays(person, moves.times, moves.rooms, moves.size, staysByPerson, roomLists);
+        }
+        return new StayIndex(staysByPerson, indexRooms(roomLists));
+    }
+
+    /**
+     * Builds the stay index from the events of an event store, reading the columns without creating events.
+     * Events of unknown people are ignored. An event into an unknown room still ends the previous stay.
+     *
+     * @param store  the event store
+     * @param people the people by id
+     * @param rooms  the rooms by id
+     * @return the stay index
+     * @throws IOException if the store cannot be read
+     */
+    public static StayIndex build(EventStore store, IntFunction<Person> people, IntFunction<Room> rooms)
+            throws IOException {
+        IntObjectMap<Moves> movesByPerson = new IntObjectMap<>();
+        store.forEach((personId, fromRoomId, toRoomId, time) -> {
+            Moves moves = movesByPerson.get(personId);
+            if (moves == null) {
+                Person person = people.apply(personId);
+                if (person == null) {
+                    return;
+                }
+                moves = new Moves(person);
+                movesByPerson.put(personId, moves);
+            }
+            moves.add(time, rooms.apply(toRoomId));
+        });
+
+        IntObjectMap<Stay[]> staysByPerson = new IntObjectMap<>(movesByPerson.size());
+        IntObjectMap<List<Stay>> roomLists = new IntObjectMap<>();
+        for (Moves moves : movesByPerson) {
+            moves.sort();
+            addStays(moves.person, moves.times, moves.rooms, moves.size, staysByPerson, roomLists);
+        }
+        return new StayIndex(staysByPerson, indexRooms(roomLists));
+    }
+
+    /**
+     * Updates the stay index with the events appended to an event store since it was built from it.
+     * All the events of every person with new events are read again through the person index of the store,
+     * since new events may be older than the ones before them. The stays of the other people and of the rooms
+     * that did not change are shared with this index, which is left as it is.
+     *
+     * @param store  the event store the index was built from
+     * @param from   the number of events of the store the index was built from
+     * @param people the people by id
+     * @param rooms  the rooms by id
+     * @return the updated stay index
+     * @throws IOException if the store cannot be read
+     */
+    public StayIndex update(EventStore store, long from, IntFunction<Person> people, IntFunction<Room> rooms)
+            throws IOException {
+        IntSet moved = new IntSet();
+        for (long i = from; i < store.size(); i++) {
+            moved.add(store.personId(i));
+        }
+
+        IntObjectMap<Stay[]> updatedByPerson = new IntObjectMap<>(staysByPerson);
+        IntObjectMap<RoomChange> changes = new IntObjectMap<>();
+        for (int personId : moved.toArray()) {
+            Person person = people.apply(personId);
+            if (person == null) {
+                continue;
+            }
+            Moves moves = new Moves(person);
+            store.forEachOf(personId, (storedPersonId, fromRoomId, toRoomId, time) ->
+                    moves.add(time, rooms.apply(toRoomId)));
+            moves.sort();
+            Stay[] before = staysByPerson.get(personId);
+            if (before == null) {
+                before = new Stay[0];
+            }
+            Stay[] after = toStays(person, moves.times, moves.rooms, moves.size);
+            updatedByPerson.put(personId, after);
+
+            // the stays up to the first difference are unchanged, the rooms of the others are rebuilt
+            int same = 0;
+            while (same < before.length && same < after.length && before[same].equals(after[same])) {
+                same++;
+            }
+            IntSet changedRooms = new IntSet();
+            for (int i = same; i < before.length; i++) {
+                changedRooms.add(before[i].room().getId());
+            }
+            for (int i = same; i < after.length; i++) {
+                changedRooms.add(after[i].room().getId());
+            }
+            for (int roomId : changedRooms.toArray()) {
+                RoomChange change = changes.get(roomId);
+                if (change == null) {
+                    change = new RoomChange(roomId);
+                    changes.put(roomId, change);
+                }
+                change.people.add(personId);
+            }
+            for (Stay stay : after) {
+                RoomChange change = changes.get(stay.room().getId());
+                if (change != null && change.people.contains(personId)) {
+                    change.stays.add(stay);
+                }
+            }
+        }
+
+        IntObjectMap<RoomStays> updatedByRoom = new IntObjectMap<>(staysByRoom);
+        for (RoomChange change : changes) {
+            RoomStays old = staysByRoom.get(change.roomId);
+            updatedByRoom.put(change.roomId, old == null ? new RoomStays(change.stays)
+                    : old.replace(change.people, change.stays));
+        }
+        return new StayIndex(updatedByPerson, updatedByRoom);
+    }
+
+    /**
+     * Turns the moves of a person into stays, each lasting until the next move
+     *
+     * @param person        the person
+     * @param times         the time of every move, sorted
+     * @param rooms         the room entered by every move, null if unknown
+     * @param count         the number of moves
+     * @param staysByPerson the stays of every person, receives the stays of the person
+     * @param roomLists     the stays of every room, receives the stays of the person
+     */
+    private static void addStays(Person person, long[] times, Room[] rooms, int count,
+                                 IntObjectMap<Stay[]> staysByPerson, IntObjectMap<List<Stay>> roomLists) {
+        Stay[] stays = toStays(person, times, rooms, count);
+        for (Stay stay : stays) {
+            List<Stay> roomList = roomLists.get(stay.room().getId());
+            if (roomList == null) {
+                roomList = new ArrayList<>();
+                roomLists.put(stay.room().getId(), roomList);
+            }
+            roomList.add(stay);
+        }
+        staysByPerson.put(person.getId(), stays);
+    }
+
+    /**
+     * Turns the moves of a person into stays, each lasting until the next move
+     *
+     * @param person the person
+     * @param times  the time of every move, sorted
+     * @param rooms  the room entered by every move, null if unknown
+     * @param count  the number of moves
+     * @return the stays of the person, sorted by time
+     */
+    private static Stay[] toStays(Person person, long[] times, Room[] rooms, int count) {
+        List<Stay> stays = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long enter = times[i];
+            long exit = i + 1 < count ? times[i + 1] : Long.MAX_VALUE;
+            if (exit > enter && rooms[i] != null) {
+                stays.add(new Stay(person, rooms[i], enter, exit));
+            }
+        }
+        return stays.toArray(new Stay[0]);
+    }
+
+    /**
+     * Sorts the stays of every room
+     *
+     * @param roomLists the stays of every room
+     * @return the sorted stays of every room by room id
+     */
+    private static IntObjectMap<RoomStays> indexRooms(IntObjectMap<List<Stay>> roomLists) {
+        IntObjectMap<RoomStays> staysByRoom = new IntObjectMap<>(roomLists.size());
+        for (List<Stay> roomList : roomLists) {
+            staysByRoom.put(roomList.get(0).room().getId(), new RoomStays(roomList));
+        }
+        return staysByRoom;
+    }
+
+    /**
+     * Get the stays of a person
+     *
+     * @param personId the person id
+     * @return the stays of the person sorted by time, empty if the person has no activity
+     */
+    public Stay[] staysOf(int personId) {
+        Stay[] stays = staysByPerson.get(personId);
+        return stays == null ? new Stay[0] : stays.clone();
+    }
+
+    /**
+     * Finds everyone who was in the same room as a person within a time window.
+     * Only the part of every stay inside the window counts towards the overlap.
+     *
+     * @param personId the id of the index person
+     * @param from     the start of the window as an epoch second
+     * @param to       the end of the window as an epoch second
+     * @return the contacts, the longest overlap first
+     */
+    public UnorderedListADT<Contact> contactsOf(int personId, long from, long to) {
+        UnorderedListADT<Contact> contacts = new UnorderedLinkedList<>();
+        Stay[] own = staysByPerson.get(personId);
+        if (own == null || from >= to) {
+            return contacts;
+        }
+
+        // the stays of a person are disjoint, so their exits are sorted too
+        int low = 0;
+        int high = own.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (own[middle].exit() <= from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        IntObjectMap<Intervals> ownByRoom = new IntObjectMap<>();
+        for (int i = low; i < own.length && own[i].enter() < to; i++) {
+            int roomId = own[i].room().getId();
+            Intervals intervals = ownByRoom.get(roomId);
+            if (intervals == null) {
+                intervals = new Intervals(roomId);
+                ownByRoom.put(roomId, intervals);
+            }
+            intervals.add(Math.max(own[i].enter(), from), Math.min(own[i].exit(), to));
+        }
+
+        IntObjectMap<Accumulator> found = new IntObjectMap<>();
+        for (Intervals intervals : ownByRoom) {
+            staysByRoom.get(intervals.roomId).join(personId, intervals, found);
+        }
+
+        Accumulator[] sorted = new Accumulator[found.size()];
+        int count = 0;
+        for (Accumulator accumulator : found) {
+            sorted[count++] = accumulator;
+        }
+        Arrays.sort(sorted, Comparator.comparingLong((Accumulator a) -> a.overlap).reversed());
+        for (Accumulator accumulator : sorted) {
+            contacts.addToRear(new Contact(accumulator.person, accumulator.overlap, accumulator.first, accumulator.last));
+        }
+        return contacts;
+    }
+
+    /**
+     * The stays of one room, with finished stays sorted by entry time and the longest one remembered
+     */
+    private static final class RoomStays {
+        /**
+         * The room, null if it has no stays
+         */
+        private final Room room;
+        /**
+         * The entry time of every finished stay
+         */
+        private final long[] enters;
+        /**
+         * The exit time of every finished stay
+         */
+        private final long[] exits;
+        /**
+         * The person of every finished stay
+         */
+        private final Person[] people;
+        /**
+         * The duration of the longest finished stay
+         */
+        private final long longestStay;
+        /**
+         * The entry time of every stay that has not ended
+         */
+        private final long[] openEnters;
+        /**
+         * The person of every stay that has not ended
+         */
+        private final Person[] openPeople;
+
+        /**
+         * Constructor of the class RoomStays
+         *
+         * @param stays the stays of the room
+         */
+        RoomStays(List<Stay> stays) {
+            room = stays.isEmpty() ? null : stays.get(0).room();
+            Stay[] sorted = stays.toArray(new Stay[0]);
+            // the sort merges runs that are already sorted, such as the stays kept by an update
+            Arrays.sort(sorted, Comparator.comparingLong(Stay::enter));
+            int open = 0;
+            for (Stay stay : sorted) {
+                if (stay.isOpen()) {
+                    open++;
+                }
+            }
+            enters = new long[sorted.length - open];
+            exits = new long[sorted.length - open];
+            people = new Person[sorted.length - open];
+            openEnters = new long[open];
+            openPeople = new Person[open];
+            long longest = 0;
+            int closedCount = 0;
+            int openCount = 0;
+            for (Stay stay : sorted) {
+                if (stay.isOpen()) {
+                    openEnters[openCount] = stay.enter();
+                    openPeople[openCount++] = stay.person();
+                } else {
+                    enters[closedCount] = stay.enter();
+                    exits[closedCount] = stay.exit();
+                    people[closedCount++] = stay.person();
+                    longest = Math.max(longest, stay.exit() - stay.enter());
+                }
+            }
+            longestStay = longest;
+        }
+
+        /**
+         * Get the stays of the room with the stays of some people replaced
+         *
+         * @param people the ids of the people whose stays are replaced
+         * @param stays  the new stays of these people in the room
+         * @return the stays of the room
+         */
+        RoomStays replace(IntSet people, List<Stay> stays) {
+            List<Stay> kept = new ArrayList<>(enters.length + openEnters.length + stays.size());
+            for (int i = 0; i < enters.length; i++) {
+                if (!people.contains(this.people[i].getId())) {
+                    kept.add(new Stay(this.people[i], room, enters[i], exits[i]));
+                }
+            }
+            for (int i = 0; i < openEnters.length; i++) {
+                if (!people.contains(openPeople[i].getId())) {
+                    kept.add(new Stay(openPeople[i], room, openEnters[i], Long.MAX_VALUE));
+                }
+            }
+            kept.addAll(stays);
+            return new RoomStays(kept);
+        }
+
+        /**
+         * Adds the overlap of every stay of the room with the intervals of the index person to the contacts
+         *
+         * @param excluded the id of the index person
+         * @param own      the intervals the index person spent in the room, sorted and disjoint
+         * @param found    the contacts found so far by person id
+         */
+        void join(int excluded, Intervals own, IntObjectMap<Accumulator> found) {
+            long low = own.starts[0];
+            long high = own.ends[own.size - 1];
+            // a finished stay overlapping the intervals cannot have entered before low - longestStay
+            int begin = firstAtOrAfter(enters, enters.length, low - longestStay);
+            int end = firstAtOrAfter(enters, enters.length, high);
+            sweep(excluded, own, enters, exits, people, begin, end, found);
+            sweep(excluded, own, openEnters, null, openPeople, 0,
+                    firstAtOrAfter(openEnters, openEnters.length, high), found);
+        }
+
+        /**
+         * Joins candidate stays sorted by entry time with the intervals of the index person
+         *
+         * @param excluded  the id of the index person
+         * @param own       the intervals of the index person
+         * @param enters    the entry times of the candidates
+         * @param exits     the exit times of the candidates, null if none of them has ended
+         * @param people    the people of the candidates
+         * @param begin     the first candidate
+         * @param end       the position after the last candidate
+         * @param found     the contacts found so far by person id
+         */
+        private static void sweep(int excluded, Intervals own, long[] enters, long[] exits, Person[] people,
+                                  int begin, int end, IntObjectMap<Accumulator> found) {
+            int first = 0;
+            for (int c = begin; c < end; c++) {
+                Person person = people[c];
+                if (person.getId() == excluded) {
+                    continue;
+                }
+                long enter = enters[c];
+                long exit = exits == null ? Long.MAX_VALUE : exits[c];
+                // candidates enter in order, so intervals ending before this entry end before every later one
+                while (first < own.size && own.ends[first] <= enter) {
+                    first++;
+                }
+                for (int i = first; i < own.size && own.starts[i] < exit; i++) {
+                    long start = Math.max(enter, own.starts[i]);
+                    long stop = Math.min(exit, own.ends[i]);
+                    if (stop > start) {
+                        Accumulator accumulator = found.get(person.getId());
+                        if (accumulator == null) {
+                            accumulator = new Accumulator(person);
+                            found.put(person.getId(), accumulator);
+                        }
+                        accumulator.add(start, stop);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Find the first position of a sorted array holding a value that is not smaller than a key
+         *
+         * @param values the sorted values
+         * @param length the number of values
+         * @param key    the key
+         * @return the position, or the length if every value is smaller
+         */
+        private static int firstAtOrAfter(long[] values, int length, long key) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * The people whose stays in one room changed during an update, with their new stays in the room
+     */
+    private static final class RoomChange {
+        /**
+         * The room id
+         */
+        private final int roomId;
+        /**
+         * The ids of the people whose stays in the room changed
+         */
+        private final IntSet people = new IntSet();
+        /**
+         * The new stays of these people in the room
+         */
+        private final List<Stay> stays = new ArrayList<>();
+
+        /**
+         * Constructor of the class RoomChange
+         *
+         * @param roomId the room id
+         */
+        RoomChange(int roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    /**
+     * The sorted, disjoint intervals the index person spent in one room
+     */
+    private static final class Intervals {
+        /**
+         * The room the intervals were spent in
+         */
+        private final int roomId;
+        /**
+         * The start of every interval
+         */
+        private long[] starts = new long[4];
+        /**
+         * The end of every interval
+         */
+        private long[] ends = new long[4];
+        /**
+         * The number of intervals
+         */
+        private int size;
+
+        /**
+         * Constructor of the class Intervals
+         *
+         * @param roomId the room the intervals were spent in
+         */
+        Intervals(int roomId) {
+            this.roomId = roomId;
+        }
+
+        /**
+         * Add an interval after the ones already added
+         *
+         * @param start the start of the interval
+         * @param end   the end of the interval
+         */
+        void add(long start, long end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size++] = end;
+        }
+    }
+
+    /**
+     * The moves of one person read from an event store, in the order they were stored
+     */
+    private static final class Moves {
+        /**
+         * The person
+         */
+        private final Person person;
+        /**
+         * The time of every move
+         */
+        private long[] times = new long[8];
+        /**
+         * The room entered by every move, null if unknown
+         */
+        private Room[] rooms = new Room[8];
+        /**
+         * The number of moves
+         */
+        private int size;
+
+        /**
+         * Constructor of the class Moves
+         *
+         * @param person the person
+         */
+        Moves(Person person) {
+            this.person = person;
+        }
+
+        /**
+         * Add a move after the ones already added
+         *
+         * @param time the time of the move
+         * @param room the room entered
+         */
+        void add(long time, Room room) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                rooms = Arrays.copyOf(rooms, size * 2);
+            }
+            times[size] = time;
+            rooms[size++] = room;
+        }
+
+        /**
+         * Sort the moves by time, keeping the stored order of moves at the same time
+         */
+        void sort() {
+            boolean ordered = true;
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                ordered &= i == 0 || times[i - 1] <= times[i];
+                first = Math.min(first, times[i]);
+                last = Math.max(last, times[i]);
+            }
+            if (ordered) {
+                return;
+            }
+            int[] order = new int[size];
+            if (last - first >= Integer.MAX_VALUE) {
+                Integer[] boxed = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    boxed[i] = i;
+                }
+                long[] oldTimes = times;
+                Arrays.sort(boxed, Comparator.comparingLong(i -> oldTimes[i]));
+                for (int i = 0; i < size; i++) {
+                    order[i] = boxed[i];
+                }
+            } else {
+                // the time followed by the position, sorted as plain numbers
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    keys[i] = (times[i] - first) << 32 | i;
+                }
+                Arrays.sort(keys);
+                for (int i = 0; i < size; i++) {
+                    order[i] = (int) keys[i];
+                }
+            }
+            long[] sortedTimes = new long[size];
+            Room[] sortedRooms = new Room[size];
+            for (int i = 0; i < size; i++) {
+                sortedTimes[i] = times[order[i]];
+                sortedRooms[i] = rooms[order[i]];
+            }
+            times = sortedTimes;
+            rooms = sortedRooms;
+        }
+    }
+
+    /**
+     * The overlap found so far with one contact
+     */
+    private static final class Accumulator {
+        /**
+         * The contact
+         */
+        private final Person person;
+        /**
+         * The total overlap in seconds
+         */
+        private long overlap;
+        /**
+         * The start of the earliest overlap
+         */
+        private long first = Long.MAX_VALUE;
+        /**
+         * The end of the latest overlap
+         */
+        private long last = Long.MIN_VALUE;
+
+        /**
+         * Constructor of the class Accumulator
+         *
+         * @param person the contact
+         */
+        Accumulator(Person person) {
+            this.person = person;
+        }
+
+        /**
+         * Add an overlap
+         *
+         * @param start the start of the overlap
+         * @param stop  the end of the overlap
+         */
+        void add(long start, long stop) {
+            overlap += stop - start;
+            first = Math.min(first, start);
+            last = Math.max(last, stop);
+        }
+    }
+}
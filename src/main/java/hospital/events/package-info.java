@@ -0,0 +1,4 @@
+/**
+ * This package contains the structures that store and query the events registered in the hospital.
+ */
+package hospital.events;
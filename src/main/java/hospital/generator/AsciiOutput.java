@@ -0,0 +1,185 @@
+package hospital.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * The AsciiOutput class writes ASCII text to a file through a large byte buffer.
+ * Numbers and times are formatted straight into the buffer, so writing millions of records creates no
+ * strings and no formatter objects.
+ */
+class AsciiOutput implements Closeable {
+    /**
+     * The size of the buffer in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * The number of seconds in a day
+     */
+    private static final long SECONDS_PER_DAY = 86400;
+
+    /**
+     * The channel of the file
+     */
+    private final FileChannel channel;
+    /**
+     * The bytes not written yet
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * The number of bytes in the buffer
+     */
+    private int count;
+    /**
+     * The digits of a number, written backwards
+     */
+    private final byte[] digits = new byte[20];
+    /**
+     * The day of {@link #datePrefix}, as an epoch day
+     */
+    private long prefixDay = Long.MIN_VALUE;
+    /**
+     * The date of the last time written, as "yyyy-MM-ddT"
+     */
+    private byte[] datePrefix;
+
+    /**
+     * Constructor of the class AsciiOutput, replacing the file if it exists
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be created
+     */
+    AsciiOutput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Write ASCII text
+     *
+     * @param text the text
+     * @return this output
+     * @throws IOException if the file cannot be written
+     */
+    AsciiOutput write(String text) throws IOException {
+        int length = text.length();
+        if (count + length > BUFFER_SIZE) {
+            flush();
+            if (length > BUFFER_SIZE) {
+                channel.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+                return this;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Write a number in decimal
+     *
+     * @param value the number
+     * @return this output
+     * @throws IOException if the file cannot be written
+     */
+    AsciiOutput write(long value) throws IOException {
+        ensure(digits.length + 1);
+        if (value < 0) {
+            buffer[count++] = '-';
+            if (value == Long.MIN_VALUE) {
+                return write(Long.toString(value).substring(1));
+            }
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            buffer[count++] = digits[--length];
+        }
+        return this;
+    }
+
+    /**
+     * Write a time as an ISO local date time, "yyyy-MM-ddTHH:mm:ss"
+     *
+     * @param epochSecond the time as an epoch second
+     * @return this output
+     * @throws IOException if the file cannot be written
+     */
+    AsciiOutput writeTime(long epochSecond) throws IOException {
+        ensure(32);
+        long day = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (day != prefixDay) {
+            datePrefix = (LocalDate.ofEpochDay(day) + "T").getBytes(StandardCharsets.US_ASCII);
+            prefixDay = day;
+        }
+        System.arraycopy(datePrefix, 0, buffer, count, datePrefix.length);
+        count += datePrefix.length;
+        int second = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        writeTwoDigits(second / 3600);
+        buffer[count++] = ':';
+        writeTwoDigits(second / 60 % 60);
+        buffer[count++] = ':';
+        writeTwoDigits(second % 60);
+        return this;
+    }
+
+    /**
+     * Write the buffer to the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void flush() throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        count = 0;
+    }
+
+    /**
+     * Write the buffer and close the file
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write a number from 0 to 99 with two digits
+     *
+     * @param value the number
+     */
+    private void writeTwoDigits(int value) {
+        buffer[count++] = (byte) ('0' + value / 10);
+        buffer[count++] = (byte) ('0' + value % 10);
+    }
+
+    /**
+     * Make room in the buffer
+     *
+     * @param length the number of bytes needed
+     * @throws IOException if the file cannot be written
+     */
+    private void ensure(int length) throws IOException {
+        if (count + length > BUFFER_SIZE) {
+            flush();
+        }
+    }
+}
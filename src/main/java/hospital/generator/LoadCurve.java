@@ -0,0 +1,128 @@
+package hospital.generator;
+
+import hospital.enums.TypeOfFunction;
+
+import java.util.Arrays;
+
+/**
+ * The LoadCurve class describes how busy the hospital is at every hour of the day.
+ * <p>
+ * The curve has a weight for every hour, which sets the share of the events of a day that happen during
+ * that hour, and for every function the chance that a person of that function is the one moving at that
+ * hour, so that visitors are not walking around at four in the morning while the night shift is.
+ */
+public class LoadCurve {
+    /**
+     * The number of hours in a day
+     */
+    public static final int HOURS = 24;
+
+    /**
+     * The weight of every hour
+     */
+    private final double[] hourWeights;
+    /**
+     * The activity of every function at every hour, between 0 and 1, indexed by function then hour
+     */
+    private final double[][] activity;
+
+    /**
+     * Constructor of the class LoadCurve, where every function is equally active at every hour
+     *
+     * @param hourWeights the weight of every hour, 24 non negative values with a positive sum
+     */
+    public LoadCurve(double[] hourWeights) {
+        if (hourWeights.length != HOURS) {
+            throw new IllegalArgumentException("A load curve needs a weight for each of the " + HOURS + " hours");
+        }
+        double sum = 0;
+        for (double weight : hourWeights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Hour weights cannot be negative");
+            }
+            sum += weight;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("At least one hour must have events");
+        }
+        this.hourWeights = hourWeights.clone();
+        this.activity = new double[TypeOfFunction.values().length][HOURS];
+        for (double[] hours : activity) {
+            Arrays.fill(hours, 1);
+        }
+    }
+
+    /**
+     * Creates the curve of a typical day: quiet nights, a morning peak when the day shift starts and the
+     * consultations open, a second peak at the afternoon visiting hours, visitors only between 8h and 22h
+     * and patients mostly resting at night.
+     *
+     * @return the curve
+     */
+    public static LoadCurve typicalDay() {
+        LoadCurve curve = new LoadCurve(new double[]{
+                2, 1.5, 1, 1, 1, 2, 4, 8, 10, 10, 9, 9,
+                10, 9, 10, 11, 9, 8, 7, 6, 5, 4, 3, 2});
+        for (int hour = 0; hour < HOURS; hour++) {
+            boolean night = hour < 7 || hour >= 22;
+            curve.setActivity(TypeOfFunction.VISITOR, hour, hour >= 8 && hour < 22 ? 1 : 0);
+            curve.setActivity(TypeOfFunction.PATIENT, hour, night ? 0.1 : 0.5);
+            curve.setActivity(TypeOfFunction.ADMINISTRATOR, hour, hour >= 8 && hour < 18 ? 1 : 0.05);
+            curve.setActivity(TypeOfFunction.DOCTOR, hour, night ? 0.4 : 1);
+            curve.setActivity(TypeOfFunction.NURSE, hour, night ? 0.7 : 1);
+            curve.setActivity(TypeOfFunction.CLEANER, hour, hour >= 5 && hour < 9 ? 1 : 0.5);
+        }
+        return curve;
+    }
+
+    /**
+     * Set how active the people of a function are at an hour
+     *
+     * @param function the function
+     * @param hour     the hour, from 0 to 23
+     * @param activity the chance that a person of the function picked to move does move, between 0 and 1
+     */
+    public void setActivity(TypeOfFunction function, int hour, double activity) {
+        if (activity < 0 || activity > 1) {
+            throw new IllegalArgumentException("The activity must be between 0 and 1");
+        }
+        this.activity[function.ordinal()][hour] = activity;
+    }
+
+    /**
+     * Get how active the people of a function are at an hour
+     *
+     * @param function the function
+     * @param hour     the hour, from 0 to 23
+     * @return the chance that a person of the function picked to move does move
+     */
+    public double getActivity(TypeOfFunction function, int hour) {
+        return activity[function.ordinal()][hour];
+    }
+
+    /**
+     * Split a number of events between the hours of a number of days following the weights of the hours.
+     * The split is exact: the counts add up to the number of events.
+     *
+     * @param events the number of events
+     * @param days   the number of days
+     * @return the number of events of every hour, day after day
+     */
+    long[] split(long events, int days) {
+        double total = 0;
+        for (double weight : hourWeights) {
+            total += weight;
+        }
+        total *= days;
+        long[] counts = new long[days * HOURS];
+        double cumulative = 0;
+        long assigned = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += hourWeights[i % HOURS];
+            long upTo = i == counts.length - 1 ? events : Math.round(events * (cumulative / total));
+            counts[i] = upTo - assigned;
+            assigned = upTo;
+        }
+        return counts;
+    }
+}
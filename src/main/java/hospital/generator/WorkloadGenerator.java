@@ -0,0 +1,664 @@
+package hospital.generator;
+
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventStore;
+import hospital.events.EventTimeline;
+import hospital.graph.CompactGraph;
+import hospital.io.HospitalSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import static hospital.io.JsonHandler.*;
+
+/**
+ * The WorkloadGenerator class generates a synthetic hospital with its people and events, at any scale from
+ * a ward to tens of thousands of rooms, a million people and hundreds of millions of events.
+ * <p>
+ * The map is made of wards of {@value #WARD_SIZE} rooms around a common area. The common areas of
+ * consecutive wards are linked by corridors, with a few longer shortcuts between distant wards, and the
+ * first room of the hospital is the main entrance, where everybody starts. Every room gets the functions
+ * that may enter it from its type, and the common areas, waiting rooms and exits are open to everybody.
+ * <p>
+ * Events are walks: the person that moves always goes from the room they are in to a neighbouring room
+ * their function may enter. Events are spread over the days following a {@link LoadCurve}, both in how
+ * many events happen at every hour and in who is moving at that hour, and come out in time order.
+ * <p>
+ * The output is either the four JSON files read by {@link hospital.io.JsonHandler} and
+ * {@link hospital.io.ImportPipeline}, or their binary equivalent: a {@link HospitalSnapshot} of the
+ * hospital after the events, with every person in the room their walk ended in, and an {@link EventStore}
+ * with the events, to be attached with {@link Hospital#setEventStore(EventStore)}.
+ * The same settings and seed always produce the same hospital, whatever the output.
+ */
+public class WorkloadGenerator {
+    /**
+     * The name of the event store file of the binary output
+     */
+    public static final String EVENT_STORE_FILE = "events.store";
+    /**
+     * The number of rooms of a ward, its common area included
+     */
+    static final int WARD_SIZE = 12;
+    /**
+     * The chance that the common area of a ward has a shortcut to a distant ward
+     */
+    private static final double SHORTCUT_CHANCE = 0.15;
+    /**
+     * The chance that a room also has a door to the previous room of its ward
+     */
+    private static final double SIDE_DOOR_CHANCE = 0.3;
+    /**
+     * The number of people picked at most to find one that is active at the current hour
+     */
+    private static final int MAX_PICKS = 64;
+    /**
+     * The smallest person id
+     */
+    private static final int FIRST_PERSON_ID = 100_000_000;
+    /**
+     * The number of possible person ids
+     */
+    private static final long PERSON_ID_RANGE = 900_000_000L;
+    /**
+     * Spreads the person ids over their range, coprime with the range so that ids never repeat
+     */
+    private static final long PERSON_ID_STRIDE = 123_456_791L;
+    /**
+     * Added to the seed for the names and ages of the people, so they do not depend on the map
+     */
+    private static final long PEOPLE_SEED = 0x5eed_0001L;
+    /**
+     * Added to the seed for the events
+     */
+    private static final long EVENTS_SEED = 0x5eed_0002L;
+    /**
+     * The types of the rooms of a ward, repeated by how common they are
+     */
+    private static final TypeOfRoom[] WARD_ROOMS = {
+            TypeOfRoom.HOSPITALIZATION, TypeOfRoom.HOSPITALIZATION, TypeOfRoom.HOSPITALIZATION,
+            TypeOfRoom.HOSPITALIZATION, TypeOfRoom.HOSPITALIZATION, TypeOfRoom.HOSPITALIZATION,
+            TypeOfRoom.CONSULTATION, TypeOfRoom.CONSULTATION, TypeOfRoom.CONSULTATION, TypeOfRoom.CONSULTATION,
+            TypeOfRoom.RECOVERY, TypeOfRoom.RECOVERY, TypeOfRoom.WAITING, TypeOfRoom.WAITING,
+            TypeOfRoom.OFFICE, TypeOfRoom.OFFICE, TypeOfRoom.RESTROOM, TypeOfRoom.BATHROOM,
+            TypeOfRoom.STORAGE, TypeOfRoom.SURGERY, TypeOfRoom.EMERGENCY, TypeOfRoom.IMAGING,
+            TypeOfRoom.LABORATORY, TypeOfRoom.PHARMACY, TypeOfRoom.MEETING, TypeOfRoom.KITCHEN,
+            TypeOfRoom.CANTEEN, TypeOfRoom.CAFE, TypeOfRoom.LAUNDRY, TypeOfRoom.LIBRARY,
+            TypeOfRoom.CHURCH, TypeOfRoom.RECEPTION, TypeOfRoom.EXIT};
+    /**
+     * The functions of the people, repeated by how common they are, one entry per percent
+     */
+    private static final TypeOfFunction[] FUNCTIONS = shares(new int[]{10, 18, 6, 7, 4, 25, 30});
+    /**
+     * The first names of the people
+     */
+    private static final String[] FIRST_NAMES = {
+            "Ana", "Bruno", "Carla", "Daniel", "Eva", "Filipe", "Gabriela", "Hugo", "Ines", "Joao",
+            "Laura", "Miguel", "Nuno", "Olivia", "Pedro", "Rita", "Sofia", "Tiago", "Vera", "Xavier"};
+    /**
+     * The last names of the people
+     */
+    private static final String[] LAST_NAMES = {
+            "Almeida", "Barbosa", "Costa", "Dias", "Esteves", "Ferreira", "Gomes", "Lopes", "Martins", "Neves",
+            "Oliveira", "Pereira", "Ribeiro", "Santos", "Silva", "Sousa", "Teixeira", "Vieira", "Moreira", "Rocha"};
+
+    /**
+     * The number of rooms
+     */
+    private final int roomCount;
+    /**
+     * The number of people
+     */
+    private final int peopleCount;
+    /**
+     * The number of events
+     */
+    private final long eventCount;
+    /**
+     * The seed of the random choices
+     */
+    private long seed = 1;
+    /**
+     * The day of the first event
+     */
+    private LocalDate startDate = LocalDate.of(2024, 1, 1);
+    /**
+     * The number of days the events are spread over
+     */
+    private int days = 30;
+    /**
+     * How busy the hospital is at every hour
+     */
+    private LoadCurve loadCurve = LoadCurve.typicalDay();
+
+    /**
+     * The type of every room, by room id
+     */
+    private TypeOfRoom[] roomTypes;
+    /**
+     * The capacity of every room, by room id
+     */
+    private int[] capacities;
+    /**
+     * The functions that may enter every room, as a bit per function ordinal, by room id
+     */
+    private int[] access;
+    /**
+     * The first room of every door
+     */
+    private int[] doorRoom1;
+    /**
+     * The second room of every door
+     */
+    private int[] doorRoom2;
+    /**
+     * The length of every door
+     */
+    private int[] doorWeight;
+    /**
+     * The number of doors
+     */
+    private int doorCount;
+    /**
+     * The function of every person, as an ordinal, by person index
+     */
+    private byte[] functions;
+    /**
+     * For every function, where the rooms it may walk to from every room start in {@link #walkTargets}
+     */
+    private int[][] walkOffsets;
+    /**
+     * For every function, the rooms it may walk to from every room
+     */
+    private int[][] walkTargets;
+
+    /**
+     * Constructor of the class WorkloadGenerator
+     *
+     * @param roomCount   the number of rooms, at least 2
+     * @param peopleCount the number of people, at least 1
+     * @param eventCount  the number of events
+     */
+    public WorkloadGenerator(int roomCount, int peopleCount, long eventCount) {
+        if (roomCount < 2) {
+            throw new IllegalArgumentException("A hospital needs at least 2 rooms");
+        }
+        if (peopleCount < 1 || peopleCount > PERSON_ID_RANGE) {
+            throw new IllegalArgumentException("The number of people must be between 1 and " + PERSON_ID_RANGE);
+        }
+        if (eventCount < 0) {
+            throw new IllegalArgumentException("The number of events cannot be negative");
+        }
+        this.roomCount = roomCount;
+        this.peopleCount = peopleCount;
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Set the seed of the random choices
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        roomTypes = null;
+    }
+
+    /**
+     * Set the day of the first event, events start at midnight
+     *
+     * @param startDate the day
+     */
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * Set the number of days the events are spread over
+     *
+     * @param days the number of days, at least 1
+     */
+    public void setDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("The events need at least one day");
+        }
+        this.days = days;
+    }
+
+    /**
+     * Set how busy the hospital is at every hour
+     *
+     * @param loadCurve the load curve
+     */
+    public void setLoadCurve(LoadCurve loadCurve) {
+        this.loadCurve = loadCurve;
+    }
+
+    /**
+     * Get the id of a person
+     *
+     * @param index the index of the person, from 0 to the number of people
+     * @return the person id, a 9 digit number unique to the person
+     */
+    public static int personId(int index) {
+        return (int) (FIRST_PERSON_ID + index * PERSON_ID_STRIDE % PERSON_ID_RANGE);
+    }
+
+    /**
+     * Generates the events in time order, without writing them.
+     * Room ids go from 0 to the number of rooms and person ids are given by {@link #personId(int)}.
+     *
+     * @param visitor receives every event, with its time as an epoch second
+     */
+    public void forEachEvent(EventStore.Visitor visitor) {
+        walk(visitor);
+    }
+
+    /**
+     * Writes the hospital to the {@value hospital.io.JsonHandler#ROOMS_FILE},
+     * {@value hospital.io.JsonHandler#MAP_FILE}, {@value hospital.io.JsonHandler#PEOPLE_FILE} and
+     * {@value hospital.io.JsonHandler#EVENTS_FILE} files of a directory, one record per line.
+     *
+     * @param directory The directory, created if it does not exist
+     * @throws IOException If a file cannot be written
+     */
+    public void writeJson(Path directory) throws IOException {
+        generateMap();
+        Files.createDirectories(directory);
+        writeRooms(directory.resolve(ROOMS_FILE));
+        writeDoors(directory.resolve(MAP_FILE));
+        writePeople(directory.resolve(PEOPLE_FILE));
+
+        try (AsciiOutput out = new AsciiOutput(directory.resolve(EVENTS_FILE))) {
+            out.write("[");
+            long[] written = {0};
+            walk((personId, fromRoomId, toRoomId, time) -> {
+                try {
+                    out.write(written[0]++ == 0 ? "\n{\"personId\":" : ",\n{\"personId\":").write(personId)
+                            .write(",\"fromRoomId\":").write(fromRoomId)
+                            .write(",\"toRoomId\":").write(toRoomId)
+                            .write(",\"time\":\"").writeTime(time).write("\"}");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.write("\n]\n");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the hospital to the {@value hospital.io.HospitalSnapshot#SNAPSHOT_FILE} and
+     * {@value #EVENT_STORE_FILE} files of a directory.
+     * The snapshot holds the hospital after the events, without the activity of the people, which is
+     * read from the event store once it is attached to the hospital.
+     *
+     * @param directory The directory, created if it does not exist
+     * @throws IOException If a file cannot be written
+     */
+    public void writeBinary(Path directory) throws IOException {
+        generateMap();
+        Files.createDirectories(directory);
+        Path storeFile = directory.resolve(EVENT_STORE_FILE);
+        Files.deleteIfExists(storeFile);
+        int[] locations;
+        try (EventStore store = EventStore.open(storeFile)) {
+            locations = walk((personId, fromRoomId, toRoomId, time) -> {
+                try {
+                    store.append(personId, fromRoomId, toRoomId, time);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Room[] rooms = new Room[roomCount];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int r = 0; r < roomCount; r++) {
+            UnorderedListADT<TypeOfFunction> functionsAllowed = new UnorderedLinkedList<>();
+            for (TypeOfFunction function : TypeOfFunction.values()) {
+                if ((access[r] & 1 << function.ordinal()) != 0) {
+                    functionsAllowed.addToRear(function);
+                }
+            }
+            // the people are counted as they are added to their rooms below
+            rooms[r] = new Room(r, functionsAllowed, 0, false, capacities[r], roomTypes[r], roomName(r));
+            builder.addRoom(rooms[r]);
+        }
+        for (int d = 0; d < doorCount; d++) {
+            builder.addEdge(doorRoom1[d], doorRoom2[d], doorWeight[d]);
+            builder.addEdge(doorRoom2[d], doorRoom1[d], doorWeight[d]);
+        }
+        SplittableRandom random = new SplittableRandom(seed + PEOPLE_SEED);
+        TypeOfFunction[] allFunctions = TypeOfFunction.values();
+        for (int p = 0; p < peopleCount; p++) {
+            TypeOfFunction function = allFunctions[functions[p]];
+            rooms[locations[p]].addPerson(new Person(personId(p), personName(random), personAge(function, random),
+                    function));
+        }
+
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        HospitalSnapshot.write(hospital, 0, directory.resolve(HospitalSnapshot.SNAPSHOT_FILE));
+    }
+
+    /**
+     * Generate the rooms, doors and people, unless they were already generated with the current seed
+     */
+    private void generateMap() {
+        if (roomTypes != null) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        roomTypes = new TypeOfRoom[roomCount];
+        capacities = new int[roomCount];
+        access = new int[roomCount];
+        for (int r = 0; r < roomCount; r++) {
+            TypeOfRoom type;
+            if (r == 0) {
+                type = TypeOfRoom.EXIT;
+            } else if (r % WARD_SIZE == 0) {
+                type = TypeOfRoom.COMMON;
+            } else if (r % WARD_SIZE == 1) {
+                // every common area leads to a room everybody may enter, so nobody is ever stuck
+                type = TypeOfRoom.WAITING;
+            } else {
+                type = WARD_ROOMS[random.nextInt(WARD_ROOMS.length)];
+            }
+            roomTypes[r] = type;
+            capacities[r] = capacity(type, random);
+            access[r] = accessMask(type);
+        }
+
+        int maxDoors = roomCount * 3;
+        doorRoom1 = new int[maxDoors];
+        doorRoom2 = new int[maxDoors];
+        doorWeight = new int[maxDoors];
+        doorCount = 0;
+        for (int r = 0; r < roomCount; r++) {
+            int hub = r - r % WARD_SIZE;
+            int ward = r / WARD_SIZE;
+            if (r == hub) {
+                if (ward > 0) {
+                    addDoor(r, hub - WARD_SIZE, 10 + random.nextInt(21));
+                }
+                if (ward > 1 && random.nextDouble() < SHORTCUT_CHANCE) {
+                    addDoor(r, random.nextInt(ward - 1) * WARD_SIZE, 15 + random.nextInt(31));
+                }
+            } else {
+                addDoor(r, hub, 2 + random.nextInt(7));
+                if (r - 1 > hub && random.nextDouble() < SIDE_DOOR_CHANCE) {
+                    addDoor(r, r - 1, 1 + random.nextInt(5));
+                }
+            }
+        }
+
+        // the rooms every function may walk to, from every room
+        int functionCount = TypeOfFunction.values().length;
+        walkOffsets = new int[functionCount][roomCount + 1];
+        walkTargets = new int[functionCount][];
+        for (int f = 0; f < functionCount; f++) {
+            int bit = 1 << f;
+            int[] offsets = walkOffsets[f];
+            for (int d = 0; d < doorCount; d++) {
+                if ((access[doorRoom2[d]] & bit) != 0) {
+                    offsets[doorRoom1[d] + 1]++;
+                }
+                if ((access[doorRoom1[d]] & bit) != 0) {
+                    offsets[doorRoom2[d] + 1]++;
+                }
+            }
+            for (int r = 0; r < roomCount; r++) {
+                offsets[r + 1] += offsets[r];
+            }
+            int[] targets = new int[offsets[roomCount]];
+            int[] next = offsets.clone();
+            for (int d = 0; d < doorCount; d++) {
+                if ((access[doorRoom2[d]] & bit) != 0) {
+                    targets[next[doorRoom1[d]]++] = doorRoom2[d];
+                }
+                if ((access[doorRoom1[d]] & bit) != 0) {
+                    targets[next[doorRoom2[d]]++] = doorRoom1[d];
+                }
+            }
+            walkTargets[f] = targets;
+        }
+
+        functions = new byte[peopleCount];
+        for (int p = 0; p < peopleCount; p++) {
+            functions[p] = (byte) FUNCTIONS[random.nextInt(FUNCTIONS.length)].ordinal();
+        }
+    }
+
+    /**
+     * Walk the people around the hospital, one event at a time
+     *
+     * @param visitor receives every event
+     * @return the room every person ended in, by person index
+     */
+    private int[] walk(EventStore.Visitor visitor) {
+        generateMap();
+        SplittableRandom random = new SplittableRandom(seed + EVENTS_SEED);
+        int[] locations = new int[peopleCount];
+        long[] counts = loadCurve.split(eventCount, days);
+        long start = EventTimeline.epochSecond(startDate.atStartOfDay());
+        TypeOfFunction[] allFunctions = TypeOfFunction.values();
+        double[] activity = new double[allFunctions.length];
+
+        for (int slot = 0; slot < counts.length; slot++) {
+            long count = counts[slot];
+            int hour = slot % LoadCurve.HOURS;
+            for (TypeOfFunction function : allFunctions) {
+                activity[function.ordinal()] = loadCurve.getActivity(function, hour);
+            }
+            long slotStart = start + slot * 3600L;
+            for (long e = 0; e < count; e++) {
+                int person = 0;
+                for (int pick = 0; pick < MAX_PICKS; pick++) {
+                    person = random.nextInt(peopleCount);
+                    double chance = activity[functions[person]];
+                    if (chance >= 1 || chance > 0 && random.nextDouble() < chance) {
+                        break;
+                    }
+                }
+                int from = locations[person];
+                int[] offsets = walkOffsets[functions[person]];
+                int to = walkTargets[functions[person]][offsets[from]
+                        + random.nextInt(offsets[from + 1] - offsets[from])];
+                visitor.visit(personId(person), from, to, slotStart + e * 3600 / count);
+                locations[person] = to;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Write the rooms file
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeRooms(Path file) throws IOException {
+        TypeOfFunction[] allFunctions = TypeOfFunction.values();
+        try (AsciiOutput out = new AsciiOutput(file)) {
+            out.write("[");
+            for (int r = 0; r < roomCount; r++) {
+                out.write(r == 0 ? "\n{\"id\":" : ",\n{\"id\":").write(r)
+                        .write(",\"name\":\"").write(roomName(r))
+                        .write("\",\"type\":\"").write(roomTypes[r].name())
+                        .write("\",\"capacity\":").write(capacities[r])
+                        .write(",\"currentOccupation\":0,\"occupied\":false,\"access\":[");
+                boolean first = true;
+                for (TypeOfFunction function : allFunctions) {
+                    if ((access[r] & 1 << function.ordinal()) != 0) {
+                        out.write(first ? "\"" : ",\"").write(function.toString()).write("\"");
+                        first = false;
+                    }
+                }
+                out.write("]}");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    /**
+     * Write the map file
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeDoors(Path file) throws IOException {
+        try (AsciiOutput out = new AsciiOutput(file)) {
+            out.write("[");
+            for (int d = 0; d < doorCount; d++) {
+                out.write(d == 0 ? "\n{\"room1\":" : ",\n{\"room1\":").write(doorRoom1[d])
+                        .write(",\"room2\":").write(doorRoom2[d])
+                        .write(",\"weight\":").write(doorWeight[d]).write("}");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    /**
+     * Write the people file
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writePeople(Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + PEOPLE_SEED);
+        TypeOfFunction[] allFunctions = TypeOfFunction.values();
+        try (AsciiOutput out = new AsciiOutput(file)) {
+            out.write("[");
+            for (int p = 0; p < peopleCount; p++) {
+                TypeOfFunction function = allFunctions[functions[p]];
+                out.write(p == 0 ? "\n{\"id\":" : ",\n{\"id\":").write(personId(p))
+                        .write(",\"name\":\"").write(personName(random))
+                        .write("\",\"age\":").write(personAge(function, random))
+                        .write(",\"function\":\"").write(function.toString()).write("\"}");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    /**
+     * Add a door between two rooms
+     *
+     * @param room1  the id of the first room
+     * @param room2  the id of the second room
+     * @param weight the length of the door
+     */
+    private void addDoor(int room1, int room2, int weight) {
+        doorRoom1[doorCount] = room1;
+        doorRoom2[doorCount] = room2;
+        doorWeight[doorCount] = weight;
+        doorCount++;
+    }
+
+    /**
+     * Get the name of a room
+     *
+     * @param roomId the room id
+     * @return the name, the type of the room followed by its id
+     */
+    private String roomName(int roomId) {
+        return roomId == 0 ? "Main Entrance" : roomTypes[roomId] + " " + roomId;
+    }
+
+    /**
+     * Pick the name of a person
+     *
+     * @param random the random choices of the people
+     * @return the name
+     */
+    private static String personName(SplittableRandom random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    /**
+     * Pick the age of a person
+     *
+     * @param function the function of the person
+     * @param random   the random choices of the people
+     * @return the age, an adult of working age for the staff
+     */
+    private static int personAge(TypeOfFunction function, SplittableRandom random) {
+        return switch (function) {
+            case PATIENT -> random.nextInt(100);
+            case VISITOR -> 12 + random.nextInt(78);
+            default -> 22 + random.nextInt(46);
+        };
+    }
+
+    /**
+     * Pick the capacity of a room
+     *
+     * @param type   the type of the room
+     * @param random the random choices of the map
+     * @return the capacity
+     */
+    private static int capacity(TypeOfRoom type, SplittableRandom random) {
+        return switch (type) {
+            case COMMON, CANTEEN, CHURCH -> 40 + random.nextInt(41);
+            case EXIT, WAITING, CAFE, RECEPTION, LIBRARY -> 15 + random.nextInt(26);
+            case HOSPITALIZATION, RECOVERY -> 2 + random.nextInt(5);
+            case SURGERY, IMAGING, CONSULTATION -> 3 + random.nextInt(6);
+            default -> 4 + random.nextInt(17);
+        };
+    }
+
+    /**
+     * Get the functions that may enter a room of a type
+     *
+     * @param type the type of the room
+     * @return the functions, as a bit per function ordinal
+     */
+    static int accessMask(TypeOfRoom type) {
+        int doctor = 1 << TypeOfFunction.DOCTOR.ordinal();
+        int nurse = 1 << TypeOfFunction.NURSE.ordinal();
+        int administrator = 1 << TypeOfFunction.ADMINISTRATOR.ordinal();
+        int cleaner = 1 << TypeOfFunction.CLEANER.ordinal();
+        int security = 1 << TypeOfFunction.SECURITY.ordinal();
+        int visitor = 1 << TypeOfFunction.VISITOR.ordinal();
+        int patient = 1 << TypeOfFunction.PATIENT.ordinal();
+        int clinical = doctor | nurse | cleaner | security | patient;
+        return switch (type) {
+            case HOSPITALIZATION, RECOVERY -> clinical | visitor;
+            case CONSULTATION, EMERGENCY, IMAGING -> clinical;
+            case SURGERY -> doctor | nurse | cleaner;
+            case LABORATORY, PHARMACY -> doctor | nurse | cleaner | security;
+            case STORAGE, LAUNDRY, KITCHEN -> cleaner | security | administrator;
+            case OFFICE, MEETING -> doctor | nurse | administrator | cleaner | security;
+            default -> (1 << TypeOfFunction.values().length) - 1;
+        };
+    }
+
+    /**
+     * Expand the shares of the functions into a table with one entry per percent
+     *
+     * @param percents the share of every function in percent, by function ordinal, adding up to 100
+     * @return the table
+     */
+    private static TypeOfFunction[] shares(int[] percents) {
+        TypeOfFunction[] table = new TypeOfFunction[100];
+        int next = 0;
+        for (TypeOfFunction function : TypeOfFunction.values()) {
+            for (int s = 0; s < percents[function.ordinal()]; s++) {
+                table[next++] = function;
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the generator of synthetic hospitals and their events, used for load and scale testing.
+ */
+package hospital.generator;
@@ -0,0 +1,222 @@
+package hospital.graph;
+
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+
+import java.util.Arrays;
+
+/**
+ * The AccessIndex class holds, for every function, the set of rooms of a map the function may enter, as a
+ * bitset over the room indexes of the map.
+ * Checking a room is a single bit test, and the rooms several functions may all enter, or any of them, are
+ * found a word of 64 rooms at a time. The index is immutable, a change of access produces a new index that
+ * shares the bitsets of the other functions.
+ * <p>
+ * The index also keeps, for every function, the map restricted to the rooms the function may enter and its
+ * evacuation field. They are built the first time a route is asked for that function and shared by the
+ * following indexes until the access of that function changes, so routing with permissions costs one search
+ * over the restricted map, like routing without them.
+ */
+public final class AccessIndex {
+    /**
+     * The map the index was computed for
+     */
+    private final CompactGraph graph;
+    /**
+     * The rooms every function may enter, indexed by function ordinal, one bit per room index
+     */
+    private final long[][] roomsByFunction;
+    /**
+     * The map restricted to the rooms of every function, indexed by function ordinal, null until first needed
+     */
+    private final CompactGraph[] graphsByFunction;
+    /**
+     * The evacuation field of every restricted map, indexed by function ordinal, null until first needed
+     */
+    private final EvacuationField[] fieldsByFunction;
+
+    /**
+     * Constructor of the class AccessIndex
+     *
+     * @param graph            the map
+     * @param roomsByFunction  the rooms every function may enter
+     * @param graphsByFunction the restricted map of every function
+     * @param fieldsByFunction the evacuation field of every function
+     */
+    private AccessIndex(CompactGraph graph, long[][] roomsByFunction, CompactGraph[] graphsByFunction,
+                        EvacuationField[] fieldsByFunction) {
+        this.graph = graph;
+        this.roomsByFunction = roomsByFunction;
+        this.graphsByFunction = graphsByFunction;
+        this.fieldsByFunction = fieldsByFunction;
+    }
+
+    /**
+     * Computes the access index of a map from the access mask of every room
+     *
+     * @param graph the map
+     * @return the access index
+     */
+    public static AccessIndex compute(CompactGraph graph) {
+        TypeOfFunction[] functions = TypeOfFunction.values();
+        long[][] roomsByFunction = new long[functions.length][words(graph.size())];
+        for (int room = 0; room < graph.size(); room++) {
+            int mask = graph.getRoom(room).getAccessMask();
+            for (TypeOfFunction function : functions) {
+                if ((mask & Room.bit(function)) != 0) {
+                    roomsByFunction[function.ordinal()][room >>> 6] |= 1L << room;
+                }
+            }
+        }
+        return new AccessIndex(graph, roomsByFunction, new CompactGraph[functions.length],
+                new EvacuationField[functions.length]);
+    }
+
+    /**
+     * Get the map the index was computed for
+     *
+     * @return the map
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Check if a function may enter a room
+     *
+     * @param function the function
+     * @param index    the room index
+     * @return true if the function may enter the room, false otherwise or if the function is null
+     */
+    public boolean canEnter(TypeOfFunction function, int index) {
+        return function != null && (roomsByFunction[function.ordinal()][index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Get the rooms a function may enter
+     *
+     * @param function the function
+     * @return a copy of the bitset of the room indexes, bit i of word i / 64 is set if the function may enter room i
+     */
+    public long[] rooms(TypeOfFunction function) {
+        return roomsByFunction[function.ordinal()].clone();
+    }
+
+    /**
+     * Get the rooms that every one of a set of functions may enter
+     *
+     * @param functions the functions
+     * @return the bitset of the room indexes, every room if no function is given
+     */
+    public long[] roomsForAll(TypeOfFunction... functions) {
+        long[] rooms = new long[words(graph.size())];
+        Arrays.fill(rooms, -1L);
+        for (TypeOfFunction function : functions) {
+            long[] allowed = roomsByFunction[function.ordinal()];
+            for (int word = 0; word < rooms.length; word++) {
+                rooms[word] &= allowed[word];
+            }
+        }
+        if (graph.size() % 64 != 0) {
+            rooms[rooms.length - 1] &= (1L << graph.size()) - 1;
+        }
+        return rooms;
+    }
+
+    /**
+     * Get the rooms that at least one of a set of functions may enter
+     *
+     * @param functions the functions
+     * @return the bitset of the room indexes
+     */
+    public long[] roomsForAny(TypeOfFunction... functions) {
+        long[] rooms = new long[words(graph.size())];
+        for (TypeOfFunction function : functions) {
+            long[] allowed = roomsByFunction[function.ordinal()];
+            for (int word = 0; word < rooms.length; word++) {
+                rooms[word] |= allowed[word];
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Count the rooms a function may enter
+     *
+     * @param function the function
+     * @return the number of rooms
+     */
+    public int count(TypeOfFunction function) {
+        int count = 0;
+        for (long word : roomsByFunction[function.ordinal()]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Get the map restricted to the rooms a function may enter, building it the first time it is needed.
+     * The rooms keep the indexes of the map.
+     *
+     * @param function the function
+     * @return the map without the edges that enter rooms the function may not enter
+     */
+    public CompactGraph graphFor(TypeOfFunction function) {
+        // the views are immutable, two threads racing here only build the same view twice
+        CompactGraph restricted = graphsByFunction[function.ordinal()];
+        if (restricted == null) {
+            restricted = graph.restrictTo(roomsByFunction[function.ordinal()]);
+            graphsByFunction[function.ordinal()] = restricted;
+        }
+        return restricted;
+    }
+
+    /**
+     * Get the evacuation field of the map restricted to the rooms a function may enter,
+     * computing it the first time it is needed
+     *
+     * @param function the function
+     * @return the evacuation field, only exits the function may enter can be reached from other rooms
+     */
+    public EvacuationField evacuationFieldFor(TypeOfFunction function) {
+        EvacuationField field = fieldsByFunction[function.ordinal()];
+        if (field == null) {
+            field = EvacuationField.compute(graphFor(function));
+            fieldsByFunction[function.ordinal()] = field;
+        }
+        return field;
+    }
+
+    /**
+     * Get the index with the access of a function to a room changed
+     *
+     * @param function the function
+     * @param index    the room index
+     * @param allowed  true if the function may now enter the room, false otherwise
+     * @return the new index, or this index if nothing changed
+     */
+    public AccessIndex withAccess(TypeOfFunction function, int index, boolean allowed) {
+        if (canEnter(function, index) == allowed) {
+            return this;
+        }
+        long[][] roomsByFunction = this.roomsByFunction.clone();
+        long[] rooms = roomsByFunction[function.ordinal()].clone();
+        rooms[index >>> 6] ^= 1L << index;
+        roomsByFunction[function.ordinal()] = rooms;
+        CompactGraph[] graphsByFunction = this.graphsByFunction.clone();
+        EvacuationField[] fieldsByFunction = this.fieldsByFunction.clone();
+        graphsByFunction[function.ordinal()] = null;
+        fieldsByFunction[function.ordinal()] = null;
+        return new AccessIndex(graph, roomsByFunction, graphsByFunction, fieldsByFunction);
+    }
+
+    /**
+     * Get the number of words of a bitset of rooms
+     *
+     * @param rooms the number of rooms
+     * @return the number of words
+     */
+    private static int words(int rooms) {
+        return (rooms + 63) >>> 6;
+    }
+}
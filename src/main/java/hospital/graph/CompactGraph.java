@@ -0,0 +1,524 @@
+package hospital.graph;
+
+import collections.graphs.Network;
+import hospital.Room;
+import hospital.collections.IntIntMap;
+
+import java.util.Arrays;
+
+/**
+ * The CompactGraph class is an immutable, directed and weighted graph of rooms in compressed sparse row form.
+ * Every room gets a dense index. The edges leaving the room with index {@code i} are the positions
+ * {@code firstEdge(i)} (inclusive) to {@code endEdge(i)} (exclusive) of the target and weight arrays,
+ * so walking the neighbours of a room costs O(degree) and the whole graph takes O(V + E) memory.
+ */
+public final class CompactGraph {
+    /**
+     * The rooms of the graph by index
+     */
+    private final Room[] rooms;
+    /**
+     * The index of every room by room id
+     */
+    private final IntIntMap indexById;
+    /**
+     * The first edge of every room, with one extra entry holding the number of edges
+     */
+    private final int[] offsets;
+    /**
+     * The target room index of every edge
+     */
+    private final int[] targets;
+    /**
+     * The weight of every edge
+     */
+    private final double[] weights;
+
+    /**
+     * Constructor of the class CompactGraph
+     *
+     * @param rooms   the rooms by index
+     * @param offsets the first edge of every room
+     * @param targets the target of every edge
+     * @param weights the weight of every edge
+     */
+    private CompactGraph(Room[] rooms, int[] offsets, int[] targets, double[] weights) {
+        this(rooms, index(rooms), offsets, targets, weights);
+    }
+
+    /**
+     * Constructor of the class CompactGraph, sharing the rooms of another graph
+     *
+     * @param rooms     the rooms by index
+     * @param indexById the index of every room by room id
+     * @param offsets   the first edge of every room
+     * @param targets   the target of every edge
+     * @param weights   the weight of every edge
+     */
+    private CompactGraph(Room[] rooms, IntIntMap indexById, int[] offsets, int[] targets, double[] weights) {
+        this.rooms = rooms;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Index rooms by id
+     *
+     * @param rooms the rooms by index
+     * @return the index of every room by room id
+     */
+    private static IntIntMap index(Room[] rooms) {
+        IntIntMap indexById = new IntIntMap(rooms.length);
+        for (int i = 0; i < rooms.length; i++) {
+            indexById.put(rooms[i].getId(), i);
+        }
+        return indexById;
+    }
+
+    /**
+     * Create an empty graph
+     *
+     * @return a graph with no rooms
+     */
+    public static CompactGraph empty() {
+        return new CompactGraph(new Room[0], new int[1], new int[0], new double[0]);
+    }
+
+    /**
+     * Create a compact graph with the rooms and edges of a network.
+     * The rooms keep their network indexes. This scans the adjacency matrix once, O(V²).
+     *
+     * @param network the network to convert
+     * @return the compact graph
+     */
+    public static CompactGraph fromNetwork(Network<Room> network) {
+        Builder builder = new Builder();
+        int size = network.size();
+        for (int i = 0; i < size; i++) {
+            builder.addRoom(network.getVertex(i));
+        }
+        for (int i = 0; i < size; i++) {
+            Room room1 = network.getVertex(i);
+            for (int j = 0; j < size; j++) {
+                Room room2 = network.getVertex(j);
+                if (i != j && network.edgeExists(room1, room2)) {
+                    builder.addEdge(room1.getId(), room2.getId(), network.getWeight(room1, room2));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the number of rooms
+     *
+     * @return the number of rooms
+     */
+    public int size() {
+        return rooms.length;
+    }
+
+    /**
+     * Get the number of directed edges
+     *
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Get a room by index
+     *
+     * @param index the room index
+     * @return the room
+     */
+    public Room getRoom(int index) {
+        return rooms[index];
+    }
+
+    /**
+     * Get the index of a room
+     *
+     * @param roomId the room id
+     * @return the room index, or -1 if the room is not in the graph
+     */
+    public int indexOf(int roomId) {
+        return indexById.getOrDefault(roomId, -1);
+    }
+
+    /**
+     * Get the first edge leaving a room
+     *
+     * @param index the room index
+     * @return the position of the first edge
+     */
+    public int firstEdge(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Get the position after the last edge leaving a room
+     *
+     * @param index the room index
+     * @return the position after the last edge
+     */
+    public int endEdge(int index) {
+        return offsets[index + 1];
+    }
+
+    /**
+     * Get the number of edges leaving a room
+     *
+     * @param index the room index
+     * @return the out degree of the room
+     */
+    public int degree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Get the room an edge leads to
+     *
+     * @param edge the edge position
+     * @return the target room index
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Get the weight of an edge
+     *
+     * @param edge the edge position
+     * @return the edge weight
+     */
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Create the graph with every edge reversed, rooms keep their indexes
+     *
+     * @return the reversed graph
+     */
+    public CompactGraph reverse() {
+        int[] reversedOffsets = new int[rooms.length + 1];
+        for (int target : targets) {
+            reversedOffsets[target + 1]++;
+        }
+        for (int i = 0; i < rooms.length; i++) {
+            reversedOffsets[i + 1] += reversedOffsets[i];
+        }
+        int[] cursor = Arrays.copyOf(reversedOffsets, rooms.length);
+        int[] reversedTargets = new int[targets.length];
+        double[] reversedWeights = new double[targets.length];
+        for (int source = 0; source < rooms.length; source++) {
+            for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+                int position = cursor[targets[edge]]++;
+                reversedTargets[position] = source;
+                reversedWeights[position] = weights[edge];
+            }
+        }
+        return new CompactGraph(rooms, indexById, reversedOffsets, reversedTargets, reversedWeights);
+    }
+
+    /**
+     * Create the graph without the edges that enter rooms outside a set, rooms keep their indexes.
+     * A search over it can leave a room outside the set, such as the room a person is in, but never enters one.
+     *
+     * @param allowed the bitset of the room indexes that can be entered, bit i of word i / 64 for room i
+     * @return the restricted graph, sharing the rooms of this graph
+     */
+    public CompactGraph restrictTo(long[] allowed) {
+        int[] restrictedOffsets = new int[rooms.length + 1];
+        int[] restrictedTargets = new int[targets.length];
+        double[] restrictedWeights = new double[targets.length];
+        int count = 0;
+        for (int source = 0; source < rooms.length; source++) {
+            for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+                int target = targets[edge];
+                if ((allowed[target >>> 6] & 1L << target) != 0) {
+                    restrictedTargets[count] = target;
+                    restrictedWeights[count] = weights[edge];
+                    count++;
+                }
+            }
+            restrictedOffsets[source + 1] = count;
+        }
+        return new CompactGraph(rooms, indexById, restrictedOffsets, Arrays.copyOf(restrictedTargets, count),
+                Arrays.copyOf(restrictedWeights, count));
+    }
+
+    /**
+     * Computes the shortest distance from a room to every room (Dijkstra), in O(E log V)
+     *
+     * @param source   the source room index
+     * @param previous filled with the previous room on the shortest path to every room, -1 if there is none
+     * @return the distance to every room, infinity for unreachable rooms
+     */
+    public double[] shortestDistances(int source, int[] previous) {
+        return search(source, -1, previous);
+    }
+
+    /**
+     * Finds the shortest path between two rooms
+     *
+     * @param source the source room index
+     * @param target the target room index
+     * @return the room indexes of the path, both ends included, or an empty array if there is no path
+     */
+    public int[] findShortestPath(int source, int target) {
+        int[] previous = new int[rooms.length];
+        double[] distances = search(source, target, previous);
+        if (distances[target] == Double.POSITIVE_INFINITY) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int room = target; room != source; room = previous[room]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int room = target, i = length - 1; i >= 0; room = previous[room], i--) {
+            path[i] = room;
+        }
+        return path;
+    }
+
+    /**
+     * Computes the weight of the shortest path between two rooms
+     *
+     * @param source the source room index
+     * @param target the target room index
+     * @return the path weight, infinity if there is no path
+     */
+    public double shortestPathWeight(int source, int target) {
+        return search(source, target, new int[rooms.length])[target];
+    }
+
+    /**
+     * Computes the weight of a path, adding the weights of its edges from the first room on
+     *
+     * @param path the room indexes of the path
+     * @return the path weight, 0 for a path of less than two rooms
+     * @throws IllegalArgumentException if two consecutive rooms of the path are not connected
+     */
+    public double pathWeight(int[] path) {
+        double weight = 0;
+        for (int i = 1; i < path.length; i++) {
+            int edge = offsets[path[i - 1]];
+            while (edge < offsets[path[i - 1] + 1] && targets[edge] != path[i]) {
+                edge++;
+            }
+            if (edge == offsets[path[i - 1] + 1]) {
+                throw new IllegalArgumentException("No edge from room " + path[i - 1] + " to room " + path[i]);
+            }
+            weight += weights[edge];
+        }
+        return weight;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from a room, stopping early once a target room is settled
+     *
+     * @param source   the source room index
+     * @param target   the room to stop at, or -1 to settle every room
+     * @param previous filled with the previous room on the shortest path to every room
+     * @return the tentative distance to every room
+     */
+    private double[] search(int source, int target, int[] previous) {
+        double[] distances = new double[rooms.length];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        boolean[] settled = new boolean[rooms.length];
+        DistanceQueue queue = new DistanceQueue(16);
+        distances[source] = 0;
+        queue.push(source, 0);
+        while (!queue.isEmpty()) {
+            int room = queue.poll();
+            if (settled[room]) {
+                continue;
+            }
+            settled[room] = true;
+            if (room == target) {
+                break;
+            }
+            for (int edge = offsets[room]; edge < offsets[room + 1]; edge++) {
+                int next = targets[edge];
+                double distance = distances[room] + weights[edge];
+                if (distance < distances[next]) {
+                    distances[next] = distance;
+                    previous[next] = room;
+                    queue.push(next, distance);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Create a builder holding the rooms and edges of this graph
+     *
+     * @return the builder
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        for (Room room : rooms) {
+            builder.addRoom(room);
+        }
+        for (int source = 0; source < rooms.length; source++) {
+            for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+                builder.addEdge(rooms[source].getId(), rooms[targets[edge]].getId(), weights[edge]);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * The Builder class collects rooms and edges and packs them into a compact graph.
+     * Rooms get their index in the order they are added. Adding the same edge twice keeps the last weight.
+     */
+    public static final class Builder {
+        /**
+         * The rooms added so far
+         */
+        private Room[] rooms = new Room[16];
+        /**
+         * The number of rooms added so far
+         */
+        private int roomCount;
+        /**
+         * The index of every room by room id
+         */
+        private final IntIntMap indexById = new IntIntMap();
+        /**
+         * The source index of every edge
+         */
+        private int[] sources = new int[16];
+        /**
+         * The target index of every edge
+         */
+        private int[] targets = new int[16];
+        /**
+         * The weight of every edge
+         */
+        private double[] weights = new double[16];
+        /**
+         * The number of edges added so far
+         */
+        private int edgeCount;
+
+        /**
+         * Add a room to the graph
+         *
+         * @param room the room
+         * @return this builder
+         */
+        public Builder addRoom(Room room) {
+            if (indexById.containsKey(room.getId())) {
+                throw new IllegalArgumentException("Duplicate room id " + room.getId());
+            }
+            if (roomCount == rooms.length) {
+                rooms = Arrays.copyOf(rooms, roomCount * 2);
+            }
+            indexById.put(room.getId(), roomCount);
+            rooms[roomCount++] = room;
+            return this;
+        }
+
+        /**
+         * Check if a room was added
+         *
+         * @param roomId the room id
+         * @return true if the room was added, false otherwise
+         */
+        public boolean containsRoom(int roomId) {
+            return indexById.containsKey(roomId);
+        }
+
+        /**
+         * Add a directed edge between two rooms that were already added
+         *
+         * @param roomId1 the id of the room the edge leaves
+         * @param roomId2 the id of the room the edge leads to
+         * @param weight  the edge weight
+         * @return this builder
+         */
+        public Builder addEdge(int roomId1, int roomId2, double weight) {
+            int source = indexById.getOrDefault(roomId1, -1);
+            int target = indexById.getOrDefault(roomId2, -1);
+            if (source < 0 || target < 0) {
+                throw new IllegalArgumentException("Edge " + roomId1 + " -> " + roomId2 + " references an unknown room");
+            }
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                targets = Arrays.copyOf(targets, edgeCount * 2);
+                weights = Arrays.copyOf(weights, edgeCount * 2);
+            }
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            weights[edgeCount] = weight;
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Pack the rooms and edges into a compact graph, in O(V + E)
+         *
+         * @return the compact graph
+         */
+        public CompactGraph build() {
+            int[] offsets = new int[roomCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int i = 0; i < roomCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            // counting sort by source keeps the insertion order of the edges of every room
+            int[] cursor = Arrays.copyOf(offsets, roomCount);
+            int[] packedTargets = new int[edgeCount];
+            double[] packedWeights = new double[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int position = cursor[sources[i]]++;
+                packedTargets[position] = targets[i];
+                packedWeights[position] = weights[i];
+            }
+            return removeDuplicates(offsets, packedTargets, packedWeights);
+        }
+
+        /**
+         * Merge repeated edges between the same pair of rooms, keeping the weight added last
+         *
+         * @param offsets the first edge of every room
+         * @param targets the target of every edge
+         * @param weights the weight of every edge
+         * @return the compact graph
+         */
+        private CompactGraph removeDuplicates(int[] offsets, int[] targets, double[] weights) {
+            int[] lastSeen = new int[roomCount];
+            Arrays.fill(lastSeen, -1);
+            int[] newOffsets = new int[roomCount + 1];
+            int write = 0;
+            for (int source = 0; source < roomCount; source++) {
+                int rowStart = write;
+                for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+                    int target = targets[edge];
+                    if (lastSeen[target] >= rowStart) {
+                        weights[lastSeen[target]] = weights[edge];
+                    } else {
+                        lastSeen[target] = write;
+                        targets[write] = target;
+                        weights[write] = weights[edge];
+                        write++;
+                    }
+                }
+                newOffsets[source + 1] = write;
+            }
+            return new CompactGraph(Arrays.copyOf(rooms, roomCount), newOffsets,
+                    Arrays.copyOf(targets, write), Arrays.copyOf(weights, write));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package hospital.graph;
+
+import java.util.Arrays;
+
+/**
+ * The DistanceQueue class is a binary min-heap of room indexes keyed by their tentative distance.
+ * It is used by the shortest path searches of the compact graph.
+ * Distances are never decreased in place, a room is pushed again instead and the stale entry
+ * is skipped by the caller when it is polled.
+ */
+final class DistanceQueue {
+    /**
+     * The distances of the entries, in heap order
+     */
+    private double[] distances;
+    /**
+     * The room indexes of the entries, in heap order
+     */
+    private int[] rooms;
+    /**
+     * The number of entries
+     */
+    private int size;
+
+    /**
+     * Constructor of the class DistanceQueue
+     *
+     * @param capacity the initial number of entries
+     */
+    DistanceQueue(int capacity) {
+        this.distances = new double[Math.max(capacity, 4)];
+        this.rooms = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Check if the queue is empty
+     *
+     * @return true if the queue has no entries, false otherwise
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a room to the queue
+     *
+     * @param room     the room index
+     * @param distance the tentative distance of the room
+     */
+    void push(int room, double distance) {
+        if (size == rooms.length) {
+            rooms = Arrays.copyOf(rooms, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] <= distance) {
+                break;
+            }
+            rooms[i] = rooms[parent];
+            distances[i] = distances[parent];
+            i = parent;
+        }
+        rooms[i] = room;
+        distances[i] = distance;
+    }
+
+    /**
+     * Remove the room with the smallest distance from the queue
+     *
+     * @return the room index
+     */
+    int poll() {
+        int top = rooms[0];
+        size--;
+        int room = rooms[size];
+        double distance = distances[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && distances[child + 1] < distances[child]) {
+                child++;
+            }
+            if (distances[child] >= distance) {
+                break;
+            }
+            rooms[i] = rooms[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        rooms[i] = room;
+        distances[i] = distance;
+        return top;
+    }
+}
@@ -0,0 +1,154 @@
+package hospital.graph;
+
+import hospital.enums.TypeOfRoom;
+
+import java.util.Arrays;
+
+/**
+ * The EvacuationField class holds, for every room of a map, the nearest exit, the distance to it and
+ * the next room to move to on the way there.
+ * It is computed with a single multi-source Dijkstra search that starts from every exit at once and
+ * walks the edges backwards, so building it costs O(E log V) and an evacuation route is read back
+ * in O(path length).
+ */
+public final class EvacuationField {
+    /**
+     * The map the field was computed for
+     */
+    private final CompactGraph graph;
+    /**
+     * The distance from every room to its nearest exit
+     */
+    private final double[] distances;
+    /**
+     * The next room on the way to the nearest exit, -1 for exits and rooms with no way out
+     */
+    private final int[] nextHops;
+    /**
+     * The nearest exit of every room, -1 for rooms with no way out
+     */
+    private final int[] nearestExits;
+
+    /**
+     * Constructor of the class EvacuationField
+     *
+     * @param graph        the map
+     * @param distances    the distance of every room to its nearest exit
+     * @param nextHops     the next room of every room
+     * @param nearestExits the nearest exit of every room
+     */
+    private EvacuationField(CompactGraph graph, double[] distances, int[] nextHops, int[] nearestExits) {
+        this.graph = graph;
+        this.distances = distances;
+        this.nextHops = nextHops;
+        this.nearestExits = nearestExits;
+    }
+
+    /**
+     * Computes the evacuation field of a map, every room of type {@link TypeOfRoom#EXIT} is an exit
+     *
+     * @param graph the map
+     * @return the evacuation field
+     */
+    public static EvacuationField compute(CompactGraph graph) {
+        int size = graph.size();
+        CompactGraph reversed = graph.reverse();
+        double[] distances = new double[size];
+        int[] nextHops = new int[size];
+        int[] nearestExits = new int[size];
+        boolean[] settled = new boolean[size];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextHops, -1);
+        Arrays.fill(nearestExits, -1);
+
+        DistanceQueue queue = new DistanceQueue(size);
+        for (int i = 0; i < size; i++) {
+            if (graph.getRoom(i).getType() == TypeOfRoom.EXIT) {
+                distances[i] = 0;
+                nearestExits[i] = i;
+                queue.push(i, 0);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int room = queue.poll();
+            if (settled[room]) {
+                continue;
+            }
+            settled[room] = true;
+            // a reversed edge room -> previous is the original edge previous -> room
+            for (int edge = reversed.firstEdge(room); edge < reversed.endEdge(room); edge++) {
+                int previous = reversed.target(edge);
+                double distance = distances[room] + reversed.weight(edge);
+                if (distance < distances[previous]) {
+                    distances[previous] = distance;
+                    nextHops[previous] = room;
+                    nearestExits[previous] = nearestExits[room];
+                    queue.push(previous, distance);
+                }
+            }
+        }
+        return new EvacuationField(graph, distances, nextHops, nearestExits);
+    }
+
+    /**
+     * Get the map the field was computed for
+     *
+     * @return the map
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Get the distance from a room to its nearest exit
+     *
+     * @param index the room index
+     * @return the distance, infinity if no exit can be reached
+     */
+    public double distance(int index) {
+        return distances[index];
+    }
+
+    /**
+     * Get the nearest exit of a room
+     *
+     * @param index the room index
+     * @return the exit index, or -1 if no exit can be reached
+     */
+    public int nearestExit(int index) {
+        return nearestExits[index];
+    }
+
+    /**
+     * Get the next room to move to from a room on the way to its nearest exit
+     *
+     * @param index the room index
+     * @return the next room index, or -1 if the room is an exit or no exit can be reached
+     */
+    public int nextHop(int index) {
+        return nextHops[index];
+    }
+
+    /**
+     * Get the route from a room to its nearest exit
+     *
+     * @param index the room index
+     * @return the room indexes of the route, both ends included, or an empty array if no exit can be reached
+     */
+    public int[] routeToExit(int index) {
+        if (nearestExits[index] < 0) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int room = index; nextHops[room] >= 0; room = nextHops[room]) {
+            length++;
+        }
+        int[] route = new int[length];
+        int room = index;
+        for (int i = 0; i < length; i++) {
+            route[i] = room;
+            room = nextHops[room];
+        }
+        return route;
+    }
+}
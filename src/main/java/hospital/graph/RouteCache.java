@@ -0,0 +1,270 @@
+package hospital.graph;
+
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RouteCache class keeps the most recently used routes, keyed by their start room, end room and the
+ * function of the person moving, if any.
+ * <p>
+ * The routes are spread over segments by key, every segment is a map in access order guarded by its own
+ * monitor, so threads asking for different routes rarely wait for each other, and a full segment drops its
+ * least recently used route. Every route is stored with the version of the map it was found on; a segment
+ * that is read or written with a newer version forgets all its routes first, so a change of the map or of
+ * the access to its rooms only costs a version increment.
+ */
+public class RouteCache {
+    /**
+     * The number of segments
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * The segments of the cache
+     */
+    private final Segment[] segments;
+    /**
+     * The largest number of routes the cache holds
+     */
+    private final int capacity;
+    /**
+     * The number of lookups that found a route
+     */
+    private final LongAdder hits;
+    /**
+     * The number of lookups that found no route
+     */
+    private final LongAdder misses;
+    /**
+     * The number of routes dropped to make room for others
+     */
+    private final LongAdder evictions;
+
+    /**
+     * Constructor of the class RouteCache
+     *
+     * @param capacity the largest number of routes the cache holds
+     */
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The route cache must hold at least one route");
+        }
+        this.capacity = capacity;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        int segmentCount = Math.min(SEGMENTS, capacity);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the capacity is split so that the segments add up to it
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Get a cached route
+     *
+     * @param version  the current version of the map
+     * @param from     the ID of the start room
+     * @param to       the ID of the end room
+     * @param function the function of the person moving, or null for a route through any room
+     * @return the route, or null if it is not cached for this version of the map
+     */
+    public Route get(long version, int from, int to, TypeOfFunction function) {
+        Key key = new Key(from, to, function);
+        Segment segment = segment(key);
+        Route route;
+        synchronized (segment) {
+            segment.forgetOlderThan(version);
+            route = segment.get(key);
+        }
+        if (route == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return route;
+    }
+
+    /**
+     * Cache a route
+     *
+     * @param version  the version of the map the route was found on
+     * @param from     the ID of the start room
+     * @param to       the ID of the end room
+     * @param function the function of the person moving, or null for a route through any room
+     * @param route    the route
+     */
+    public void put(long version, int from, int to, TypeOfFunction function, Route route) {
+        Key key = new Key(from, to, function);
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.forgetOlderThan(version);
+            // a route found on a map that changed since is never read again
+            if (version == segment.version) {
+                segment.put(key, route);
+            }
+        }
+    }
+
+    /**
+     * Get the segment of a key
+     *
+     * @param key the key
+     * @return the segment
+     */
+    private Segment segment(Key key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ hash >>> 16) & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Get the largest number of routes the cache holds
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of cached routes, including the ones of older versions not forgotten yet
+     *
+     * @return the number of routes
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of lookups that found a route
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that found no route
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of routes dropped to make room for others
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the share of lookups that found a route
+     *
+     * @return the hit rate, between 0 and 1, 0 if there was no lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "Route cache: " + size() + "/" + capacity + " routes, " + getHits() + " hits, " + getMisses() +
+                " misses, " + getEvictions() + " evictions, hit rate " + String.format("%.1f%%", getHitRate() * 100);
+    }
+
+    /**
+     * A route between two rooms
+     *
+     * @param rooms  the rooms of the route, both ends included, empty if the end room cannot be reached
+     * @param weight the weight of the route, infinity if the end room cannot be reached
+     */
+    public record Route(List<Room> rooms, double weight) {
+        /**
+         * Constructor of the record Route, the route is shared by every reader of the cache so its rooms are
+         * kept in an unmodifiable list
+         *
+         * @param rooms  the rooms of the route
+         * @param weight the weight of the route
+         */
+        public Route {
+            rooms = List.copyOf(rooms);
+        }
+    }
+
+    /**
+     * The key of a route
+     *
+     * @param from     the ID of the start room
+     * @param to       the ID of the end room
+     * @param function the function of the person moving, or null
+     */
+    private record Key(int from, int to, TypeOfFunction function) {
+    }
+
+    /**
+     * A map of routes in access order that drops its least recently used route when full.
+     * A segment never leaves its cache and is never serialized, even though LinkedHashMap is Serializable, so
+     * it has no serial version and neither its keys nor its routes are serializable.
+     */
+    @SuppressWarnings("serial")
+    private final class Segment extends LinkedHashMap<Key, Route> {
+        /**
+         * The largest number of routes of the segment
+         */
+        private final int segmentCapacity;
+        /**
+         * The version of the map of the routes of the segment
+         */
+        private long version = Long.MIN_VALUE;
+
+        /**
+         * Constructor of the class Segment
+         *
+         * @param segmentCapacity the largest number of routes of the segment
+         */
+        Segment(int segmentCapacity) {
+            super(16, 0.75f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        /**
+         * Forget every route if the map changed since they were found
+         *
+         * @param current the current version of the map
+         */
+        void forgetOlderThan(long current) {
+            if (current > version) {
+                clear();
+                version = current;
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Route> eldest) {
+            if (size() > segmentCapacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
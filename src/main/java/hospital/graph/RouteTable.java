@@ -0,0 +1,401 @@
+package hospital.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The RouteTable class holds the shortest distance and the first room to move to between every pair of rooms
+ * of a map, so that a route is read by walking the table instead of searching the map.
+ * <p>
+ * Every row is the result of one Dijkstra search from a room, and the rows are computed in parallel on a
+ * fork/join pool. A row takes a float per room for the distances and a short per room for the next hops, or
+ * an int when the map has more rooms than a short can index, so a map of a few thousand rooms fits in tens of
+ * megabytes. The table is immutable; {@link #update(CompactGraph, ForkJoinPool)} compares the map with a
+ * changed map and only searches again from the rooms whose routes the changed edges can affect.
+ */
+public final class RouteTable {
+    /**
+     * The number of rows computed by one task before it stops splitting its range
+     */
+    private static final int ROWS_PER_TASK = 8;
+    /**
+     * The tolerance of a distance read back from its float, relative to the distance
+     */
+    private static final double FLOAT_TOLERANCE = 1e-5;
+
+    /**
+     * The map the table was computed for
+     */
+    private final CompactGraph graph;
+    /**
+     * The distance from every room to every room, by source then target, infinity if there is no route
+     */
+    private final float[][] distances;
+    /**
+     * The next room from every room towards every room, -1 if there is none, null if the hops need ints
+     */
+    private final short[][] shortHops;
+    /**
+     * The next room from every room towards every room, -1 if there is none, null if the hops fit in shorts
+     */
+    private final int[][] intHops;
+    /**
+     * The number of rows searched to build this table
+     */
+    private final int searchedRows;
+
+    /**
+     * Constructor of the class RouteTable
+     *
+     * @param graph        the map
+     * @param distances    the distances by source then target
+     * @param shortHops    the next hops as shorts, or null
+     * @param intHops      the next hops as ints, or null
+     * @param searchedRows the number of rows searched to build the table
+     */
+    private RouteTable(CompactGraph graph, float[][] distances, short[][] shortHops, int[][] intHops,
+                       int searchedRows) {
+        this.graph = graph;
+        this.distances = distances;
+        this.shortHops = shortHops;
+        this.intHops = intHops;
+        this.searchedRows = searchedRows;
+    }
+
+    /**
+     * Computes the route table of a map, searching from every room in parallel
+     *
+     * @param graph the map
+     * @param pool  the pool the searches run on
+     * @return the route table
+     */
+    public static RouteTable compute(CompactGraph graph, ForkJoinPool pool) {
+        int size = graph.size();
+        boolean[] rows = new boolean[size];
+        Arrays.fill(rows, true);
+        RouteTable table = allocate(graph, size, size);
+        pool.invoke(new Rows(table, rows, 0, size));
+        return table;
+    }
+
+    /**
+     * Get the route table of a changed map.
+     * If the rooms of this table kept their indexes in the changed map, the rows of the rooms whose routes
+     * no changed edge can affect are kept, and only the other rows and the rows of new rooms are searched.
+     * Otherwise the whole table is computed again.
+     *
+     * @param changed the changed map
+     * @param pool    the pool the searches run on
+     * @return the route table of the changed map, this table if the map is the same
+     */
+    public RouteTable update(CompactGraph changed, ForkJoinPool pool) {
+        if (changed == graph) {
+            return this;
+        }
+        int oldSize = graph.size();
+        int size = changed.size();
+        if (size < oldSize || (shortHops == null) != (size > Short.MAX_VALUE)) {
+            return compute(changed, pool);
+        }
+        for (int i = 0; i < oldSize; i++) {
+            if (changed.getRoom(i) != graph.getRoom(i)) {
+                return compute(changed, pool);
+            }
+        }
+
+        boolean[] rows = new boolean[size];
+        Arrays.fill(rows, oldSize, size, true);
+        markChangedRoutes(changed, rows);
+
+        int searched = 0;
+        for (boolean row : rows) {
+            if (row) {
+                searched++;
+            }
+        }
+        RouteTable table = allocate(changed, size, searched);
+        for (int source = 0; source < size; source++) {
+            if (rows[source]) {
+                continue;
+            }
+            table.distances[source] = Arrays.copyOf(distances[source], size);
+            Arrays.fill(table.distances[source], oldSize, size, Float.POSITIVE_INFINITY);
+            if (shortHops != null) {
+                table.shortHops[source] = Arrays.copyOf(shortHops[source], size);
+                Arrays.fill(table.shortHops[source], oldSize, size, (short) -1);
+            } else {
+                table.intHops[source] = Arrays.copyOf(intHops[source], size);
+                Arrays.fill(table.intHops[source], oldSize, size, -1);
+            }
+        }
+        pool.invoke(new Rows(table, rows, 0, size));
+        return table;
+    }
+
+    /**
+     * Mark the rows of this table whose routes an edge of a changed map can affect.
+     * A row is affected by a new or shorter edge that gives a shorter route than the row holds, and by a
+     * removed or longer edge that lies on a shortest route of the row.
+     *
+     * @param changed the changed map, whose first rooms are the rooms of this table
+     * @param rows    the rows to search, marked in place
+     */
+    private void markChangedRoutes(CompactGraph changed, boolean[] rows) {
+        int oldSize = graph.size();
+        double[] oldWeights = new double[changed.size()];
+        Arrays.fill(oldWeights, Double.NaN);
+        for (int room = 0; room < changed.size(); room++) {
+            if (room < oldSize) {
+                for (int edge = graph.firstEdge(room); edge < graph.endEdge(room); edge++) {
+                    oldWeights[graph.target(edge)] = graph.weight(edge);
+                }
+            }
+            for (int edge = changed.firstEdge(room); edge < changed.endEdge(room); edge++) {
+                int target = changed.target(edge);
+                double weight = changed.weight(edge);
+                double oldWeight = oldWeights[target];
+                oldWeights[target] = Double.NaN;
+                if (Double.isNaN(oldWeight) || weight < oldWeight) {
+                    markShorterEdge(room, target, weight, rows);
+                } else if (weight > oldWeight) {
+                    markLongerEdge(room, target, oldWeight, rows);
+                }
+            }
+            if (room < oldSize) {
+                // the edges left unmatched were removed
+                for (int edge = graph.firstEdge(room); edge < graph.endEdge(room); edge++) {
+                    int target = graph.target(edge);
+                    if (!Double.isNaN(oldWeights[target])) {
+                        markLongerEdge(room, target, oldWeights[target], rows);
+                        oldWeights[target] = Double.NaN;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark the rows in which a new or shorter edge gives a shorter route to its target
+     *
+     * @param from   the room the edge leaves
+     * @param to     the room the edge leads to
+     * @param weight the new weight of the edge
+     * @param rows   the rows to search, marked in place
+     */
+    private void markShorterEdge(int from, int to, double weight, boolean[] rows) {
+        if (from >= graph.size()) {
+            // the rows that reach a new room are marked by the edges that enter it
+            return;
+        }
+        for (int source = 0; source < graph.size(); source++) {
+            float[] row = distances[source];
+            double current = to < row.length ? row[to] : Double.POSITIVE_INFINITY;
+            if (!rows[source] && row[from] + weight < current) {
+                rows[source] = true;
+            }
+        }
+    }
+
+    /**
+     * Mark the rows in which a removed or longer edge lies on a shortest route
+     *
+     * @param from      the room the edge leaves
+     * @param to        the room the edge leads to
+     * @param oldWeight the weight the edge had in this table
+     * @param rows      the rows to search, marked in place
+     */
+    private void markLongerEdge(int from, int to, double oldWeight, boolean[] rows) {
+        for (int source = 0; source < graph.size(); source++) {
+            float[] row = distances[source];
+            if (!rows[source] && row[from] != Float.POSITIVE_INFINITY
+                    && row[from] + oldWeight <= row[to] + FLOAT_TOLERANCE * Math.max(1, row[to])) {
+                rows[source] = true;
+            }
+        }
+    }
+
+    /**
+     * Get the map the table was computed for
+     *
+     * @return the map
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Get the number of rows searched to build this table, every row for a computed table
+     *
+     * @return the number of rows searched
+     */
+    public int getSearchedRows() {
+        return searchedRows;
+    }
+
+    /**
+     * Get the distance of the shortest route between two rooms
+     *
+     * @param source the source room index
+     * @param target the target room index
+     * @return the distance, rounded to a float, infinity if there is no route
+     */
+    public double distance(int source, int target) {
+        return distances[source][target];
+    }
+
+    /**
+     * Get the next room to move to from a room towards another
+     *
+     * @param source the room index
+     * @param target the target room index
+     * @return the next room index, or -1 if the rooms are the same or there is no route
+     */
+    public int nextHop(int source, int target) {
+        return shortHops != null ? shortHops[source][target] : intHops[source][target];
+    }
+
+    /**
+     * Get the shortest route between two rooms by walking the next hops
+     *
+     * @param source the source room index
+     * @param target the target room index
+     * @return the room indexes of the route, both ends included, or an empty array if there is no route
+     */
+    public int[] findShortestPath(int source, int target) {
+        if (distances[source][target] == Float.POSITIVE_INFINITY) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int room = source; room != target; room = nextHop(room, target)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int room = source;
+        for (int i = 0; i < length; i++) {
+            path[i] = room;
+            room = nextHop(room, target);
+        }
+        return path;
+    }
+
+    /**
+     * Create an empty table for a map, with no rows
+     *
+     * @param graph        the map
+     * @param size         the number of rooms of the map
+     * @param searchedRows the number of rows that will be searched
+     * @return the table
+     */
+    private static RouteTable allocate(CompactGraph graph, int size, int searchedRows) {
+        boolean shorts = size <= Short.MAX_VALUE;
+        return new RouteTable(graph, new float[size][], shorts ? new short[size][] : null,
+                shorts ? null : new int[size][], searchedRows);
+    }
+
+    /**
+     * Search the map from a room and store the row of the room
+     *
+     * @param source the source room index
+     */
+    private void computeRow(int source) {
+        int size = graph.size();
+        int[] previous = new int[size];
+        double[] searched = graph.shortestDistances(source, previous);
+
+        // the next hop towards a room is the room of its route whose previous room is the source
+        int[] hops = new int[size];
+        Arrays.fill(hops, -2);
+        hops[source] = -1;
+        int[] chain = new int[size];
+        for (int room = 0; room < size; room++) {
+            if (hops[room] != -2) {
+                continue;
+            }
+            if (searched[room] == Double.POSITIVE_INFINITY) {
+                hops[room] = -1;
+                continue;
+            }
+            int length = 0;
+            int current = room;
+            while (hops[current] == -2 && previous[current] != source) {
+                chain[length++] = current;
+                current = previous[current];
+            }
+            int hop = hops[current] == -2 ? current : hops[current];
+            hops[current] = hop;
+            for (int i = 0; i < length; i++) {
+                hops[chain[i]] = hop;
+            }
+        }
+
+        float[] row = new float[size];
+        for (int room = 0; room < size; room++) {
+            row[room] = (float) searched[room];
+        }
+        distances[source] = row;
+        if (shortHops != null) {
+            short[] shortRow = new short[size];
+            for (int room = 0; room < size; room++) {
+                shortRow[room] = (short) hops[room];
+            }
+            shortHops[source] = shortRow;
+        } else {
+            intHops[source] = hops;
+        }
+    }
+
+    /**
+     * The task that computes the marked rows of a range, splitting the range in halves.
+     * The task only lives for one invocation on a pool and is never serialized, even though ForkJoinTask is
+     * Serializable, so it has no serial version and its fields are not serializable.
+     */
+    @SuppressWarnings("serial")
+    private static final class Rows extends RecursiveAction {
+        /**
+         * The table the rows are stored into
+         */
+        private final RouteTable table;
+        /**
+         * The rows to compute
+         */
+        private final boolean[] rows;
+        /**
+         * The first row of the range
+         */
+        private final int from;
+        /**
+         * The end of the range, exclusive
+         */
+        private final int to;
+
+        /**
+         * Constructor of the class Rows
+         *
+         * @param table the table the rows are stored into
+         * @param rows  the rows to compute
+         * @param from  the first row of the range
+         * @param to    the end of the range, exclusive
+         */
+        Rows(RouteTable table, boolean[] rows, int from, int to) {
+            this.table = table;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int source = from; source < to; source++) {
+                    if (rows[source]) {
+                        table.computeRow(source);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Rows(table, rows, from, middle), new Rows(table, rows, middle, to));
+        }
+    }
+}
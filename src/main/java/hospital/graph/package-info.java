@@ -0,0 +1,4 @@
+/**
+ * This package contains the graph structures and algorithms used to navigate the hospital map.
+ */
+package hospital.graph;
@@ -0,0 +1,82 @@
+package hospital.io;
+
+import java.util.Arrays;
+
+/**
+ * The EdgeRecords class holds the edges read from a map file in parallel arrays, in file order.
+ */
+final class EdgeRecords {
+    /**
+     * The id of the first room of every edge
+     */
+    private int[] roomIds1 = new int[64];
+    /**
+     * The id of the second room of every edge
+     */
+    private int[] roomIds2 = new int[64];
+    /**
+     * The weight of every edge
+     */
+    private double[] weights = new double[64];
+    /**
+     * The number of edges
+     */
+    private int size;
+
+    /**
+     * Add an edge after the ones already added
+     *
+     * @param roomId1 the id of the first room
+     * @param roomId2 the id of the second room
+     * @param weight  the weight
+     */
+    void add(int roomId1, int roomId2, double weight) {
+        if (size == roomIds1.length) {
+            roomIds1 = Arrays.copyOf(roomIds1, size * 2);
+            roomIds2 = Arrays.copyOf(roomIds2, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        roomIds1[size] = roomId1;
+        roomIds2[size] = roomId2;
+        weights[size++] = weight;
+    }
+
+    /**
+     * Get the number of edges
+     *
+     * @return the number of edges
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the id of the first room of an edge
+     *
+     * @param index the position of the edge
+     * @return the room id
+     */
+    int roomId1(int index) {
+        return roomIds1[index];
+    }
+
+    /**
+     * Get the id of the second room of an edge
+     *
+     * @param index the position of the edge
+     * @return the room id
+     */
+    int roomId2(int index) {
+        return roomIds2[index];
+    }
+
+    /**
+     * Get the weight of an edge
+     *
+     * @param index the position of the edge
+     * @return the weight
+     */
+    double weight(int index) {
+        return weights[index];
+    }
+}
@@ -0,0 +1,111 @@
+package hospital.io;
+
+import hospital.collections.IntList;
+import hospital.collections.LongList;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * The EventRecords class holds events read from a file as ids and times, before they are resolved
+ * against the people and rooms of a hospital.
+ * Everything is kept in primitive arrays, so a chunk of records costs a few bytes per event until it is applied.
+ */
+final class EventRecords {
+    /**
+     * The person id of every event
+     */
+    private final IntList personIds = new IntList(64);
+    /**
+     * The origin room id of every event
+     */
+    private final IntList fromRoomIds = new IntList(64);
+    /**
+     * The destination room id of every event
+     */
+    private final IntList toRoomIds = new IntList(64);
+    /**
+     * The time of every event, in seconds since the epoch
+     */
+    private final LongList seconds = new LongList(64);
+    /**
+     * The nanoseconds of the time of every event
+     */
+    private final IntList nanos = new IntList(64);
+
+    /**
+     * Add an event after the ones already added
+     *
+     * @param personId   the id of the person that moved
+     * @param fromRoomId the id of the room the person came from
+     * @param toRoomId   the id of the room the person went to
+     * @param time       the time of the event
+     */
+    void add(int personId, int fromRoomId, int toRoomId, LocalDateTime time) {
+        personIds.add(personId);
+        fromRoomIds.add(fromRoomId);
+        toRoomIds.add(toRoomId);
+        seconds.add(time.toEpochSecond(ZoneOffset.UTC));
+        nanos.add(time.getNano());
+    }
+
+    /**
+     * Remove every event, keeping the arrays
+     */
+    void clear() {
+        personIds.clear();
+        fromRoomIds.clear();
+        toRoomIds.clear();
+        seconds.clear();
+        nanos.clear();
+    }
+
+    /**
+     * Get the number of events
+     *
+     * @return the number of events
+     */
+    int size() {
+        return personIds.size();
+    }
+
+    /**
+     * Get the person id of an event
+     *
+     * @param index the position of the event
+     * @return the person id
+     */
+    int personId(int index) {
+        return personIds.get(index);
+    }
+
+    /**
+     * Get the origin room id of an event
+     *
+     * @param index the position of the event
+     * @return the room id
+     */
+    int fromRoomId(int index) {
+        return fromRoomIds.get(index);
+    }
+
+    /**
+     * Get the destination room id of an event
+     *
+     * @param index the position of the event
+     * @return the room id
+     */
+    int toRoomId(int index) {
+        return toRoomIds.get(index);
+    }
+
+    /**
+     * Get the time of an event
+     *
+     * @param index the position of the event
+     * @return the time
+     */
+    LocalDateTime time(int index) {
+        return LocalDateTime.ofEpochSecond(seconds.get(index), nanos.get(index), ZoneOffset.UTC);
+    }
+}
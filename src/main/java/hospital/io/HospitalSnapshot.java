@@ -0,0 +1,371 @@
+package hospital.io;
+
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.collections.IntIntMap;
+import hospital.collections.IntList;
+import hospital.collections.IntObjectMap;
+import hospital.collections.IntSet;
+import hospital.concurrent.RoomLocks;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventColumns;
+import hospital.events.EventLog;
+import hospital.events.EventTimeline;
+import hospital.graph.CompactGraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The HospitalSnapshot class saves the whole state of a hospital in a compact binary file and loads it back.
+ * <p>
+ * A snapshot holds the rooms with their access lists, the edges of the map, the people with the rooms they
+ * are in, the activity of every person and the order of the events of every room. Rooms are referenced by
+ * their index in the map and events by their position in the snapshot, so loading is a sequence of bulk
+ * reads that never looks anything up. The snapshot also records the last event log sequence number it
+ * contains, so that only the events logged after it have to be replayed.
+ */
+public class HospitalSnapshot {
+    /**
+     * The name of the snapshot file
+     */
+    public static final String SNAPSHOT_FILE = "hospital.snapshot";
+    /**
+     * The value that identifies a snapshot file, "HSNP"
+     */
+    private static final int MAGIC = 0x48534e50;
+    /**
+     * The version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The size of the stream buffers in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The loaded hospital
+     */
+    private final Hospital hospital;
+    /**
+     * The last event log sequence number contained in the snapshot
+     */
+    private final long sequence;
+
+    /**
+     * Constructor of the class HospitalSnapshot
+     *
+     * @param hospital the loaded hospital
+     * @param sequence the last event log sequence number contained in the snapshot
+     */
+    private HospitalSnapshot(Hospital hospital, long sequence) {
+        this.hospital = hospital;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Get the loaded hospital
+     *
+     * @return the hospital
+     */
+    public Hospital getHospital() {
+        return hospital;
+    }
+
+    /**
+     * Get the last event log sequence number contained in the snapshot
+     *
+     * @return the sequence number, 0 if the hospital had no event log
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Saves a snapshot of a hospital and checkpoints its event log, so the log only keeps newer events.
+     * Events are not applied while the snapshot is written.
+     *
+     * @param hospital The hospital to save
+     * @param file     The snapshot file
+     * @throws IOException If the snapshot or the event log cannot be written
+     */
+    public static void checkpoint(Hospital hospital, Path file) throws IOException {
+        EventLog eventLog = hospital.getEventLog();
+        long sequence;
+        // with every room locked, every logged event is applied and no other event can be
+        RoomLocks locks = hospital.getRoomLocks();
+        locks.lockAll();
+        try {
+            sequence = eventLog == null ? 0 : eventLog.lastSequence();
+            write(hospital, sequence, file);
+        } finally {
+            locks.unlockAll();
+        }
+        if (eventLog != null) {
+            eventLog.checkpoint(sequence);
+        }
+    }
+
+    /**
+     * Writes a snapshot of a hospital.
+     * The snapshot is written to a temporary file that replaces the previous snapshot only once complete.
+     *
+     * @param hospital The hospital to save
+     * @param sequence The last event log sequence number applied to the hospital
+     * @param file     The snapshot file
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(Hospital hospital, long sequence, Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+            writeHospital(hospital, sequence, out);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file The snapshot file
+     * @return The snapshot, with the loaded hospital
+     * @throws IOException If the snapshot cannot be read or is not a snapshot
+     */
+    public static HospitalSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file.toFile()), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a hospital snapshot: " + file);
+            }
+            return readHospital(in);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted hospital snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Write the state of a hospital
+     *
+     * @param hospital the hospital
+     * @param sequence the last event log sequence number applied to the hospital
+     * @param out      the stream
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeHospital(Hospital hospital, long sequence, DataOutputStream out) throws IOException {
+        CompactGraph map = hospital.getHospitalMap();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sequence);
+
+        out.writeInt(map.size());
+        for (int i = 0; i < map.size(); i++) {
+            Room room = map.getRoom(i);
+            out.writeInt(room.getId());
+            writeString(out, room.getName());
+            writeString(out, room.getType() == null ? null : room.getType().name());
+            out.writeInt(room.getCapacity());
+            // the people in the room are added back when the snapshot is read, only the others are saved
+            out.writeInt(room.getCurrentOccupation() - room.getPeopleCount());
+            out.writeBoolean(room.isOccupied());
+            UnorderedListADT<TypeOfFunction> access = room.getAccess();
+            out.writeInt(access == null ? 0 : access.size());
+            if (access != null) {
+                for (TypeOfFunction function : access) {
+                    out.writeUTF(function.name());
+                }
+            }
+        }
+
+        out.writeInt(map.edgeCount());
+        for (int i = 0; i < map.size(); i++) {
+            out.writeInt(map.degree(i));
+            for (int e = map.firstEdge(i); e < map.endEdge(i); e++) {
+                out.writeInt(map.target(e));
+                out.writeDouble(map.weight(e));
+            }
+        }
+
+        // every person is in a room, and a person can appear in more than one list
+        List<Person> people = new ArrayList<>();
+        IntSet seen = new IntSet();
+        for (int i = 0; i < map.size(); i++) {
+            for (Person person : map.getRoom(i).getPeopleInRoom()) {
+                if (seen.add(person.getId())) {
+                    people.add(person);
+                }
+            }
+        }
+        out.writeInt(people.size());
+        for (Person person : people) {
+            out.writeInt(person.getId());
+            writeString(out, person.getName());
+            out.writeInt(person.getAge());
+            writeString(out, person.getFunction() == null ? null : person.getFunction().name());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            UnorderedListADT<Person> occupants = map.getRoom(i).getPeopleInRoom();
+            out.writeInt(occupants.size());
+            for (Person person : occupants) {
+                out.writeInt(person.getId());
+            }
+        }
+
+        // the activity of every person, remembering the position of every event offset for the room timelines
+        Map<EventColumns, IntIntMap> positions = new IdentityHashMap<>();
+        int position = 0;
+        for (Person person : people) {
+            int[] activity = person.copyActivityOffsets();
+            EventColumns columns = person.getEventColumns();
+            out.writeInt(activity.length);
+            for (int offset : activity) {
+                out.writeInt(map.indexOf(columns.from(offset).getId()));
+                out.writeInt(map.indexOf(columns.to(offset).getId()));
+                out.writeLong(columns.epochSecond(offset));
+                out.writeInt(columns.nano(offset));
+                positions.computeIfAbsent(columns, c -> new IntIntMap()).put(offset, position++);
+            }
+        }
+        for (int i = 0; i < map.size(); i++) {
+            EventTimeline timeline = map.getRoom(i).getEvents();
+            IntIntMap timelinePositions = positions.get(timeline.getColumns());
+            out.writeInt(timeline.size());
+            for (int t = 0; t < timeline.size(); t++) {
+                int eventPosition = timelinePositions == null ? -1
+                        : timelinePositions.getOrDefault(timeline.offsetAt(t), -1);
+                if (eventPosition < 0) {
+                    throw new IOException("The event " + timeline.get(t) + " is not in the activity of its person");
+                }
+                out.writeInt(eventPosition);
+            }
+        }
+    }
+
+    /**
+     * Read the state of a hospital
+     *
+     * @param in the stream, after the magic value and the version
+     * @return the snapshot
+     * @throws IOException if the stream cannot be read
+     */
+    private static HospitalSnapshot readHospital(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+
+        int roomCount = in.readInt();
+        Room[] rooms = new Room[roomCount];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < roomCount; i++) {
+            int id = in.readInt();
+            String name = readString(in);
+            String type = readString(in);
+            int capacity = in.readInt();
+            int currentOccupation = in.readInt();
+            boolean occupied = in.readBoolean();
+            UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
+            int accessCount = in.readInt();
+            for (int a = 0; a < accessCount; a++) {
+                access.addToRear(TypeOfFunction.valueOf(in.readUTF()));
+            }
+            rooms[i] = new Room(id, access, currentOccupation, occupied, capacity,
+                    type == null ? null : TypeOfRoom.valueOf(type), name);
+            builder.addRoom(rooms[i]);
+        }
+
+        in.readInt();
+        for (int i = 0; i < roomCount; i++) {
+            int degree = in.readInt();
+            for (int e = 0; e < degree; e++) {
+                builder.addEdge(rooms[i].getId(), rooms[in.readInt()].getId(), in.readDouble());
+            }
+        }
+
+        int personCount = in.readInt();
+        Person[] people = new Person[personCount];
+        IntObjectMap<Person> peopleById = new IntObjectMap<>(personCount);
+        for (int p = 0; p < personCount; p++) {
+            int id = in.readInt();
+            String name = readString(in);
+            int age = in.readInt();
+            String function = readString(in);
+            people[p] = new Person(id, name, age, function == null ? null : TypeOfFunction.valueOf(function));
+            peopleById.put(id, people[p]);
+        }
+        for (Room room : rooms) {
+            int occupants = in.readInt();
+            for (int o = 0; o < occupants; o++) {
+                room.addPerson(peopleById.get(in.readInt()));
+            }
+        }
+
+        // the events go straight into the columns of the hospital, the timelines and activities share them
+        Hospital hospital = new Hospital();
+        EventColumns columns = hospital.getEventColumns();
+        IntList offsets = new IntList();
+        for (Person person : people) {
+            int activityCount = in.readInt();
+            for (int a = 0; a < activityCount; a++) {
+                Room from = rooms[in.readInt()];
+                Room to = rooms[in.readInt()];
+                LocalDateTime time = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+                int offset = columns.add(person, from, to, time);
+                person.addActivity(columns, offset);
+                offsets.add(offset);
+            }
+        }
+        for (Room room : rooms) {
+            int timelineCount = in.readInt();
+            EventTimeline timeline = room.getEvents();
+            for (int t = 0; t < timelineCount; t++) {
+                timeline.add(columns, offsets.get(in.readInt()));
+            }
+        }
+
+        hospital.setHospitalMap(builder.build());
+        return new HospitalSnapshot(hospital, sequence);
+    }
+
+    /**
+     * Write a string that may be null
+     *
+     * @param out   the stream
+     * @param value the string
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read a string that may be null
+     *
+     * @param in the stream
+     * @return the string
+     * @throws IOException if the stream cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,484 @@
+package hospital.io;
+
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.exceptions.ImportException;
+import hospital.graph.CompactGraph;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The ImportPipeline class loads a hospital from its JSON files using every core.
+ * <p>
+ * The rooms, people, map and events files do not depend on each other to be parsed, so they are parsed at
+ * the same time on a worker pool. The events file, whatever its size, is split at evenly spaced positions into
+ * chunks that are parsed in parallel too: every worker reads its own range with positional reads and moves
+ * its ends to the next event boundaries itself, so no thread scans the whole file first. A boundary is
+ * recognised by its bytes alone, so a string holding the same bytes could mislead it; if a chunk cannot be
+ * parsed, the file is parsed again as a single stream, which reports the error if the file is really
+ * malformed. Parsing produces plain records, which are then merged into the hospital on the calling thread
+ * in file order, so the result is the same as the sequential import whatever the number of threads.
+ */
+public class ImportPipeline {
+    /**
+     * The number of event chunks created for every worker, so that uneven chunks still balance
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /**
+     * The smallest events file worth splitting, in bytes
+     */
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+    /**
+     * The number of bytes read at once from the events file
+     */
+    private static final int BLOCK_BYTES = 1 << 16;
+    /**
+     * The number of bytes read before a split position to recognise the event boundary after it
+     */
+    private static final int RESYNC_LOOKBACK_BYTES = 256;
+
+    /**
+     * The number of worker threads
+     */
+    private final int threads;
+
+    /**
+     * Constructor of the class ImportPipeline, with one worker per available core
+     */
+    public ImportPipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of the class ImportPipeline
+     *
+     * @param threads the number of worker threads
+     */
+    public ImportPipeline(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Loads a hospital from its JSON files.
+     *
+     * @param mapFile    The name of the map file
+     * @param roomsFile  The name of the rooms file
+     * @param peopleFile The name of the people file
+     * @param eventsFile The name of the events file
+     * @return The hospital, with the map, the people in the first room and the events applied
+     * @throws ImportException If a file cannot be read or parsed
+     */
+    public Hospital load(String mapFile, String roomsFile, String peopleFile, String eventsFile)
+            throws ImportException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            Future<List<Room>> rooms = workers.submit(() -> JsonHandler.readRooms(roomsFile));
+            Future<List<Person>> people = workers.submit(() -> JsonHandler.readPeople(peopleFile));
+            Future<EdgeRecords> edges = workers.submit(() -> JsonHandler.readEdges(mapFile));
+            List<Future<EventRecords>> events = submitEventChunks(workers, eventsFile);
+
+            Hospital hospital = new Hospital();
+            CompactGraph map = JsonHandler.assembleMap(await(rooms), await(people), await(edges), roomsFile, mapFile);
+            hospital.setHospitalMap(map);
+            List<EventRecords> chunks = new ArrayList<>(events.size());
+            try {
+                for (Future<EventRecords> chunk : events) {
+                    chunks.add(await(chunk));
+                }
+            } catch (ImportException e) {
+                // a boundary recognised inside a string, or a malformed file that the stream reports
+                chunks.clear();
+                chunks.add(parseStream(eventsFile));
+            }
+            // batches of the same size as the sequential import, so the batches do not depend on the chunks
+            EventRecords batch = new EventRecords();
+            for (EventRecords records : chunks) {
+                for (int i = 0; i < records.size(); i++) {
+                    batch.add(records.personId(i), records.fromRoomId(i), records.toRoomId(i), records.time(i));
+                    if (batch.size() == JsonHandler.EVENT_BATCH_SIZE) {
+                        JsonHandler.applyEventRecords(hospital, batch);
+                        batch.clear();
+                    }
+                }
+            }
+            JsonHandler.applyEventRecords(hospital, batch);
+            return hospital;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Split an events file into chunks and submit the parsing of every chunk.
+     * Only the brackets of the array are found here; every worker finds the first element of its chunk and of
+     * the next one itself, by reading a few bytes around the evenly spaced split positions.
+     *
+     * @param workers    the worker pool
+     * @param eventsFile the name of the events file
+     * @return the parsed chunks in file order
+     * @throws ImportException if the file cannot be read or is not an array
+     */
+    private List<Future<EventRecords>> submitEventChunks(ExecutorService workers, String eventsFile)
+            throws ImportException {
+        Path path = Path.of(eventsFile);
+        long open;
+        long close;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            open = skipWhitespace(channel, 0, channel.size());
+            close = trimWhitespace(channel, open, channel.size()) - 1;
+            if (open >= channel.size() || readByte(channel, open) != '[') {
+                throw new IOException("Expected an array of events");
+            }
+            if (close <= open || readByte(channel, close) != ']') {
+                throw new IOException("Unterminated array of events");
+            }
+        } catch (IOException e) {
+            throw new ImportException("Error reading the file: " + eventsFile, e);
+        }
+
+        long length = close - open - 1;
+        int chunkCount = (int) Math.max(1, Math.min(threads * CHUNKS_PER_THREAD, length / MIN_CHUNK_BYTES));
+        List<Future<EventRecords>> parsed = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            long from = open + 1 + length * i / chunkCount;
+            long to = open + 1 + length * (i + 1) / chunkCount;
+            boolean first = i == 0;
+            boolean last = i == chunkCount - 1;
+            parsed.add(workers.submit(() -> parseChunk(path, first ? -1 : from, last ? -1 : to, open, close,
+                    eventsFile)));
+        }
+        return parsed;
+    }
+
+    /**
+     * Find the first element of the top level array of events that starts at or after a position.
+     * An element starts at a brace whose previous bytes other than whitespace are a comma and a closing brace.
+     * The bytes are read from a fixed distance before the position, so the same position always gives the
+     * same element, whichever worker looks for it.
+     *
+     * @param channel the events file
+     * @param from    the position
+     * @param limit   the position of the closing bracket of the array
+     * @return the position of the element, or the limit if no element starts after the position
+     * @throws IOException if the file cannot be read
+     */
+    private static long resync(FileChannel channel, long from, long limit) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+        long position = Math.max(0, from - RESYNC_LOOKBACK_BYTES);
+        byte previous = 0;
+        byte beforePrevious = 0;
+        while (position < limit) {
+            block.clear();
+            block.limit((int) Math.min(BLOCK_BYTES, limit - position));
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte c = block.get(i);
+                if (c == '{' && position + i >= from && previous == ',' && beforePrevious == '}') {
+                    return position + i;
+                }
+                if (!isWhitespace(c)) {
+                    beforePrevious = previous;
+                    previous = c;
+                }
+            }
+            position += read;
+        }
+        return limit;
+    }
+
+    /**
+     * Parse the events of a chunk
+     *
+     * @param path       the events file
+     * @param from       the split position the chunk starts at, -1 for the first chunk
+     * @param to         the split position the next chunk starts at, -1 for the last chunk
+     * @param open       the position of the opening bracket of the array
+     * @param close      the position of the closing bracket of the array
+     * @param eventsFile the name of the events file, for error messages
+     * @return the events of the chunk in file order
+     * @throws ImportException if the chunk cannot be parsed
+     */
+    private static EventRecords parseChunk(Path path, long from, long to, long open, long close,
+                                           String eventsFile) throws ImportException {
+        EventRecords records = new EventRecords();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long start = from < 0 ? open + 1 : resync(channel, from, close);
+            long end = to < 0 ? close : resync(channel, to, close);
+            // drop the separator after the last element, then read the chunk as an array of its own
+            end = trimSeparators(channel, start, end);
+            InputStream array = new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(new byte[]{'['}), new ChannelInputStream(channel, start, end)),
+                    new ByteArrayInputStream(new byte[]{']'}));
+            try (JsonStreamReader reader = new JsonStreamReader(
+                    new InputStreamReader(array, StandardCharsets.UTF_8))) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonHandler.readEventRecord(reader, records);
+                }
+                reader.endArray();
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ImportException("Error parsing events of the file: " + eventsFile, e);
+        }
+        return records;
+    }
+
+    /**
+     * Parse every event of a file as a single stream
+     *
+     * @param eventsFile the name of the events file
+     * @return the events in file order
+     * @throws ImportException if the file cannot be parsed
+     */
+    private static EventRecords parseStream(String eventsFile) throws ImportException {
+        EventRecords records = new EventRecords();
+        try (JsonStreamReader reader = new JsonStreamReader(
+                new InputStreamReader(Files.newInputStream(Path.of(eventsFile)), StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                JsonHandler.readEventRecord(reader, records);
+            }
+            reader.endArray();
+        } catch (IOException | RuntimeException e) {
+            throw new ImportException("Error parsing events of the file: " + eventsFile, e);
+        }
+        return records;
+    }
+
+    /**
+     * Wait for the result of a stage
+     *
+     * @param future the stage
+     * @param <T>    the type of the result
+     * @return the result
+     * @throws ImportException if the stage failed or the thread was interrupted
+     */
+    private static <T> T await(Future<T> future) throws ImportException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ImportException importException) {
+                throw importException;
+            }
+            throw new ImportException("Import failed", e.getCause());
+        }
+    }
+
+    /**
+     * Check if a byte is JSON whitespace
+     *
+     * @param c the byte
+     * @return true if the byte is whitespace
+     */
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Read one byte of a file
+     *
+     * @param channel  the file
+     * @param position the position of the byte
+     * @return the byte
+     * @throws IOException if the file cannot be read
+     */
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        if (channel.read(single, position) < 1) {
+            throw new IOException("Unexpected end of the events file");
+        }
+        return single.get(0);
+    }
+
+    /**
+     * Find the first byte of a range of a file that is not whitespace
+     *
+     * @param channel the file
+     * @param start   the start of the range
+     * @param end     the end of the range
+     * @return the position of the byte, or the end if the range is whitespace
+     * @throws IOException if the file cannot be read
+     */
+    private static long skipWhitespace(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(RESYNC_LOOKBACK_BYTES);
+        while (start < end) {
+            block.clear();
+            block.limit((int) Math.min(block.capacity(), end - start));
+            int read = channel.read(block, start);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (!isWhitespace(block.get(i))) {
+                    return start + i;
+                }
+            }
+            start += read;
+        }
+        return end;
+    }
+
+    /**
+     * Find the end of a range of a file without the whitespace and separators it ends with
+     *
+     * @param channel the file
+     * @param start   the start of the range
+     * @param end     the end of the range
+     * @return the position after the last byte that is neither whitespace nor a comma, or the start
+     * @throws IOException if the file cannot be read
+     */
+    private static long trimSeparators(FileChannel channel, long start, long end) throws IOException {
+        return trim(channel, start, end, true);
+    }
+
+    /**
+     * Find the end of a range of a file without the whitespace it ends with
+     *
+     * @param channel the file
+     * @param start   the start of the range
+     * @param end     the end of the range
+     * @return the position after the last byte that is not whitespace, or the start
+     * @throws IOException if the file cannot be read
+     */
+    private static long trimWhitespace(FileChannel channel, long start, long end) throws IOException {
+        return trim(channel, start, end, false);
+    }
+
+    /**
+     * Find the end of a range of a file without the whitespace, and the commas if asked, it ends with
+     *
+     * @param channel the file
+     * @param start   the start of the range
+     * @param end     the end of the range
+     * @param commas  whether commas are trimmed too
+     * @return the position after the last byte kept, or the start
+     * @throws IOException if the file cannot be read
+     */
+    private static long trim(FileChannel channel, long start, long end, boolean commas) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(RESYNC_LOOKBACK_BYTES);
+        while (end > start) {
+            int length = (int) Math.min(block.capacity(), end - start);
+            block.clear();
+            block.limit(length);
+            while (block.hasRemaining()) {
+                if (channel.read(block, end - length + block.position()) < 0) {
+                    throw new IOException("Unexpected end of the events file");
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                byte c = block.get(i);
+                if (!isWhitespace(c) && !(commas && c == ',')) {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+        return start;
+    }
+
+    /**
+     * An input stream over a range of a file, read with positional reads so that every worker reads its
+     * own range of the file without sharing a position
+     */
+    private static final class ChannelInputStream extends InputStream {
+        /**
+         * The file
+         */
+        private final FileChannel channel;
+        /**
+         * The bytes read from the file and not returned yet
+         */
+        private final ByteBuffer buffer;
+        /**
+         * The position of the next byte to read from the file
+         */
+        private long position;
+        /**
+         * The end of the range
+         */
+        private final long end;
+
+        /**
+         * Constructor of the class ChannelInputStream
+         *
+         * @param channel the file
+         * @param start   the start of the range
+         * @param end     the end of the range
+         */
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BLOCK_BYTES);
+            this.buffer.limit(0);
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * Read the next bytes of the range into the buffer
+         *
+         * @return false if the range is over
+         * @throws IOException if the file cannot be read
+         */
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                throw new IOException("Unexpected end of the events file");
+            }
+            position += read;
+            buffer.flip();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
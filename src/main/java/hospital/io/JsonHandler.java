@@ -1,6 +1,5 @@
 package hospital.io;
 
-import collections.graphs.Network;
 import collections.lists.UnorderedLinkedList;
 import collections.lists.UnorderedListADT;
 import collections.lists.arrayLists.ArrayUnorderedList;
@@ -11,26 +10,53 @@ import hospital.Room;
 import hospital.enums.TypeOfFunction;
 import hospital.enums.TypeOfRoom;
 import hospital.exceptions.ImportException;
+import hospital.graph.CompactGraph;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * The JsonHandler class provides methods to import and export data from and to JSON files.
  */
 public class JsonHandler {
+    /**
+     * The name of the rooms file, expected next to the map file
+     */
+    public static final String ROOMS_FILE = "rooms.json";
+    /**
+     * The name of the people file, expected next to the map file
+     */
+    public static final String PEOPLE_FILE = "people.json";
+    /**
+     * The name of the map file
+     */
+    public static final String MAP_FILE = "map.json";
+    /**
+     * The name of the events file
+     */
+    public static final String EVENTS_FILE = "events.json";
+    /**
+     * The number of events read from a file before they are applied.
+     * Every batch is put in time order on its own, so with an events file out of time order the rooms
+     * people end up in depend on this size, see {@link Hospital#applyEvents(Event[])}.
+     */
+    static final int EVENT_BATCH_SIZE = 4096;
 
     /**
      * Imports room data from a JSON file and adds the rooms to the hospital.
+     * The file is read as a stream, one room at a time.
      *
      * @param filename The name of the file to import
      *
@@ -38,38 +64,14 @@ public class JsonHandler {
      */
     public static UnorderedListADT<Room> importRooms(String filename) {
         UnorderedListADT<Room> rooms = new ArrayUnorderedList<>();
-        JSONParser parser = new JSONParser();
-
-        try (FileReader reader = new FileReader(filename)) {
-
-            Object obj = parser.parse(reader);
-
-            JSONArray roomList = (JSONArray) obj;
-
-            for (Object roomObj : roomList) {
-                JSONObject roomJson = (JSONObject) roomObj;
-
-                int id = ((Long) roomJson.get("id")).intValue();
-                String name = (String) roomJson.get("name");
-                String typeStr = (String) roomJson.get("type");
-                TypeOfRoom type = TypeOfRoom.valueOf(typeStr.toUpperCase());
-                int capacity = ((Long) roomJson.get("capacity")).intValue();
-                int currentOccupation = ((Long) roomJson.get("currentOccupation")).intValue();
-                boolean occupied = (Boolean) roomJson.get("occupied");
 
-                JSONArray accessArray = (JSONArray) roomJson.get("access");
-                UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
-                for (Object accessObj : accessArray) {
-                    String accessStr = (String) accessObj;
-                    access.addToRear(TypeOfFunction.valueOf(accessStr.toUpperCase()));
-                }
-
-                Room room = new Room(id, access, currentOccupation, occupied, capacity, type, name);
-                // hospital.getHospitalMap().addVertex(room);
-                rooms.addToRear(room);
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(filename))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                rooms.addToRear(readRoom(reader));
             }
-
-        } catch (IOException | ParseException e) {
+            reader.endArray();
+        } catch (IOException e) {
             e.printStackTrace();
         }
 
@@ -80,6 +82,45 @@ public class JsonHandler {
         return rooms;
     }
 
+    /**
+     * Reads one room object from a JSON stream.
+     *
+     * @param reader The stream positioned before the room object
+     * @return The room
+     * @throws IOException If the room object is malformed
+     */
+    static Room readRoom(JsonStreamReader reader) throws IOException {
+        int id = 0;
+        String name = null;
+        TypeOfRoom type = null;
+        int capacity = 0;
+        int currentOccupation = 0;
+        boolean occupied = false;
+        UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextInt();
+                case "name" -> name = reader.nextString();
+                case "type" -> type = TypeOfRoom.valueOf(reader.nextString().toUpperCase());
+                case "capacity" -> capacity = reader.nextInt();
+                case "currentOccupation" -> currentOccupation = reader.nextInt();
+                case "occupied" -> occupied = reader.nextBoolean();
+                case "access" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        access.addToRear(TypeOfFunction.valueOf(reader.nextString().toUpperCase()));
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Room(id, access, currentOccupation, occupied, capacity, type, name);
+    }
+
     /**
      * Exports people data to a JSON file.
      *
@@ -113,6 +154,7 @@ public class JsonHandler {
 
     /**
      * Imports people data from a JSON file and adds the people to the hospital.
+     * The file is read as a stream, one person at a time.
      *
      * @param filename The name of the file to import
      *
@@ -120,190 +162,328 @@ public class JsonHandler {
      */
     public static UnorderedListADT<Person> importPeople(String filename) {
         UnorderedListADT<Person> people = new UnorderedLinkedList<>();
-        JSONParser jsonParser = new JSONParser();
-
-        try (FileReader reader = new FileReader(filename)) {
-            JSONArray peopleArray = (JSONArray) jsonParser.parse(reader);
-            for (Object obj : peopleArray) {
-                JSONObject personObject = (JSONObject) obj;
-                int id = ((Long) personObject.get("id")).intValue();
-                String name = (String) personObject.get("name");
-                int age = ((Long) personObject.get("age")).intValue();
-                String functionStr = ((String) personObject.get("function")).toUpperCase();
-                TypeOfFunction function = TypeOfFunction.valueOf(functionStr); // Convert to uppercase
-                // Create a Person object
-                Person person = new Person(id, name, age, function);
-                people.addToRear(person);
+
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(filename))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                people.addToRear(readPerson(reader));
             }
+            reader.endArray();
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (ParseException e) {
-            e.printStackTrace();
         }
         return people;
     }
 
+    /**
+     * Reads one person object from a JSON stream.
+     *
+     * @param reader The stream positioned before the person object
+     * @return The person
+     * @throws IOException If the person object is malformed
+     */
+    static Person readPerson(JsonStreamReader reader) throws IOException {
+        int id = 0;
+        String name = null;
+        int age = 0;
+        TypeOfFunction function = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextInt();
+                case "name" -> name = reader.nextString();
+                case "age" -> age = reader.nextInt();
+                case "function" -> function = TypeOfFunction.valueOf(reader.nextString().toUpperCase());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Person(id, name, age, function);
+    }
+
     /**
      * Import events data from a JSON file and add the events to the hospital.
+     * The file is read as a stream and the events are applied in small batches as they are read,
+     * so memory use does not depend on the size of the file.
      *
      * @param hospital The hospital where you'll be importing
      * @param filename The name of the file to import
      */
     public static void importEvents(Hospital hospital, String filename) {
-        JSONParser jsonParser = new JSONParser();
-
-        try (FileReader reader = new FileReader(filename)) {
-
-            JSONArray eventsArray = (JSONArray) jsonParser.parse(reader);
-
-            for (Object obj : eventsArray) {
-                JSONObject eventObject = (JSONObject) obj;
-
-                int personId = ((Long) eventObject.get("personId")).intValue();
-                int fromRoomId = ((Long) eventObject.get("fromRoomId")).intValue();
-                int toRoomId = ((Long) eventObject.get("toRoomId")).intValue();
-                String timeStr = (String) eventObject.get("time");
-
-                LocalDateTime time = LocalDateTime.parse(timeStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-                Person person = hospital.getPersonById(personId);
-                Room fromRoom = hospital.getRoomById(fromRoomId);
-                Room toRoom = hospital.getRoomById(toRoomId);
-
-                if (person == null) {
-                    System.err.println("Warning: Person with ID " + personId + " not found. Skipping event.");
-                    continue;
-                }
-
-                if (fromRoom == null) {
-                    System.err.println("Warning: From Room with ID " + fromRoomId + " not found. Skipping event.");
-                    continue;
+        EventRecords records = new EventRecords();
+
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(filename))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readEventRecord(reader, records);
+                if (records.size() == EVENT_BATCH_SIZE) {
+                    applyEventRecords(hospital, records);
+                    records.clear();
                 }
+            }
+            reader.endArray();
 
-                if (toRoom == null) {
-                    System.err.println("Warning: To Room with ID " + toRoomId + " not found. Skipping event.");
-                    continue;
-                }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing event data: " + e.getMessage());
+        }
+        applyEventRecords(hospital, records);
+    }
 
-                // Create an Event object
-                Event event = new Event(person, fromRoom, toRoom, time);
+    /**
+     * Reads one event object from a JSON stream.
+     *
+     * @param reader  The stream positioned before the event object
+     * @param records The records that receive the event
+     * @throws IOException If the event object is malformed
+     */
+    static void readEventRecord(JsonStreamReader reader, EventRecords records) throws IOException {
+        int personId = 0;
+        int fromRoomId = 0;
+        int toRoomId = 0;
+        String timeStr = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "personId" -> personId = reader.nextInt();
+                case "fromRoomId" -> fromRoomId = reader.nextInt();
+                case "toRoomId" -> toRoomId = reader.nextInt();
+                case "time" -> timeStr = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-                // Add the Event to the Person
-                person.getActivity().addToRear(event);
+        LocalDateTime time = LocalDateTime.parse(timeStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        records.add(personId, fromRoomId, toRoomId, time);
+    }
 
-                // Add the Event to the Hospital
-                toRoom.addEvent(event);
+    /**
+     * Adds event records to the hospital as one batch, see {@link Hospital#applyEvents(Event[])}.
+     * Records that refer to an unknown person or room are skipped with a warning.
+     *
+     * @param hospital The hospital where you'll be importing
+     * @param records  The event records
+     */
+    static void applyEventRecords(Hospital hospital, EventRecords records) {
+        Event[] batch = new Event[records.size()];
+        int size = 0;
+        for (int i = 0; i < records.size(); i++) {
+            int personId = records.personId(i);
+            int fromRoomId = records.fromRoomId(i);
+            int toRoomId = records.toRoomId(i);
+
+            Person person = hospital.getPersonById(personId);
+            Room fromRoom = hospital.getRoomById(fromRoomId);
+            Room toRoom = hospital.getRoomById(toRoomId);
+
+            if (person == null) {
+                System.err.println("Warning: Person with ID " + personId + " not found. Skipping event.");
+                continue;
+            }
 
-                //remove person from the room he/she came
-                if (!fromRoom.getPeopleInRoom().isEmpty()) {
-                    if (fromRoom.getPeopleInRoom().contains(person))
-                        fromRoom.removePerson(person);
-                }
+            if (fromRoom == null) {
+                System.err.println("Warning: From Room with ID " + fromRoomId + " not found. Skipping event.");
+                continue;
+            }
 
+            if (toRoom == null) {
+                System.err.println("Warning: To Room with ID " + toRoomId + " not found. Skipping event.");
+                continue;
             }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (ParseException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            System.err.println("Error parsing event data: " + e.getMessage());
+            batch[size++] = new Event(person, fromRoom, toRoom, records.time(i));
         }
+        hospital.applyEvents(size == batch.length ? batch : Arrays.copyOf(batch, size));
     }
 
     /**
      * Export events data to a JSON file.
+     * The events are written to a temporary file that replaces the previous file only once complete,
+     * so a failed export never leaves a partial file behind.
      *
      * @param hospital The hospital from where you'll be exporting
      * @param filename The name of the file to export
+     * @return true if the file was written, false otherwise
      */
-    public static void exportEvents(Hospital hospital, String filename) {
+    public static boolean exportEvents(Hospital hospital, String filename) {
         JSONArray eventsArray = new JSONArray();
-        UnorderedListADT<Room> allRooms = hospital.getAllRooms();
-
-        Iterator<Room> roomIterator = allRooms.iterator();
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            Iterator<Event> eventIterator = room.getEvents().iterator();
-            while (eventIterator.hasNext()) {
-                Event event = eventIterator.next();
-                JSONObject eventObject = new JSONObject();
-                eventObject.put("personId", event.getPerson().getId());
-                eventObject.put("fromRoomId", event.getFrom().getId());
-                eventObject.put("toRoomId", event.getTo().getId());
-                eventObject.put("time", event.getTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                eventsArray.add(eventObject);
-            }
+        Iterator<Event> eventIterator = hospital.getAllEvents().iterator();
+        while (eventIterator.hasNext()) {
+            Event event = eventIterator.next();
+            JSONObject eventObject = new JSONObject();
+            eventObject.put("personId", event.getPerson().getId());
+            eventObject.put("fromRoomId", event.getFrom().getId());
+            eventObject.put("toRoomId", event.getTo().getId());
+            eventObject.put("time", event.getTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            eventsArray.add(eventObject);
         }
 
-        try (FileWriter file = new FileWriter(filename)) {
-            file.write(eventsArray.toJSONString());
-            file.flush();
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileWriter file = new FileWriter(temporary.toFile())) {
+                file.write(eventsArray.toJSONString());
+                file.flush();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
     /**
-     * Imports map data as form of edges from a JSON file and adds the edges to the hospital.
+     * Imports map data as form of edges from a JSON file.
+     * The rooms and people are read from the {@value #ROOMS_FILE} and {@value #PEOPLE_FILE} files
+     * in the same directory as the map file.
      *
-     * @param filename The name of the file to import
-     * @return The network of the hospital
-     * @throws FileNotFoundException If it not finds the file
-     * @throws ImportException       If there is an error reading the file or parsing the JSON content
+     * @param filename The name of the map file to import
+     * @return The map of the hospital
+     * @throws ImportException If there is an error reading the files or parsing the JSON content
      */
-    public static Network<Room> importMap(String filename) throws FileNotFoundException, ImportException {
-
-        Iterator<Room> roomIterator = importRooms("src/main/resources/rooms.json").iterator();
-        Iterator<Person> peopleIterator = importPeople("src/main/resources/people.json").iterator();
+    public static CompactGraph importMap(String filename) throws ImportException {
+        Path directory = Path.of(filename).toAbsolutePath().getParent();
+        return importMap(filename, directory.resolve(ROOMS_FILE).toString(), directory.resolve(PEOPLE_FILE).toString());
+    }
 
-        Network<Room> network = new Network<>();
-        JSONParser jsonParser = new JSONParser();
-        Room room1 = new Room();
-        room1.setId(-1);
-        Room room2 = new Room();
-        room2.setId(-1);
+    /**
+     * Imports map data as form of edges from a JSON file.
+     * Every file is read once, as a stream. Edge endpoints are resolved through the room ids and the graph is
+     * packed in one pass at the end. Every person starts in the first room of the rooms file.
+     *
+     * @param mapFile    The name of the map file to import
+     * @param roomsFile  The name of the rooms file to import
+     * @param peopleFile The name of the people file to import
+     * @return The map of the hospital
+     * @throws ImportException If there is an error reading the files or parsing the JSON content
+     */
+    public static CompactGraph importMap(String mapFile, String roomsFile, String peopleFile) throws ImportException {
+        return assembleMap(readRooms(roomsFile), readPeople(peopleFile), readEdges(mapFile), roomsFile, mapFile);
+    }
 
-        while (roomIterator.hasNext()) {
-            Room room = roomIterator.next();
-            network.addVertex(room);
+    /**
+     * Reads every room of a rooms file.
+     *
+     * @param roomsFile The name of the rooms file
+     * @return The rooms in file order
+     * @throws ImportException If there is an error reading the file or parsing the JSON content
+     */
+    static List<Room> readRooms(String roomsFile) throws ImportException {
+        List<Room> rooms = new ArrayList<>();
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(roomsFile))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                rooms.add(readRoom(reader));
+            }
+            reader.endArray();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ImportException("Error reading rooms from the file: " + roomsFile, e);
         }
+        return rooms;
+    }
 
-        while (peopleIterator.hasNext()) {
-            Person person = peopleIterator.next();
-            network.getVertex(0).addPerson(person);
+    /**
+     * Reads every person of a people file.
+     *
+     * @param peopleFile The name of the people file
+     * @return The people in file order
+     * @throws ImportException If there is an error reading the file or parsing the JSON content
+     */
+    static List<Person> readPeople(String peopleFile) throws ImportException {
+        List<Person> people = new ArrayList<>();
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(peopleFile))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                people.add(readPerson(reader));
+            }
+            reader.endArray();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ImportException("Error reading people from the file: " + peopleFile, e);
         }
+        return people;
+    }
 
-        try (FileReader fileReader = new FileReader(filename)) {
-            JSONArray edgesArray = (JSONArray) jsonParser.parse(fileReader);
-            for (Object obj : edgesArray) {
-                JSONObject edgeObject = (JSONObject) obj;
-                int roomId1 = ((Long) edgeObject.get("room1")).intValue();
-                int roomId2 = ((Long) edgeObject.get("room2")).intValue();
-
-                Iterator<Room> newRoomIterator = importRooms("src/main/resources/rooms.json").iterator();
-
-                while (newRoomIterator.hasNext() && room1.getId() != roomId1) {
-                    room1 = newRoomIterator.next();
-                }
-                while (newRoomIterator.hasNext() && room2.getId() != roomId2) {
-                    room2 = newRoomIterator.next();
+    /**
+     * Reads every edge of a map file.
+     *
+     * @param mapFile The name of the map file
+     * @return The edges in file order
+     * @throws ImportException If there is an error reading the file or parsing the JSON content
+     */
+    static EdgeRecords readEdges(String mapFile) throws ImportException {
+        EdgeRecords edges = new EdgeRecords();
+        try (JsonStreamReader reader = new JsonStreamReader(new FileReader(mapFile))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int roomId1 = 0;
+                int roomId2 = 0;
+                double weight = 0;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "room1" -> roomId1 = reader.nextInt();
+                        case "room2" -> roomId2 = reader.nextInt();
+                        case "weight" -> weight = reader.nextDouble();
+                        default -> reader.skipValue();
+                    }
                 }
-                double weight = ((Long) edgeObject.get("weight")).doubleValue();
-                network.addEdge(room1, room2, weight);
-                network.addEdge(room2, room1, weight);
+                reader.endObject();
+                edges.add(roomId1, roomId2, weight);
             }
-
+            reader.endArray();
         } catch (IOException e) {
             // Wrap IOException in a custom exception with a meaningful message
-            throw new ImportException("Error reading the file: " + filename, e);
-        } catch (ParseException e) {
-            // Wrap ParseException in a custom exception with a meaningful message
-            throw new ImportException("Error parsing JSON content from the file: " + filename, e);
+            throw new ImportException("Error reading the file: " + mapFile, e);
         }
-        return network;
+        return edges;
     }
 
-}
+    /**
+     * Packs the rooms, people and edges read from the files into the map of the hospital.
+     * Every person starts in the first room and every edge can be walked both ways.
+     *
+     * @param rooms     The rooms in file order
+     * @param people    The people in file order
+     * @param edges     The edges in file order
+     * @param roomsFile The name of the rooms file, for error messages
+     * @param mapFile   The name of the map file, for error messages
+     * @return The map of the hospital
+     * @throws ImportException If there are no rooms, or rooms or edges are inconsistent
+     */
+    static CompactGraph assembleMap(List<Room> rooms, List<Person> people, EdgeRecords edges,
+                                    String roomsFile, String mapFile) throws ImportException {
+        if (rooms.isEmpty()) {
+            throw new ImportException("No rooms found in the file: " + roomsFile, null);
+        }
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        try {
+            for (Room room : rooms) {
+                builder.addRoom(room);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ImportException("Error reading rooms from the file: " + roomsFile, e);
+        }
 
+        Room entrance = rooms.get(0);
+        for (Person person : people) {
+            entrance.addPerson(person);
+        }
 
+        try {
+            for (int i = 0; i < edges.size(); i++) {
+                builder.addEdge(edges.roomId1(i), edges.roomId2(i), edges.weight(i));
+                builder.addEdge(edges.roomId2(i), edges.roomId1(i), edges.weight(i));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ImportException("Error in the edges of the file: " + mapFile, e);
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,517 @@
+package hospital.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The JsonStreamReader class reads a JSON document one token at a time.
+ * Only a fixed size character buffer is kept in memory, so a file holding millions of records can be
+ * converted record by record without ever building the whole document as objects.
+ * Numbers are parsed straight into primitives.
+ * <p>
+ * Values are read with the {@code begin}/{@code next}/{@code end} methods in document order,
+ * {@link #hasNext()} tells if the current array or object has more elements.
+ * Malformed documents are reported with an {@link IOException}.
+ */
+public class JsonStreamReader implements Closeable {
+    /**
+     * The size of the character buffer
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * An array with no elements read yet
+     */
+    private static final int EMPTY_ARRAY = 1;
+    /**
+     * An array with at least one element read
+     */
+    private static final int NONEMPTY_ARRAY = 2;
+    /**
+     * An object with no members read yet
+     */
+    private static final int EMPTY_OBJECT = 3;
+    /**
+     * An object whose last member name was read but not its value
+     */
+    private static final int DANGLING_NAME = 4;
+    /**
+     * An object with at least one member read
+     */
+    private static final int NONEMPTY_OBJECT = 5;
+
+    /**
+     * The source of the document
+     */
+    private final Reader in;
+    /**
+     * The characters read from the source
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    /**
+     * The position of the next character in the buffer
+     */
+    private int pos;
+    /**
+     * The number of characters in the buffer
+     */
+    private int limit;
+    /**
+     * The number of characters consumed before the buffer, for error messages
+     */
+    private long consumed;
+    /**
+     * The state of every open array and object, innermost last
+     */
+    private int[] stack = new int[32];
+    /**
+     * The number of open arrays and objects
+     */
+    private int depth;
+    /**
+     * Scratch space for strings and numbers
+     */
+    private final StringBuilder scratch = new StringBuilder();
+
+    /**
+     * Constructor of the class JsonStreamReader
+     *
+     * @param in the source of the document
+     */
+    public JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Consume the start of an array
+     *
+     * @throws IOException if the next value is not an array
+     */
+    public void beginArray() throws IOException {
+        beforeValue();
+        expect('[');
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the end of the current array
+     *
+     * @throws IOException if the current array has more elements
+     */
+    public void endArray() throws IOException {
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Consume the start of an object
+     *
+     * @throws IOException if the next value is not an object
+     */
+    public void beginObject() throws IOException {
+        beforeValue();
+        expect('{');
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the end of the current object
+     *
+     * @throws IOException if the current object has more members
+     */
+    public void endObject() throws IOException {
+        expect('}');
+        depth--;
+    }
+
+    /**
+     * Check if the current array or object has more elements
+     *
+     * @return true if there is another element, false at the end of the array or object
+     * @throws IOException if the source cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        return c != ']' && c != '}' && c != -1;
+    }
+
+    /**
+     * Read the name of the next member of the current object
+     *
+     * @return the member name
+     * @throws IOException if the next token is not a member name
+     */
+    public String nextName() throws IOException {
+        int state = depth > 0 ? stack[depth - 1] : 0;
+        if (state == NONEMPTY_OBJECT) {
+            expect(',');
+        } else if (state != EMPTY_OBJECT) {
+            throw error("member name outside of an object");
+        }
+        expect('"');
+        String name = readString();
+        expect(':');
+        stack[depth - 1] = DANGLING_NAME;
+        return name;
+    }
+
+    /**
+     * Read a string value
+     *
+     * @return the string, or null if the value is null
+     * @throws IOException if the next value is not a string or null
+     */
+    public String nextString() throws IOException {
+        beforeValue();
+        int c = peek();
+        if (c == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        expect('"');
+        return readString();
+    }
+
+    /**
+     * Read an integer value
+     *
+     * @return the value
+     * @throws IOException if the next value is not an integer that fits in a long
+     */
+    public long nextLong() throws IOException {
+        beforeValue();
+        peek();
+        boolean negative = false;
+        if (pos < limit && buffer[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c < '0' || c > '9') {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                throw error("integer out of range");
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            pos++;
+        }
+        if (digits == 0) {
+            throw error("expected an integer");
+        }
+        if (pos < limit && (buffer[pos] == '.' || buffer[pos] == 'e' || buffer[pos] == 'E')) {
+            throw error("expected an integer but found a decimal number");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Read an integer value that fits in an int
+     *
+     * @return the value
+     * @throws IOException if the next value is not an integer that fits in an int
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("integer out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read a number value
+     *
+     * @return the value
+     * @throws IOException if the next value is not a number
+     */
+    public double nextDouble() throws IOException {
+        beforeValue();
+        peek();
+        scratch.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                break;
+            }
+            scratch.append(c);
+            pos++;
+        }
+        try {
+            return Double.parseDouble(scratch.toString());
+        } catch (NumberFormatException e) {
+            throw error("expected a number");
+        }
+    }
+
+    /**
+     * Read a boolean value
+     *
+     * @return the value
+     * @throws IOException if the next value is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        beforeValue();
+        if (peek() == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        expectLiteral("false");
+        return false;
+    }
+
+    /**
+     * Skip the next value, with everything nested inside it
+     *
+     * @throws IOException if the next token is not a value
+     */
+    public void skipValue() throws IOException {
+        if (depth > 0 && stack[depth - 1] == NONEMPTY_ARRAY) {
+            // consume the separator now to see what the value starts with
+            expect(',');
+            stack[depth - 1] = EMPTY_ARRAY;
+        }
+        int c = peek();
+        switch (c) {
+            case '[':
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case '{':
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case '"':
+            case 'n':
+                nextString();
+                break;
+            case 't':
+            case 'f':
+                nextBoolean();
+                break;
+            default:
+                nextDouble();
+                break;
+        }
+    }
+
+    /**
+     * Close the source of the document
+     *
+     * @throws IOException if the source cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Consume the separator that comes before a value in the current array or object
+     *
+     * @throws IOException if the separator is missing
+     */
+    private void beforeValue() throws IOException {
+        if (depth == 0) {
+            return;
+        }
+        switch (stack[depth - 1]) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                expect(',');
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw error("value without a member name");
+        }
+    }
+
+    /**
+     * Open an array or object
+     *
+     * @param state the state of the new array or object
+     */
+    private void push(int state) {
+        if (depth == stack.length) {
+            int[] bigger = new int[depth * 2];
+            System.arraycopy(stack, 0, bigger, 0, depth);
+            stack = bigger;
+        }
+        stack[depth++] = state;
+    }
+
+    /**
+     * Read the rest of a string whose opening quote was consumed
+     *
+     * @return the string
+     * @throws IOException if the string is not terminated or has a bad escape
+     */
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"') {
+                    scratch.append(buffer, start, pos - start);
+                    pos++;
+                    return scratch.toString();
+                }
+                if (c == '\\') {
+                    scratch.append(buffer, start, pos - start);
+                    pos++;
+                    scratch.append(readEscape());
+                    start = pos;
+                } else {
+                    pos++;
+                }
+            }
+            scratch.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw error("unterminated string");
+            }
+        }
+    }
+
+    /**
+     * Read an escape sequence whose backslash was consumed
+     *
+     * @return the escaped character
+     * @throws IOException if the escape sequence is invalid
+     */
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw error("invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw error("invalid escape sequence");
+        }
+    }
+
+    /**
+     * Consume a literal word
+     *
+     * @param literal the expected word
+     * @throws IOException if the next characters are not the word
+     */
+    private void expectLiteral(String literal) throws IOException {
+        peek();
+        for (int i = 0; i < literal.length(); i++) {
+            if (nextChar() != literal.charAt(i)) {
+                throw error("expected " + literal);
+            }
+        }
+    }
+
+    /**
+     * Skip whitespace and consume an expected character
+     *
+     * @param expected the expected character
+     * @throws IOException if the next character is a different one
+     */
+    private void expect(char expected) throws IOException {
+        int c = peek();
+        if (c != expected) {
+            throw error("expected '" + expected + "' but found " + (c == -1 ? "end of file" : "'" + (char) c + "'"));
+        }
+        pos++;
+    }
+
+    /**
+     * Consume the next character
+     *
+     * @return the character
+     * @throws IOException if the document ended
+     */
+    private char nextChar() throws IOException {
+        if (pos == limit && !fill()) {
+            throw error("unexpected end of file");
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Skip whitespace and look at the next character without consuming it
+     *
+     * @return the next character, or -1 at the end of the document
+     * @throws IOException if the source cannot be read
+     */
+    private int peek() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * Refill the buffer from the source
+     *
+     * @return true if characters were read, false at the end of the source
+     * @throws IOException if the source cannot be read
+     */
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Create an exception for a malformed document
+     *
+     * @param message what was wrong
+     * @return the exception
+     */
+    private IOException error(String message) {
+        return new IOException("Malformed JSON at character " + (consumed + pos) + ": " + message);
+    }
+}
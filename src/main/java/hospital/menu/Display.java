@@ -39,6 +39,7 @@ public class Display {
                 "| 1. See all rooms                                                  |\n" +
                 "| 2. Manage Room Access                                             |\n" +
                 "| 3. View Room Activity                                             |\n" +
+                "| 4. People in a Room                                               |\n" +
                 "| 0. Exit                                                           |\n" +
                 "|___________________________________________________________________|\n";
 
@@ -5,13 +5,19 @@ import hospital.Hospital;
 import hospital.Person;
 import hospital.Room;
 import hospital.enums.TypeOfFunction;
+import hospital.events.EventLog;
+import hospital.io.HospitalSnapshot;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Iterator;
 
+import static hospital.io.JsonHandler.EVENTS_FILE;
+import static hospital.io.JsonHandler.PEOPLE_FILE;
 import static hospital.io.JsonHandler.exportEvents;
 import static hospital.io.JsonHandler.exportPeople;
+import static hospital.io.HospitalSnapshot.SNAPSHOT_FILE;
 import static hospital.menu.ReadInfo.manageAccess;
 import static hospital.menu.Tools.getInt;
 import static hospital.menu.Tools.getLocalDateTime;
@@ -21,13 +27,19 @@ import static hospital.menu.Tools.getLocalDateTime;
  * It has the main menu and the submenus
  */
 public class Menu {
+    /**
+     * The number of logged events after which a new snapshot is written
+     */
+    private static final int SNAPSHOT_INTERVAL = 1000;
+
     /**
      * Main menu
      *
-     * @param hospital the hospital
+     * @param hospital      the hospital
+     * @param dataDirectory the directory the people and events are exported to
      * @throws IOException if the input is invalid
      */
-    public static void mainMenu(Hospital hospital) throws IOException {
+    public static void mainMenu(Hospital hospital, String dataDirectory) throws IOException {
         boolean isRunning = true;
 
         while (isRunning) {
@@ -41,10 +53,10 @@ public class Menu {
                     roomsMenu(hospital);
                     break;
                 case 2:
-                    individualsManagement(hospital);
+                    individualsManagement(hospital, dataDirectory);
                     break;
                 case 3:
-                    registryMenu(hospital);
+                    registryMenu(hospital, dataDirectory);
                     break;
                 case 4:
                     contactMenu(hospital);
@@ -57,8 +69,8 @@ public class Menu {
                         System.out.println("Enter individual ID: ");
                         id = getInt();
                     }
-                    Person person = hospital.getPersonById(id);
-                    System.out.println(person.getActivity().last().to());
+                    Room location = hospital.getLocation(id);
+                    System.out.println(location == null ? "Not in any room" : location);
                     break;
                 case 6:
                     System.out.println("Choose the room to where you are: ");
@@ -131,11 +143,25 @@ public class Menu {
                     int choice2 = getInt();
                     switch (choice2) {
                         case 1:
-                            room.addAccess(manageAccess());
+                            TypeOfFunction granted = manageAccess();
+                            if (!hospital.grantAccess(id, granted)) {
+                                System.out.println(granted + " already has access to " + room.getName());
+                            }
                             System.out.println(room);
                             break;
                         case 2:
-                            room.revokeAccess();
+                            System.out.println("Choose a function to revoke access to this room");
+                            if (room.getAccess().isEmpty()) {
+                                System.out.println("No personnel currently have access to " + room.getName());
+                                break;
+                            }
+                            System.out.println(room.getAccess());
+                            TypeOfFunction revoked = manageAccess();
+                            if (hospital.revokeAccess(id, revoked)) {
+                                System.out.println("Access revoked from: " + revoked);
+                            } else {
+                                System.out.println(revoked + " has no access to " + room.getName());
+                            }
                             System.out.println(room);
                             break;
                         case 0:
@@ -157,6 +183,17 @@ public class Menu {
                     room = hospital.getRoomById(id);
                     System.out.println(room);
                     System.out.println(room.getEvents());
+                    break;
+                case 4:
+                    System.out.println("Choose a room to see who is in it: ");
+                    id = getInt();
+                    while (hospital.getRoomById(id) == null) {
+                        System.out.println("Room not found.");
+                        System.out.println("Enter room ID: ");
+                        id = getInt();
+                    }
+                    System.out.println(hospital.getPeopleInRoom(id));
+                    break;
                 case 0:
                     isRunning = false;
                     break;
@@ -171,9 +208,10 @@ public class Menu {
      * Individuals management menu
      *
      * @param hospital
+     * @param dataDirectory
      * @throws IOException
      */
-    private static void individualsManagement(Hospital hospital) throws IOException {
+    private static void individualsManagement(Hospital hospital, String dataDirectory) throws IOException {
         boolean isRunning = true;
         while (isRunning) {
             System.out.println(Display.displayIndividualsMenu());
@@ -196,10 +234,10 @@ public class Menu {
                     System.out.println("Enter the individual function");
                     TypeOfFunction function = manageAccess();
 
-                    hospital.getRoomById(0).addPerson(new Person(id, name, age, function));
+                    hospital.addPerson(new Person(id, name, age, function));
                     break;
                 case 2:
-                    exportPeople(hospital, "src/main/resources/people.json");
+                    exportPeople(hospital, Path.of(dataDirectory, PEOPLE_FILE).toString());
                     break;
                 case 3:
                     System.out.println("See all individuals");
@@ -229,23 +267,33 @@ public class Menu {
      * Registry menu
      *
      * @param hospital
+     * @param dataDirectory
      * @throws IOException
      */
-    private static void registryMenu(Hospital hospital) throws IOException {
+    private static void registryMenu(Hospital hospital, String dataDirectory) throws IOException {
         boolean isRunning = true;
         while (isRunning) {
             System.out.print(Display.displayRegistryMenu());
             int choice = getInt();
             switch (choice) {
                 case 1:
-                   Event event = hospital.readEvent();
-                   if (event.getTo().addEvent(event))
-                          System.out.println(event.getPerson().getName() +
-                                  " moved from " + event.getFrom().getName() +
-                                  " to " + event.getTo().getName());
+                    Event event = hospital.readEvent();
+                    if (event != null) {
+                        hospital.recordEvent(event);
+                        EventLog eventLog = hospital.getEventLog();
+                        if (eventLog != null
+                                && eventLog.lastSequence() - eventLog.checkpointSequence() >= SNAPSHOT_INTERVAL) {
+                            HospitalSnapshot.checkpoint(hospital, Path.of(dataDirectory, SNAPSHOT_FILE));
+                        }
+                        System.out.println(event.getPerson().getName() +
+                                " moved from " + event.getFrom().getName() +
+                                " to " + event.getTo().getName());
+                    }
                     break;
                 case 2:
-                    exportEvents(hospital, "src/main/resources/events.json");
+                    if (exportEvents(hospital, Path.of(dataDirectory, EVENTS_FILE).toString())) {
+                        HospitalSnapshot.checkpoint(hospital, Path.of(dataDirectory, SNAPSHOT_FILE));
+                    }
                     break;
                 case 3:
                     System.out.println(hospital.getAllEvents());
@@ -291,7 +339,7 @@ public class Menu {
                     System.out.println("Enter the time of end: ");
                     to = getLocalDateTime();
 
-                    System.out.println(hospital.hadContactWithIndividual(id, from, to));
+                    System.out.println(hospital.traceContacts(id, from, to));
                     break;
                 case 2:
                     System.out.println("Enter room ID: ");
@@ -0,0 +1,20 @@
+package hospital.occupancy;
+
+import hospital.Room;
+
+/**
+ * This class represents the occupation of a room crossing a threshold.
+ *
+ * @param room       the room
+ * @param occupation the occupation of the room after the change
+ * @param threshold  the share of the capacity that was crossed, 1 for the capacity itself
+ * @param rising     true if the occupation reached the threshold, false if it dropped below it
+ */
+public record OccupancyAlert(Room room, int occupation, double threshold, boolean rising) {
+
+    @Override
+    public String toString() {
+        return "Room " + room.getId() + " (" + room.getName() + ") " + (rising ? "reached " : "dropped below ")
+                + Math.round(threshold * 100) + "% of its capacity: " + occupation + "/" + room.getCapacity();
+    }
+}
@@ -0,0 +1,16 @@
+package hospital.occupancy;
+
+/**
+ * A listener notified when the occupation of a room crosses a threshold.
+ * Listeners are called on the thread that applied the event, while the room is locked, so they must
+ * return quickly and must not apply events themselves.
+ */
+@FunctionalInterface
+public interface OccupancyListener {
+    /**
+     * Called when the occupation of a room crosses a threshold
+     *
+     * @param alert the alert
+     */
+    void thresholdCrossed(OccupancyAlert alert);
+}
@@ -0,0 +1,125 @@
+package hospital.occupancy;
+
+import hospital.Room;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The OccupancyMonitor class publishes an alert every time the occupation of a room crosses one of its
+ * thresholds, each a share of the capacity of the room.
+ * An alert is published when the occupation reaches a threshold and again when it drops back below it,
+ * so a room that stays above a threshold does not repeat the alert on every event.
+ */
+public class OccupancyMonitor {
+    /**
+     * The thresholds used when none are given, 80% of the capacity and the capacity itself
+     */
+    private static final double[] DEFAULT_THRESHOLDS = {0.8, 1.0};
+
+    /**
+     * The thresholds as shares of the capacity, in increasing order
+     */
+    private final double[] thresholds;
+    /**
+     * The listeners notified of every alert
+     */
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor of the class OccupancyMonitor, alerting at 80% of the capacity and at the capacity
+     */
+    public OccupancyMonitor() {
+        this(DEFAULT_THRESHOLDS);
+    }
+
+    /**
+     * Constructor of the class OccupancyMonitor
+     *
+     * @param thresholds the thresholds as shares of the capacity, 1 for the capacity itself
+     */
+    public OccupancyMonitor(double... thresholds) {
+        for (double threshold : thresholds) {
+            if (!(threshold > 0)) {
+                throw new IllegalArgumentException("Thresholds must be positive: " + threshold);
+            }
+        }
+        this.thresholds = thresholds.clone();
+        Arrays.sort(this.thresholds);
+    }
+
+    /**
+     * Get the thresholds
+     *
+     * @return the thresholds as shares of the capacity, in increasing order
+     */
+    public double[] getThresholds() {
+        return thresholds.clone();
+    }
+
+    /**
+     * Add a listener notified of every alert
+     *
+     * @param listener the listener
+     */
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener
+     *
+     * @param listener the listener
+     */
+    public void removeListener(OccupancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Collect the alerts of a change of the occupation of a room, to be published with
+     * {@link #publish(List)} once the locks held during the change are released, so that a listener may call
+     * back into the hospital
+     *
+     * @param room   the room
+     * @param before the occupation before the change
+     * @param after  the occupation after the change
+     * @param alerts the alerts collected so far, the new alerts are added to them
+     */
+    public void occupationChanged(Room room, int before, int after, List<OccupancyAlert> alerts) {
+        int capacity = room.getCapacity();
+        if (before == after || capacity <= 0 || listeners.isEmpty()) {
+            return;
+        }
+        for (double threshold : thresholds) {
+            int limit = (int) Math.ceil(threshold * capacity);
+            if (before < limit && after >= limit) {
+                alerts.add(new OccupancyAlert(room, after, threshold, true));
+            } else if (before >= limit && after < limit) {
+                alerts.add(new OccupancyAlert(room, after, threshold, false));
+            }
+        }
+    }
+
+    /**
+     * Notify every listener of collected alerts, in the order they were collected
+     *
+     * @param alerts the alerts
+     */
+    public void publish(List<OccupancyAlert> alerts) {
+        for (OccupancyAlert alert : alerts) {
+            publish(alert);
+        }
+    }
+
+    /**
+     * Notify every listener of an alert
+     *
+     * @param alert the alert
+     */
+    private void publish(OccupancyAlert alert) {
+        for (OccupancyListener listener : listeners) {
+            listener.thresholdCrossed(alert);
+        }
+    }
+}
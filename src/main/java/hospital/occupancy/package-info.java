@@ -0,0 +1,4 @@
+/**
+ * This package contains the alerts published when the occupation of a room crosses a share of its capacity.
+ */
+package hospital.occupancy;
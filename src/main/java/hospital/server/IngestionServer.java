@@ -0,0 +1,347 @@
+package hospital.server;
+
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The IngestionServer class receives the movements recorded by the door readers over TCP and applies them
+ * to a hospital.
+ * <p>
+ * The protocol is line based. A reader sends one movement per line as
+ * {@code personId,fromRoomId,toRoomId,time}, with the time as an ISO local date time such as
+ * {@code 2024-03-12T20:28:54}, and the server answers every line, in order, with {@code OK} once the
+ * movement is applied, or with {@code ERR} followed by the reason it was refused. Readers may send many
+ * lines without waiting for the answers: answers are only flushed when no more lines are waiting.
+ * <p>
+ * A movement is refused if the person or a room is unknown, if no door leads from one room to the
+ * other, or if the function of the person may not enter the destination room. The movements already
+ * received on a connection are recorded together with {@link Hospital#recordEvents(Event[])}, so they
+ * are logged before they are applied when the hospital has an event log, and a whole batch only waits
+ * once for the log.
+ * <p>
+ * Every connection is served by its own virtual thread, so hundreds of readers only cost hundreds of
+ * small stacks, and a connection waiting for the event log to be written does not hold a platform thread.
+ */
+public class IngestionServer implements Closeable {
+    /**
+     * The port used when none is given
+     */
+    public static final int DEFAULT_PORT = 7077;
+    /**
+     * The number of pending connections the server socket queues
+     */
+    private static final int BACKLOG = 1024;
+    /**
+     * The largest number of movements of a connection applied as one batch
+     */
+    private static final int MAX_BATCH = 512;
+    /**
+     * The answer to an accepted movement
+     */
+    static final String OK = "OK";
+    /**
+     * The start of the answer to a refused movement
+     */
+    static final String ERROR = "ERR ";
+
+    /**
+     * The hospital the movements are applied to
+     */
+    private final Hospital hospital;
+    /**
+     * The listening socket
+     */
+    private final ServerSocket serverSocket;
+    /**
+     * The open connections
+     */
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    /**
+     * Released when the server is closed
+     */
+    private final CountDownLatch closed = new CountDownLatch(1);
+    /**
+     * The number of accepted movements
+     */
+    private final LongAdder accepted = new LongAdder();
+    /**
+     * The number of refused movements
+     */
+    private final LongAdder rejected = new LongAdder();
+    /**
+     * The thread that accepts connections
+     */
+    private Thread acceptor;
+
+    /**
+     * Constructor of the class IngestionServer, listening on the loopback interface
+     *
+     * @param hospital the hospital the movements are applied to
+     * @param port     the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public IngestionServer(Hospital hospital, int port) throws IOException {
+        this(hospital, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Constructor of the class IngestionServer
+     *
+     * @param hospital the hospital the movements are applied to
+     * @param address  the address to listen on
+     * @throws IOException if the address cannot be bound
+     */
+    public IngestionServer(Hospital hospital, InetSocketAddress address) throws IOException {
+        this.hospital = hospital;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(address, BACKLOG);
+    }
+
+    /**
+     * Start accepting connections
+     */
+    public synchronized void start() {
+        if (acceptor == null) {
+            acceptor = Thread.ofVirtual().name("ingestion-acceptor").start(this::acceptConnections);
+        }
+    }
+
+    /**
+     * Get the port the server listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Get the number of movements accepted since the server started
+     *
+     * @return the number of accepted movements
+     */
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * Get the number of movements refused since the server started
+     *
+     * @return the number of refused movements
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Wait until the server is closed
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     * Movements being applied when the server closes are still applied.
+     */
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        closed.countDown();
+    }
+
+    /**
+     * Close a socket, ignoring the errors since it is being discarded anyway
+     *
+     * @param socket the socket
+     */
+    private static void closeQuietly(Closeable socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // nothing else can be done with the socket
+        }
+    }
+
+    /**
+     * Accept connections until the server is closed, serving each one on a new virtual thread
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                Thread.ofVirtual().name("ingestion-" + connection.getPort()).start(() -> serve(connection));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Error accepting a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the movements of a connection and answer each of them, until the reader disconnects
+     *
+     * @param connection the connection
+     */
+    private void serve(Socket connection) {
+        try (connection;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String[] lines = new String[MAX_BATCH];
+            String line;
+            while ((line = in.readLine()) != null) {
+                // the lines already received are applied together, as one batch
+                int count = 0;
+                lines[count++] = line;
+                while (count < MAX_BATCH && in.ready() && (line = in.readLine()) != null) {
+                    lines[count++] = line;
+                }
+                for (String answer : process(lines, count)) {
+                    out.write(answer);
+                    out.write('\n');
+                }
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException e) {
+            // the reader disconnected or the server is closing
+        } catch (IOException e) {
+            System.out.println("Error serving " + connection.getRemoteSocketAddress() + ": " + e.getMessage());
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Validate movements and apply the valid ones as one batch
+     *
+     * @param lines the movements, each as {@code personId,fromRoomId,toRoomId,time}
+     * @param count the number of movements
+     * @return the answer to every movement, in order
+     */
+    String[] process(String[] lines, int count) {
+        String[] answers = new String[count];
+        Event[] events = new Event[count];
+        int[] positions = new int[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            Event event = validate(lines[i], answers, i);
+            if (event != null) {
+                events[valid] = event;
+                positions[valid++] = i;
+            }
+        }
+        if (valid == 0) {
+            return answers;
+        }
+
+        try {
+            hospital.recordEvents(valid == count ? events : Arrays.copyOf(events, valid));
+        } catch (IOException | UncheckedIOException e) {
+            for (int v = 0; v < valid; v++) {
+                answers[positions[v]] = reject("the movement could not be recorded: " + e.getMessage());
+            }
+            return answers;
+        }
+        accepted.add(valid);
+        for (int v = 0; v < valid; v++) {
+            answers[positions[v]] = OK;
+        }
+        return answers;
+    }
+
+    /**
+     * Validate a movement
+     *
+     * @param line    the movement, as {@code personId,fromRoomId,toRoomId,time}
+     * @param answers the answers, where the reason is stored if the movement is refused
+     * @param index   the position of the movement
+     * @return the event, or null if the movement is refused
+     */
+    private Event validate(String line, String[] answers, int index) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4) {
+            answers[index] = reject("expected personId,fromRoomId,toRoomId,time");
+            return null;
+        }
+        int personId;
+        int fromRoomId;
+        int toRoomId;
+        LocalDateTime time;
+        try {
+            personId = Integer.parseInt(fields[0].trim());
+            fromRoomId = Integer.parseInt(fields[1].trim());
+            toRoomId = Integer.parseInt(fields[2].trim());
+            time = LocalDateTime.parse(fields[3].trim());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            answers[index] = reject("malformed movement " + line);
+            return null;
+        }
+
+        Person person = hospital.getPersonById(personId);
+        if (person == null) {
+            answers[index] = reject("unknown person " + personId);
+            return null;
+        }
+        Room from = hospital.getRoomById(fromRoomId);
+        Room to = hospital.getRoomById(toRoomId);
+        if (from == null || to == null) {
+            answers[index] = reject("unknown room " + (from == null ? fromRoomId : toRoomId));
+            return null;
+        }
+        if (!hospital.hasDoor(fromRoomId, toRoomId)) {
+            answers[index] = reject("no door from room " + fromRoomId + " to room " + toRoomId);
+            return null;
+        }
+        if (!hospital.hasPermission(person, to)) {
+            answers[index] = reject("person " + personId + " may not enter room " + toRoomId);
+            return null;
+        }
+        return new Event(person, from, to, time);
+    }
+
+    /**
+     * Count a refused movement
+     *
+     * @param reason why the movement was refused
+     * @return the answer to the reader
+     */
+    private String reject(String reason) {
+        rejected.increment();
+        return ERROR + reason;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the network server that receives the events of the door readers.
+ */
+package hospital.server;
@@ -0,0 +1,75 @@
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.AccessIndex;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccessIndexTest {
+
+    private static final int ROOMS = 130;
+
+    private Hospital hospital;
+
+    @BeforeEach
+    void setUp() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < ROOMS; i++) {
+            UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
+            access.addToRear(TypeOfFunction.DOCTOR);
+            if (i % 2 == 0) {
+                access.addToRear(TypeOfFunction.NURSE);
+            }
+            if (i % 3 == 0) {
+                access.addToRear(TypeOfFunction.CLEANER);
+                access.addToRear(TypeOfFunction.CLEANER);
+            }
+            builder.addRoom(new Room(1000 + i, access, 0, false, 5, TypeOfRoom.WAITING, "Room " + i));
+        }
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+    }
+
+    @Test
+    void testIndexMatchesTheRooms() {
+        AccessIndex index = hospital.getAccessIndex();
+        assertEquals(ROOMS, index.count(TypeOfFunction.DOCTOR));
+        assertEquals(ROOMS / 2, index.count(TypeOfFunction.NURSE));
+        assertEquals(0, index.count(TypeOfFunction.VISITOR));
+        // the repeated cleaner access is only listed once
+        assertEquals(2, hospital.getRoomById(1003).getAccess().size());
+
+        // rooms both nurses and cleaners may enter are the multiples of 6
+        long[] both = index.roomsForAll(TypeOfFunction.NURSE, TypeOfFunction.CLEANER);
+        int count = 0;
+        for (long word : both) {
+            count += Long.bitCount(word);
+        }
+        assertEquals((ROOMS + 5) / 6, count);
+        assertEquals(ROOMS / 2, hospital.getRoomsAccessibleTo(TypeOfFunction.NURSE).size());
+    }
+
+    @Test
+    void testGrantAndRevokeKeepTheIndexInSync() {
+        AccessIndex before = hospital.getAccessIndex();
+        assertFalse(before.canEnter(TypeOfFunction.VISITOR, 129));
+
+        assertTrue(hospital.grantAccess(1129, TypeOfFunction.VISITOR));
+        assertFalse(hospital.grantAccess(1129, TypeOfFunction.VISITOR));
+        assertTrue(hospital.getAccessIndex().canEnter(TypeOfFunction.VISITOR, 129));
+        assertTrue(hospital.getRoomById(1129).hasAccess(TypeOfFunction.VISITOR));
+        assertFalse(before.canEnter(TypeOfFunction.VISITOR, 129));
+
+        assertTrue(hospital.revokeAccess(1000, TypeOfFunction.DOCTOR));
+        assertFalse(hospital.getAccessIndex().canEnter(TypeOfFunction.DOCTOR, 0));
+        assertEquals(ROOMS - 1, hospital.getAccessIndex().count(TypeOfFunction.DOCTOR));
+        assertFalse(hospital.revokeAccess(4242, TypeOfFunction.DOCTOR));
+    }
+}
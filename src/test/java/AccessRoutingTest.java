@@ -0,0 +1,91 @@
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccessRoutingTest {
+
+    private Hospital hospital;
+
+    @BeforeEach
+    void setUp() {
+        // 1 -> 2 (surgery) -> 5 (exit) is the short way, 1 -> 3 -> 4 -> 5 is open to everyone
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        builder.addRoom(room(1, TypeOfRoom.RECEPTION, TypeOfFunction.DOCTOR, TypeOfFunction.VISITOR));
+        builder.addRoom(room(2, TypeOfRoom.SURGERY, TypeOfFunction.DOCTOR));
+        builder.addRoom(room(3, TypeOfRoom.WAITING, TypeOfFunction.DOCTOR, TypeOfFunction.VISITOR));
+        builder.addRoom(room(4, TypeOfRoom.WAITING, TypeOfFunction.DOCTOR, TypeOfFunction.VISITOR));
+        builder.addRoom(room(5, TypeOfRoom.EXIT, TypeOfFunction.DOCTOR, TypeOfFunction.VISITOR));
+        door(builder, 1, 2, 1);
+        door(builder, 2, 5, 1);
+        door(builder, 1, 3, 1);
+        door(builder, 3, 4, 1);
+        door(builder, 4, 5, 1);
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+    }
+
+    private static Room room(int id, TypeOfRoom type, TypeOfFunction... functions) {
+        UnorderedListADT<TypeOfFunction> access = new UnorderedLinkedList<>();
+        for (TypeOfFunction function : functions) {
+            access.addToRear(function);
+        }
+        return new Room(id, access, 0, false, 10, type, "Room " + id);
+    }
+
+    private static void door(CompactGraph.Builder builder, int room1, int room2, double weight) {
+        builder.addEdge(room1, room2, weight);
+        builder.addEdge(room2, room1, weight);
+    }
+
+    private static String ids(Iterator<Room> path) {
+        StringBuilder ids = new StringBuilder();
+        while (path.hasNext()) {
+            ids.append(path.next().getId());
+        }
+        return ids.toString();
+    }
+
+    @Test
+    void testRoutesOnlyEnterAllowedRooms() {
+        assertEquals("125", ids(hospital.findShortestPath(1, 5)));
+        assertEquals("125", ids(hospital.findShortestPath(1, 5, TypeOfFunction.DOCTOR)));
+        assertEquals("1345", ids(hospital.findShortestPath(1, 5, TypeOfFunction.VISITOR)));
+        assertEquals(3, hospital.shortestPathWeight(1, 5, TypeOfFunction.VISITOR));
+        assertEquals("", ids(hospital.findShortestPath(1, 2, TypeOfFunction.VISITOR)));
+        assertEquals(Double.POSITIVE_INFINITY, hospital.shortestPathWeight(1, 2, TypeOfFunction.VISITOR));
+
+        Person visitor = new Person(7, "Visitor", 30, TypeOfFunction.VISITOR);
+        assertEquals("1345", ids(hospital.findShortestPath(1, 5, visitor)));
+        assertEquals("1345", ids(hospital.getEvacuationRoute(1, TypeOfFunction.VISITOR).iterator()));
+        assertEquals("125", ids(hospital.getEvacuationRoute(1).iterator()));
+        // a visitor already in the surgery room can still leave it
+        assertEquals("25", ids(hospital.getEvacuationRoute(2, TypeOfFunction.VISITOR).iterator()));
+    }
+
+    @Test
+    void testAccessChangesReachTheCachedRoutes() {
+        assertEquals("1345", ids(hospital.findShortestPath(1, 5, TypeOfFunction.VISITOR)));
+        assertEquals("125", ids(hospital.getEvacuationRoute(1, TypeOfFunction.DOCTOR).iterator()));
+
+        assertTrue(hospital.grantAccess(2, TypeOfFunction.VISITOR));
+        assertEquals("125", ids(hospital.findShortestPath(1, 5, TypeOfFunction.VISITOR)));
+        assertEquals("125", ids(hospital.getEvacuationRoute(1, TypeOfFunction.VISITOR).iterator()));
+
+        assertTrue(hospital.revokeAccess(3, TypeOfFunction.DOCTOR));
+        assertTrue(hospital.revokeAccess(2, TypeOfFunction.DOCTOR));
+        assertEquals("", ids(hospital.getEvacuationRoute(1, TypeOfFunction.DOCTOR).iterator()));
+        assertEquals("125", ids(hospital.getEvacuationRoute(1, TypeOfFunction.VISITOR).iterator()));
+    }
+}
@@ -0,0 +1,127 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventTimeline;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BatchEventsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+    private static final int ROOMS = 6;
+    private static final int PEOPLE = 5;
+
+    private Hospital newHospital() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < ROOMS; i++) {
+            builder.addRoom(new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i));
+        }
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        for (int p = 0; p < PEOPLE; p++) {
+            hospital.addPerson(new Person(100000000 + p, "Person " + p, 30, TypeOfFunction.NURSE));
+        }
+        return hospital;
+    }
+
+    /**
+     * Random moves with shuffled times, some of them equal, and some from a room the person is not in
+     */
+    private int[][] randomMoves(Random random, int count) {
+        int[][] moves = new int[count][];
+        int[] location = new int[PEOPLE];
+        for (int m = 0; m < count; m++) {
+            int person = random.nextInt(PEOPLE);
+            int from = random.nextInt(4) == 0 ? random.nextInt(ROOMS) : location[person];
+            int to = random.nextInt(ROOMS);
+            location[person] = to;
+            moves[m] = new int[]{person, from, to, random.nextInt(count / 2)};
+        }
+        return moves;
+    }
+
+    private Event[] events(Hospital hospital, int[][] moves) {
+        Event[] events = new Event[moves.length];
+        for (int m = 0; m < moves.length; m++) {
+            events[m] = new Event(hospital.getPersonById(100000000 + moves[m][0]), hospital.getRoomById(moves[m][1]),
+                    hospital.getRoomById(moves[m][2]), START.plusMinutes(moves[m][3]));
+        }
+        return events;
+    }
+
+    private String describe(Hospital hospital) {
+        StringBuilder state = new StringBuilder();
+        for (int p = 0; p < PEOPLE; p++) {
+            for (Event event : hospital.getPersonById(100000000 + p).copyActivity()) {
+                state.append(event.getFrom().getId()).append('>').append(event.getTo().getId()).append('@')
+                        .append(EventTimeline.epochSecond(event.getTime())).append(' ');
+            }
+            state.append('\n');
+        }
+        for (int r = 0; r < ROOMS; r++) {
+            Room room = hospital.getRoomById(r);
+            for (Event event : room.getEvents()) {
+                state.append(event.getPerson().getId()).append('@')
+                        .append(EventTimeline.epochSecond(event.getTime())).append(' ');
+            }
+            List<Integer> people = new ArrayList<>();
+            for (Person person : room.getPeopleInRoom()) {
+                people.add(person.getId());
+            }
+            people.sort(Comparator.naturalOrder());
+            state.append(people).append('\n');
+        }
+        return state.toString();
+    }
+
+    @Test
+    void testBatchMatchesEventsAppliedOneByOneInTimeOrder() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int[][] moves = randomMoves(random, 40);
+
+            Hospital oneByOne = newHospital();
+            Event[] sorted = events(oneByOne, moves);
+            Arrays.sort(sorted, Comparator.comparing(Event::getTime));
+            for (Event event : sorted) {
+                oneByOne.addEvent(event);
+            }
+
+            Hospital batched = newHospital();
+            int half = moves.length / 2;
+            batched.applyEvents(events(batched, Arrays.copyOfRange(moves, 0, half)));
+            Hospital reference = newHospital();
+            Event[] firstHalf = events(reference, Arrays.copyOfRange(moves, 0, half));
+            Event[] secondHalf = events(reference, Arrays.copyOfRange(moves, half, moves.length));
+            Arrays.sort(firstHalf, Comparator.comparing(Event::getTime));
+            Arrays.sort(secondHalf, Comparator.comparing(Event::getTime));
+            for (Event event : firstHalf) {
+                reference.addEvent(event);
+            }
+            for (Event event : secondHalf) {
+                reference.addEvent(event);
+            }
+            batched.applyEvents(events(batched, Arrays.copyOfRange(moves, half, moves.length)));
+
+            Hospital single = newHospital();
+            single.applyEvents(events(single, moves));
+
+            assertEquals(describe(oneByOne), describe(single));
+            assertEquals(describe(reference), describe(batched));
+        }
+    }
+}
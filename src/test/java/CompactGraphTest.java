@@ -0,0 +1,65 @@
+import collections.graphs.Network;
+import collections.lists.UnorderedLinkedList;
+import hospital.Room;
+import hospital.enums.TypeOfRoom;
+import hospital.exceptions.ImportException;
+import hospital.graph.CompactGraph;
+import hospital.io.JsonHandler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CompactGraphTest {
+
+    @Test
+    void testDistancesMatchNetworkOnBundledMap() throws ImportException {
+        CompactGraph graph = JsonHandler.importMap("src/main/resources/map.json");
+        Network<Room> network = new Network<>();
+        for (int i = 0; i < graph.size(); i++) {
+            network.addVertex(graph.getRoom(i));
+        }
+        for (int i = 0; i < graph.size(); i++) {
+            for (int edge = graph.firstEdge(i); edge < graph.endEdge(i); edge++) {
+                network.addEdge(graph.getRoom(i), graph.getRoom(graph.target(edge)), graph.weight(edge));
+            }
+        }
+
+        assertTrue(graph.size() > 1);
+        for (int source = 0; source < graph.size(); source++) {
+            double[] distances = graph.shortestDistances(source, new int[graph.size()]);
+            for (int target = 0; target < graph.size(); target++) {
+                if (source == target) {
+                    continue;
+                }
+                double expected = network.shortestPathWeight(graph.getRoom(source), graph.getRoom(target));
+                assertEquals(expected, graph.shortestPathWeight(source, target), 1e-9);
+                assertEquals(expected, distances[target], 1e-9);
+                assertEquals(expected, graph.pathWeight(graph.findShortestPath(source, target)), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testShortestPathPrefersCheaperDetour() {
+        Room[] rooms = new Room[4];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(10 + i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+            builder.addRoom(rooms[i]);
+        }
+        builder.addEdge(10, 11, 10);
+        builder.addEdge(10, 12, 1);
+        builder.addEdge(12, 11, 2);
+        CompactGraph graph = builder.build();
+
+        int from = graph.indexOf(10);
+        int to = graph.indexOf(11);
+        assertEquals(3, graph.shortestPathWeight(from, to));
+        assertArrayEquals(new int[]{from, graph.indexOf(12), to}, graph.findShortestPath(from, to));
+        // edges are directed, and a room without edges cannot be reached
+        assertEquals(Double.POSITIVE_INFINITY, graph.shortestPathWeight(to, from));
+        assertArrayEquals(new int[0], graph.findShortestPath(from, graph.indexOf(13)));
+        assertEquals(-1, graph.indexOf(99));
+    }
+}
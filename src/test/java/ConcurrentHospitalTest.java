@@ -0,0 +1,137 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventLog;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ConcurrentHospitalTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+    private static final int ROOMS = 8;
+    private static final int FEEDS = 8;
+    private static final int MOVES = 2000;
+
+    @TempDir
+    Path directory;
+
+    private Hospital hospital;
+    private Room[] rooms;
+
+    @BeforeEach
+    void setUp() {
+        rooms = new Room[ROOMS];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+            builder.addRoom(rooms[i]);
+        }
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        for (int p = 0; p < FEEDS; p++) {
+            hospital.addPerson(new Person(100000000 + p, "Person " + p, 30, TypeOfFunction.NURSE));
+        }
+    }
+
+    @Test
+    void testFeedsAppliedInParallelWhileQueriesRun() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(FEEDS + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<?>> feeds = new ArrayList<>();
+        for (int p = 0; p < FEEDS; p++) {
+            Person person = hospital.getPersonById(100000000 + p);
+            int offset = p;
+            // half the feeds walk up the rooms and half walk down, so moves cross in both directions
+            int step = p % 2 == 0 ? 1 : ROOMS - 1;
+            feeds.add(threads.submit(() -> {
+                int from = 0;
+                for (int m = 0; m < MOVES; m++) {
+                    int to = (from + step) % ROOMS;
+                    hospital.addEvent(new Event(person, rooms[from], rooms[to], START.plusSeconds(m * 10L + offset)));
+                    from = to;
+                }
+            }));
+        }
+        Future<?> reader = threads.submit(() -> {
+            while (!done.get()) {
+                hospital.traceContacts(100000000, START, START.plusHours(6));
+                hospital.hadContactWithRoom(3, START, START.plusHours(6));
+                hospital.getAllEvents();
+            }
+        });
+        for (Future<?> feed : feeds) {
+            feed.get(30, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        reader.get(30, TimeUnit.SECONDS);
+        threads.shutdown();
+
+        assertEquals(FEEDS * MOVES, hospital.getAllEvents().size());
+        int occupants = 0;
+        for (Room room : rooms) {
+            occupants += room.getPeopleInRoom().size();
+        }
+        for (int p = 0; p < FEEDS; p++) {
+            assertEquals(MOVES, hospital.getActivity(100000000 + p).size());
+        }
+        // every move left the room it came from, so everybody is in exactly one room
+        assertEquals(FEEDS, occupants);
+    }
+
+    @Test
+    void testRecordedFeedsThroughTheSameRoomAreAllDurable() throws Exception {
+        int moves = 100;
+        Path file = directory.resolve("feeds.wal");
+        try (EventLog log = EventLog.open(file)) {
+            hospital.setEventLog(log);
+            ExecutorService threads = Executors.newFixedThreadPool(FEEDS);
+            List<Future<?>> feeds = new ArrayList<>();
+            for (int p = 0; p < FEEDS; p++) {
+                Person person = hospital.getPersonById(100000000 + p);
+                Room other = rooms[1 + p % (ROOMS - 1)];
+                int offset = p;
+                // every feed goes back and forth through room 0, so their batches always share its stripe
+                feeds.add(threads.submit(() -> {
+                    for (int m = 0; m < moves; m++) {
+                        Room from = m % 2 == 0 ? rooms[0] : other;
+                        Room to = m % 2 == 0 ? other : rooms[0];
+                        hospital.recordEvents(new Event[]{
+                                new Event(person, from, to, START.plusSeconds(m * 10L + offset))});
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> feed : feeds) {
+                feed.get(30, TimeUnit.SECONDS);
+            }
+            threads.shutdown();
+            assertEquals(FEEDS * moves, log.lastSequence());
+        }
+        try (EventLog log = EventLog.open(file)) {
+            int[] replayed = new int[1];
+            log.replay((personId, fromRoomId, toRoomId, time) -> replayed[0]++);
+            assertEquals(FEEDS * moves, replayed[0]);
+        }
+        assertEquals(FEEDS * moves, hospital.getAllEvents().size());
+        assertEquals(FEEDS, rooms[0].getCurrentOccupation());
+    }
+}
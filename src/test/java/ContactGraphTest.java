@@ -0,0 +1,236 @@
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.Contact;
+import hospital.events.ContactGraph;
+import hospital.events.EventColumns;
+import hospital.events.EventTimeline;
+import hospital.events.StayIndex;
+import hospital.graph.CompactGraph;
+import hospital.io.HospitalSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ContactGraphTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+    private static final int ROOMS = 5;
+    private static final int PEOPLE = 12;
+
+    @TempDir
+    Path directory;
+
+    private Hospital hospital;
+    private Room[] rooms;
+    private Person[] people;
+
+    @BeforeEach
+    void setUp() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        rooms = new Room[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 100, TypeOfRoom.WAITING, "Room " + i);
+            builder.addRoom(rooms[i]);
+        }
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        people = new Person[PEOPLE];
+        for (int i = 0; i < PEOPLE; i++) {
+            people[i] = new Person(500 + i, "Person " + i, 40, TypeOfFunction.NURSE);
+            hospital.addPerson(people[i]);
+        }
+    }
+
+    private static long at(int minutes) {
+        return EventTimeline.epochSecond(START.plusMinutes(minutes));
+    }
+
+    private static Event move(Person person, Room to, long time) {
+        return new Event(person, person.getLocation(), to, LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC));
+    }
+
+    private static void advance(ContactGraph graph, EventColumns columns, Event... events) {
+        columns.addAll(events);
+        graph.advance(columns, columns.size());
+    }
+
+    private static String describe(UnorderedListADT<Contact> contacts) {
+        List<String> lines = new ArrayList<>();
+        Iterator<Contact> iterator = contacts.iterator();
+        while (iterator.hasNext()) {
+            Contact contact = iterator.next();
+            lines.add(contact.person().getId() + ":" + contact.overlapSeconds() + ":" + contact.firstContact() +
+                    ":" + contact.lastContact());
+        }
+        lines.sort(null);
+        return lines.toString();
+    }
+
+    private Event[] randomEvents(Random random, int count, int minute) {
+        Event[] events = new Event[count];
+        for (int i = 0; i < count; i++) {
+            minute += random.nextInt(20);
+            Person person = people[random.nextInt(PEOPLE)];
+            events[i] = new Event(person, person.getLocation(), rooms[random.nextInt(ROOMS)],
+                    START.plusMinutes(minute));
+        }
+        return events;
+    }
+
+    private static void assertMatchesTheStayIndex(Person[] people, ContactGraph graph) {
+        StayIndex index = StayIndex.build(List.of(people));
+        for (Person person : people) {
+            for (int[] window : new int[][]{{-1000, 100000}, {30, 95}, {200, 900}}) {
+                long from = at(window[0]);
+                long to = at(window[1]);
+                assertEquals(describe(index.contactsOf(person.getId(), from, to)),
+                        describe(graph.contactsOf(person.getId(), from, to)));
+            }
+        }
+    }
+
+    @Test
+    void testGraphMatchesTheStayIndex() {
+        Random random = new Random(11);
+        int minute = 0;
+        for (int i = 0; i < 200; i++) {
+            minute += random.nextInt(20);
+            Person person = people[random.nextInt(PEOPLE)];
+            hospital.addEvent(new Event(person, person.getLocation(), rooms[random.nextInt(ROOMS)],
+                    START.plusMinutes(minute)));
+        }
+        // enabled with events already applied, the rest is applied in batches
+        ContactGraph graph = hospital.enableContactGraph(3600);
+        for (int batch = 0; batch < 10; batch++) {
+            Event[] events = new Event[20];
+            for (int i = 0; i < events.length; i++) {
+                minute += random.nextInt(20);
+                Person person = people[random.nextInt(PEOPLE)];
+                events[i] = new Event(person, person.getLocation(), rooms[random.nextInt(ROOMS)],
+                        START.plusMinutes(minute));
+            }
+            hospital.applyEvents(events);
+        }
+
+        List<Person> everyone = List.of(people);
+        StayIndex index = StayIndex.build(everyone);
+        int[][] windows = {{0, minute + 60}, {-1000, 100000}, {30, 95}, {minute / 2, minute / 2 + 1}, {10, 10}};
+        for (Person person : people) {
+            for (int[] window : windows) {
+                long from = at(window[0]);
+                long to = at(window[1]);
+                assertEquals(describe(index.contactsOf(person.getId(), from, to)),
+                        describe(graph.contactsOf(person.getId(), from, to)));
+            }
+        }
+        assertEquals(describe(index.contactsOf(people[0].getId(), at(-1000), at(100000))),
+                describe(hospital.traceContacts(people[0].getId(), START.minusMinutes(1000), START.plusMinutes(100000))));
+    }
+
+    @Test
+    void testEdgesHoldTheFinishedOverlaps() {
+        ContactGraph graph = new ContactGraph(600);
+        EventColumns columns = new EventColumns();
+        advance(graph, columns, move(people[0], rooms[1], at(0)), move(people[2], rooms[1], at(30)));
+        // person 0 leaves after 35 minutes with person 1 and 10 minutes with person 2
+        advance(graph, columns, move(people[0], rooms[2], at(40)));
+        // the arrival of person 1 comes late, the moves after it are applied again
+        advance(graph, columns, move(people[1], rooms[1], at(5)));
+        assertEquals(35 * 60, graph.overlap(people[0].getId(), people[1].getId()));
+        assertEquals(10 * 60, graph.overlap(people[2].getId(), people[0].getId()));
+        assertEquals(0, graph.overlap(people[1].getId(), people[2].getId()));
+        assertEquals(2, graph.edgeCount());
+        assertEquals(2, graph.edgesOf(people[0].getId()).size());
+
+        Contact contact = graph.edgesOf(people[2].getId()).first();
+        assertEquals(people[0], contact.person());
+        assertEquals(at(30), contact.firstContact());
+        assertEquals(at(40), contact.lastContact());
+
+        // the open stays of persons 1 and 2 count up to the end of the window
+        UnorderedListADT<Contact> contacts = graph.contactsOf(people[1].getId(), at(35), at(60));
+        assertEquals("[500:300:" + at(35) + ":" + at(40) + ", 502:1500:" + at(35) + ":" + at(60) + "]",
+                describe(contacts));
+    }
+
+    @Test
+    void testGraphOfAReadSnapshotMatchesTheStayIndex() throws Exception {
+        // person 0 is with person 1 from minute 5 to 20, but the snapshot refills the events person by person
+        hospital.addEvent(new Event(people[0], rooms[0], rooms[1], START));
+        hospital.addEvent(new Event(people[1], rooms[0], rooms[1], START.plusMinutes(5)));
+        hospital.addEvent(new Event(people[0], rooms[1], rooms[2], START.plusMinutes(20)));
+        hospital.applyEvents(randomEvents(new Random(5), 100, 30));
+        Path file = directory.resolve(HospitalSnapshot.SNAPSHOT_FILE);
+        HospitalSnapshot.write(hospital, 0, file);
+
+        Hospital restored = HospitalSnapshot.read(file).getHospital();
+        Person[] restoredPeople = new Person[PEOPLE];
+        for (int i = 0; i < PEOPLE; i++) {
+            restoredPeople[i] = restored.getPersonById(people[i].getId());
+        }
+        ContactGraph graph = restored.enableContactGraph(3600);
+        assertEquals(15 * 60, graph.contactsOf(people[1].getId(), at(0), at(20)).first().overlapSeconds());
+        assertMatchesTheStayIndex(restoredPeople, graph);
+    }
+
+    @Test
+    void testGraphMatchesTheStayIndexWhenBatchesArriveLate() {
+        ContactGraph graph = hospital.enableContactGraph(600);
+        Random random = new Random(23);
+        Event[] early = randomEvents(random, 50, 0);
+        Event[] late = randomEvents(random, 50, 1000);
+        // the later batch is applied first, as concurrent ingestion may do
+        hospital.applyEvents(late);
+        assertMatchesTheStayIndex(people, graph);
+        hospital.applyEvents(early);
+        assertMatchesTheStayIndex(people, graph);
+        hospital.applyEvents(randomEvents(random, 50, 2500));
+        assertMatchesTheStayIndex(people, graph);
+    }
+
+    @Test
+    void testBucketsBeyondTheIntRange() {
+        ContactGraph graph = new ContactGraph(1);
+        long time = 3L * Integer.MAX_VALUE;
+        advance(graph, new EventColumns(), move(people[0], rooms[1], time), move(people[1], rooms[1], time + 10),
+                move(people[0], rooms[2], time + 40));
+        assertEquals(30, graph.overlap(people[0].getId(), people[1].getId()));
+        assertEquals(30, graph.contactsOf(people[0].getId(), time, time + 100).first().overlapSeconds());
+    }
+
+    @Test
+    void testInterleavedBatchesWithinTheReorderWindow() {
+        ContactGraph graph = new ContactGraph(600, 24 * 3600);
+        EventColumns columns = hospital.getEventColumns();
+        Random random = new Random(31);
+        Event[][] batches = new Event[20][];
+        for (int b = 0; b < batches.length; b++) {
+            batches[b] = randomEvents(random, 10, b * 100);
+        }
+        // every pair of batches arrives in the wrong order, as two feeds sorting their own batches may send them
+        for (int b = 0; b < batches.length; b += 2) {
+            hospital.applyEvents(batches[b + 1]);
+            graph.advance(columns, columns.size());
+            hospital.applyEvents(batches[b]);
+            graph.advance(columns, columns.size());
+        }
+        assertMatchesTheStayIndex(people, graph);
+    }
+}
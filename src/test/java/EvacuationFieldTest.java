@@ -0,0 +1,73 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Room;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import hospital.graph.EvacuationField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EvacuationFieldTest {
+
+    private CompactGraph graph;
+    private EvacuationField field;
+
+    @BeforeEach
+    void setUp() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        builder.addRoom(room(10, TypeOfRoom.EXIT));
+        builder.addRoom(room(11, TypeOfRoom.WAITING));
+        builder.addRoom(room(12, TypeOfRoom.OFFICE));
+        builder.addRoom(room(13, TypeOfRoom.EXIT));
+        builder.addRoom(room(14, TypeOfRoom.STORAGE));
+        // 11 <-> 10 (5), 11 <-> 12 (1), 12 <-> 13 (2), 14 -> 11 (1) one way only
+        connect(builder, 11, 10, 5);
+        connect(builder, 11, 12, 1);
+        connect(builder, 12, 13, 2);
+        builder.addEdge(14, 11, 1);
+        graph = builder.build();
+        field = EvacuationField.compute(graph);
+    }
+
+    private static Room room(int id, TypeOfRoom type) {
+        return new Room(id, new UnorderedLinkedList<>(), 0, false, 10, type, "Room " + id);
+    }
+
+    private static void connect(CompactGraph.Builder builder, int room1, int room2, double weight) {
+        builder.addEdge(room1, room2, weight);
+        builder.addEdge(room2, room1, weight);
+    }
+
+    @Test
+    void testExitsHaveDistanceZero() {
+        assertEquals(0, field.distance(graph.indexOf(10)));
+        assertEquals(graph.indexOf(13), field.nearestExit(graph.indexOf(13)));
+        assertEquals(-1, field.nextHop(graph.indexOf(10)));
+    }
+
+    @Test
+    void testNearestExitIsTheClosestOne() {
+        int waiting = graph.indexOf(11);
+        assertEquals(3, field.distance(waiting));
+        assertEquals(graph.indexOf(13), field.nearestExit(waiting));
+        assertEquals(graph.indexOf(12), field.nextHop(waiting));
+    }
+
+    @Test
+    void testRouteFollowsOneWayEdges() {
+        int[] route = field.routeToExit(graph.indexOf(14));
+        assertArrayEquals(new int[]{graph.indexOf(14), graph.indexOf(11), graph.indexOf(12), graph.indexOf(13)}, route);
+        assertEquals(4, field.distance(graph.indexOf(14)));
+    }
+
+    @Test
+    void testDistanceMatchesShortestPathToEveryExit() {
+        for (int room = 0; room < graph.size(); room++) {
+            double best = Math.min(graph.shortestPathWeight(room, graph.indexOf(10)),
+                    graph.shortestPathWeight(room, graph.indexOf(13)));
+            assertEquals(best, field.distance(room));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventColumns;
+import hospital.events.EventTimeline;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EventColumnsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    private static Room room(int id) {
+        return new Room(id, new UnorderedLinkedList<>(), 0, false, 0, TypeOfRoom.WAITING, "Room " + id);
+    }
+
+    @Test
+    void testEventsSurviveGrowingAcrossChunks() {
+        EventColumns columns = new EventColumns();
+        Room[] rooms = {room(0), room(1), room(2)};
+        Person[] people = new Person[50];
+        for (int p = 0; p < people.length; p++) {
+            people[p] = new Person(100000000 + p, "Person " + p, 30, TypeOfFunction.NURSE);
+        }
+        int count = 40000;
+        for (int i = 0; i < count; i++) {
+            LocalDateTime time = START.plusSeconds(i).withNano(i % 1000);
+            assertEquals(i, columns.add(people[i % people.length], rooms[i % 3], rooms[(i + 1) % 3], time));
+        }
+        assertEquals(count, columns.size());
+        for (int i = 0; i < count; i += 997) {
+            Event event = columns.get(i);
+            assertSame(people[i % people.length], event.getPerson());
+            assertSame(rooms[i % 3], event.getFrom());
+            assertSame(rooms[(i + 1) % 3], event.getTo());
+            assertEquals(START.plusSeconds(i).withNano(i % 1000), event.getTime());
+        }
+    }
+
+    @Test
+    void testHospitalStoresEveryEventOnce() {
+        Room[] rooms = {room(0), room(1), room(2)};
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (Room room : rooms) {
+            builder.addRoom(room);
+        }
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        Person person = new Person(100000001, "Nurse", 30, TypeOfFunction.NURSE);
+        hospital.addPerson(person);
+
+        hospital.addEvent(new Event(person, rooms[0], rooms[1], START));
+        hospital.applyEvents(new Event[]{
+                new Event(person, rooms[1], rooms[2], START.plusMinutes(5)),
+                new Event(person, rooms[2], rooms[1], START.plusMinutes(10)),
+        });
+
+        EventColumns columns = hospital.getEventColumns();
+        assertEquals(3, columns.size());
+        assertSame(columns, person.getEventColumns());
+        assertArrayEquals(new int[]{0, 1, 2}, person.copyActivityOffsets());
+        EventTimeline timeline = rooms[1].getEvents();
+        assertSame(columns, timeline.getColumns());
+        assertEquals(0, timeline.offsetAt(0));
+        assertEquals(2, timeline.offsetAt(1));
+        assertEquals(new Event(person, rooms[2], rooms[1], START.plusMinutes(10)), timeline.get(1));
+    }
+}
@@ -0,0 +1,134 @@
+import hospital.events.EventLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EventLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Long> replayTimes(EventLog log) throws IOException {
+        List<Long> times = new ArrayList<>();
+        log.replay((personId, fromRoomId, toRoomId, time) -> times.add(time));
+        return times;
+    }
+
+    private static List<Long> replayTimesAfter(EventLog log, long sequence) throws IOException {
+        List<Long> times = new ArrayList<>();
+        log.replay(sequence, (personId, fromRoomId, toRoomId, time) -> times.add(time));
+        return times;
+    }
+
+    @Test
+    void testDurableRecordsAreReplayedAfterReopening() throws IOException {
+        Path file = directory.resolve("events.wal");
+        try (EventLog log = EventLog.open(file)) {
+            for (int i = 1; i <= 5; i++) {
+                log.sync(log.append(100000000 + i, 1, 2, i));
+            }
+        }
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(5, log.lastSequence());
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), replayTimes(log));
+            assertEquals(List.of(4L, 5L), replayTimesAfter(log, 3));
+        }
+    }
+
+    @Test
+    void testTornRecordIsCutOff() throws IOException {
+        Path file = directory.resolve("torn.wal");
+        try (EventLog log = EventLog.open(file)) {
+            log.append(100000001, 1, 2, 10);
+            log.append(100000002, 2, 3, 20);
+            log.sync(log.append(100000003, 3, 4, 30));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // lose the end of the last record, as a crash in the middle of a write would
+            channel.truncate(channel.size() - 5);
+        }
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(List.of(10L, 20L), replayTimes(log));
+            assertEquals(3, log.append(100000003, 3, 4, 30));
+        }
+    }
+
+    @Test
+    void testCheckpointDiscardsSavedRecords() throws IOException {
+        Path file = directory.resolve("checkpoint.wal");
+        try (EventLog log = EventLog.open(file)) {
+            log.sync(log.append(100000001, 1, 2, 10));
+            log.checkpoint();
+            log.sync(log.append(100000002, 2, 3, 20));
+        }
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(1, log.checkpointSequence());
+            assertEquals(List.of(20L), replayTimes(log));
+            log.checkpoint();
+        }
+        // the emptied log goes on after the checkpoint, so no sequence number is given twice
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(2, log.checkpointSequence());
+            assertEquals(3, log.append(100000003, 3, 4, 30));
+        }
+    }
+
+    @Test
+    void testVirtualThreadWritersAreAllDurable() throws Exception {
+        Path file = directory.resolve("virtual.wal");
+        int writers = 500;
+        try (EventLog log = EventLog.open(file)) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int w = 0; w < writers; w++) {
+                    int writer = w;
+                    executor.submit(() -> {
+                        log.sync(log.append(100000000 + writer, 1, 2, writer));
+                        return null;
+                    });
+                }
+            }
+        }
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(writers, replayTimes(log).size());
+        }
+    }
+
+    @Test
+    void testConcurrentWritersAreAllDurable() throws Exception {
+        Path file = directory.resolve("concurrent.wal");
+        int writers = 8;
+        int perWriter = 200;
+        try (EventLog log = EventLog.open(file)) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        log.sync(log.append(100000000 + writer, 1, 2, i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+        try (EventLog log = EventLog.open(file)) {
+            assertEquals(writers * perWriter, replayTimes(log).size());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.Contact;
+import hospital.events.EventStore;
+import hospital.events.EventTimeline;
+import hospital.events.StayIndex;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EventStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 8, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEventsSurviveReopeningAcrossBlocks() throws IOException {
+        Path file = directory.resolve("events.bin");
+        int count = EventStore.BLOCK_ROWS + 10;
+        try (EventStore store = EventStore.open(file)) {
+            for (int i = 0; i < count; i++) {
+                store.append(100000000 + i % 7, i % 5, (i + 1) % 5, 1000L + i);
+            }
+        }
+        try (EventStore store = EventStore.open(file)) {
+            assertEquals(count, store.size());
+            long last = count - 1;
+            assertEquals(100000000 + (int) (last % 7), store.personId(last));
+            assertEquals((int) (last % 5), store.fromRoomId(last));
+            assertEquals((int) ((last + 1) % 5), store.toRoomId(last));
+            assertEquals(1000L + last, store.time(last));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.time(count));
+
+            long[] visited = new long[1];
+            store.forEach((personId, fromRoomId, toRoomId, time) -> visited[0]++);
+            assertEquals(count, visited[0]);
+
+            List<Long> times = new ArrayList<>();
+            store.scan(1005, 1007, (personId, fromRoomId, toRoomId, time) -> times.add(time));
+            assertEquals(List.of(1005L, 1006L, 1007L), times);
+
+            List<Long> ofPerson = new ArrayList<>();
+            store.forEachOf(100000003, (personId, fromRoomId, toRoomId, time) -> ofPerson.add(time));
+            store.append(100000003, 0, 1, 1L);
+            store.forEachOf(100000003, (personId, fromRoomId, toRoomId, time) -> ofPerson.add(time));
+            assertEquals((count - 3 + 6) / 7, ofPerson.size() / 2);
+            assertEquals(1003L, ofPerson.get(0));
+            assertEquals(1L, ofPerson.get(ofPerson.size() - 1));
+        }
+    }
+
+    @Test
+    void testStayIndexUpdateMatchesRebuild() throws IOException {
+        Room[] rooms = new Room[4];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+        }
+        Person[] people = new Person[6];
+        for (int i = 0; i < people.length; i++) {
+            people[i] = new Person(100000000 + i, "Person " + i, 30, TypeOfFunction.NURSE);
+        }
+        Random random = new Random(7);
+        try (EventStore store = EventStore.open(directory.resolve("stays.bin"))) {
+            StayIndex index = null;
+            long indexed = 0;
+            long time = 0;
+            for (int batch = 0; batch < 200; batch++) {
+                for (int i = 0; i < 10; i++) {
+                    time += random.nextInt(4);
+                    // one event in five is late, so updates must also rewrite older stays, and times often tie,
+                    // so a late event can also end a stay before it starts
+                    long at = random.nextInt(5) == 0 ? Math.max(0, time - random.nextInt(20)) : time;
+                    store.append(people[random.nextInt(people.length)].getId(), 0,
+                            rooms[random.nextInt(rooms.length)].getId(), at);
+                }
+                StayIndex rebuilt = StayIndex.build(store, id -> people[id - 100000000], id -> rooms[id]);
+                index = index == null ? rebuilt
+                        : index.update(store, indexed, id -> people[id - 100000000], id -> rooms[id]);
+                indexed = store.size();
+                for (Person person : people) {
+                    assertArrayEquals(rebuilt.staysOf(person.getId()), index.staysOf(person.getId()));
+                    assertEquals(describe(rebuilt, person), describe(index, person));
+                }
+            }
+        }
+    }
+
+    private static List<String> describe(StayIndex index, Person person) {
+        List<String> contacts = new ArrayList<>();
+        for (Contact contact : index.contactsOf(person.getId(), 0, Long.MAX_VALUE - 1)) {
+            contacts.add(contact.person().getId() + ":" + contact.overlapSeconds());
+        }
+        contacts.sort(null);
+        return contacts;
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> EventStore.open(file));
+    }
+
+    @Test
+    void testHospitalAnswersContactsFromStoredHistory() throws IOException {
+        Room[] rooms = new Room[3];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+            builder.addRoom(rooms[i]);
+        }
+        Person first = new Person(100000001, "First", 30, TypeOfFunction.NURSE);
+        Person second = new Person(100000002, "Second", 40, TypeOfFunction.DOCTOR);
+
+        Path file = directory.resolve("history.bin");
+        try (EventStore store = EventStore.open(file)) {
+            Hospital recorded = new Hospital();
+            recorded.setHospitalMap(builder.build());
+            recorded.addPerson(first);
+            recorded.addPerson(second);
+            recorded.setEventStore(store);
+            recorded.addEvent(new Event(first, rooms[0], rooms[1], START));
+            recorded.addEvent(new Event(second, rooms[0], rooms[1], START.plusMinutes(10)));
+            recorded.addEvent(new Event(first, rooms[1], rooms[2], START.plusMinutes(30)));
+        }
+
+        // a new hospital with the same map but no events in memory
+        Hospital reloaded = new Hospital();
+        Person firstAgain = new Person(first.getId(), "First", 30, TypeOfFunction.NURSE);
+        Person secondAgain = new Person(second.getId(), "Second", 40, TypeOfFunction.DOCTOR);
+        Room[] roomsAgain = new Room[3];
+        CompactGraph.Builder rebuilt = new CompactGraph.Builder();
+        for (int i = 0; i < roomsAgain.length; i++) {
+            roomsAgain[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+            rebuilt.addRoom(roomsAgain[i]);
+        }
+        reloaded.setHospitalMap(rebuilt.build());
+        reloaded.addPerson(firstAgain);
+        reloaded.addPerson(secondAgain);
+        try (EventStore store = EventStore.open(file)) {
+            reloaded.setEventStore(store);
+            assertEquals(2, reloaded.getActivity(first.getId()).size());
+            assertEquals(roomsAgain[2], reloaded.getActivity(first.getId()).last().getTo());
+            assertEquals(20 * 60, reloaded.traceContacts(first.getId(), START, START.plusHours(1)).first().overlapSeconds());
+            assertEquals(2, reloaded.hadContactWithRoom(1, START.minusMinutes(1), START.plusMinutes(20)).size());
+            assertEquals(EventTimeline.epochSecond(START), store.time(0));
+        }
+    }
+}
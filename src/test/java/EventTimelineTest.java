@@ -0,0 +1,80 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.EventTimeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EventTimelineTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    private EventTimeline timeline;
+    private Room from;
+    private Room to;
+
+    @BeforeEach
+    void setUp() {
+        timeline = new EventTimeline();
+        from = new Room(1, new UnorderedLinkedList<>(), 0, false, 5, TypeOfRoom.WAITING, "Waiting");
+        to = new Room(2, new UnorderedLinkedList<>(), 0, false, 5, TypeOfRoom.OFFICE, "Office");
+    }
+
+    private Event event(int personId, int minutes) {
+        Person person = new Person(personId, "Person " + personId, 40, TypeOfFunction.NURSE);
+        return new Event(person, from, to, START.plusMinutes(minutes));
+    }
+
+    @Test
+    void testOutOfOrderEventsAreReadInTimeOrder() {
+        int[] minutes = {30, 10, 50, 0, 20, 40};
+        for (int i = 0; i < minutes.length; i++) {
+            timeline.add(event(100000000 + i, minutes[i]));
+        }
+        assertEquals(6, timeline.size());
+        for (int i = 1; i < timeline.size(); i++) {
+            assertTrue(timeline.timeAt(i - 1) <= timeline.timeAt(i));
+        }
+        assertEquals(START, timeline.get(0).getTime());
+    }
+
+    @Test
+    void testEqualTimesKeepInsertionOrder() {
+        timeline.add(event(100000001, 10));
+        timeline.add(event(100000002, 5));
+        timeline.add(event(100000003, 10));
+        timeline.add(event(100000004, 10));
+        assertEquals(100000001, timeline.get(1).getPerson().getId());
+        assertEquals(100000003, timeline.get(2).getPerson().getId());
+        assertEquals(100000004, timeline.get(3).getPerson().getId());
+    }
+
+    @Test
+    void testWindowBoundsAreExclusive() {
+        for (int minute = 0; minute <= 60; minute += 10) {
+            timeline.add(event(100000000 + minute, minute));
+        }
+        long windowStart = EventTimeline.epochSecond(START.plusMinutes(10));
+        long windowEnd = EventTimeline.epochSecond(START.plusMinutes(40));
+        assertEquals(2, timeline.firstAfter(windowStart));
+        assertEquals(4, timeline.firstAtOrAfter(windowEnd));
+    }
+
+    @Test
+    void testRoomContactsOnlyInsideWindow() {
+        to.addEvent(event(100000001, 5));
+        to.addEvent(event(100000002, 25));
+        to.addEvent(event(100000003, 15));
+        to.addEvent(event(100000004, 35));
+        assertEquals(2, to.hadContactWithRoom(START.plusMinutes(10), START.plusMinutes(30)).size());
+        assertEquals(1, to.hadContactWithIndividual(100000002, START.plusMinutes(10), START.plusMinutes(30)).size());
+    }
+}
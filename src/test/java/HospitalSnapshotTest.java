@@ -0,0 +1,117 @@
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.events.EventLog;
+import hospital.events.EventTimeline;
+import hospital.graph.CompactGraph;
+import hospital.io.HospitalSnapshot;
+import hospital.io.JsonHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class HospitalSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Hospital hospital;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hospital = new Hospital();
+        hospital.setHospitalMap(JsonHandler.importMap("src/main/resources/map.json"));
+        JsonHandler.importEvents(hospital, "src/main/resources/events.json");
+    }
+
+    private static String describe(Hospital hospital) {
+        StringBuilder description = new StringBuilder();
+        CompactGraph map = hospital.getHospitalMap();
+        for (int i = 0; i < map.size(); i++) {
+            Room room = map.getRoom(i);
+            description.append(room).append(room.getAccess()).append('|');
+            // the people of a room are kept in no particular order
+            List<Integer> occupants = new ArrayList<>();
+            for (Person person : room.getPeopleInRoom()) {
+                occupants.add(person.getId());
+            }
+            Collections.sort(occupants);
+            description.append(occupants);
+            for (int e = map.firstEdge(i); e < map.endEdge(i); e++) {
+                description.append(map.getRoom(map.target(e)).getId()).append(':').append(map.weight(e)).append(',');
+            }
+            EventTimeline timeline = room.getEvents();
+            for (int t = 0; t < timeline.size(); t++) {
+                Event event = timeline.get(t);
+                description.append(event.getPerson().getId()).append(event.getFrom().getId()).append(event.getTime());
+            }
+            description.append('\n');
+        }
+        List<String> people = new ArrayList<>();
+        for (Person person : hospital.getAllPeople()) {
+            people.add(person + "" + person.getActivity());
+        }
+        Collections.sort(people);
+        for (String person : people) {
+            description.append(person).append('\n');
+        }
+        return description.toString();
+    }
+
+    @Test
+    void testSnapshotRestoresTheWholeState() throws Exception {
+        Path file = directory.resolve("hospital.snapshot");
+        HospitalSnapshot.write(hospital, 42, file);
+
+        HospitalSnapshot snapshot = HospitalSnapshot.read(file);
+        assertEquals(42, snapshot.getSequence());
+        Hospital restored = snapshot.getHospital();
+        assertEquals(describe(hospital), describe(restored));
+
+        LocalDateTime from = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2100, 1, 1, 0, 0);
+        for (Person person : hospital.getAllPeople()) {
+            assertEquals(hospital.traceContacts(person.getId(), from, to).toString(),
+                    restored.traceContacts(person.getId(), from, to).toString());
+        }
+    }
+
+    @Test
+    void testOnlyEventsAfterTheSnapshotAreReplayed() throws Exception {
+        Path snapshotFile = directory.resolve("hospital.snapshot");
+        Person person = hospital.getAllPeople().first();
+        CompactGraph map = hospital.getHospitalMap();
+        LocalDateTime time = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+        try (EventLog eventLog = EventLog.open(directory.resolve("events.wal"))) {
+            hospital.setEventLog(eventLog);
+            Room current = person.getActivity().isEmpty() ? map.getRoom(0) : person.getActivity().last().getTo();
+            for (int i = 0; i < 6; i++) {
+                Room next = map.getRoom(map.target(map.firstEdge(map.indexOf(current.getId()))));
+                hospital.recordEvent(new Event(person, current, next, time.plusMinutes(i)));
+                current = next;
+                if (i == 2) {
+                    HospitalSnapshot.checkpoint(hospital, snapshotFile);
+                }
+            }
+        }
+
+        try (EventLog eventLog = EventLog.open(directory.resolve("events.wal"))) {
+            HospitalSnapshot snapshot = HospitalSnapshot.read(snapshotFile);
+            assertEquals(3, snapshot.getSequence());
+            Hospital restored = snapshot.getHospital();
+            assertEquals(3, restored.replayEvents(eventLog, snapshot.getSequence()));
+            assertEquals(describe(hospital), describe(restored));
+        }
+    }
+}
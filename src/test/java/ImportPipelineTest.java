@@ -0,0 +1,92 @@
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.graph.CompactGraph;
+import hospital.io.ImportPipeline;
+import hospital.io.JsonHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ImportPipelineTest {
+
+    private static final Path RESOURCES = Path.of("src/main/resources");
+
+    @TempDir
+    Path directory;
+
+    private static Hospital sequential(Path directory) throws Exception {
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(JsonHandler.importMap(directory.resolve("map.json").toString()));
+        JsonHandler.importEvents(hospital, directory.resolve("events.json").toString());
+        return hospital;
+    }
+
+    private static Hospital parallel(Path directory, int threads) throws Exception {
+        return new ImportPipeline(threads).load(directory.resolve("map.json").toString(),
+                directory.resolve("rooms.json").toString(), directory.resolve("people.json").toString(),
+                directory.resolve("events.json").toString());
+    }
+
+    private static String describe(Hospital hospital) {
+        StringBuilder description = new StringBuilder();
+        CompactGraph map = hospital.getHospitalMap();
+        for (int i = 0; i < map.size(); i++) {
+            Room room = map.getRoom(i);
+            description.append(room.getId()).append(room.getEvents()).append(room.getPeopleInRoom().size());
+            for (int e = map.firstEdge(i); e < map.endEdge(i); e++) {
+                description.append(map.target(e)).append(':').append(map.weight(e)).append(',');
+            }
+        }
+        for (Person person : hospital.getAllPeople()) {
+            description.append(person.getId()).append(person.getActivity());
+        }
+        return description.toString();
+    }
+
+    @Test
+    void testMatchesSequentialImportOfBundledFiles() throws Exception {
+        assertEquals(describe(sequential(RESOURCES)), describe(parallel(RESOURCES, 4)));
+    }
+
+    @Test
+    void testLargeEventFileIsSplitWithoutChangingTheOrder() throws Exception {
+        for (String name : new String[]{"map.json", "rooms.json", "people.json"}) {
+            Files.copy(RESOURCES.resolve(name), directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Hospital reference = sequential(RESOURCES);
+        Person[] people = new Person[reference.getAllPeople().size()];
+        int count = 0;
+        for (Person person : reference.getAllPeople()) {
+            people[count++] = person;
+        }
+        CompactGraph map = reference.getHospitalMap();
+
+        Random random = new Random(11);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        try (PrintWriter writer = new PrintWriter(directory.resolve("events.json").toFile())) {
+            writer.println("[");
+            for (int i = 0; i < 30000; i++) {
+                writer.print(i == 0 ? "  " : ",\n  ");
+                writer.print("{\"personId\": " + people[random.nextInt(people.length)].getId()
+                        + ", \"fromRoomId\": " + map.getRoom(random.nextInt(map.size())).getId()
+                        + ", \"toRoomId\": " + map.getRoom(random.nextInt(map.size())).getId()
+                        + ", \"time\": \"" + start.plusSeconds(random.nextInt(86400)) + "\"}");
+            }
+            writer.println("\n]");
+        }
+
+        String expected = describe(sequential(directory));
+        assertEquals(expected, describe(parallel(directory, 1)));
+        assertEquals(expected, describe(parallel(directory, 8)));
+    }
+}
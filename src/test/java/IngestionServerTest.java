@@ -0,0 +1,103 @@
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import hospital.server.IngestionServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IngestionServerTest {
+
+    private Hospital hospital;
+    private IngestionServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UnorderedListADT<TypeOfFunction> everyone = new UnorderedLinkedList<>();
+        for (TypeOfFunction function : TypeOfFunction.values()) {
+            everyone.addToRear(function);
+        }
+        UnorderedListADT<TypeOfFunction> staff = new UnorderedLinkedList<>();
+        staff.addToRear(TypeOfFunction.DOCTOR);
+
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        builder.addRoom(new Room(1, everyone, 0, false, 10, TypeOfRoom.EXIT, "Entrance"));
+        builder.addRoom(new Room(2, everyone, 0, false, 10, TypeOfRoom.WAITING, "Waiting Room"));
+        builder.addRoom(new Room(3, staff, 0, false, 10, TypeOfRoom.SURGERY, "Surgery Room"));
+        builder.addEdge(1, 2, 1);
+        builder.addEdge(2, 3, 1);
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        hospital.addPerson(new Person(100000001, "Doctor", 40, TypeOfFunction.DOCTOR));
+        hospital.addPerson(new Person(100000002, "Visitor", 30, TypeOfFunction.VISITOR));
+
+        server = new IngestionServer(hospital, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testMovementsAreValidatedAndApplied() throws Exception {
+        String[] lines = {
+                "100000001,1,2,2024-05-01T09:00:00",
+                "100000001,2,3,2024-05-01T09:05:00",
+                "100000002,1,2,2024-05-01T09:06:00",
+                "100000002,2,3,2024-05-01T09:07:00",
+                "100000003,1,2,2024-05-01T09:08:00",
+                "100000002,2,9,2024-05-01T09:09:00",
+                "100000002,1,3,2024-05-01T09:10:00",
+                "100000002,2,1",
+                "100000002,2,1,yesterday",
+        };
+        String[] answers = new String[lines.length];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            // every line is sent before any answer is read
+            for (String line : lines) {
+                out.write(line + "\n");
+            }
+            out.flush();
+            for (int i = 0; i < lines.length; i++) {
+                answers[i] = in.readLine();
+            }
+        }
+
+        assertEquals("OK", answers[0]);
+        assertEquals("OK", answers[1]);
+        assertEquals("OK", answers[2]);
+        assertEquals("ERR person 100000002 may not enter room 3", answers[3]);
+        assertEquals("ERR unknown person 100000003", answers[4]);
+        assertEquals("ERR unknown room 9", answers[5]);
+        assertEquals("ERR no door from room 1 to room 3", answers[6]);
+        assertTrue(answers[7].startsWith("ERR "));
+        assertTrue(answers[8].startsWith("ERR malformed"));
+
+        assertEquals(3, server.getAcceptedCount());
+        assertEquals(6, server.getRejectedCount());
+        assertEquals(2, hospital.getPersonById(100000001).getActivity().size());
+        assertTrue(hospital.getRoomById(3).getPeopleInRoom().contains(hospital.getPersonById(100000001)));
+        assertTrue(hospital.getRoomById(2).getPeopleInRoom().contains(hospital.getPersonById(100000002)));
+    }
+}
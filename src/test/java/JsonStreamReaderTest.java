@@ -0,0 +1,89 @@
+import hospital.io.JsonStreamReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class JsonStreamReaderTest {
+
+    private static JsonStreamReader reader(String json) {
+        return new JsonStreamReader(new StringReader(json));
+    }
+
+    @Test
+    void testReadsArrayOfObjects() throws IOException {
+        JsonStreamReader reader = reader(" [ {\"id\": 7, \"name\": \"Ward\", \"ok\": true},\n{\"id\": -3, \"name\": null, \"ok\": false} ] ");
+        reader.beginArray();
+
+        reader.beginObject();
+        assertEquals("id", reader.nextName());
+        assertEquals(7, reader.nextInt());
+        assertEquals("name", reader.nextName());
+        assertEquals("Ward", reader.nextString());
+        assertEquals("ok", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+
+        assertTrue(reader.hasNext());
+        reader.beginObject();
+        reader.nextName();
+        assertEquals(-3, reader.nextInt());
+        reader.nextName();
+        assertNull(reader.nextString());
+        reader.nextName();
+        assertFalse(reader.nextBoolean());
+        reader.endObject();
+
+        assertFalse(reader.hasNext());
+        reader.endArray();
+    }
+
+    @Test
+    void testDecodesEscapes() throws IOException {
+        JsonStreamReader reader = reader("[\"a\\\"b\\\\c\\/d\\n\\u00e9\"]");
+        reader.beginArray();
+        assertEquals("a\"b\\c/d\né", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void testSkipsNestedValues() throws IOException {
+        JsonStreamReader reader = reader("{\"skip\": {\"a\": [1, 2.5e3, {\"b\": \"}\"}]}, \"keep\": 42}");
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(42, reader.nextLong());
+        reader.endObject();
+    }
+
+    @Test
+    void testReadsStringsLongerThanTheBuffer() throws IOException {
+        String text = "x".repeat(20000);
+        JsonStreamReader reader = reader("[\"" + text + "\", 1]");
+        reader.beginArray();
+        assertEquals(text, reader.nextString());
+        assertEquals(1, reader.nextInt());
+        reader.endArray();
+    }
+
+    @Test
+    void testRejectsMalformedInput() throws IOException {
+        JsonStreamReader missingComma = reader("[1 2]");
+        missingComma.beginArray();
+        missingComma.nextInt();
+        assertThrows(IOException.class, missingComma::nextInt);
+
+        JsonStreamReader decimal = reader("[1.5]");
+        decimal.beginArray();
+        assertThrows(IOException.class, decimal::nextInt);
+
+        JsonStreamReader unterminated = reader("[\"abc");
+        unterminated.beginArray();
+        assertThrows(IOException.class, unterminated::nextString);
+    }
+}
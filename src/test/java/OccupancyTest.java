@@ -0,0 +1,114 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import hospital.occupancy.OccupancyAlert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OccupancyTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    private Hospital hospital;
+    private Room entrance;
+    private Room ward;
+    private Person first;
+    private Person second;
+    private List<OccupancyAlert> alerts;
+
+    @BeforeEach
+    void setUp() {
+        entrance = new Room(1, new UnorderedLinkedList<>(), 0, false, 100, TypeOfRoom.EXIT, "Entrance");
+        ward = new Room(2, new UnorderedLinkedList<>(), 0, false, 2, TypeOfRoom.HOSPITALIZATION, "Ward");
+        hospital = new Hospital();
+        hospital.setHospitalMap(new CompactGraph.Builder().addRoom(entrance).addRoom(ward).build());
+        first = new Person(100000001, "First", 30, TypeOfFunction.NURSE);
+        second = new Person(100000002, "Second", 30, TypeOfFunction.NURSE);
+        hospital.addPerson(first);
+        hospital.addPerson(second);
+        alerts = new ArrayList<>();
+        hospital.getOccupancyMonitor().addListener(alerts::add);
+    }
+
+    @Test
+    void testPersonIsCountedOnceWhenEnteringTwice() {
+        Room room = new Room(3, new UnorderedLinkedList<>(), 0, false, 5, TypeOfRoom.OFFICE, "Office");
+        room.addEvent(new Event(first, entrance, room, START));
+        room.addEvent(new Event(first, entrance, room, START.plusMinutes(1)));
+        assertEquals(1, room.getPeopleInRoom().size());
+        assertEquals(1, room.getCurrentOccupation());
+        assertEquals(2, room.getEvents().size());
+    }
+
+    @Test
+    void testListenersMayReadTheHospital() {
+        List<Integer> seen = new ArrayList<>();
+        // the alerts are published once the rooms are unlocked, so reading the room does not wait for itself
+        hospital.getOccupancyMonitor().addListener(alert ->
+                seen.add(hospital.getPeopleInRoom(alert.room().getId()).size()));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            hospital.addEvent(new Event(first, entrance, ward, START));
+            hospital.applyEvents(new Event[]{new Event(second, entrance, ward, START.plusMinutes(1))});
+            hospital.recordEvents(new Event[]{new Event(first, ward, entrance, START.plusMinutes(2))});
+        });
+        assertEquals(List.of(2, 2, 1, 1), seen);
+    }
+
+    @Test
+    void testOccupiedFollowsCapacityAndAlertsArePublished() {
+        assertArrayEquals(new int[]{2, 0}, hospital.getOccupancy());
+
+        hospital.addEvent(new Event(first, entrance, ward, START));
+        assertEquals(1, ward.getCurrentOccupation());
+        assertFalse(ward.isOccupied());
+        assertTrue(alerts.isEmpty());
+
+        hospital.addEvent(new Event(second, entrance, ward, START.plusMinutes(1)));
+        assertArrayEquals(new int[]{0, 2}, hospital.getOccupancy());
+        assertTrue(ward.isOccupied());
+        // 80% of a capacity of 2 and the capacity itself are both reached by the second person
+        assertEquals(2, alerts.size());
+        assertTrue(alerts.get(0).rising());
+        assertEquals(1.0, alerts.get(1).threshold());
+
+        alerts.clear();
+        hospital.addEvent(new Event(first, ward, entrance, START.plusMinutes(2)));
+        assertFalse(ward.isOccupied());
+        assertEquals(2, alerts.size());
+        assertFalse(alerts.get(0).rising());
+        assertEquals(1, alerts.get(0).occupation());
+    }
+
+    @Test
+    void testBatchKeepsTheSameCounts() {
+        hospital.applyEvents(new Event[]{
+                new Event(first, entrance, ward, START),
+                new Event(second, entrance, ward, START.plusMinutes(1)),
+                new Event(first, ward, entrance, START.plusMinutes(2)),
+                new Event(first, entrance, ward, START.plusMinutes(3)),
+        });
+        assertArrayEquals(new int[]{0, 2}, hospital.getOccupancy());
+        assertEquals(2, ward.getPeopleInRoom().size());
+        assertTrue(ward.isOccupied());
+        // the ward is full, then not, then full again inside the batch, and every crossing is published
+        assertEquals(6, alerts.size());
+        assertTrue(alerts.get(1).rising());
+        assertFalse(alerts.get(2).rising());
+        assertEquals(1, alerts.get(2).occupation());
+        assertTrue(alerts.get(5).rising());
+        assertEquals(2, alerts.get(5).occupation());
+    }
+}
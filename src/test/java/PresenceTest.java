@@ -0,0 +1,90 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PresenceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    private Hospital hospital;
+    private Room[] rooms;
+    private Person doctor;
+    private Person nurse;
+
+    @BeforeEach
+    void setUp() {
+        rooms = new Room[4];
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+            builder.addRoom(rooms[i]);
+        }
+        hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        doctor = new Person(100000001, "Doctor", 40, TypeOfFunction.DOCTOR);
+        nurse = new Person(100000002, "Nurse", 30, TypeOfFunction.NURSE);
+        hospital.addPerson(doctor);
+        hospital.addPerson(nurse);
+    }
+
+    @Test
+    void testNewPersonIsAtTheEntrance() {
+        assertTrue(doctor.getActivity().isEmpty());
+        assertSame(rooms[0], hospital.getLocation(doctor.getId()));
+        assertNull(hospital.getLocation(999999999));
+    }
+
+    @Test
+    void testLocationFollowsEvents() {
+        hospital.addEvent(new Event(doctor, rooms[0], rooms[1], START));
+        hospital.addEvent(new Event(doctor, rooms[1], rooms[2], START.plusMinutes(5)));
+        assertSame(rooms[2], hospital.getLocation(doctor.getId()));
+        assertEquals(1, hospital.getPeopleInRoom(2).size());
+        assertTrue(hospital.getPeopleInRoom(1).isEmpty());
+
+        // an event that does not start where the person is still moves them out of the room they are in
+        hospital.addEvent(new Event(doctor, rooms[1], rooms[3], START.plusMinutes(10)));
+        assertSame(rooms[3], hospital.getLocation(doctor.getId()));
+        assertTrue(hospital.getPeopleInRoom(2).isEmpty());
+        assertEquals(0, rooms[2].getCurrentOccupation());
+    }
+
+    @Test
+    void testPeopleOfAFunctionAreCountedPerRoom() {
+        hospital.applyEvents(new Event[]{
+                new Event(doctor, rooms[0], rooms[1], START),
+                new Event(nurse, rooms[0], rooms[2], START),
+        });
+        assertEquals(1, hospital.countPeople(TypeOfFunction.DOCTOR, 1, 2));
+        assertEquals(1, hospital.countPeople(TypeOfFunction.NURSE, 1, 2));
+        assertEquals(0, hospital.countPeople(TypeOfFunction.NURSE, 0, 1, 3));
+        assertEquals(2, hospital.countPeople(TypeOfFunction.DOCTOR, 0, 1, 2, 3)
+                + hospital.countPeople(TypeOfFunction.NURSE, 0, 1, 2, 3));
+    }
+
+    @Test
+    void testAddingAPersonAgainCountsThemOnce() {
+        hospital.addPerson(doctor);
+        assertEquals(2, rooms[0].getCurrentOccupation());
+        assertEquals(1, hospital.countPeople(TypeOfFunction.DOCTOR, 0));
+
+        // a person added again after moving goes back to the entrance
+        hospital.addEvent(new Event(nurse, rooms[0], rooms[2], START));
+        hospital.addPerson(nurse);
+        assertSame(rooms[0], hospital.getLocation(nurse.getId()));
+        assertEquals(0, rooms[2].getCurrentOccupation());
+        assertEquals(2, rooms[0].getCurrentOccupation());
+    }
+}
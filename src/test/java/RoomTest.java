@@ -79,4 +79,18 @@ class RoomTest {
         room.addAccess(function);
         assertTrue(room.getAccess().contains(function));
     }
+
+    @Test
+    void testAccessIsNotAddedTwice() {
+        assertTrue(room.addAccess(TypeOfFunction.NURSE));
+        assertFalse(room.addAccess(TypeOfFunction.NURSE));
+        assertEquals(1, room.getAccess().size());
+        assertTrue(room.hasAccess(TypeOfFunction.NURSE));
+        assertFalse(room.hasAccess(TypeOfFunction.DOCTOR));
+
+        assertTrue(room.removeAccess(TypeOfFunction.NURSE));
+        assertFalse(room.removeAccess(TypeOfFunction.NURSE));
+        assertFalse(room.hasAccess(TypeOfFunction.NURSE));
+        assertTrue(room.getAccess().isEmpty());
+    }
 }
@@ -0,0 +1,106 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Hospital;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import hospital.graph.RouteCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class RouteCacheTest {
+
+    private static final RouteCache.Route ROUTE = new RouteCache.Route(List.of(), 1);
+
+    @Test
+    void testLeastRecentlyUsedRouteIsEvicted() {
+        RouteCache cache = new RouteCache(1);
+        cache.put(0, 1, 2, null, ROUTE);
+        assertSame(ROUTE, cache.get(0, 1, 2, null));
+        assertNull(cache.get(0, 1, 2, TypeOfFunction.VISITOR));
+        cache.put(0, 2, 1, null, ROUTE);
+        assertNull(cache.get(0, 1, 2, null));
+        assertEquals(1, cache.getEvictions());
+
+        RouteCache bounded = new RouteCache(64);
+        for (int i = 0; i < 1000; i++) {
+            bounded.put(0, i, i + 1, null, ROUTE);
+        }
+        assertTrue(bounded.size() <= 64);
+        assertEquals(1000 - bounded.size(), bounded.getEvictions());
+    }
+
+    @Test
+    void testNewVersionForgetsRoutes() {
+        RouteCache cache = new RouteCache(100);
+        cache.put(3, 1, 2, null, ROUTE);
+        assertSame(ROUTE, cache.get(3, 1, 2, null));
+        assertNull(cache.get(4, 1, 2, null));
+        // a route found on an older map is not stored
+        cache.put(3, 1, 2, null, ROUTE);
+        assertNull(cache.get(4, 1, 2, null));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1 / 3.0, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testRouteFoundBeforeAnAccessChangeIsNeverRead() {
+        // the steps of Hospital.route: the version is read once, then the route is looked up, searched and stored
+        RouteCache cache = new RouteCache(100);
+        long version = 7;
+        assertNull(cache.get(version, 1, 2, TypeOfFunction.VISITOR));
+        // the access changes while the route is searched, and another thread reads with the new version
+        long changed = version + 1;
+        assertNull(cache.get(changed, 1, 2, TypeOfFunction.VISITOR));
+        cache.put(version, 1, 2, TypeOfFunction.VISITOR, ROUTE);
+        assertNull(cache.get(changed, 1, 2, TypeOfFunction.VISITOR));
+
+        // without another reader the stale route is stored, but forgotten by the first read of the new version
+        cache.put(changed, 3, 4, TypeOfFunction.VISITOR, ROUTE);
+        assertNull(cache.get(changed + 1, 3, 4, TypeOfFunction.VISITOR));
+    }
+
+    @Test
+    void testRouteRoomsCannotBeChanged() {
+        Room room = new Room(1, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room 1");
+        Room[] rooms = {room};
+        RouteCache.Route route = new RouteCache.Route(List.of(rooms), 0);
+        rooms[0] = null;
+        assertSame(room, route.rooms().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> route.rooms().set(0, room));
+    }
+
+    @Test
+    void testHospitalCachesRoutesUntilTheMapChanges() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int id = 1; id <= 3; id++) {
+            UnorderedLinkedList<TypeOfFunction> access = new UnorderedLinkedList<>();
+            access.addToRear(TypeOfFunction.DOCTOR);
+            builder.addRoom(new Room(id, access, 0, false, 10, TypeOfRoom.WAITING, "Room " + id));
+        }
+        builder.addEdge(1, 2, 1).addEdge(2, 3, 2).addEdge(1, 3, 5);
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(builder.build());
+        RouteCache cache = hospital.getRouteCache();
+
+        assertEquals(3, hospital.shortestPathWeight(1, 3));
+        assertEquals(3, hospital.shortestPathWeight(1, 3));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, hospital.shortestPathWeight(1, 3, TypeOfFunction.DOCTOR));
+        assertEquals(1, cache.getHits());
+
+        assertTrue(hospital.revokeAccess(2, TypeOfFunction.DOCTOR));
+        assertEquals(5, hospital.shortestPathWeight(1, 3, TypeOfFunction.DOCTOR));
+        assertEquals(3, hospital.shortestPathWeight(1, 3));
+        assertEquals(1, cache.getHits());
+
+        hospital.setRouteCacheCapacity(0);
+        assertNull(hospital.getRouteCache());
+        assertEquals(3, hospital.shortestPathWeight(1, 3));
+    }
+}
@@ -0,0 +1,164 @@
+import collections.lists.UnorderedLinkedList;
+import hospital.Hospital;
+import hospital.Room;
+import hospital.enums.TypeOfRoom;
+import hospital.graph.CompactGraph;
+import hospital.graph.RouteTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class RouteTableTest {
+
+    private static final int WINGS = 3;
+    private static final int ROOMS_PER_WING = 20;
+
+    private ForkJoinPool pool;
+    private Room[] rooms;
+    private List<double[]> edges;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        rooms = new Room[WINGS * ROOMS_PER_WING];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+        }
+        // separate wings, each a corridor with a few random doors
+        Random random = new Random(7);
+        edges = new ArrayList<>();
+        for (int wing = 0; wing < WINGS; wing++) {
+            int first = wing * ROOMS_PER_WING;
+            for (int i = first; i < first + ROOMS_PER_WING - 1; i++) {
+                edges.add(new double[]{i, i + 1, 1 + random.nextInt(5)});
+                edges.add(new double[]{i + 1, i, 1 + random.nextInt(5)});
+            }
+            for (int i = 0; i < 10; i++) {
+                edges.add(new double[]{first + random.nextInt(ROOMS_PER_WING), first + random.nextInt(ROOMS_PER_WING),
+                        1 + random.nextInt(20)});
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private CompactGraph build() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (Room room : rooms) {
+            builder.addRoom(room);
+        }
+        for (double[] edge : edges) {
+            if (edge[0] != edge[1]) {
+                builder.addEdge((int) edge[0], (int) edge[1], edge[2]);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void assertMatchesSearches(RouteTable table) {
+        CompactGraph graph = table.getGraph();
+        for (int source = 0; source < graph.size(); source++) {
+            for (int target = 0; target < graph.size(); target++) {
+                double expected = graph.shortestPathWeight(source, target);
+                assertEquals((float) expected, table.distance(source, target), 1e-4);
+                int[] path = table.findShortestPath(source, target);
+                if (expected == Double.POSITIVE_INFINITY) {
+                    assertEquals(0, path.length);
+                    continue;
+                }
+                assertEquals(source, path[0]);
+                assertEquals(target, path[path.length - 1]);
+                double weight = 0;
+                for (int i = 1; i < path.length; i++) {
+                    weight += edgeWeight(graph, path[i - 1], path[i]);
+                }
+                assertEquals(expected, weight, 1e-4);
+            }
+        }
+    }
+
+    private static double edgeWeight(CompactGraph graph, int from, int to) {
+        for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+            if (graph.target(edge) == to) {
+                return graph.weight(edge);
+            }
+        }
+        return fail("No edge " + from + " -> " + to);
+    }
+
+    @Test
+    void testTableMatchesSearches() {
+        RouteTable table = RouteTable.compute(build(), pool);
+        assertEquals(rooms.length, table.getSearchedRows());
+        assertMatchesSearches(table);
+        assertEquals(-1, table.nextHop(0, 0));
+        assertEquals(-1, table.nextHop(0, ROOMS_PER_WING));
+    }
+
+    @Test
+    void testChangedEdgesOnlySearchTheAffectedRows() {
+        RouteTable table = RouteTable.compute(build(), pool);
+
+        // a shortcut in the first wing cannot change the routes that start in the other wings
+        edges.add(new double[]{0, ROOMS_PER_WING - 1, 0.5});
+        RouteTable shortcut = table.update(build(), pool);
+        assertTrue(shortcut.getSearchedRows() <= ROOMS_PER_WING);
+        assertTrue(shortcut.getSearchedRows() > 0);
+        assertMatchesSearches(shortcut);
+
+        // removing the shortcut and making a corridor door longer
+        edges.remove(edges.size() - 1);
+        edges.get(ROOMS_PER_WING * 2 + 3)[2] += 10;
+        RouteTable restored = shortcut.update(build(), pool);
+        assertTrue(restored.getSearchedRows() < rooms.length);
+        assertMatchesSearches(restored);
+
+        assertSame(restored, restored.update(restored.getGraph(), pool));
+    }
+
+    @Test
+    void testNewRoomsAddRows() {
+        RouteTable table = RouteTable.compute(build(), pool);
+        Room annex = new Room(1000, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.OFFICE, "Annex");
+        CompactGraph alone = table.getGraph().toBuilder().addRoom(annex).build();
+        RouteTable withAnnex = table.update(alone, pool);
+        assertEquals(1, withAnnex.getSearchedRows());
+        assertMatchesSearches(withAnnex);
+
+        CompactGraph connected = alone.toBuilder().addEdge(5, 1000, 1).addEdge(1000, 5, 1).build();
+        RouteTable withDoor = withAnnex.update(connected, pool);
+        assertTrue(withDoor.getSearchedRows() <= ROOMS_PER_WING + 1);
+        assertMatchesSearches(withDoor);
+    }
+
+    @Test
+    void testHospitalRoutesReadTheTable() {
+        Hospital hospital = new Hospital();
+        hospital.setHospitalMap(build());
+        double searched = hospital.shortestPathWeight(0, ROOMS_PER_WING - 1);
+        hospital.enableRouteTable(pool);
+        assertEquals(searched, hospital.shortestPathWeight(0, ROOMS_PER_WING - 1), 1e-4);
+
+        hospital.addVertex(new Room(1000, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.OFFICE, "Annex"));
+        assertSame(hospital.getHospitalMap(), hospital.getRouteTable().getGraph());
+        assertEquals(Double.POSITIVE_INFINITY, hospital.shortestPathWeight(0, 1000));
+        Iterator<Room> path = hospital.findShortestPath(0, ROOMS_PER_WING - 1);
+        assertEquals(0, path.next().getId());
+
+        hospital.disableRouteTable();
+        assertNull(hospital.getRouteTable());
+        assertEquals(searched, hospital.shortestPathWeight(0, ROOMS_PER_WING - 1));
+    }
+}
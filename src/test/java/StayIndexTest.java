@@ -0,0 +1,150 @@
+import collections.lists.UnorderedLinkedList;
+import collections.lists.UnorderedListADT;
+import hospital.Event;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.enums.TypeOfRoom;
+import hospital.events.Contact;
+import hospital.events.EventTimeline;
+import hospital.events.Stay;
+import hospital.events.StayIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class StayIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    private Room[] rooms;
+
+    @BeforeEach
+    void setUp() {
+        rooms = new Room[4];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new Room(i, new UnorderedLinkedList<>(), 0, false, 10, TypeOfRoom.WAITING, "Room " + i);
+        }
+    }
+
+    private static Person person(int n) {
+        return new Person(100000000 + n, "Person " + n, 30, TypeOfFunction.NURSE);
+    }
+
+    private void move(Person person, int from, int to, int minutes) {
+        person.addActivity(new Event(person, rooms[from], rooms[to], START.plusMinutes(minutes)));
+    }
+
+    private static long at(int minutes) {
+        return EventTimeline.epochSecond(START.plusMinutes(minutes));
+    }
+
+    @Test
+    void testOnlyOverlappingStaysAreContacts() {
+        Person index = person(0);
+        Person together = person(1);
+        Person passedThrough = person(2);
+        Person sameRoomOtherTime = person(3);
+
+        move(index, 0, 1, 0);
+        move(index, 1, 2, 30);
+        move(together, 0, 1, 20);
+        move(together, 1, 0, 50);
+        move(passedThrough, 0, 3, 10);
+        move(passedThrough, 3, 0, 15);
+        move(sameRoomOtherTime, 0, 1, 40);
+        move(sameRoomOtherTime, 1, 0, 45);
+
+        StayIndex stays = StayIndex.build(List.of(index, together, passedThrough, sameRoomOtherTime));
+        UnorderedListADT<Contact> contacts = stays.contactsOf(index.getId(), at(0), at(120));
+
+        assertEquals(1, contacts.size());
+        Contact contact = contacts.first();
+        assertEquals(together, contact.person());
+        assertEquals(10 * 60, contact.overlapSeconds());
+        assertEquals(at(20), contact.firstContact());
+        assertEquals(at(30), contact.lastContact());
+    }
+
+    @Test
+    void testOverlapIsClippedToWindow() {
+        Person index = person(0);
+        Person other = person(1);
+        move(index, 0, 1, 0);
+        move(other, 0, 1, 0);
+
+        StayIndex stays = StayIndex.build(List.of(index, other));
+        Contact contact = stays.contactsOf(index.getId(), at(60), at(90)).first();
+        assertEquals(30 * 60, contact.overlapSeconds());
+        assertEquals(0, stays.contactsOf(index.getId(), at(90), at(60)).size());
+    }
+
+    @Test
+    void testStaysFollowTimeNotInsertionOrder() {
+        Person person = person(0);
+        move(person, 1, 2, 30);
+        move(person, 0, 1, 0);
+
+        Stay[] stays = StayIndex.build(List.of(person)).staysOf(person.getId());
+        assertEquals(2, stays.length);
+        assertEquals(rooms[1], stays[0].room());
+        assertEquals(at(30), stays[0].exit());
+        assertTrue(stays[1].isOpen());
+    }
+
+    @Test
+    void testMatchesPairwiseOverlapOnRandomActivity() {
+        Random random = new Random(7);
+        List<Person> people = new ArrayList<>();
+        for (int n = 0; n < 40; n++) {
+            Person person = person(n);
+            int room = 0;
+            int minute = random.nextInt(60);
+            for (int step = 0; step < 15; step++) {
+                int next = (room + 1 + random.nextInt(rooms.length - 1)) % rooms.length;
+                move(person, room, next, minute);
+                room = next;
+                minute += 1 + random.nextInt(90);
+            }
+            people.add(person);
+        }
+        StayIndex stays = StayIndex.build(people);
+        long from = at(120);
+        long to = at(600);
+
+        for (Person index : people) {
+            Map<Integer, Long> expected = new HashMap<>();
+            for (Stay own : stays.staysOf(index.getId())) {
+                for (Person other : people) {
+                    if (other == index) {
+                        continue;
+                    }
+                    for (Stay stay : stays.staysOf(other.getId())) {
+                        long start = Math.max(Math.max(own.enter(), stay.enter()), from);
+                        long stop = Math.min(Math.min(own.exit(), stay.exit()), to);
+                        if (own.room() == stay.room() && stop > start) {
+                            expected.merge(other.getId(), stop - start, Long::sum);
+                        }
+                    }
+                }
+            }
+            Map<Integer, Long> actual = new HashMap<>();
+            Iterator<Contact> iterator = stays.contactsOf(index.getId(), from, to).iterator();
+            while (iterator.hasNext()) {
+                Contact contact = iterator.next();
+                actual.put(contact.person().getId(), contact.overlapSeconds());
+            }
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import hospital.Event;
+import hospital.Hospital;
+import hospital.Person;
+import hospital.Room;
+import hospital.enums.TypeOfFunction;
+import hospital.events.EventStore;
+import hospital.generator.WorkloadGenerator;
+import hospital.io.HospitalSnapshot;
+import hospital.io.ImportPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static hospital.io.JsonHandler.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class WorkloadGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    private static boolean mayEnter(Room room, TypeOfFunction function) {
+        for (TypeOfFunction allowed : room.getAccess()) {
+            if (allowed == function) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Hospital importJson(Path json) throws Exception {
+        return new ImportPipeline(2).load(json.resolve(MAP_FILE).toString(), json.resolve(ROOMS_FILE).toString(),
+                json.resolve(PEOPLE_FILE).toString(), json.resolve(EVENTS_FILE).toString());
+    }
+
+    @Test
+    void eventsWalkAlongDoorsTheFunctionMayEnter() throws Exception {
+        new WorkloadGenerator(60, 100, 5000).writeJson(directory);
+        Hospital hospital = importJson(directory);
+
+        int events = 0;
+        for (Person person : hospital.getAllPeople()) {
+            Room current = hospital.getRoomById(0);
+            Event previous = null;
+            for (Event event : person.getActivity()) {
+                assertSame(current, event.getFrom());
+                assertTrue(mayEnter(event.getTo(), person.getFunction()));
+                assertTrue(hospital.shortestPathWeight(event.getFrom().getId(), event.getTo().getId()) > 0);
+                assertTrue(previous == null || !event.getTime().isBefore(previous.getTime()));
+                current = event.getTo();
+                previous = event;
+                events++;
+            }
+        }
+        assertEquals(5000, events);
+    }
+
+    @Test
+    void binaryOutputMatchesTheJsonOutput() throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator(60, 100, 5000);
+        generator.setSeed(7);
+        generator.writeJson(directory.resolve("json"));
+        generator.writeBinary(directory.resolve("binary"));
+        Hospital json = importJson(directory.resolve("json"));
+        Hospital binary = HospitalSnapshot.read(directory.resolve("binary").resolve(HospitalSnapshot.SNAPSHOT_FILE))
+                .getHospital();
+
+        int occupation = 0;
+        for (Room room : binary.getAllRooms()) {
+            occupation += room.getCurrentOccupation();
+            for (Person person : room.getPeopleInRoom()) {
+                Person imported = json.getPersonById(person.getId());
+                Room last = imported.getActivity().isEmpty() ? json.getRoomById(0)
+                        : imported.getActivity().last().getTo();
+                assertEquals(last.getId(), room.getId());
+                assertEquals(imported.getName(), person.getName());
+            }
+        }
+        // every person is counted once, by the room they are in
+        assertEquals(100, occupation);
+        assertEquals(100, binary.getAllPeople().size());
+        try (EventStore store = EventStore.open(directory.resolve("binary").resolve(WorkloadGenerator.EVENT_STORE_FILE))) {
+            assertEquals(5000, store.size());
+        }
+    }
+}